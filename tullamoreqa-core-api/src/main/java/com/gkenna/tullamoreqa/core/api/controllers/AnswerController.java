@@ -6,6 +6,10 @@ package com.gkenna.tullamoreqa.core.api.controllers;
 
 import com.gkenna.tullamoreqa.domain.Answer;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -13,7 +17,9 @@ import org.springframework.http.ResponseEntity;
  * external parties, i.e. UI or CLI, to Get/Add/Update/Delete Answers.
  * <p>
  * The Implementation of this API will in turn call the
- * {@link com.gkenna.tullamoreqa.core.api.services.AnswerService} API.
+ * {@link com.gkenna.tullamoreqa.core.api.services.AnswerService} API,
+ * off the servlet thread: each Request is answered by a
+ * {@link WebAsyncTask}.
  *
  * @author Gavin Kenna
  * @since 0.0.0
@@ -24,11 +30,29 @@ public interface AnswerController extends EntryController {
      * <p>
      * Add an {@link Answer} to the Database.
      *
-     * @param input An {@link Answer} container that should be inserted into
-     *              the Database.
-     * @return The Response of this Request.
+     * @param input          An {@link Answer} container that should be
+     *                       inserted into the Database.
+     * @param idempotencyKey Optional Idempotency-Key header; a repeat of a
+     *                       request bearing the same key is answered with
+     *                       the response to the first, rather than adding
+     *                       the {@link Answer} again.
+     * @return The task answering this Request.
+     */
+    WebAsyncTask<ResponseEntity<?>> addAnswer(
+            final Answer input, final String idempotencyKey);
+
+    /**
+     * HTTP POST Method
+     * <p>
+     * Add many {@link Answer}s to the Database in one request.
+     *
+     * @param input The {@link Answer}s that should be inserted into the
+     *              Database.
+     * @return The task answering this Request, holding the IDs of the added
+     * {@link Answer}s in the order given.
+     * @since 0.0.11
      */
-    ResponseEntity<?> addAnswer(final Answer input);
+    WebAsyncTask<ResponseEntity<List<Long>>> addAnswers(final Answer[] input);
 
     /**
      * HTTP GET Method
@@ -36,9 +60,9 @@ public interface AnswerController extends EntryController {
      * Retrieve an {@link Answer} from the Database.
      *
      * @param answerId The ID of the {@link Answer} to retrieve.
-     * @return The Response of this Request.
+     * @return The task answering this Request.
      */
-    ResponseEntity<Answer> getAnswer(final Long answerId);
+    WebAsyncTask<ResponseEntity<Answer>> getAnswer(final Long answerId);
 
     /**
      * HTTP PUT Method
@@ -48,10 +72,12 @@ public interface AnswerController extends EntryController {
      * @param answerId The ID of the {@link Answer} to update.
      * @param input    An {@link Answer} container that holds
      *                 new values for answerId to update to.
-     * @return The Response of this Request.
+     * @param ifMatch  Optional If-Match header, the ETag of the version of
+     *                 the {@link Answer} being updated.
+     * @return The task answering this Request.
      */
-    ResponseEntity<?> updateAnswer(final Long answerId,
-                                   final Answer input);
+    WebAsyncTask<ResponseEntity<?>> updateAnswer(
+            final Long answerId, final Answer input, final String ifMatch);
 
     /**
      * HTTP DELETE Method.
@@ -59,20 +85,25 @@ public interface AnswerController extends EntryController {
      * Delete an {@link Answer} from the Database.
      *
      * @param answerId The ID of the {@link Answer} to delete.
-     * @return The Response of this Request.
+     * @return The task answering this Request.
      */
-    ResponseEntity<?> deleteAnswer(final Long answerId);
+    WebAsyncTask<ResponseEntity<?>> deleteAnswer(final Long answerId);
 
     /**
      * HTTP PATCH Method
      * <p>
-     * Update an {@link Answer} on the Database.
+     * Patch a {@link Answer} on the Database with a JSON Merge Patch
+     * (RFC 7396), answering No Content with the ETag
+     * of the version it is patched to.
      *
-     * @param answerId The ID of the {@link Answer} to update.
-     * @param input    An {@link Answer} container that holds
-     *                 new values for answerId to update to.
-     * @return The Response of this Request.
+     * @param answerId The ID of the {@link Answer} to patch.
+     * @param patch The patch document, field names to new values.
+     * @param ifMatch Optional If-Match header, the ETag of the version of
+     *                the {@link Answer} being patched.
+     * @return The task answering this Request.
      * @since 0.0.11
      */
-    ResponseEntity<?> patchAnswer(final Long answerId, final Answer input);
+    WebAsyncTask<ResponseEntity<?>> patchAnswer(
+            final Long answerId, final Map<String, Object> patch,
+            final String ifMatch);
 }
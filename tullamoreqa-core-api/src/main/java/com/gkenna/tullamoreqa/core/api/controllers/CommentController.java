@@ -6,6 +6,10 @@ package com.gkenna.tullamoreqa.core.api.controllers;
 
 import com.gkenna.tullamoreqa.domain.Comment;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -13,7 +17,9 @@ import org.springframework.http.ResponseEntity;
  * external parties, i.e. UI or CLI, to Get/Add/Update/Delete Comments.
  * <p>
  * The Implementation of this API will in turn call the
- * {@link com.gkenna.tullamoreqa.core.api.services.CommentService} API.
+ * {@link com.gkenna.tullamoreqa.core.api.services.CommentService} API,
+ * off the servlet thread: each Request is answered by a
+ * {@link WebAsyncTask}.
  *
  * @author Gavin Kenna
  * @since 0.0.0
@@ -24,11 +30,16 @@ public interface CommentController extends EntryController {
      * <p>
      * Add an {@link Comment} to the Database.
      *
-     * @param input An {@link Comment} container that should be inserted into
-     *              the Database.
-     * @return The Response of this Request.
+     * @param input          An {@link Comment} container that should be
+     *                       inserted into the Database.
+     * @param idempotencyKey Optional Idempotency-Key header; a repeat of a
+     *                       request bearing the same key is answered with
+     *                       the response to the first, rather than adding
+     *                       the {@link Comment} again.
+     * @return The task answering this Request.
      */
-    ResponseEntity<?> addComment(final Comment input);
+    WebAsyncTask<ResponseEntity<?>> addComment(
+            final Comment input, final String idempotencyKey);
 
     /**
      * HTTP GET Method
@@ -36,9 +47,9 @@ public interface CommentController extends EntryController {
      * Retrieve an {@link Comment} from the Database.
      *
      * @param commentId The ID of the {@link Comment} to retrieve.
-     * @return The Response of this Request.
+     * @return The task answering this Request.
      */
-    ResponseEntity<Comment> getComment(final Long commentId);
+    WebAsyncTask<ResponseEntity<Comment>> getComment(final Long commentId);
 
     /**
      * HTTP PUT Method
@@ -48,10 +59,10 @@ public interface CommentController extends EntryController {
      * @param commentId The ID of the {@link Comment} to update.
      * @param input     An {@link Comment} container that holds
      *                  new values for commentId to update to.
-     * @return The Response of this Request.
+     * @return The task answering this Request.
      */
-    ResponseEntity<?> updateComment(final Long commentId,
-                                    final Comment input);
+    WebAsyncTask<ResponseEntity<?>> updateComment(
+            final Long commentId, final Comment input);
 
     /**
      * HTTP DELETE Method.
@@ -59,20 +70,41 @@ public interface CommentController extends EntryController {
      * Delete an {@link Comment} from the Database.
      *
      * @param commentId The ID of the {@link Comment} to delete.
-     * @return The Response of this Request.
+     * @return The task answering this Request.
      */
-    ResponseEntity<?> deleteComment(final Long commentId);
+    WebAsyncTask<ResponseEntity<?>> deleteComment(final Long commentId);
 
     /**
      * HTTP PATCH Method
      * <p>
-     * Update an {@link Comment} on the Database.
+     * Patch a {@link Comment} on the Database with a JSON Merge Patch
+     * (RFC 7396), answering No Content with the ETag
+     * of the version it is patched to.
      *
-     * @param commentId The ID of the {@link Comment} to update.
-     * @param input     An {@link Comment} container that holds
-     *                  new values for commentId to update to.
-     * @return The Response of this Request.
+     * @param commentId The ID of the {@link Comment} to patch.
+     * @param patch The patch document, field names to new values.
+     * @param ifMatch Optional If-Match header, the ETag of the version of
+     *                the {@link Comment} being patched.
+     * @return The task answering this Request.
+     * @since 0.0.11
+     */
+    WebAsyncTask<ResponseEntity<?>> patchComment(
+            final Long commentId, final Map<String, Object> patch,
+            final String ifMatch);
+
+    /**
+     * HTTP GET Method
+     * <p>
+     * Retrieve the {@link Comment}s on a
+     * {@link com.gkenna.tullamoreqa.domain.Question} and on each of its
+     * {@link com.gkenna.tullamoreqa.domain.Answer}s, grouped by the ID of
+     * the Entry they are on.
+     *
+     * @param questionId The ID of the Question.
+     * @param perParent  {@link Comment}s returned per Entry at most.
+     * @return The task answering this Request.
      * @since 0.0.11
      */
-    ResponseEntity<?> patchComment(final Long commentId, final Comment input);
+    WebAsyncTask<ResponseEntity<Map<Long, List<Comment>>>> getCommentThreads(
+            final Long questionId, final int perParent);
 }
@@ -6,6 +6,10 @@ package com.gkenna.tullamoreqa.core.api.controllers;
 
 import com.gkenna.tullamoreqa.domain.Question;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -13,7 +17,9 @@ import org.springframework.http.ResponseEntity;
  * external parties, i.e. UI or CLI, to Get/Add/Update/Delete Questions.
  * <p>
  * The Implementation of this API will in turn call the
- * {@link com.gkenna.tullamoreqa.core.api.services.QuestionService} API.
+ * {@link com.gkenna.tullamoreqa.core.api.services.QuestionService} API,
+ * off the servlet thread: each Request is answered by a
+ * {@link WebAsyncTask}.
  *
  * @author Gavin Kenna
  * @since 0.0.0
@@ -24,11 +30,30 @@ public interface QuestionController extends EntryController {
      * <p>
      * Add an {@link Question} to the Database.
      *
-     * @param input An {@link Question} container that should be inserted into
-     *              the Database.
-     * @return The Response of this Request.
+     * @param input          An {@link Question} container that should be
+     *                       inserted into the Database.
+     * @param idempotencyKey Optional Idempotency-Key header; a repeat of a
+     *                       request bearing the same key is answered with
+     *                       the response to the first, rather than adding
+     *                       the {@link Question} again.
+     * @return The task answering this Request.
      */
-    ResponseEntity<?> addQuestion(final Question input);
+    WebAsyncTask<ResponseEntity<?>> addQuestion(
+            final Question input, final String idempotencyKey);
+
+    /**
+     * HTTP POST Method
+     * <p>
+     * Add many {@link Question}s to the Database in one request.
+     *
+     * @param input The {@link Question}s that should be inserted into the
+     *              Database.
+     * @return The task answering this Request, holding the IDs of the added
+     * {@link Question}s in the order given.
+     * @since 0.0.11
+     */
+    WebAsyncTask<ResponseEntity<List<Long>>> addQuestions(
+            final Question[] input);
 
     /**
      * HTTP GET Method
@@ -36,9 +61,9 @@ public interface QuestionController extends EntryController {
      * Retrieve an {@link Question} from the Database.
      *
      * @param questionId The ID of the {@link Question} to retrieve.
-     * @return The Response of this Request.
+     * @return The task answering this Request.
      */
-    ResponseEntity<Question> getQuestion(final Long questionId);
+    WebAsyncTask<ResponseEntity<Question>> getQuestion(final Long questionId);
 
     /**
      * HTTP PUT Method
@@ -48,10 +73,12 @@ public interface QuestionController extends EntryController {
      * @param questionId The ID of the {@link Question} to update.
      * @param input      An {@link Question} container that holds
      *                   new values for questionId to update to.
-     * @return The Response of this Request.
+     * @param ifMatch    Optional If-Match header, the ETag of the version
+     *                   of the {@link Question} being updated.
+     * @return The task answering this Request.
      */
-    ResponseEntity<?> updateQuestion(final Long questionId,
-                                     final Question input);
+    WebAsyncTask<ResponseEntity<?>> updateQuestion(
+            final Long questionId, final Question input, final String ifMatch);
 
     /**
      * HTTP DELETE Method.
@@ -59,21 +86,25 @@ public interface QuestionController extends EntryController {
      * Delete an {@link Question} from the Database.
      *
      * @param questionId The ID of the {@link Question} to delete.
-     * @return The Response of this Request.
+     * @return The task answering this Request.
      */
-    ResponseEntity<?> deleteQuestion(final Long questionId);
+    WebAsyncTask<ResponseEntity<?>> deleteQuestion(final Long questionId);
 
     /**
      * HTTP PATCH Method
      * <p>
-     * Update a {@link Question} on the Database.
+     * Patch a {@link Question} on the Database with a JSON Merge Patch
+     * (RFC 7396), answering No Content with the ETag
+     * of the version it is patched to.
      *
-     * @param questionId The ID of the {@link Question} to update.
-     * @param input      An {@link Question} container that holds
-     *                   new values for questionId to update to.
-     * @return The Response of this Request.
+     * @param questionId The ID of the {@link Question} to patch.
+     * @param patch The patch document, field names to new values.
+     * @param ifMatch Optional If-Match header, the ETag of the version of
+     *                the {@link Question} being patched.
+     * @return The task answering this Request.
      * @since 0.0.11
      */
-    ResponseEntity<?> patchQuestion(final Long questionId,
-                                    final Question input);
+    WebAsyncTask<ResponseEntity<?>> patchQuestion(
+            final Long questionId, final Map<String, Object> patch,
+            final String ifMatch);
 }
@@ -6,13 +6,19 @@ package com.gkenna.tullamoreqa.core.api.controllers;
 
 import com.gkenna.tullamoreqa.domain.Tag;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.util.List;
+import java.util.Map;
 
 /**
  * API Controller for the {@link Tag} Domain. This API will allow
  * external parties, i.e. UI or CLI, to Get/Add/Update/Delete Tags.
  * <p>
  * The Implementation of this API will in turn call the
- * {@link com.gkenna.tullamoreqa.core.api.services.TagService} API.
+ * {@link com.gkenna.tullamoreqa.core.api.services.TagService} API,
+ * off the servlet thread: each Request is answered by a
+ * {@link WebAsyncTask}.
  *
  * @author Gavin Kenna
  * @since 0.0.0
@@ -25,9 +31,22 @@ public interface TagController {
      *
      * @param input An {@link Tag} container that should be inserted into
      *              the Database.
-     * @return The Response of this Request.
+     * @return The task answering this Request.
+     */
+    WebAsyncTask<ResponseEntity<?>> addTag(final Tag input);
+
+    /**
+     * HTTP POST Method
+     * <p>
+     * Add many {@link Tag}s to the Database in one request.
+     *
+     * @param input The {@link Tag}s that should be inserted into the
+     *              Database.
+     * @return The task answering this Request, holding the IDs of the added
+     * {@link Tag}s in the order given.
+     * @since 0.0.11
      */
-    ResponseEntity<?> addTag(final Tag input);
+    WebAsyncTask<ResponseEntity<List<String>>> addTags(final Tag[] input);
 
     /**
      * HTTP GET Method
@@ -35,9 +54,9 @@ public interface TagController {
      * Retrieve an {@link Tag} from the Database.
      *
      * @param tagId The ID of the {@link Tag} to retrieve.
-     * @return The Response of this Request.
+     * @return The task answering this Request.
      */
-    ResponseEntity<Tag> getTag(final String tagId);
+    WebAsyncTask<ResponseEntity<Tag>> getTag(final String tagId);
 
     /**
      * HTTP PUT Method
@@ -47,9 +66,12 @@ public interface TagController {
      * @param tagId The ID of the {@link Tag} to update.
      * @param input An {@link Tag} container that holds
      *              new values for tagId to update to.
-     * @return The Response of this Request.
+     * @param ifMatch Optional If-Match header, the ETag of the version of
+     *                the {@link Tag} being updated.
+     * @return The task answering this Request.
      */
-    ResponseEntity<?> updateTag(final String tagId, final Tag input);
+    WebAsyncTask<ResponseEntity<?>> updateTag(
+            final String tagId, final Tag input, final String ifMatch);
 
     /**
      * HTTP DELETE Method.
@@ -57,20 +79,25 @@ public interface TagController {
      * Delete an {@link Tag} from the Database.
      *
      * @param tagId The ID of the {@link Tag} to delete.
-     * @return The Response of this Request.
+     * @return The task answering this Request.
      */
-    ResponseEntity<?> deleteTag(final String tagId);
+    WebAsyncTask<ResponseEntity<?>> deleteTag(final String tagId);
 
     /**
      * HTTP PATCH Method
      * <p>
-     * Update an {@link Tag} on the Database.
+     * Patch a {@link Tag} on the Database with a JSON Merge Patch
+     * (RFC 7396), answering No Content with the ETag
+     * of the version it is patched to.
      *
-     * @param tagId The ID of the {@link Tag} to update.
-     * @param input An {@link Tag} container that holds
-     *              new values for tagId to update to.
+     * @param tagId The ID of the {@link Tag} to patch.
+     * @param patch The patch document, field names to new values.
+     * @param ifMatch Optional If-Match header, the ETag of the version of
+     *                the {@link Tag} being patched.
+     * @return The task answering this Request.
      * @since 0.0.11
-     * @return The Response of this Request.
      */
-    ResponseEntity<?> patchTag(final String tagId, final Tag input);
+    WebAsyncTask<ResponseEntity<?>> patchTag(
+            final String tagId, final Map<String, Object> patch,
+            final String ifMatch);
 }
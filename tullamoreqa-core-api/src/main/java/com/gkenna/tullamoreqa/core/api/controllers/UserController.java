@@ -4,15 +4,21 @@
 
 package com.gkenna.tullamoreqa.core.api.controllers;
 
+import com.gkenna.tullamoreqa.domain.AuthorSummary;
 import com.gkenna.tullamoreqa.domain.User;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.util.Map;
 
 /**
  * API Controller for the {@link User} Domain. This API will allow
  * external parties, i.e. UI or CLI, to Get/Add/Update/Delete Users.
  * <p>
  * The Implementation of this API will in turn call the
- * {@link com.gkenna.tullamoreqa.core.api.services.UserService} API.
+ * {@link com.gkenna.tullamoreqa.core.api.services.UserService} API,
+ * off the servlet thread: each Request is answered by a
+ * {@link WebAsyncTask}.
  *
  * @author Gavin Kenna
  * @since 0.0.0
@@ -23,11 +29,16 @@ public interface UserController {
      * <p>
      * Add an {@link User} to the Database.
      *
-     * @param input An {@link User} container that should be inserted into
-     *              the Database.
-     * @return The Response of this Request.
+     * @param input          An {@link User} container that should be
+     *                       inserted into the Database.
+     * @param idempotencyKey Optional Idempotency-Key header; a repeat of a
+     *                       request bearing the same key is answered with
+     *                       the response to the first, rather than adding
+     *                       the {@link User} again.
+     * @return The task answering this Request.
      */
-    ResponseEntity<?> addUser(final User input);
+    WebAsyncTask<ResponseEntity<?>> addUser(
+            final User input, final String idempotencyKey);
 
     /**
      * HTTP GET Method
@@ -35,9 +46,9 @@ public interface UserController {
      * Retrieve an {@link User} from the Database.
      *
      * @param username The ID of the {@link User} to retrieve.
-     * @return The Response of this Request.
+     * @return The task answering this Request.
      */
-    ResponseEntity<User> getUser(final String username);
+    WebAsyncTask<ResponseEntity<User>> getUser(final String username);
 
     /**
      * HTTP PUT Method
@@ -47,9 +58,10 @@ public interface UserController {
      * @param username The ID of the {@link User} to update.
      * @param input    An {@link User} container that holds
      *                 new values for userId to update to.
-     * @return The Response of this Request.
+     * @return The task answering this Request.
      */
-    ResponseEntity<?> updateUser(final String username, final User input);
+    WebAsyncTask<ResponseEntity<?>> updateUser(
+            final String username, final User input);
 
     /**
      * HTTP DELETE Method.
@@ -57,20 +69,33 @@ public interface UserController {
      * Delete an {@link User} from the Database.
      *
      * @param username The ID of the {@link User} to delete.
-     * @return The Response of this Request.
+     * @return The task answering this Request.
      */
-    ResponseEntity<?> deleteUser(final String username);
+    WebAsyncTask<ResponseEntity<?>> deleteUser(final String username);
 
     /**
      * HTTP PATCH Method
      * <p>
-     * Update an {@link User} on the Database.
+     * Patch a {@link User} on the Database with a JSON Merge Patch
+     * (RFC 7396), answering No Content.
      *
-     * @param username The ID of the {@link User} to update.
-     * @param input An {@link User} container that holds
-     *              new values for userId to update to.
+     * @param username The ID of the {@link User} to patch.
+     * @param patch The patch document, field names to new values.
+     * @return The task answering this Request.
+     * @since 0.0.11
+     */
+    WebAsyncTask<ResponseEntity<?>> patchUser(
+            final String username, final Map<String, Object> patch);
+
+    /**
+     * HTTP GET Method
+     * <p>
+     * Retrieve an {@link AuthorSummary} of a {@link User}.
+     *
+     * @param username The ID of the {@link User} to summarise.
      * @since 0.0.11
-     * @return The Response of this Request.
+     * @return The task answering this Request.
      */
-    ResponseEntity<?> patchUser(final String username, final User input);
+    WebAsyncTask<ResponseEntity<AuthorSummary>> getAuthorSummary(
+            final String username);
 }
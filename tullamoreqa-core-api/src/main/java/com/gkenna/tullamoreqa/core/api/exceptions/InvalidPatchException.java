@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.api.exceptions;
+
+/**
+ * Thrown when a merge patch names a field that can't be patched, or gives a
+ * field a value it can't hold.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public class InvalidPatchException extends Throwable {
+    /**
+     * Constructs a <tt>InvalidPatchException</tt> with the specified cause.
+     *
+     * @param message Additional exception information.
+     */
+    public InvalidPatchException(final String message) {
+        super(message);
+    }
+}
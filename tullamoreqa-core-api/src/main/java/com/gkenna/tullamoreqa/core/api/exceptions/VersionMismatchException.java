@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.api.exceptions;
+
+/**
+ * Thrown when a conditional write names a version of an Entry or
+ * {@link com.gkenna.tullamoreqa.domain.Tag} that is no longer current,
+ * i.e. someone else changed it first.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public class VersionMismatchException extends Throwable {
+    /**
+     * Constructs a <tt>VersionMismatchException</tt> with the
+     * specified cause.
+     *
+     * @param message Additional exception information.
+     */
+    public VersionMismatchException(final String message) {
+        super(message);
+    }
+}
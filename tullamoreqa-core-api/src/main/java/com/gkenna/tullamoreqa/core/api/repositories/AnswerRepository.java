@@ -46,6 +46,17 @@ public interface AnswerRepository extends JpaRepository<Answer, Long> {
     Page<Answer> findQuestionsByCreatedByUsername(String username,
                                                   Pageable pageable);
 
+    /**
+     * Count the {@link Answer}s written by a particular
+     * {@link com.gkenna.tullamoreqa.domain.User}.
+     *
+     * @param username Username of the
+     *                 {@link com.gkenna.tullamoreqa.domain.User}.
+     * @return Number of {@link Answer}s written.
+     * @since 0.0.11
+     */
+    long countByCreatedByUsername(String username);
+
     /**
      * Return a list of all {@link Answer}s based on their Chosen Answer
      * flag for their associated
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.api.repositories;
+
+import com.gkenna.tullamoreqa.domain.events.ChangeEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for the outbox of {@link ChangeEvent}s. Events are added by the
+ * Services in the transaction of the change they describe, and read and
+ * deleted by the relay that publishes them.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Repository
+public interface ChangeEventRepository
+        extends JpaRepository<ChangeEvent, Long> {
+    /**
+     * Return the oldest undelivered {@link ChangeEvent}s.
+     *
+     * @param pageable Number of events to return.
+     * @return Events in ID order.
+     */
+    List<ChangeEvent> findAllByOrderByIdAsc(Pageable pageable);
+}
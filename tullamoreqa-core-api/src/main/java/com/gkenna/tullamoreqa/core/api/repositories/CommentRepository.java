@@ -6,8 +6,11 @@ package com.gkenna.tullamoreqa.core.api.repositories;
 
 import com.gkenna.tullamoreqa.domain.Comment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 
 
 /**
@@ -20,4 +23,29 @@ import org.springframework.stereotype.Repository;
  */
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
+
+    /**
+     * Return the Comments on a {@link com.gkenna.tullamoreqa.domain.Question}
+     * and on each of its {@link com.gkenna.tullamoreqa.domain.Answer}s, in one
+     * query. Comments are found by the type and ID of their parent, so no
+     * Entry is joined, and at most the first perParent Comments of each
+     * parent are returned, counted over the parent index.
+     *
+     * @param questionId ID of the Question.
+     * @param perParent  Comments returned per parent at most.
+     * @return Comments ordered by parent ID, then oldest first.
+     * @since 0.0.11
+     */
+    @Query("SELECT c FROM Comment c WHERE ((c.parentType = "
+            + "com.gkenna.tullamoreqa.domain.ParentType.QUESTION "
+            + "AND c.parentId = ?1) OR (c.parentType = "
+            + "com.gkenna.tullamoreqa.domain.ParentType.ANSWER "
+            + "AND c.parentId IN (SELECT a.id FROM Answer a "
+            + "WHERE a.question.id = ?1))) "
+            + "AND (SELECT COUNT(o) FROM Comment o "
+            + "WHERE o.parentType = c.parentType AND o.parentId = c.parentId "
+            + "AND (o.createdAt < c.createdAt OR (o.createdAt = c.createdAt "
+            + "AND o.id < c.id))) < ?2 "
+            + "ORDER BY c.parentId, c.createdAt, c.id")
+    List<Comment> findThreadsByQuestionId(Long questionId, long perParent);
 }
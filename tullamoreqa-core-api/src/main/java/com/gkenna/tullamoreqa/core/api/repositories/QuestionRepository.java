@@ -12,6 +12,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Date;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -47,6 +49,57 @@ public interface QuestionRepository
     Page<Question> findQuestionsByCreatedByUsername(String username,
                                                     Pageable pageable);
 
+    /**
+     * Count the {@link Question}s asked by a particular
+     * {@link com.gkenna.tullamoreqa.domain.User}.
+     *
+     * @param username Username of the
+     *                 {@link com.gkenna.tullamoreqa.domain.User}.
+     * @return Number of {@link Question}s asked.
+     * @since 0.0.11
+     */
+    long countByCreatedByUsername(String username);
+
+    /**
+     * Return the names of the most used Tags along with how many
+     * {@link Question}s use them, most used first.
+     *
+     * @param pageable Limit the number of Tags returned.
+     * @return Rows of Tag name and {@link Question} count.
+     * @since 0.0.11
+     */
+    @Query("SELECT t.name, COUNT(q) FROM Question q JOIN q.tags t "
+            + "GROUP BY t.name ORDER BY COUNT(q) DESC")
+    List<Object[]> countQuestionsPerTag(Pageable pageable);
+
+    /**
+     * Return the version a {@link Question} is at, without loading it.
+     *
+     * @param id ID of the {@link Question}.
+     * @return Its version, or null if the {@link Question} is gone.
+     * @since 0.0.11
+     */
+    @Query("SELECT q.version FROM Question q WHERE q.id = :id")
+    Long findVersionById(@Param("id") Long id);
+
+    /**
+     * Return the IDs of {@link Question}s asked before a point in time and
+     * not updated since another, in order of ID.
+     *
+     * @param askedBefore   Only Questions asked before this.
+     * @param updatedBefore Only Questions last updated before this.
+     * @param after         Only IDs above this.
+     * @param pageable      Limit the number of IDs returned.
+     * @return IDs of the {@link Question}s.
+     * @since 0.0.11
+     */
+    @Query("SELECT q.id FROM Question q WHERE q.createdAt < :askedBefore"
+            + " AND q.lastUpdatedAt < :updatedBefore AND q.id > :after"
+            + " ORDER BY q.id")
+    List<Long> findColdIds(@Param("askedBefore") Date askedBefore,
+                           @Param("updatedBefore") Date updatedBefore,
+                           @Param("after") Long after, Pageable pageable);
+
     /**
      * This works, but much like the others above. This makes sure there's at
      * least one tag that matches. Still looking for one that makes sure it
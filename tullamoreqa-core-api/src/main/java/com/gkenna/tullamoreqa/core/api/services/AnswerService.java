@@ -5,10 +5,15 @@
 package com.gkenna.tullamoreqa.core.api.services;
 
 import com.gkenna.tullamoreqa.core.api.exceptions.AnswerNotFoundException;
+import com.gkenna.tullamoreqa.core.api.exceptions.InvalidPatchException;
+import com.gkenna.tullamoreqa.core.api.exceptions.VersionMismatchException;
 import com.gkenna.tullamoreqa.domain.Answer;
 import com.gkenna.tullamoreqa.domain.User;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Map;
+
 
 
 /**
@@ -29,6 +34,18 @@ public interface AnswerService extends EntryService {
      */
     void addAnswer(final Answer answer);
 
+    /**
+     * Insert many new {@link Answer}s to the
+     * {@link com.gkenna.tullamoreqa.core.api.repositories.AnswerRepository}
+     * in batches, all in one transaction. Nothing is added if any of
+     * them can't be.
+     *
+     * @param answers {@link Answer}s to Add.
+     * @return IDs of the added {@link Answer}s, in the order given.
+     * @since 0.0.11
+     */
+    List<Long> addAnswers(final List<Answer> answers);
+
     /**
      * Delete an {@link Answer} from the
      * {@link com.gkenna.tullamoreqa.core.api.repositories.AnswerRepository}.
@@ -114,24 +131,39 @@ public interface AnswerService extends EntryService {
      * @param answerId The ID of the {@link Answer} to update.
      * @param input    An {@link Answer} container that holds
      *                 new values for answerId to update to.
+     * @param version  The version of the {@link Answer} the caller expects
+     *                 to update, or null to update any version.
      * @return The {@link Answer} that was updated.
-     * @throws AnswerNotFoundException Thrown when the {@link Answer} cannot
-     *                                 be found.
+     * @throws AnswerNotFoundException  Thrown when the {@link Answer} cannot
+     *                                  be found.
+     * @throws VersionMismatchException Thrown when the {@link Answer} is no
+     *                                  longer at version.
      */
-    Answer updateAnswer(final Long answerId,
-                        final Answer input) throws AnswerNotFoundException;
+    Answer updateAnswer(final Long answerId, final Answer input,
+                        final Long version)
+            throws AnswerNotFoundException, VersionMismatchException;
 
     /**
-     * Patch a {@link Answer} on the Database.
+     * Patch a {@link Answer} on the Database with a JSON Merge Patch
+     * (RFC 7396). Only the fields named in the patch are written, a null
+     * clearing a field that may be empty, and the {@link Answer} is not read
+     * back.
      *
      * @param answerId The ID of the {@link Answer} to patch.
-     * @param input An {@link Answer} container that holds
-     *              new values for AnswerId to update to.
-     * @return The {@link Answer} that was updated.
+     * @param patch The patch document, field names to new values.
+     * @param version The version of the {@link Answer} the caller expects
+     *                to patch, or null to patch any version.
+     * @return The version the {@link Answer} is at after the patch.
      * @since 0.0.11
      * @throws AnswerNotFoundException Thrown when the {@link Answer} cannot
      *                              be found.
+     * @throws VersionMismatchException Thrown when the {@link Answer} is
+     *                                  no longer at version.
+     * @throws InvalidPatchException Thrown when the patch changes a field
+     *                               that can't be patched.
      */
-    Answer patchAnswer(final String answerId, final Answer input)
-            throws AnswerNotFoundException;
+    long patchAnswer(final Long answerId, final Map<String, Object> patch,
+                     final Long version)
+            throws AnswerNotFoundException, VersionMismatchException,
+            InvalidPatchException;
 }
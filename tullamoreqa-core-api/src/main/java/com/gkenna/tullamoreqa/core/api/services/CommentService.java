@@ -5,11 +5,14 @@
 package com.gkenna.tullamoreqa.core.api.services;
 
 import com.gkenna.tullamoreqa.core.api.exceptions.CommentNotFoundException;
+import com.gkenna.tullamoreqa.core.api.exceptions.InvalidPatchException;
+import com.gkenna.tullamoreqa.core.api.exceptions.VersionMismatchException;
 import com.gkenna.tullamoreqa.domain.Comment;
 import com.gkenna.tullamoreqa.domain.User;
 import org.springframework.stereotype.Service;
 
-
+import java.util.List;
+import java.util.Map;
 
 /**
  * API for interacting with {@link com.gkenna.tullamoreqa.domain.Comment}.
@@ -106,16 +109,42 @@ public interface CommentService extends EntryService {
             throws CommentNotFoundException;
 
     /**
-     * Patch a {@link Comment} on the Database.
+     * Patch a {@link Comment} on the Database with a JSON Merge Patch
+     * (RFC 7396). Only the fields named in the patch are written, a null
+     * clearing a field that may be empty, and the {@link Comment} is not read
+     * back.
      *
      * @param commentId The ID of the {@link Comment} to patch.
-     * @param input An {@link Comment} container that holds
-     *              new values for CommentId to update to.
-     * @return The {@link Comment} that was updated.
+     * @param patch The patch document, field names to new values.
+     * @param version The version of the {@link Comment} the caller expects
+     *                to patch, or null to patch any version.
+     * @return The version the {@link Comment} is at after the patch.
      * @since 0.0.11
      * @throws CommentNotFoundException Thrown when the {@link Comment} cannot
      *                              be found.
+     * @throws VersionMismatchException Thrown when the {@link Comment} is
+     *                                  no longer at version.
+     * @throws InvalidPatchException Thrown when the patch changes a field
+     *                               that can't be patched.
      */
-    Comment patchComment(final String commentId, final Comment input)
-            throws CommentNotFoundException;
+    long patchComment(final Long commentId, final Map<String, Object> patch,
+                      final Long version)
+            throws CommentNotFoundException, VersionMismatchException,
+            InvalidPatchException;
+
+    /**
+     * Return the Comments on a {@link com.gkenna.tullamoreqa.domain.Question}
+     * and on each of its {@link com.gkenna.tullamoreqa.domain.Answer}s,
+     * grouped by the Entry they are on, read in a single query.
+     *
+     * @param questionId ID of the Question.
+     * @param perParent  Comments returned per Entry at most, oldest first.
+     * @return Comments by the ID of the Entry they are on, the Question's
+     * first, then each Answer's by ID. Entries without Comments are left
+     * out.
+     * @throws IllegalArgumentException If perParent isn't positive.
+     * @since 0.0.11
+     */
+    Map<Long, List<Comment>> getCommentThreads(final Long questionId,
+                                               final int perParent);
 }
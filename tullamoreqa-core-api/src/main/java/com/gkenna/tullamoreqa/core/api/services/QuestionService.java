@@ -4,7 +4,9 @@
 
 package com.gkenna.tullamoreqa.core.api.services;
 
+import com.gkenna.tullamoreqa.core.api.exceptions.InvalidPatchException;
 import com.gkenna.tullamoreqa.core.api.exceptions.QuestionNotFoundException;
+import com.gkenna.tullamoreqa.core.api.exceptions.VersionMismatchException;
 import com.gkenna.tullamoreqa.domain.Question;
 import com.gkenna.tullamoreqa.domain.Tag;
 import com.gkenna.tullamoreqa.domain.User;
@@ -12,6 +14,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -32,6 +35,18 @@ public interface QuestionService extends EntryService {
      */
     void addQuestion(final Question question);
 
+    /**
+     * Insert many new {@link Question}s to the
+     * {@link com.gkenna.tullamoreqa.core.api.repositories.QuestionRepository}
+     * in batches, all in one transaction. Nothing is added if any of
+     * them can't be.
+     *
+     * @param questions {@link Question}s to Add.
+     * @return IDs of the added {@link Question}s, in the order given.
+     * @since 0.0.11
+     */
+    List<Long> addQuestions(final List<Question> questions);
+
     /**
      * Delete a {@link Question} from the
      * {@link com.gkenna.tullamoreqa.core.api.repositories.QuestionRepository}.
@@ -60,12 +75,17 @@ public interface QuestionService extends EntryService {
      * @param questionId The ID of the {@link Question} to update.
      * @param input      An {@link Question} container that holds
      *                   new values for questionId to update to.
+     * @param version    The version of the {@link Question} the caller
+     *                   expects to update, or null to update any version.
      * @return The {@link Question} that was updated.
      * @throws QuestionNotFoundException Thrown when the {@link Question}
      *                                   cannot be found.
+     * @throws VersionMismatchException  Thrown when the {@link Question}
+     *                                   is no longer at version.
      */
-    Question updateQuestion(final Long questionId, final Question input)
-            throws QuestionNotFoundException;
+    Question updateQuestion(final Long questionId, final Question input,
+                            final Long version)
+            throws QuestionNotFoundException, VersionMismatchException;
 
     /**
      * Return if a {@link Question} exists in the DB or not.
@@ -147,11 +167,41 @@ public interface QuestionService extends EntryService {
      * @param questionId The ID of the {@link Question} to patch.
      * @param input A {@link Question} container that holds
      *              new values for questionId to update to.
+     * @param version The version of the {@link Question} the caller
+     *                expects to patch, or null to patch any version.
      * @return The {@link Question} that was updated.
      * @since 0.0.11
      * @throws QuestionNotFoundException Thrown when the {@link Question} cannot
      *                              be found.
+     * @throws VersionMismatchException Thrown when the {@link Question} is
+     *                                  no longer at version.
      */
-    Question patchQuestion(final Long questionId, final Question input)
-            throws QuestionNotFoundException;
+    Question patchQuestion(final Long questionId, final Question input,
+                           final Long version)
+            throws QuestionNotFoundException, VersionMismatchException;
+
+    /**
+     * Patch a {@link Question} on the Database with a JSON Merge Patch
+     * (RFC 7396). Only the fields named in the patch are written, a null
+     * clearing a field that may be empty, and the {@link Question} is not read
+     * back.
+     *
+     * @param questionId The ID of the {@link Question} to patch.
+     * @param patch The patch document, field names to new values.
+     * @param version The version of the {@link Question} the caller
+     *                expects to patch, or null to patch any version.
+     * @return The version the {@link Question} is at after the patch.
+     * @since 0.0.11
+     * @throws QuestionNotFoundException Thrown when the {@link Question} cannot
+     *                              be found.
+     * @throws VersionMismatchException Thrown when the {@link Question} is
+     *                                  no longer at version.
+     * @throws InvalidPatchException Thrown when the patch changes a field
+     *                               that can't be patched.
+     */
+    long patchQuestion(final Long questionId,
+                       final Map<String, Object> patch,
+                       final Long version)
+            throws QuestionNotFoundException, VersionMismatchException,
+            InvalidPatchException;
 }
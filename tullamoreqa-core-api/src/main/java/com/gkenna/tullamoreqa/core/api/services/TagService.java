@@ -4,12 +4,15 @@
 
 package com.gkenna.tullamoreqa.core.api.services;
 
+import com.gkenna.tullamoreqa.core.api.exceptions.InvalidPatchException;
 import com.gkenna.tullamoreqa.core.api.exceptions.TagAlreadyExistsException;
 import com.gkenna.tullamoreqa.core.api.exceptions.TagNotFoundException;
+import com.gkenna.tullamoreqa.core.api.exceptions.VersionMismatchException;
 import com.gkenna.tullamoreqa.domain.Tag;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * API for interacting with {@link com.gkenna.tullamoreqa.domain.Tag}.
@@ -31,6 +34,22 @@ public interface TagService {
      */
     void addTag(final Tag tag) throws TagAlreadyExistsException;
 
+    /**
+     * Insert many new {@link Tag}s to the
+     * {@link com.gkenna.tullamoreqa.core.api.repositories.TagRepository}
+     * in batches, all in one transaction. Nothing is added if any of
+     * them already exist or two of them have the same ID.
+     *
+     * @param tags {@link Tag}s to Add.
+     * @return IDs of the added {@link Tag}s, in the order given.
+     * @throws TagAlreadyExistsException Thrown when a Tag with one of the
+     *                                   supplied IDs already exists, or
+     *                                   the ID is supplied twice.
+     * @since 0.0.11
+     */
+    List<String> addTags(final List<Tag> tags)
+            throws TagAlreadyExistsException;
+
     /**
      * Delete a {@link Tag} from the
      * {@link com.gkenna.tullamoreqa.core.api.repositories.TagRepository}.
@@ -56,12 +75,16 @@ public interface TagService {
      * @param tagId The ID of the {@link Tag} to update.
      * @param input An {@link Tag} container that holds
      *              new values for tagId to update to.
+     * @param version The version of the {@link Tag} the caller expects to
+     *                update, or null to update any version.
      * @return The {@link Tag} that was updated.
-     * @throws TagNotFoundException Thrown when the {@link Tag} cannot
-     *                              be found.
+     * @throws TagNotFoundException     Thrown when the {@link Tag} cannot
+     *                                  be found.
+     * @throws VersionMismatchException Thrown when the {@link Tag} is no
+     *                                  longer at version.
      */
-    Tag updateTag(final String tagId, final Tag input)
-            throws TagNotFoundException;
+    Tag updateTag(final String tagId, final Tag input, final Long version)
+            throws TagNotFoundException, VersionMismatchException;
 
     /**
      * Return if a {@link Tag} exists in the DB or not.
@@ -101,17 +124,27 @@ public interface TagService {
     List<Tag> getAllTags();
 
     /**
-     * Patch a {@link Tag} on the Database.
+     * Patch a {@link Tag} on the Database with a JSON Merge Patch
+     * (RFC 7396). Only the fields named in the patch are written, a null
+     * clearing a field that may be empty, and the {@link Tag} is not read
+     * back.
      *
      * @param tagId The ID of the {@link Tag} to patch.
-     * @param input An {@link Tag} container that holds
-     *              new values for tagId to update to.
-     * @return The {@link Tag} that was updated.
+     * @param patch The patch document, field names to new values.
+     * @param version The version of the {@link Tag} the caller expects
+     *                to patch, or null to patch any version.
+     * @return The version the {@link Tag} is at after the patch.
      * @since 0.0.11
      * @throws TagNotFoundException Thrown when the {@link Tag} cannot
      *                              be found.
+     * @throws VersionMismatchException Thrown when the {@link Tag} is
+     *                                  no longer at version.
+     * @throws InvalidPatchException Thrown when the patch changes a field
+     *                               that can't be patched.
      */
-    Tag patchTag(final String tagId, final Tag input)
-            throws TagNotFoundException;
+    long patchTag(final String tagId, final Map<String, Object> patch,
+                  final Long version)
+            throws TagNotFoundException, VersionMismatchException,
+            InvalidPatchException;
 
 }
@@ -4,11 +4,14 @@
 
 package com.gkenna.tullamoreqa.core.api.services;
 
+import com.gkenna.tullamoreqa.core.api.exceptions.InvalidPatchException;
 import com.gkenna.tullamoreqa.core.api.exceptions.UserNotFoundException;
+import com.gkenna.tullamoreqa.domain.AuthorSummary;
 import com.gkenna.tullamoreqa.domain.User;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * API for interacting with {@link com.gkenna.tullamoreqa.domain.User}.
@@ -98,17 +101,32 @@ public interface UserService {
     List<User> getAllUsers();
 
     /**
-     * Patch a {@link User} on the Database.
+     * Patch a {@link User} on the Database with a JSON Merge Patch
+     * (RFC 7396). Only the fields named in the patch are written, a null
+     * clearing a field that may be empty, and the {@link User} is not read
+     * back.
      *
-     * @param username The username of the {@link User} to patch.
-     * @param input An {@link User} container that holds
-     *              new values for username to update to.
-     * @return The {@link User} that was updated.
+     * @param username The ID of the {@link User} to patch.
+     * @param patch The patch document, field names to new values.
      * @since 0.0.11
      * @throws UserNotFoundException Thrown when the {@link User} cannot
      *                              be found.
+     * @throws InvalidPatchException Thrown when the patch changes a field
+     *                               that can't be patched.
      */
-    User patchUser(final String username, final User input)
-            throws UserNotFoundException;
+    void patchUser(final String username, final Map<String, Object> patch)
+            throws UserNotFoundException, InvalidPatchException;
 
+    /**
+     * Return a summary of a {@link User} as an author, i.e. their display
+     * name and how many Questions and Answers they have written.
+     *
+     * @param username The username of the {@link User} to summarise.
+     * @return An {@link AuthorSummary} of the {@link User}.
+     * @since 0.0.11
+     * @throws UserNotFoundException Thrown when the {@link User} cannot
+     *                               be found.
+     */
+    AuthorSummary getAuthorSummary(final String username)
+            throws UserNotFoundException;
 }
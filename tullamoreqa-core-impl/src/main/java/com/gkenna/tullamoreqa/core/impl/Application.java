@@ -6,15 +6,13 @@ package com.gkenna.tullamoreqa.core.impl;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
-import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
-import org.springframework.transaction.annotation.Transactional;
 
 /**
  * The Main execution spot for TullamoreQA. This file carries out all
@@ -28,6 +26,7 @@ import org.springframework.transaction.annotation.Transactional;
 @EnableJpaRepositories("com.gkenna.tullamoreqa.core.api.repositories")
 @EntityScan("com.gkenna.tullamoreqa.domain")
 @EnableTransactionManagement
+@EnableScheduling
 public class Application {
 
     /**
@@ -45,18 +44,4 @@ public class Application {
         SpringApplication.run(
                 com.gkenna.tullamoreqa.core.impl.Application.class);
     }
-
-    /**
-     * Might be removed.
-     *
-     * @return Nothing.
-     */
-    @Bean
-    @Transactional
-    @SuppressWarnings("checkstyle:DesignForExtension")
-    public CommandLineRunner demo() {
-        return (args) -> {
-
-        };
-    }
 }
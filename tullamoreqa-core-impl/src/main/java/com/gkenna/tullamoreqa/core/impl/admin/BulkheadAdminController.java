@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.admin;
+
+import com.gkenna.tullamoreqa.core.impl.bulkhead.Bulkhead;
+import com.gkenna.tullamoreqa.core.impl.bulkhead.BulkheadRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Administrative endpoints for the bulkheads of this instance.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@RestController
+@RequestMapping("/admin/bulkheads")
+public class BulkheadAdminController {
+
+    /**
+     * Bulkheads of this instance.
+     */
+    private final BulkheadRegistry bulkheads;
+
+    /**
+     * Constructor that Auto wires the bulkheads.
+     *
+     * @param bulkheads Bulkheads of this instance.
+     */
+    @Autowired
+    public BulkheadAdminController(final BulkheadRegistry bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    /**
+     * HTTP GET Method
+     * <p>
+     * Return the size of every bulkhead, how many of its threads are busy
+     * and requests queued, and how many requests it accepted, refused,
+     * answered, failed and timed out.
+     *
+     * @return Metrics by bulkhead name.
+     */
+    @RequestMapping(method = RequestMethod.GET)
+    public final ResponseEntity<Map<String, Map<String, Object>>> getStats() {
+        final Map<String, Map<String, Object>> output = new LinkedHashMap<>();
+        for (Bulkhead bulkhead : bulkheads.all()) {
+            output.put(bulkhead.getName(), bulkhead.toMap());
+        }
+        return new ResponseEntity<>(output, HttpStatus.OK);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.admin;
+
+import com.gkenna.tullamoreqa.core.impl.cache.CacheRegistry;
+import com.gkenna.tullamoreqa.core.impl.cache.CircuitBreaker;
+import com.gkenna.tullamoreqa.core.impl.cache.HotKeyManager;
+import com.gkenna.tullamoreqa.core.impl.cache.LocalCache;
+import com.gkenna.tullamoreqa.core.impl.coherence.CacheCoherence;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Administrative endpoints for the caches of this instance.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@RestController
+@RequestMapping("/admin/cache")
+public class CacheAdminController {
+
+    /**
+     * Caches of this instance.
+     */
+    private final CacheRegistry caches;
+
+    /**
+     * Hot key detection of this instance.
+     */
+    private final HotKeyManager hotKeyManager;
+
+    /**
+     * Keeps the caches coherent with other instances.
+     */
+    private final CacheCoherence coherence;
+
+    /**
+     * Constructor that Auto wires the caches.
+     *
+     * @param caches        Caches of this instance.
+     * @param hotKeyManager Hot key detection of this instance.
+     * @param coherence     Keeps the caches coherent with other instances.
+     */
+    @Autowired
+    public CacheAdminController(final CacheRegistry caches,
+                                final HotKeyManager hotKeyManager,
+                                final CacheCoherence coherence) {
+        this.caches = caches;
+        this.hotKeyManager = hotKeyManager;
+        this.coherence = coherence;
+    }
+
+    /**
+     * HTTP GET Method
+     * <p>
+     * Return the size, hits, misses and pinned keys of every cache, along
+     * with how many loads went to the Database, how many misses were
+     * coalesced onto another load, how many timed out waiting and how
+     * many stale values were served while the Database was failing.
+     *
+     * @return Statistics by cache name.
+     */
+    @RequestMapping(method = RequestMethod.GET)
+    public final ResponseEntity<Map<String, Map<String, Object>>> getStats() {
+        final Map<String, Map<String, Object>> output = new LinkedHashMap<>();
+        for (LocalCache<?, ?> cache : caches.all()) {
+            final Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("size", cache.size());
+            stats.put("hits", cache.getHits());
+            stats.put("misses", cache.getMisses());
+            stats.put("pinned", cache.pinnedKeys().size());
+            stats.put("loads", cache.getLoads());
+            stats.put("coalesced", cache.getCoalesced());
+            stats.put("loadTimeouts", cache.getLoadTimeouts());
+            stats.put("staleServed", cache.getStaleServed());
+            output.put(cache.getName(), stats);
+        }
+        return new ResponseEntity<>(output, HttpStatus.OK);
+    }
+
+    /**
+     * HTTP GET Method
+     * <p>
+     * Return the state of the breaker guarding Database reads.
+     *
+     * @return State of the Database circuit breaker.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/breaker")
+    public final ResponseEntity<CircuitBreaker.State> getBreakerState() {
+        return new ResponseEntity<>(caches.databaseBreaker().getState(),
+                HttpStatus.OK);
+    }
+
+    /**
+     * HTTP GET Method
+     * <p>
+     * Return the current hot keys of every tracked cache, along with their
+     * estimated read counts within the sliding window.
+     *
+     * @return Hot keys by cache name.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/hotkeys")
+    public final ResponseEntity<Map<String, Map<String, Long>>> getHotKeys() {
+        return new ResponseEntity<>(hotKeyManager.hotKeys(), HttpStatus.OK);
+    }
+
+    /**
+     * HTTP GET Method
+     * <p>
+     * Return how many invalidation batches were sent to and received from
+     * other instances, and how many were repeats or came after a gap.
+     *
+     * @return Coherence metrics by name.
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/coherence")
+    public final ResponseEntity<Map<String, Object>> getCoherence() {
+        return new ResponseEntity<>(coherence.toMap(), HttpStatus.OK);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.admin;
+
+import com.gkenna.tullamoreqa.core.impl.events.ChangeCounters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Administrative endpoints for the change events relayed from the outbox.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@RestController
+@RequestMapping("/admin/events")
+public class EventAdminController {
+
+    /**
+     * Counts the changes relayed.
+     */
+    private final ChangeCounters counters;
+
+    /**
+     * Constructor that Auto wires the counters.
+     *
+     * @param counters Counts the changes relayed.
+     */
+    @Autowired
+    public EventAdminController(final ChangeCounters counters) {
+        this.counters = counters;
+    }
+
+    /**
+     * HTTP GET Method
+     * <p>
+     * Return the changes this instance relayed, by entity type and change
+     * type, and the latest event it relayed. Only the instance running the
+     * jobs relays.
+     *
+     * @return Counts and latest event.
+     */
+    @RequestMapping(method = RequestMethod.GET)
+    public final ResponseEntity<Map<String, Object>> getEvents() {
+        return new ResponseEntity<>(counters.toMap(), HttpStatus.OK);
+    }
+}
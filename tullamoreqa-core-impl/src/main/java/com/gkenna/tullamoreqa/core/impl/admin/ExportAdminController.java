@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.admin;
+
+import com.gkenna.tullamoreqa.core.impl.exporter.SnapshotExporter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Map;
+
+/**
+ * Administrative endpoints for exporting snapshots of this instance.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@RestController
+@RequestMapping("/admin/export")
+public class ExportAdminController {
+
+    /**
+     * Export Admin Controller Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(ExportAdminController.class);
+
+    /**
+     * Exports snapshots.
+     */
+    private final SnapshotExporter exporter;
+
+    /**
+     * Constructor that Auto wires the Exporter.
+     *
+     * @param exporter Exports snapshots.
+     */
+    @Autowired
+    public ExportAdminController(final SnapshotExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    /**
+     * HTTP POST Method
+     * <p>
+     * Export a consistent snapshot to a file on this instance's file
+     * system, waiting for it to be written and verified.
+     *
+     * @param file Path of the export.
+     * @return Rows exported by table, Conflict if an export is already
+     * running or Internal Server Error if it couldn't be written.
+     */
+    @RequestMapping(method = RequestMethod.POST)
+    public final ResponseEntity<Map<String, Long>> export(
+            @RequestParam(value = "file") final String file) {
+        try {
+            final Map<String, Long> rows = exporter.export(Paths.get(file));
+            if (rows == null) {
+                return new ResponseEntity<>(HttpStatus.CONFLICT);
+            }
+            return new ResponseEntity<>(rows, HttpStatus.OK);
+        } catch (IOException e) {
+            LOGGER.error("Export to {} failed.", file, e);
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.admin;
+
+import com.gkenna.tullamoreqa.core.impl.importer.ImportProgress;
+import com.gkenna.tullamoreqa.core.impl.importer.NdjsonImporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+/**
+ * Administrative endpoints for importing NDJSON dumps into this instance.
+ * Only dumps within the import directory, <tt>tullamoreqa.import.directory
+ * </tt>, can be imported, named relative to it.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@RestController
+@RequestMapping("/admin/import")
+public class ImportAdminController {
+
+    /**
+     * Imports dumps.
+     */
+    private final NdjsonImporter importer;
+
+    /**
+     * Directory dumps are imported from.
+     */
+    private final Path directory;
+
+    /**
+     * Constructor that Auto wires the Importer.
+     *
+     * @param importer  Imports dumps.
+     * @param directory Directory dumps are imported from.
+     */
+    @Autowired
+    public ImportAdminController(
+            final NdjsonImporter importer,
+            @Value("${tullamoreqa.import.directory:"
+                    + "${tullamoreqa.data-dir:${user.home}/.tullamoreqa}"
+                    + "/imports}") final String directory) {
+        this.importer = importer;
+        this.directory = Paths.get(directory).toAbsolutePath().normalize();
+    }
+
+    /**
+     * HTTP POST Method
+     * <p>
+     * Start importing a dump on this instance's file system in the
+     * background, resuming an earlier import of it that didn't complete.
+     *
+     * @param file Path of the dump, relative to the import directory.
+     * @return Accepted, Forbidden if the dump is outside the import
+     * directory, Not Found if there is no such file or Conflict if an
+     * import is already running.
+     */
+    @RequestMapping(method = RequestMethod.POST)
+    public final ResponseEntity<Map<String, Object>> startImport(
+            @RequestParam(value = "file") final String file) {
+        final Path path;
+        try {
+            path = directory.resolve(file).normalize();
+            if (!path.startsWith(directory)) {
+                return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+            }
+            if (!Files.isRegularFile(path)) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            if (!path.toRealPath().startsWith(directory.toRealPath())) {
+                return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+            }
+        } catch (IOException | InvalidPathException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        if (!importer.start(path)) {
+            return new ResponseEntity<>(importer.getProgress().toMap(),
+                    HttpStatus.CONFLICT);
+        }
+        return new ResponseEntity<>(importer.getProgress().toMap(),
+                HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * HTTP GET Method
+     * <p>
+     * Return the progress of the running or last import: lines read,
+     * records written by type, records skipped, batches committed and
+     * queued, the last checkpointed line and records written per second.
+     *
+     * @return Progress metrics, or Not Found if nothing was imported.
+     */
+    @RequestMapping(method = RequestMethod.GET)
+    public final ResponseEntity<Map<String, Object>> getProgress() {
+        final ImportProgress progress = importer.getProgress();
+        if (progress == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(progress.toMap(), HttpStatus.OK);
+    }
+}
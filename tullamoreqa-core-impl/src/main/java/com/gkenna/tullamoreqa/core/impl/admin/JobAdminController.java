@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.admin;
+
+import com.gkenna.tullamoreqa.core.impl.jobs.JobScheduler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Administrative endpoints for the background jobs and who runs them.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@RestController
+@RequestMapping("/admin/jobs")
+public class JobAdminController {
+
+    /**
+     * Most runs of a job returned at once.
+     */
+    private static final int MAX_LIMIT = 1000;
+
+    /**
+     * Runs the background jobs.
+     */
+    private final JobScheduler scheduler;
+
+    /**
+     * Constructor that Auto wires the scheduler.
+     *
+     * @param scheduler Runs the background jobs.
+     */
+    @Autowired
+    public JobAdminController(final JobScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * HTTP GET Method
+     * <p>
+     * Return which instance holds the jobs lease, and for each job how
+     * often it ran, failed, and how long it took.
+     *
+     * @return Lease and jobs by name.
+     */
+    @RequestMapping(method = RequestMethod.GET)
+    public final ResponseEntity<Map<String, Object>> getJobs() {
+        return new ResponseEntity<>(scheduler.toMap(), HttpStatus.OK);
+    }
+
+    /**
+     * HTTP GET Method
+     * <p>
+     * Return the latest runs of a job.
+     *
+     * @param job   Name of the job.
+     * @param limit Most runs returned.
+     * @return Runs, latest first, or Bad Request if the limit is out of
+     * range.
+     */
+    @RequestMapping(value = "/{job}", method = RequestMethod.GET)
+    public final ResponseEntity<List<Map<String, Object>>> getRuns(
+            @PathVariable("job") final String job,
+            @RequestParam(value = "limit", defaultValue = "20")
+            final int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(scheduler.getRuns(job, limit),
+                HttpStatus.OK);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.admin;
+
+import com.gkenna.tullamoreqa.core.impl.limiter.ConcurrencyLimiter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Administrative endpoints for the Database concurrency limit of this
+ * instance.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@RestController
+@RequestMapping("/admin/limiter")
+public class LimiterAdminController {
+
+    /**
+     * Database concurrency limit of this instance.
+     */
+    private final ConcurrencyLimiter limiter;
+
+    /**
+     * Constructor that Auto wires the limiter.
+     *
+     * @param limiter Database concurrency limit of this instance.
+     */
+    @Autowired
+    public LimiterAdminController(final ConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    /**
+     * HTTP GET Method
+     * <p>
+     * Return the current limit on Database calls in flight, how many are,
+     * how many reads and writes were let through and refused, and how
+     * many failed as the Database was failing.
+     *
+     * @return Metrics by name.
+     */
+    @RequestMapping(method = RequestMethod.GET)
+    public final ResponseEntity<Map<String, Object>> getStats() {
+        return new ResponseEntity<>(limiter.toMap(), HttpStatus.OK);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.admin;
+
+import com.gkenna.tullamoreqa.core.impl.shedding.LoadShedder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Administrative endpoints for the load shedding of this instance.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@RestController
+@RequestMapping("/admin/shedding")
+public class SheddingAdminController {
+
+    /**
+     * Sheds load on this instance.
+     */
+    private final LoadShedder shedder;
+
+    /**
+     * Constructor that Auto wires the shedder.
+     *
+     * @param shedder Sheds load on this instance.
+     */
+    @Autowired
+    public SheddingAdminController(final LoadShedder shedder) {
+        this.shedder = shedder;
+    }
+
+    /**
+     * HTTP GET Method
+     * <p>
+     * Return the priorities being shed and why, the rules classifying
+     * requests, and how many requests of each priority were let through
+     * and refused.
+     *
+     * @return Metrics by name.
+     */
+    @RequestMapping(method = RequestMethod.GET)
+    public final ResponseEntity<Map<String, Object>> getStats() {
+        return new ResponseEntity<>(shedder.toMap(), HttpStatus.OK);
+    }
+}
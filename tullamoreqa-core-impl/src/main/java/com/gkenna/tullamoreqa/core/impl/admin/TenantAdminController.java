@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.admin;
+
+import com.gkenna.tullamoreqa.core.impl.tenant.Shard;
+import com.gkenna.tullamoreqa.core.impl.tenant.TenantMover;
+import com.gkenna.tullamoreqa.core.impl.tenant.TenantRouter;
+import com.gkenna.tullamoreqa.core.impl.tenant.Tenants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Administrative endpoints for the tenants hosted on this deployment, the
+ * shards they are on and the users who are members of them.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@RestController
+@RequestMapping("/admin/tenants")
+public class TenantAdminController {
+
+    /**
+     * Routes connections by tenant.
+     */
+    private final TenantRouter router;
+
+    /**
+     * Adds and moves tenants.
+     */
+    private final TenantMover mover;
+
+    /**
+     * Constructor that Auto wires the router and mover.
+     *
+     * @param router Routes connections by tenant.
+     * @param mover  Adds and moves tenants.
+     */
+    @Autowired
+    public TenantAdminController(final TenantRouter router,
+                                 final TenantMover mover) {
+        this.router = router;
+        this.mover = mover;
+    }
+
+    /**
+     * HTTP GET Method
+     * <p>
+     * Return the shard and status of every tenant, and the state of every
+     * shard's connection pool.
+     *
+     * @return Tenants and shards, or Not Found if tenants aren't enabled.
+     */
+    @RequestMapping(method = RequestMethod.GET)
+    public final ResponseEntity<Map<String, Object>> getTenants() {
+        if (!router.isEnabled()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        final Map<String, Object> shards = new LinkedHashMap<>();
+        for (Shard shard : router.getRouting().getShards().values()) {
+            shards.put(shard.getName(), shard.toMap());
+        }
+        final Map<String, Object> output = new LinkedHashMap<>();
+        output.put("tenants", router.getDirectory().toMap());
+        output.put("shards", shards);
+        return new ResponseEntity<>(output, HttpStatus.OK);
+    }
+
+    /**
+     * HTTP POST Method
+     * <p>
+     * Add a tenant on a shard, creating its schema there.
+     *
+     * @param tenant Tenant name.
+     * @param shard  Shard name.
+     * @return Created, Bad Request if the tenant or shard name is not
+     * valid, Conflict if the tenant is already hosted, or Not Found if
+     * tenants aren't enabled.
+     */
+    @RequestMapping(value = "/{tenant}", method = RequestMethod.POST)
+    public final ResponseEntity<Map<String, Object>> addTenant(
+            @PathVariable("tenant") final String tenant,
+            @RequestParam(value = "shard") final String shard) {
+        if (!router.isEnabled()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        try {
+            mover.add(tenant, shard);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        return new ResponseEntity<>(router.getDirectory().toMap()
+                .get(tenant), HttpStatus.CREATED);
+    }
+
+    /**
+     * HTTP PUT Method
+     * <p>
+     * Make a user a member of a tenant, so requests they make may name it.
+     *
+     * @param tenant   Tenant name.
+     * @param username Username of the user.
+     * @return No Content, or Not Found if there is no such tenant or
+     * tenants aren't enabled.
+     */
+    @RequestMapping(value = "/{tenant}/members/{username}",
+            method = RequestMethod.PUT)
+    public final ResponseEntity<Void> addMember(
+            @PathVariable("tenant") final String tenant,
+            @PathVariable("username") final String username) {
+        if (!router.isEnabled() || !router.getDirectory().isHosted(tenant)
+                || Tenants.DEFAULT.equals(tenant)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        if (!router.getDirectory().isMember(tenant, username)) {
+            router.getDirectory().addMember(tenant, username);
+        }
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    /**
+     * HTTP DELETE Method
+     * <p>
+     * Stop a user being a member of a tenant.
+     *
+     * @param tenant   Tenant name.
+     * @param username Username of the user.
+     * @return No Content, or Not Found if they aren't a member or tenants
+     * aren't enabled.
+     */
+    @RequestMapping(value = "/{tenant}/members/{username}",
+            method = RequestMethod.DELETE)
+    public final ResponseEntity<Void> removeMember(
+            @PathVariable("tenant") final String tenant,
+            @PathVariable("username") final String username) {
+        if (!router.isEnabled() || Tenants.DEFAULT.equals(tenant)
+                || !router.getDirectory().removeMember(tenant, username)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    /**
+     * HTTP POST Method
+     * <p>
+     * Move a tenant to another shard, refusing its requests until the
+     * move completes.
+     *
+     * @param tenant Tenant name.
+     * @param shard  Shard to move it to.
+     * @return OK, Bad Request if the tenant or shard name is not valid,
+     * Not Found if there is no such tenant or tenants aren't enabled, or
+     * Conflict if it is on that shard already or couldn't be moved.
+     */
+    @RequestMapping(value = "/{tenant}/move", method = RequestMethod.POST)
+    public final ResponseEntity<Map<String, Object>> moveTenant(
+            @PathVariable("tenant") final String tenant,
+            @RequestParam(value = "shard") final String shard) {
+        if (!router.isEnabled() || !router.getDirectory().isHosted(tenant)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        try {
+            mover.move(tenant, shard);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+        return new ResponseEntity<>(router.getDirectory().toMap()
+                .get(tenant), HttpStatus.OK);
+    }
+}
@@ -0,0 +1,9 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+/**
+ * Administrative endpoints that expose the internal state of an instance,
+ * i.e. cache statistics and hot keys.
+ */
+package com.gkenna.tullamoreqa.core.impl.admin;
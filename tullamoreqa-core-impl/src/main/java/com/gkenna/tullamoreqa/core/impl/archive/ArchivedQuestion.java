@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.archive;
+
+import com.gkenna.tullamoreqa.core.impl.exporter.ColumnType;
+import com.gkenna.tullamoreqa.core.impl.exporter.ColumnarReader;
+import com.gkenna.tullamoreqa.core.impl.exporter.ColumnarWriter;
+import com.gkenna.tullamoreqa.core.impl.layout.EntryLayout;
+import com.gkenna.tullamoreqa.core.impl.layout.EntryType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The rows of a Question, its Answers, its Comments and theirs, its Tags
+ * and every Vote on them, as archived by {@link QuestionArchive}.
+ * <p>
+ * The rows are kept by table the way {@link EntryLayout#TABLE_PER_CLASS}
+ * lays them out, whatever the layout they were archived from, and are
+ * stored as a {@link ColumnarWriter columnar file}, so an archive can be
+ * restored under any layout.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+final class ArchivedQuestion {
+
+    /**
+     * Table linking Questions to their Tags.
+     */
+    static final String QUESTIONS_TAGS = "questions_tags";
+
+    /**
+     * Table of the Votes.
+     */
+    static final String VOTES = "votes";
+
+    /**
+     * Table linking Entries to their Votes.
+     */
+    static final String ENTRY_VOTES = "entry_votes";
+
+    /**
+     * Table of the Votes rolled up by Entry.
+     */
+    static final String VOTE_ROLLUPS = "vote_rollups";
+
+    /**
+     * Table of the Votes rolled up by Entry and User.
+     */
+    static final String VOTE_BALLOTS = "vote_ballots";
+
+    /**
+     * Rows buffered per row group when written.
+     */
+    private static final int ROW_GROUP_SIZE = 1000;
+
+    /**
+     * Column of when an Entry was last updated.
+     */
+    private static final String LAST_UPDATED_AT = "last_updated_at";
+
+    /**
+     * Column of when a Vote was cast.
+     */
+    private static final String VOTE_CAST_DATE = "vote_cast_date";
+
+    /**
+     * Columns of every archived table, the tables in the order they must
+     * be inserted into.
+     */
+    private static final Map<String, List<String>> COLUMNS;
+
+    /**
+     * Type of every archived column.
+     */
+    private static final Map<String, ColumnType> TYPES;
+
+    static {
+        final Map<String, List<String>> columns = new LinkedHashMap<>();
+        for (EntryType type : EntryType.values()) {
+            final List<String> entryColumns =
+                    new ArrayList<>(EntryLayout.ROOT_COLUMNS);
+            entryColumns.addAll(type.getColumns());
+            columns.put(type.getTable(),
+                    Collections.unmodifiableList(entryColumns));
+        }
+        columns.put(QUESTIONS_TAGS, Arrays.asList("question_id",
+                "tags_name"));
+        columns.put(VOTES, Arrays.asList("id", "vote_type", VOTE_CAST_DATE,
+                "cast_by_user_username", "entry_id"));
+        columns.put(ENTRY_VOTES, Arrays.asList("entry_id", "votes_id"));
+        columns.put(VOTE_ROLLUPS, Arrays.asList("entry_id", "upvotes",
+                "downvotes"));
+        columns.put(VOTE_BALLOTS, Arrays.asList("entry_id",
+                "cast_by_user_username", "vote_value"));
+        COLUMNS = Collections.unmodifiableMap(columns);
+
+        final Map<String, ColumnType> types = new HashMap<>();
+        for (String column : Arrays.asList("id", "version", "question_id",
+                "entry_id", "votes_id", "upvotes", "downvotes", "vote_type",
+                "vote_value")) {
+            types.put(column, ColumnType.LONG);
+        }
+        for (String column : Arrays.asList("created_at", LAST_UPDATED_AT,
+                VOTE_CAST_DATE)) {
+            types.put(column, ColumnType.TIMESTAMP);
+        }
+        for (String column : Arrays.asList("body", "title")) {
+            types.put(column, ColumnType.STRING);
+        }
+        for (String column : Arrays.asList("created_by_username",
+                "mod_user_username", "cast_by_user_username", "tags_name",
+                "parent_type")) {
+            types.put(column, ColumnType.DICTIONARY);
+        }
+        types.put("chosen_answer", ColumnType.BOOLEAN);
+        TYPES = Collections.unmodifiableMap(types);
+    }
+
+    /**
+     * Rows of every archived table.
+     */
+    private final Map<String, List<Object[]>> rows = new LinkedHashMap<>();
+
+    /**
+     * Start an empty archive.
+     */
+    ArchivedQuestion() {
+        for (String table : COLUMNS.keySet()) {
+            rows.put(table, new ArrayList<>());
+        }
+    }
+
+    /**
+     * Return the archived tables, in the order they must be inserted into.
+     *
+     * @return Table names, the Entry hierarchy by
+     * {@link EntryType#getTable()}.
+     */
+    static Set<String> getTables() {
+        return COLUMNS.keySet();
+    }
+
+    /**
+     * Return the columns of an archived table.
+     *
+     * @param table The table.
+     * @return Column names, in the order of every row.
+     */
+    static List<String> getColumns(final String table) {
+        return COLUMNS.get(table);
+    }
+
+    /**
+     * Return the type of an archived column.
+     *
+     * @param column The column.
+     * @return Its type.
+     */
+    static ColumnType getType(final String column) {
+        return TYPES.get(column);
+    }
+
+    /**
+     * Add a row to a table.
+     *
+     * @param table  The table.
+     * @param values Value of each of its columns.
+     * @throws IllegalArgumentException If the table isn't archived or the
+     *                                  row doesn't fit it.
+     */
+    void add(final String table, final Object[] values) {
+        final List<String> columns = COLUMNS.get(table);
+        if (columns == null || columns.size() != values.length) {
+            throw new IllegalArgumentException("Not a row of " + table);
+        }
+        rows.get(table).add(values);
+    }
+
+    /**
+     * Return the rows of a table.
+     *
+     * @param table The table.
+     * @return Rows, in the order added.
+     */
+    List<Object[]> getRows(final String table) {
+        return Collections.unmodifiableList(rows.get(table));
+    }
+
+    /**
+     * Return the IDs of every archived Entry.
+     *
+     * @return IDs, the Question first.
+     */
+    Set<Long> getEntryIds() {
+        final Set<Long> output = new LinkedHashSet<>();
+        for (EntryType type : EntryType.values()) {
+            for (Object[] row : rows.get(type.getTable())) {
+                output.add(((Number) row[0]).longValue());
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Return when anything archived was last updated or voted on.
+     *
+     * @return The latest point in time, null if nothing has one.
+     */
+    Date getLastActivity() {
+        Date output = null;
+        for (EntryType type : EntryType.values()) {
+            output = latest(output, type.getTable(), LAST_UPDATED_AT);
+        }
+        return latest(output, VOTES, VOTE_CAST_DATE);
+    }
+
+    /**
+     * Write the archive as a compressed columnar file.
+     *
+     * @return The file.
+     * @throws IOException Never, as the file is written in memory.
+     */
+    byte[] toBytes() throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ColumnarWriter writer =
+                     new ColumnarWriter(output, ROW_GROUP_SIZE)) {
+            for (Map.Entry<String, List<Object[]>> table : rows.entrySet()) {
+                final List<String> columns = COLUMNS.get(table.getKey());
+                final ColumnType[] types = new ColumnType[columns.size()];
+                for (int i = 0; i < types.length; i++) {
+                    types[i] = TYPES.get(columns.get(i));
+                }
+                writer.startTable(table.getKey(),
+                        columns.toArray(new String[0]), types);
+                for (Object[] row : table.getValue()) {
+                    writer.addRow(row);
+                }
+                writer.endTable();
+            }
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Read an archive written by {@link #toBytes()}.
+     *
+     * @param bytes The file.
+     * @return The archive, Longs, Dates, Booleans and Strings by column.
+     * @throws IOException If the file is corrupt or holds other tables.
+     */
+    static ArchivedQuestion fromBytes(final byte[] bytes) throws IOException {
+        final ArchivedQuestion output = new ArchivedQuestion();
+        final Map<String, Long> tables = ColumnarReader.read(
+                new ByteArrayInputStream(bytes), (table, values) -> {
+                    if (COLUMNS.containsKey(table)) {
+                        output.add(table, values);
+                    }
+                });
+        if (!tables.keySet().equals(COLUMNS.keySet())) {
+            throw new IOException("Archive holds " + tables.keySet());
+        }
+        return output;
+    }
+
+    /**
+     * Return the later of a point in time and those of a column.
+     *
+     * @param latest Latest point in time so far, may be null.
+     * @param table  The table.
+     * @param column Its column of points in time.
+     * @return The latest, null if there are none.
+     */
+    private Date latest(final Date latest, final String table,
+                        final String column) {
+        final int index = COLUMNS.get(table).indexOf(column);
+        Date output = latest;
+        for (Object[] row : rows.get(table)) {
+            final Date value = (Date) row[index];
+            if (value != null && (output == null || value.after(output))) {
+                output = value;
+            }
+        }
+        return output;
+    }
+}
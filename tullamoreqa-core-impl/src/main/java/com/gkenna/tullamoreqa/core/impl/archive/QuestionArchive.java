@@ -0,0 +1,815 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.archive;
+
+import com.gkenna.tullamoreqa.core.api.repositories.QuestionRepository;
+import com.gkenna.tullamoreqa.core.impl.cache.CacheRegistry;
+import com.gkenna.tullamoreqa.core.impl.events.Outbox;
+import com.gkenna.tullamoreqa.core.impl.jobs.JobScheduler;
+import com.gkenna.tullamoreqa.core.impl.jobs.LeaseLostException;
+import com.gkenna.tullamoreqa.core.impl.layout.EntryLayout;
+import com.gkenna.tullamoreqa.core.impl.layout.EntryLayoutMigrator;
+import com.gkenna.tullamoreqa.core.impl.layout.EntryType;
+import com.gkenna.tullamoreqa.core.impl.tenant.TenantRouter;
+import com.gkenna.tullamoreqa.domain.Question;
+import com.gkenna.tullamoreqa.domain.events.ChangeType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support
+        .TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Moves Questions that have gone cold out of the tables every Question
+ * query reads, and back again when they are wanted.
+ * <p>
+ * A Question asked more than <tt>tullamoreqa.archive.age-days</tt> ago
+ * that neither it, its Answers nor its Comments were updated or voted on
+ * in the last <tt>tullamoreqa.archive.idle-days</tt> is archived: all of
+ * their rows are written to a single compressed {@link ArchivedQuestion}
+ * in question_archive and deleted, in one transaction that locks the
+ * Question first. Restoring inserts the rows again under whichever
+ * {@link EntryLayout} this instance runs with, with the IDs they had,
+ * except for links to Tags deleted in the meantime. Both are recorded in
+ * the {@link Outbox}.
+ * <p>
+ * Every archived Entry is indexed by its ID in question_archive_entries,
+ * so asking for an Answer or Comment restores the Question it was
+ * archived with. Only asking for a Question, or one of its Entries, by ID
+ * or writing to it restores it; listings and searches list only those not
+ * archived, so they never write.
+ * <p>
+ * Whether a Question is archived is read without locking anything, so
+ * asking for one that doesn't exist at all costs a single read. An
+ * archived Question asked for in a read-only transaction is restored, and
+ * read back, in a transaction of its own, which is routed to the primary.
+ * <p>
+ * Archiving runs through the {@link JobScheduler}, on one instance at a
+ * time, for each tenant in turn.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class QuestionArchive {
+
+    /**
+     * Question Archive Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(QuestionArchive.class);
+
+    /**
+     * Archives a Question.
+     */
+    private static final String INSERT_ARCHIVE = "INSERT INTO"
+            + " question_archive (question_id, archived_at, payload)"
+            + " VALUES (?, ?, ?)";
+
+    /**
+     * Tells whether a Question is archived, without locking it.
+     */
+    private static final String COUNT_ARCHIVE = "SELECT COUNT(*)"
+            + " FROM question_archive WHERE question_id = ?";
+
+    /**
+     * Locks and reads the archive of a Question.
+     */
+    private static final String SELECT_ARCHIVE = "SELECT payload"
+            + " FROM question_archive WHERE question_id = ? FOR UPDATE";
+
+    /**
+     * Deletes the archive of a Question.
+     */
+    private static final String DELETE_ARCHIVE = "DELETE FROM"
+            + " question_archive WHERE question_id = ?";
+
+    /**
+     * Indexes an archived Entry by its ID.
+     */
+    private static final String INSERT_ENTRY = "INSERT INTO"
+            + " question_archive_entries (entry_id, question_id)"
+            + " VALUES (?, ?)";
+
+    /**
+     * Reads the Question an Entry is archived with.
+     */
+    private static final String SELECT_ENTRY = "SELECT question_id"
+            + " FROM question_archive_entries WHERE entry_id = ?";
+
+    /**
+     * Deletes the index of the Entries archived with a Question.
+     */
+    private static final String DELETE_ENTRIES = "DELETE FROM"
+            + " question_archive_entries WHERE question_id = ?";
+
+    /**
+     * Name archiving runs under in the {@link JobScheduler}.
+     */
+    public static final String JOB = "archive";
+
+    /**
+     * Column of the ID of Entries and Votes.
+     */
+    private static final String ID = "id";
+
+    /**
+     * Column linking a row to its Entry.
+     */
+    private static final String ENTRY_ID = "entry_id";
+
+    /**
+     * Column linking a row to its Question.
+     */
+    private static final String QUESTION_ID = "question_id";
+
+    /**
+     * Column of the version of Entries.
+     */
+    private static final String VERSION = "version";
+
+    /**
+     * Reads the cold Questions.
+     */
+    private final QuestionRepository questionRepository;
+
+    /**
+     * Runs the SQL.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Archives and restores each Question in a transaction, joining the
+     * caller's if it has one.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Restores each Question asked for in a read-only transaction, in a
+     * write transaction of its own.
+     */
+    private final TransactionTemplate restoreTemplate;
+
+    /**
+     * Caches emptied of archived Questions.
+     */
+    private final CacheRegistry caches;
+
+    /**
+     * Records that a Question was archived or restored.
+     */
+    private final Outbox outbox;
+
+    /**
+     * Runs archiving on one instance at a time.
+     */
+    private final JobScheduler jobs;
+
+    /**
+     * Runs archiving for each tenant.
+     */
+    private final TenantRouter tenants;
+
+    /**
+     * Layout this instance runs with.
+     */
+    @Value("${tullamoreqa.entry.layout:table-per-class}")
+    private String layout;
+
+    /**
+     * Days since a Question was asked before it may be archived.
+     */
+    @Value("${tullamoreqa.archive.age-days:730}")
+    private long ageDays;
+
+    /**
+     * Days without updates or Votes before a Question may be archived.
+     */
+    @Value("${tullamoreqa.archive.idle-days:365}")
+    private long idleDays;
+
+    /**
+     * Questions looked at per query, and IDs bound per statement.
+     */
+    @Value("${tullamoreqa.archive.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * Constructor that Auto wires the Question Repository, JDBC Template,
+     * Transaction Manager, caches, Outbox, Job Scheduler and Tenant Router.
+     *
+     * @param questionRepository QuestionRepo object.
+     * @param jdbcTemplate       JDBC Template.
+     * @param transactionManager Transaction Manager.
+     * @param caches             Caches emptied of archived Questions.
+     * @param outbox             Records archived and restored Questions.
+     * @param jobs               Runs archiving on one instance at a time.
+     * @param tenants            Runs archiving for each tenant.
+     */
+    @Autowired
+    public QuestionArchive(final QuestionRepository questionRepository,
+                           final JdbcTemplate jdbcTemplate,
+                           final PlatformTransactionManager
+                                   transactionManager,
+                           final CacheRegistry caches,
+                           final Outbox outbox,
+                           final JobScheduler jobs,
+                           final TenantRouter tenants) {
+        this.questionRepository = questionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.restoreTemplate = new TransactionTemplate(transactionManager);
+        this.restoreTemplate.setPropagationBehavior(
+                TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.caches = caches;
+        this.outbox = outbox;
+        this.jobs = jobs;
+        this.tenants = tenants;
+    }
+
+    /**
+     * Archive every tenant on a fixed delay, if this instance runs the
+     * jobs.
+     */
+    @Scheduled(fixedDelayString =
+            "${tullamoreqa.archive.interval-millis:86400000}")
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public void poll() {
+        jobs.run(JOB, () -> tenants.forEachTenant(
+                () -> archive(Instant.now())));
+    }
+
+    /**
+     * Archive every Question that has gone cold as of a point in time.
+     *
+     * @param now The point in time.
+     * @return Questions archived.
+     */
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public long archive(final Instant now) {
+        final Date askedBefore =
+                Date.from(now.minus(Duration.ofDays(ageDays)));
+        final Date idleSince =
+                Date.from(now.minus(Duration.ofDays(idleDays)));
+        long archived = 0;
+        Long after = Long.MIN_VALUE;
+        List<Long> ids;
+        do {
+            ids = questionRepository.findColdIds(askedBefore, idleSince,
+                    after, PageRequest.of(0, batchSize));
+            for (Long id : ids) {
+                try {
+                    if (archive(id, idleSince, now)) {
+                        archived++;
+                    }
+                } catch (LeaseLostException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Couldn't archive Question {}.", id, e);
+                }
+                after = id;
+            }
+        } while (ids.size() == batchSize);
+        if (archived > 0) {
+            LOGGER.info("Archived {} Questions idle since {}.", archived,
+                    idleSince);
+        }
+        return archived;
+    }
+
+    /**
+     * Restore an archived Question, along with everything archived with
+     * it.
+     *
+     * @param questionId ID of the Question.
+     * @return True if it was restored, false if it isn't archived.
+     * @throws UncheckedIOException If its archive is corrupt.
+     */
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public boolean restore(final Long questionId) {
+        return restore(questionId, () -> Boolean.TRUE) != null;
+    }
+
+    /**
+     * Restore an archived Question, along with everything archived with
+     * it, and read what was restored in the same transaction.
+     *
+     * @param questionId ID of the Question.
+     * @param reader     Reads what was restored.
+     * @param <T>        Type of what is read.
+     * @return What was read, or null if the Question isn't archived.
+     * @throws UncheckedIOException If its archive is corrupt.
+     */
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public <T> T restore(final Long questionId, final Supplier<T> reader) {
+        if (!isArchived(questionId)) {
+            return null;
+        }
+        final T output = template().execute(status -> {
+            final List<byte[]> payloads = jdbcTemplate.query(SELECT_ARCHIVE,
+                    (resultSet, row) -> resultSet.getBytes(1), questionId);
+            if (payloads.isEmpty()) {
+                return null;
+            }
+            final ArchivedQuestion archive;
+            try {
+                archive = ArchivedQuestion.fromBytes(payloads.get(0));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Archive of Question "
+                        + questionId + " is corrupt.", e);
+            }
+            insert(archive);
+            unindex(questionId);
+            jdbcTemplate.update(DELETE_ARCHIVE, questionId);
+            outbox.record(Question.class, questionId, ChangeType.RESTORED);
+            return reader.get();
+        });
+        if (output != null) {
+            LOGGER.info("Restored Question {} from the archive.", questionId);
+            caches.taggedQuestions().invalidateAll();
+        }
+        return output;
+    }
+
+    /**
+     * Restore the archived Question an Entry was archived with, and read
+     * what was restored in the same transaction.
+     *
+     * @param entryId ID of the Question, Answer or Comment.
+     * @param reader  Reads what was restored.
+     * @param <T>     Type of what is read.
+     * @return What was read, or null if the Entry isn't archived.
+     * @throws UncheckedIOException If its archive is corrupt.
+     */
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public <T> T restoreEntry(final Long entryId, final Supplier<T> reader) {
+        final List<Long> questionIds = jdbcTemplate.queryForList(
+                SELECT_ENTRY, Long.class, entryId);
+        return questionIds.isEmpty() ? null
+                : restore(questionIds.get(0), reader);
+    }
+
+    /**
+     * Is a Question archived. Nothing is locked, so it may be restored or
+     * deleted by the time it is acted on, which restoring checks again.
+     *
+     * @param questionId ID of the Question.
+     * @return True if it is archived.
+     */
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public boolean isArchived(final Long questionId) {
+        return jdbcTemplate.queryForObject(COUNT_ARCHIVE, Integer.class,
+                questionId) > 0;
+    }
+
+    /**
+     * Delete an archived Question, along with everything archived with
+     * it.
+     *
+     * @param questionId ID of the Question.
+     * @return True if it was deleted, false if it isn't archived.
+     */
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public boolean delete(final Long questionId) {
+        unindex(questionId);
+        return jdbcTemplate.update(DELETE_ARCHIVE, questionId) > 0;
+    }
+
+    /**
+     * Return the transaction a Question is restored in, the caller's
+     * unless it is read-only, so it is written to, and read back from, the
+     * primary.
+     *
+     * @return Template of the transaction.
+     */
+    private TransactionTemplate template() {
+        return TransactionSynchronizationManager
+                .isCurrentTransactionReadOnly()
+                ? restoreTemplate : transactionTemplate;
+    }
+
+    /**
+     * Archive a Question unless it was active since a point in time, in
+     * one transaction fenced by the job lease.
+     *
+     * @param questionId ID of the Question.
+     * @param idleSince  The point in time.
+     * @param now        When it is archived.
+     * @return True if it was archived.
+     */
+    private boolean archive(final Long questionId, final Date idleSince,
+                            final Instant now) {
+        final EntryLayout entries = EntryLayout.of(layout);
+        final String lock = "SELECT id FROM " + entries.inserts(
+                EntryType.QUESTION).keySet().iterator().next()
+                + " WHERE id = ? FOR UPDATE";
+        final Boolean archived = transactionTemplate.execute(status -> {
+            jobs.fence();
+            if (jdbcTemplate.queryForList(lock, Long.class, questionId)
+                    .isEmpty()) {
+                return false;
+            }
+            final ArchivedQuestion archive = load(entries, questionId);
+            final Date lastActivity = archive.getLastActivity();
+            if (lastActivity != null && !lastActivity.before(idleSince)) {
+                return false;
+            }
+            final byte[] payload;
+            try {
+                payload = archive.toBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            delete(entries, archive, questionId);
+            jdbcTemplate.update(INSERT_ARCHIVE, questionId,
+                    Timestamp.from(now), payload);
+            index(archive, questionId);
+            outbox.record(Question.class, questionId, ChangeType.ARCHIVED);
+            return true;
+        });
+        if (Boolean.TRUE.equals(archived)) {
+            LOGGER.debug("Archived Question {}.", questionId);
+            caches.questions().invalidate(questionId);
+            caches.taggedQuestions().invalidateAll();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Index the Entries of an archived Question.
+     *
+     * @param archive    Its rows.
+     * @param questionId ID of the Question.
+     */
+    private void index(final ArchivedQuestion archive,
+                       final Long questionId) {
+        final List<Object[]> entries = new ArrayList<>();
+        for (Long entryId : archive.getEntryIds()) {
+            entries.add(new Object[]{entryId, questionId});
+        }
+        jdbcTemplate.batchUpdate(INSERT_ENTRY, entries);
+    }
+
+    /**
+     * Delete the index of the Entries of an archived Question.
+     *
+     * @param questionId ID of the Question.
+     */
+    private void unindex(final Long questionId) {
+        jdbcTemplate.update(DELETE_ENTRIES, questionId);
+    }
+
+    /**
+     * Read every row archived along with a Question.
+     *
+     * @param entries    Layout of the Entry hierarchy.
+     * @param questionId ID of the Question.
+     * @return The rows.
+     */
+    private ArchivedQuestion load(final EntryLayout entries,
+                                  final Long questionId) {
+        final ArchivedQuestion output = new ArchivedQuestion();
+        final List<Long> question = Collections.singletonList(questionId);
+        final Set<Long> parents = new LinkedHashSet<>(question);
+        parents.addAll(selectEntries(output, entries, EntryType.QUESTION, ID,
+                question));
+        parents.addAll(selectEntries(output, entries, EntryType.ANSWER,
+                QUESTION_ID, question));
+        Set<Long> comments = selectEntries(output, entries,
+                EntryType.COMMENT, ENTRY_ID, parents);
+        while (!comments.isEmpty()) {
+            comments = selectEntries(output, entries, EntryType.COMMENT,
+                    ENTRY_ID, comments);
+        }
+
+        final Set<Long> entryIds = output.getEntryIds();
+        select(output, ArchivedQuestion.QUESTIONS_TAGS, QUESTION_ID,
+                question);
+        select(output, ArchivedQuestion.ENTRY_VOTES, ENTRY_ID, entryIds);
+        final Set<Long> linked = ids(output, ArchivedQuestion.ENTRY_VOTES, 1);
+        select(output, ArchivedQuestion.VOTES, ENTRY_ID, entryIds);
+        linked.removeAll(ids(output, ArchivedQuestion.VOTES, 0));
+        select(output, ArchivedQuestion.VOTES, ID, linked);
+        select(output, ArchivedQuestion.VOTE_ROLLUPS, ENTRY_ID, entryIds);
+        select(output, ArchivedQuestion.VOTE_BALLOTS, ENTRY_ID, entryIds);
+        return output;
+    }
+
+    /**
+     * Read the Entries of a type whose column is one of some values.
+     *
+     * @param archive Archive the rows are added to.
+     * @param entries Layout of the Entry hierarchy.
+     * @param type    The concrete type.
+     * @param column  Column filtered on.
+     * @param values  Values of the column.
+     * @return IDs of the Entries read.
+     */
+    private Set<Long> selectEntries(final ArchivedQuestion archive,
+                                    final EntryLayout entries,
+                                    final EntryType type,
+                                    final String column,
+                                    final Collection<Long> values) {
+        final List<String> columns =
+                ArchivedQuestion.getColumns(type.getTable());
+        final Set<Long> output = new LinkedHashSet<>();
+        for (List<Long> chunk : chunks(values)) {
+            jdbcTemplate.query(entries.select(type, column, chunk.size()),
+                    resultSet -> {
+                        final Object[] row = read(resultSet, columns);
+                        archive.add(type.getTable(), row);
+                        output.add((Long) row[0]);
+                    }, chunk.toArray());
+        }
+        return output;
+    }
+
+    /**
+     * Read the rows of a table whose column is one of some values.
+     *
+     * @param archive Archive the rows are added to.
+     * @param table   The table.
+     * @param column  Column filtered on.
+     * @param values  Values of the column.
+     */
+    private void select(final ArchivedQuestion archive, final String table,
+                        final String column, final Collection<Long> values) {
+        final List<String> columns = ArchivedQuestion.getColumns(table);
+        for (List<Long> chunk : chunks(values)) {
+            jdbcTemplate.query("SELECT " + String.join(", ", columns)
+                            + " FROM " + table + " WHERE " + column + " IN ("
+                            + parameters(chunk.size()) + ")",
+                    resultSet -> {
+                        archive.add(table, read(resultSet, columns));
+                    }, chunk.toArray());
+        }
+    }
+
+    /**
+     * Delete every row archived along with a Question, those referencing
+     * others first.
+     *
+     * @param entries    Layout of the Entry hierarchy.
+     * @param archive    The rows.
+     * @param questionId ID of the Question.
+     */
+    private void delete(final EntryLayout entries,
+                        final ArchivedQuestion archive,
+                        final Long questionId) {
+        final Set<Long> entryIds = archive.getEntryIds();
+        delete(ArchivedQuestion.ENTRY_VOTES, ENTRY_ID, entryIds);
+        delete(ArchivedQuestion.VOTES, ID,
+                ids(archive, ArchivedQuestion.VOTES, 0));
+        delete(ArchivedQuestion.VOTE_ROLLUPS, ENTRY_ID, entryIds);
+        delete(ArchivedQuestion.VOTE_BALLOTS, ENTRY_ID, entryIds);
+        delete(ArchivedQuestion.QUESTIONS_TAGS, QUESTION_ID,
+                Collections.singletonList(questionId));
+
+        final EntryType[] types = EntryType.values();
+        for (int i = types.length - 1; i >= 0; i--) {
+            final Set<Long> ids = ids(archive, types[i].getTable(), 0);
+            final List<String> tables =
+                    new ArrayList<>(entries.inserts(types[i]).keySet());
+            Collections.reverse(tables);
+            for (String table : tables) {
+                delete(table, ID, ids);
+            }
+        }
+    }
+
+    /**
+     * Delete the rows of a table whose column is one of some values.
+     *
+     * @param table  The table.
+     * @param column Column filtered on.
+     * @param values Values of the column.
+     */
+    private void delete(final String table, final String column,
+                        final Collection<Long> values) {
+        for (List<Long> chunk : chunks(values)) {
+            jdbcTemplate.update("DELETE FROM " + table + " WHERE " + column
+                    + " IN (" + parameters(chunk.size()) + ")",
+                    chunk.toArray());
+        }
+    }
+
+    /**
+     * Insert every archived row under this instance's layout, Entries
+     * before what references them. Entries come back a version on from the
+     * one they were archived at, so an ETag taken before archiving no
+     * longer matches.
+     *
+     * @param archive The rows.
+     */
+    private void insert(final ArchivedQuestion archive) {
+        final EntryLayout entries = EntryLayout.of(layout);
+        for (EntryType type : EntryType.values()) {
+            final List<String> columns =
+                    ArchivedQuestion.getColumns(type.getTable());
+            for (Map.Entry<String, List<String>> insert
+                    : entries.inserts(type).entrySet()) {
+                final List<Object[]> rows = new ArrayList<>();
+                for (Object[] row : archive.getRows(type.getTable())) {
+                    final Object[] values =
+                            new Object[insert.getValue().size()];
+                    for (int i = 0; i < values.length; i++) {
+                        final String column = insert.getValue().get(i);
+                        final Object value = row[columns.indexOf(column)];
+                        if (EntryLayout.DISCRIMINATOR.equals(column)) {
+                            values[i] = type.getDiscriminator();
+                        } else if (VERSION.equals(column)
+                                && value instanceof Number) {
+                            values[i] = ((Number) value).longValue() + 1;
+                        } else {
+                            values[i] = bindable(value);
+                        }
+                    }
+                    rows.add(values);
+                }
+                insert(insert.getKey(), insert.getValue(), rows);
+            }
+        }
+
+        final Set<String> tags = new HashSet<>();
+        for (Object[] row : archive.getRows(ArchivedQuestion.QUESTIONS_TAGS)) {
+            tags.add((String) row[1]);
+        }
+        final Set<String> existing = new HashSet<>();
+        if (!tags.isEmpty()) {
+            existing.addAll(jdbcTemplate.queryForList("SELECT name FROM tags"
+                    + " WHERE name IN (" + parameters(tags.size()) + ")",
+                    String.class, tags.toArray()));
+        }
+        for (String table : ArchivedQuestion.getTables()) {
+            if (isEntryTable(table)) {
+                continue;
+            }
+            final List<Object[]> rows = new ArrayList<>();
+            for (Object[] row : archive.getRows(table)) {
+                if (ArchivedQuestion.QUESTIONS_TAGS.equals(table)
+                        && !existing.contains(row[1])) {
+                    LOGGER.warn("Tag {} of Question {} no longer exists.",
+                            row[1], row[0]);
+                    continue;
+                }
+                final Object[] values = new Object[row.length];
+                for (int i = 0; i < row.length; i++) {
+                    values[i] = bindable(row[i]);
+                }
+                rows.add(values);
+            }
+            insert(table, ArchivedQuestion.getColumns(table), rows);
+        }
+    }
+
+    /**
+     * Insert rows in one batch.
+     *
+     * @param table   The table.
+     * @param columns Its columns.
+     * @param rows    Value of each column, by row.
+     */
+    private void insert(final String table, final List<String> columns,
+                        final List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(EntryLayoutMigrator.insertSql(table,
+                    columns), rows);
+        }
+    }
+
+    /**
+     * Return whether an archived table holds Entries.
+     *
+     * @param table The archived table.
+     * @return True if it is the table of a concrete type.
+     */
+    private static boolean isEntryTable(final String table) {
+        for (EntryType type : EntryType.values()) {
+            if (type.getTable().equals(table)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read a row by column name, each value as the type it is archived
+     * as.
+     *
+     * @param resultSet The row.
+     * @param columns   Columns to read.
+     * @return Value of each column.
+     * @throws SQLException If the Database fails.
+     */
+    private static Object[] read(final ResultSet resultSet,
+                                 final List<String> columns)
+            throws SQLException {
+        final Object[] output = new Object[columns.size()];
+        for (int i = 0; i < output.length; i++) {
+            final String column = columns.get(i);
+            switch (ArchivedQuestion.getType(column)) {
+                case LONG:
+                    final long number = resultSet.getLong(column);
+                    output[i] = resultSet.wasNull() ? null : number;
+                    break;
+                case TIMESTAMP:
+                    output[i] = resultSet.getTimestamp(column);
+                    break;
+                case BOOLEAN:
+                    final boolean flag = resultSet.getBoolean(column);
+                    output[i] = resultSet.wasNull() ? null : flag;
+                    break;
+                default:
+                    output[i] = resultSet.getString(column);
+                    break;
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Return a value the way JDBC binds it.
+     *
+     * @param value Value read from an archive.
+     * @return The value, Dates as Timestamps.
+     */
+    private static Object bindable(final Object value) {
+        return value instanceof Date
+                ? new Timestamp(((Date) value).getTime()) : value;
+    }
+
+    /**
+     * Return the IDs in a column of an archived table.
+     *
+     * @param archive The archive.
+     * @param table   The table.
+     * @param index   Index of the column.
+     * @return The IDs.
+     */
+    private static Set<Long> ids(final ArchivedQuestion archive,
+                                 final String table, final int index) {
+        final Set<Long> output = new LinkedHashSet<>();
+        for (Object[] row : archive.getRows(table)) {
+            output.add((Long) row[index]);
+        }
+        return output;
+    }
+
+    /**
+     * Split values into lists of at most the batch size.
+     *
+     * @param values The values.
+     * @return The lists, none for no values.
+     */
+    private List<List<Long>> chunks(final Collection<Long> values) {
+        final List<Long> all = new ArrayList<>(values);
+        final List<List<Long>> output = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += batchSize) {
+            output.add(all.subList(i, Math.min(all.size(), i + batchSize)));
+        }
+        return output;
+    }
+
+    /**
+     * Return a parameter for each of some values.
+     *
+     * @param count Number of values.
+     * @return i.e. '?, ?, ?'.
+     */
+    private static String parameters(final int count) {
+        final StringBuilder output = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            output.append(i == 0 ? "?" : ", ?");
+        }
+        return output.toString();
+    }
+}
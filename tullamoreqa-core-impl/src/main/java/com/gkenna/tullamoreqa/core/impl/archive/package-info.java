@@ -0,0 +1,9 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+/**
+ * Archiving of Questions that have gone cold, with their Answers, Comments
+ * and Votes, and restoring them when they are wanted again.
+ */
+package com.gkenna.tullamoreqa.core.impl.archive;
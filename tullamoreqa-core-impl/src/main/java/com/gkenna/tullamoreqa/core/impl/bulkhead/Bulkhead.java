@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.bulkhead;
+
+import com.gkenna.tullamoreqa.core.impl.tenant.Tenants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Runs the requests of one group of endpoints on threads of its own, so a
+ * group whose requests are slow can only tie up its own threads and not
+ * the servlet container's.
+ * <p>
+ * A request is run by one of a fixed number of threads, or waits in a
+ * bounded queue for one. A request arriving with every thread busy and
+ * the queue full is refused with a {@link BulkheadFullException}, and a
+ * request not answered within the timeout is answered with a
+ * {@link BulkheadTimeoutException}, both of which are a 503.
+ * <p>
+ * The request is bound to the thread running it, as it is to the servlet
+ * thread, so what is read from {@link RequestContextHolder} there is read
+ * from the request being run. So is the tenant of the request, so its
+ * work is done in the tenant's schema, see {@link Tenants}.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public class Bulkhead {
+
+    /**
+     * Bulkhead Logger.
+     */
+    private static final Logger LOGGER = LogManager.getLogger(Bulkhead.class);
+
+    /**
+     * Name of the group of endpoints.
+     */
+    private final String name;
+
+    /**
+     * Threads running requests.
+     */
+    private final int threads;
+
+    /**
+     * Requests that may wait for a thread.
+     */
+    private final int queueSize;
+
+    /**
+     * How long a request may take, in millis.
+     */
+    private final long timeoutMillis;
+
+    /**
+     * Runs the requests.
+     */
+    private final ThreadPoolExecutor pool;
+
+    /**
+     * The pool, as Spring MVC runs asynchronous requests on it.
+     */
+    private final AsyncTaskExecutor executor;
+
+    /**
+     * A permit per thread and queue slot, held from when a request is
+     * accepted until it has run, so the pool never has to reject one.
+     */
+    private final Semaphore permits;
+
+    /**
+     * Told how long each request waited for a thread, in nanos, if set.
+     */
+    private volatile LongConsumer queueDelayListener;
+
+    /**
+     * Requests accepted.
+     */
+    private final AtomicLong accepted = new AtomicLong();
+
+    /**
+     * Requests refused as the bulkhead was full.
+     */
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Requests that ran without throwing.
+     */
+    private final AtomicLong completed = new AtomicLong();
+
+    /**
+     * Requests that threw.
+     */
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * Requests answered with a timeout.
+     */
+    private final AtomicLong timedOut = new AtomicLong();
+
+    /**
+     * Create a new Bulkhead.
+     *
+     * @param name          Name of the group of endpoints.
+     * @param threads       Threads running requests.
+     * @param queueSize     Requests that may wait for a thread.
+     * @param timeoutMillis How long a request may take, in millis.
+     */
+    public Bulkhead(final String name, final int threads,
+                    final int queueSize, final long timeoutMillis) {
+        if (threads < 1 || queueSize < 0 || timeoutMillis < 1) {
+            throw new IllegalArgumentException("Bulkhead " + name
+                    + " needs a thread and a timeout.");
+        }
+        this.name = name;
+        this.threads = threads;
+        this.queueSize = queueSize;
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(threads + queueSize);
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+                new CustomizableThreadFactory("bulkhead-" + name + "-")) {
+            @Override
+            protected void afterExecute(final Runnable task,
+                                        final Throwable thrown) {
+                super.afterExecute(task, thrown);
+                permits.release();
+            }
+        };
+        this.executor = new ConcurrentTaskExecutor(pool);
+    }
+
+    /**
+     * Accept a request, to be run on this bulkhead's threads once the
+     * handler returns the task.
+     *
+     * @param call The work of the request.
+     * @param <T>  Type of its result.
+     * @return The task Spring MVC runs asynchronously.
+     * @throws BulkheadFullException If every thread is busy and the
+     *                               queue is full.
+     */
+    public <T> WebAsyncTask<T> call(final Callable<T> call) {
+        if (!permits.tryAcquire()) {
+            rejected.incrementAndGet();
+            LOGGER.warn("Bulkhead {} is full, refusing a request.", name);
+            throw new BulkheadFullException("Bulkhead " + name
+                    + " is full.");
+        }
+        accepted.incrementAndGet();
+        final long queuedAt = System.nanoTime();
+        final RequestAttributes request =
+                RequestContextHolder.getRequestAttributes();
+        final String tenant = Tenants.current();
+        final WebAsyncTask<T> output = new WebAsyncTask<>(timeoutMillis,
+                executor, () -> {
+            final LongConsumer listener = queueDelayListener;
+            if (listener != null) {
+                listener.accept(System.nanoTime() - queuedAt);
+            }
+            final RequestAttributes previous =
+                    RequestContextHolder.getRequestAttributes();
+            RequestContextHolder.setRequestAttributes(bind(request));
+            try {
+                final T result = Tenants.call(tenant, call);
+                completed.incrementAndGet();
+                return result;
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                throw e;
+            } finally {
+                RequestContextHolder.setRequestAttributes(previous);
+            }
+        });
+        output.onTimeout(() -> {
+            timedOut.incrementAndGet();
+            LOGGER.warn("Request on bulkhead {} timed out after {}ms.",
+                    name, timeoutMillis);
+            throw new BulkheadTimeoutException("Bulkhead " + name
+                    + " timed out after " + timeoutMillis + "ms.");
+        });
+        return output;
+    }
+
+    /**
+     * Return attributes of a request for the thread running it. Those of
+     * the servlet thread stop serving the request once it hands the
+     * request off, so a servlet request gets attributes of its own.
+     *
+     * @param request Attributes of the request on the servlet thread, may
+     *                be null.
+     * @return Attributes to bind to the running thread.
+     */
+    private static RequestAttributes bind(final RequestAttributes request) {
+        if (!(request instanceof ServletRequestAttributes)) {
+            return request;
+        }
+        final ServletRequestAttributes servlet =
+                (ServletRequestAttributes) request;
+        return new ServletRequestAttributes(servlet.getRequest(),
+                servlet.getResponse());
+    }
+
+    /**
+     * Tell a listener how long each request waits for a thread from now
+     * on, replacing any listener set before.
+     *
+     * @param listener Told each wait, in nanos.
+     */
+    public void setQueueDelayListener(final LongConsumer listener) {
+        this.queueDelayListener = listener;
+    }
+
+    /**
+     * Return the name of the group of endpoints.
+     *
+     * @return i.e. 'questions'.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Return the settings and counters of this bulkhead.
+     *
+     * @return Metrics by name.
+     */
+    public Map<String, Object> toMap() {
+        final Map<String, Object> output = new LinkedHashMap<>();
+        output.put("threads", threads);
+        output.put("queueSize", queueSize);
+        output.put("timeoutMillis", timeoutMillis);
+        output.put("active", pool.getActiveCount());
+        output.put("queued", pool.getQueue().size());
+        output.put("accepted", accepted.get());
+        output.put("rejected", rejected.get());
+        output.put("completed", completed.get());
+        output.put("failed", failed.get());
+        output.put("timedOut", timedOut.get());
+        return output;
+    }
+
+    /**
+     * Stop taking requests, letting those accepted finish.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.bulkhead;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a request arrives at a {@link Bulkhead} whose threads are all
+ * busy and whose queue is full.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class BulkheadFullException extends RuntimeException {
+    /**
+     * Constructs a <tt>BulkheadFullException</tt> with the specified cause.
+     *
+     * @param message Additional exception information.
+     */
+    public BulkheadFullException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.bulkhead;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Home of the {@link Bulkhead} of every group of endpoints.
+ * <p>
+ * Each bulkhead is sized by <tt>tullamoreqa.bulkhead.threads</tt>,
+ * <tt>queue-size</tt> and <tt>timeout-millis</tt>, any of which a group
+ * overrides under its own name, i.e.
+ * <tt>tullamoreqa.bulkhead.tags.threads</tt>.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class BulkheadRegistry {
+
+    /**
+     * Prefix of every setting.
+     */
+    private static final String PREFIX = "tullamoreqa.bulkhead.";
+
+    /**
+     * Default threads per bulkhead.
+     */
+    private static final int DEFAULT_THREADS = 10;
+
+    /**
+     * Default requests that may wait per bulkhead.
+     */
+    private static final int DEFAULT_QUEUE_SIZE = 50;
+
+    /**
+     * Default time a request may take, in millis.
+     */
+    private static final long DEFAULT_TIMEOUT_MILLIS = 10000;
+
+    /**
+     * Question endpoints.
+     */
+    private final Bulkhead questions;
+
+    /**
+     * Answer endpoints.
+     */
+    private final Bulkhead answers;
+
+    /**
+     * Comment endpoints.
+     */
+    private final Bulkhead comments;
+
+    /**
+     * Tag endpoints.
+     */
+    private final Bulkhead tags;
+
+    /**
+     * User endpoints.
+     */
+    private final Bulkhead users;
+
+    /**
+     * Every bulkhead by name.
+     */
+    private final Map<String, Bulkhead> all = new LinkedHashMap<>();
+
+    /**
+     * Create a BulkheadRegistry with the default settings.
+     */
+    public BulkheadRegistry() {
+        this(new StandardEnvironment());
+    }
+
+    /**
+     * Create a BulkheadRegistry.
+     *
+     * @param environment Settings of every bulkhead.
+     */
+    @Autowired
+    public BulkheadRegistry(final Environment environment) {
+        this.questions = create(environment, "questions");
+        this.answers = create(environment, "answers");
+        this.comments = create(environment, "comments");
+        this.tags = create(environment, "tags");
+        this.users = create(environment, "users");
+    }
+
+    /**
+     * Return the bulkhead of the Question endpoints.
+     *
+     * @return Question bulkhead.
+     */
+    public Bulkhead questions() {
+        return questions;
+    }
+
+    /**
+     * Return the bulkhead of the Answer endpoints.
+     *
+     * @return Answer bulkhead.
+     */
+    public Bulkhead answers() {
+        return answers;
+    }
+
+    /**
+     * Return the bulkhead of the Comment endpoints.
+     *
+     * @return Comment bulkhead.
+     */
+    public Bulkhead comments() {
+        return comments;
+    }
+
+    /**
+     * Return the bulkhead of the Tag endpoints.
+     *
+     * @return Tag bulkhead.
+     */
+    public Bulkhead tags() {
+        return tags;
+    }
+
+    /**
+     * Return the bulkhead of the User endpoints.
+     *
+     * @return User bulkhead.
+     */
+    public Bulkhead users() {
+        return users;
+    }
+
+    /**
+     * Return every bulkhead.
+     *
+     * @return Bulkheads, in registration order.
+     */
+    public Collection<Bulkhead> all() {
+        return Collections.unmodifiableCollection(all.values());
+    }
+
+    /**
+     * Stop every bulkhead taking requests on shutdown.
+     */
+    @PreDestroy
+    public void shutdown() {
+        for (Bulkhead bulkhead : all.values()) {
+            bulkhead.shutdown();
+        }
+    }
+
+    /**
+     * Create and register the bulkhead of a group of endpoints.
+     *
+     * @param environment Settings of every bulkhead.
+     * @param name        Name of the group.
+     * @return The bulkhead.
+     */
+    private Bulkhead create(final Environment environment,
+                            final String name) {
+        final Bulkhead output = new Bulkhead(name,
+                setting(environment, name, "threads", DEFAULT_THREADS),
+                setting(environment, name, "queue-size", DEFAULT_QUEUE_SIZE),
+                setting(environment, name, "timeout-millis",
+                        DEFAULT_TIMEOUT_MILLIS));
+        all.put(name, output);
+        return output;
+    }
+
+    /**
+     * Return a setting of a group, falling back to the one shared by every
+     * group.
+     *
+     * @param environment  Settings of every bulkhead.
+     * @param name         Name of the group.
+     * @param key          Name of the setting.
+     * @param defaultValue Value if neither is set.
+     * @param <T>          Type of the setting.
+     * @return The setting.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T setting(final Environment environment,
+                                 final String name, final String key,
+                                 final T defaultValue) {
+        final Class<T> type = (Class<T>) defaultValue.getClass();
+        return environment.getProperty(PREFIX + name + "." + key, type,
+                environment.getProperty(PREFIX + key, type, defaultValue));
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.bulkhead;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a request run on a {@link Bulkhead} has not been answered
+ * within its timeout.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class BulkheadTimeoutException extends RuntimeException {
+    /**
+     * Constructs a <tt>BulkheadTimeoutException</tt> with the specified cause.
+     *
+     * @param message Additional exception information.
+     */
+    public BulkheadTimeoutException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,9 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+/**
+ * Bounded thread pools that the Controllers run their requests on, one
+ * per group of endpoints.
+ */
+package com.gkenna.tullamoreqa.core.impl.bulkhead;
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.cache;
+
+/**
+ * Runs work past every {@link LocalCache}, so its reads always load from
+ * the Database and nothing they load is kept. Lookups made while bypassed
+ * are not counted as hits or misses, nor recorded as reads of a hot key.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public final class CacheBypass {
+
+    /**
+     * Set while the work running on this thread bypasses the caches.
+     */
+    private static final ThreadLocal<Boolean> BYPASSING = new ThreadLocal<>();
+
+    /**
+     * Utility class, never instantiated.
+     */
+    private CacheBypass() {
+    }
+
+    /**
+     * Run work with the caches bypassed.
+     *
+     * @param work The work.
+     */
+    public static void run(final Runnable work) {
+        final Boolean previous = BYPASSING.get();
+        BYPASSING.set(Boolean.TRUE);
+        try {
+            work.run();
+        } finally {
+            if (previous == null) {
+                BYPASSING.remove();
+            } else {
+                BYPASSING.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Is the work running on this thread bypassing the caches.
+     *
+     * @return True if it is.
+     */
+    public static boolean isActive() {
+        return BYPASSING.get() != null;
+    }
+}
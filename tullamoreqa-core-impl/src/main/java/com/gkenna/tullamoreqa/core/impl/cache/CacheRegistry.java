@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.cache;
+
+import com.gkenna.tullamoreqa.domain.AuthorSummary;
+import com.gkenna.tullamoreqa.domain.Question;
+import com.gkenna.tullamoreqa.domain.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Home of every {@link LocalCache} used by the Services. Services read
+ * through these caches and invalidate them on writes, while the warm-up
+ * stage fills them before the instance reports ready.
+ * <p>
+ * The Question and Tag caches share a {@link CircuitBreaker} on their
+ * Database loads, and keep serving recently expired values while the
+ * Database is failing. Those loads run in a read-only transaction that
+ * times out, so a Database that stops answering fails them too.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class CacheRegistry {
+
+    /**
+     * Key used in {@link #tagListings()} for the list of all Tags.
+     */
+    public static final String ALL_TAGS = "*";
+
+    /**
+     * Default time to live of cached values, in seconds.
+     */
+    private static final long DEFAULT_TTL_SECONDS = 300;
+
+    /**
+     * Default maximum number of values per cache.
+     */
+    private static final int DEFAULT_MAX_SIZE = 10000;
+
+    /**
+     * Default time a caller waits on a concurrent load, in millis.
+     */
+    private static final long DEFAULT_LOAD_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * Default time a value may be served past its time to live when the
+     * Database is failing, in seconds.
+     */
+    private static final long DEFAULT_MAX_STALE_SECONDS = 60;
+
+    /**
+     * Default consecutive Database failures at which the breaker opens.
+     */
+    private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+    /**
+     * Default time the breaker stays open, in millis.
+     */
+    private static final long DEFAULT_OPEN_MILLIS = 10000;
+
+    /**
+     * Default time a Database load guarded by the breaker may take, in
+     * seconds.
+     */
+    private static final int DEFAULT_QUERY_TIMEOUT_SECONDS = 2;
+
+    /**
+     * Breaker guarding the Database loads of the read caches.
+     */
+    private final CircuitBreaker databaseBreaker;
+
+    /**
+     * Questions by ID.
+     */
+    private final LocalCache<Long, Question> questions;
+
+    /**
+     * Tags by name.
+     */
+    private final LocalCache<String, Tag> tags;
+
+    /**
+     * Tag listings, i.e. all Tags under {@link #ALL_TAGS}.
+     */
+    private final LocalCache<String, List<Tag>> tagListings;
+
+    /**
+     * Questions tagged with a particular Tag, by Tag name.
+     */
+    private final LocalCache<String, List<Question>> taggedQuestions;
+
+    /**
+     * Author summaries by username.
+     */
+    private final LocalCache<String, AuthorSummary> authors;
+
+    /**
+     * Create a CacheRegistry with the default settings, whose loads run
+     * as they are.
+     */
+    public CacheRegistry() {
+        this(DEFAULT_TTL_SECONDS, DEFAULT_MAX_SIZE,
+                DEFAULT_LOAD_TIMEOUT_MILLIS, DEFAULT_MAX_STALE_SECONDS,
+                DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS,
+                DEFAULT_QUERY_TIMEOUT_SECONDS, null);
+    }
+
+    /**
+     * Create a CacheRegistry.
+     *
+     * @param ttlSeconds  How long cached values are fresh for, in seconds.
+     * @param maxSize     Maximum number of values per cache.
+     * @param loadTimeout How long a caller waits on a concurrent load of
+     *                    the same key, in millis.
+     * @param maxStale    How long a Question or Tag may be served past its
+     *                    time to live when the Database is failing, in
+     *                    seconds. 0 disables serving stale values.
+     * @param threshold   Consecutive Database failures at which the
+     *                    breaker opens.
+     * @param openMillis  How long the breaker stays open, in millis.
+     * @param timeout     How long a Database load guarded by the breaker
+     *                    may take, in seconds. 0 lets it take as long as
+     *                    it takes.
+     * @param transactionManager Transaction Manager the loads guarded by
+     *                           the breaker are timed with, null to run
+     *                           them as they are.
+     */
+    @Autowired
+    public CacheRegistry(
+            @Value("${tullamoreqa.cache.ttl-seconds:300}")
+            final long ttlSeconds,
+            @Value("${tullamoreqa.cache.max-size:10000}")
+            final int maxSize,
+            @Value("${tullamoreqa.cache.load-timeout-millis:5000}")
+            final long loadTimeout,
+            @Value("${tullamoreqa.cache.stale-on-error.max-stale-seconds:60}")
+            final long maxStale,
+            @Value("${tullamoreqa.cache.stale-on-error.failure-threshold:5}")
+            final int threshold,
+            @Value("${tullamoreqa.cache.stale-on-error.open-millis:10000}")
+            final long openMillis,
+            @Value("${tullamoreqa.cache.stale-on-error"
+                    + ".query-timeout-seconds:2}")
+            final int timeout,
+            final PlatformTransactionManager transactionManager) {
+        final long ttl = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.questions =
+                new LocalCache<>("questions", ttl, maxSize, loadTimeout);
+        this.tags = new LocalCache<>("tags", ttl, maxSize, loadTimeout);
+        this.tagListings =
+                new LocalCache<>("tagListings", ttl, maxSize, loadTimeout);
+        this.taggedQuestions = new LocalCache<>("taggedQuestions", ttl,
+                maxSize, loadTimeout);
+        this.authors =
+                new LocalCache<>("authors", ttl, maxSize, loadTimeout);
+
+        this.databaseBreaker = new CircuitBreaker(threshold, openMillis);
+        if (maxStale > 0) {
+            final long stale = TimeUnit.SECONDS.toMillis(maxStale);
+            questions.serveStaleOnError(databaseBreaker, stale);
+            tags.serveStaleOnError(databaseBreaker, stale);
+            tagListings.serveStaleOnError(databaseBreaker, stale);
+            taggedQuestions.serveStaleOnError(databaseBreaker, stale);
+        }
+        if (timeout > 0 && transactionManager != null) {
+            final TransactionTemplate loads =
+                    new TransactionTemplate(transactionManager);
+            loads.setReadOnly(true);
+            loads.setTimeout(timeout);
+            questions.timeLoads(loads);
+            tags.timeLoads(loads);
+            tagListings.timeLoads(loads);
+            taggedQuestions.timeLoads(loads);
+        }
+    }
+
+    /**
+     * Return the breaker guarding the Database loads of the read caches.
+     *
+     * @return Database circuit breaker.
+     */
+    public CircuitBreaker databaseBreaker() {
+        return databaseBreaker;
+    }
+
+    /**
+     * Return the cache of Questions by ID.
+     *
+     * @return Question cache.
+     */
+    public LocalCache<Long, Question> questions() {
+        return questions;
+    }
+
+    /**
+     * Return the cache of Tags by name.
+     *
+     * @return Tag cache.
+     */
+    public LocalCache<String, Tag> tags() {
+        return tags;
+    }
+
+    /**
+     * Return the cache of Tag listings.
+     *
+     * @return Tag listing cache.
+     */
+    public LocalCache<String, List<Tag>> tagListings() {
+        return tagListings;
+    }
+
+    /**
+     * Return the cache of Questions by Tag name.
+     *
+     * @return Tagged Question cache.
+     */
+    public LocalCache<String, List<Question>> taggedQuestions() {
+        return taggedQuestions;
+    }
+
+    /**
+     * Return the cache of author summaries by username.
+     *
+     * @return Author summary cache.
+     */
+    public LocalCache<String, AuthorSummary> authors() {
+        return authors;
+    }
+
+    /**
+     * Return every cache in this registry.
+     *
+     * @return All caches.
+     */
+    public Collection<LocalCache<?, ?>> all() {
+        return Arrays.<LocalCache<?, ?>>asList(questions, tags, tagListings,
+                taggedQuestions, authors);
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.cache;
+
+import com.gkenna.tullamoreqa.core.impl.storage.PrivateDirectory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectOutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the contents of the {@link CacheRegistry} across restarts. On
+ * graceful shutdown every cache is written to a local memory-mapped file,
+ * and on startup the file is read back so a restarted instance doesn't
+ * rebuild its caches from the Database.
+ * <p>
+ * Restored values keep the time they were originally loaded, caches with a
+ * revalidator check each restored value against the Database the first time
+ * it is read. A snapshot is only ever restored once, and is ignored if older
+ * than <tt>tullamoreqa.cache.snapshot.max-age-seconds</tt>.
+ * <p>
+ * The file is kept in a {@link PrivateDirectory}, and only the domain
+ * classes, the JDK types they are made of and Hibernate's collections
+ * and proxies are read back from it, any other class failing the restore.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class CacheSnapshot {
+
+    /**
+     * Cache Snapshot Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(CacheSnapshot.class);
+
+    /**
+     * Marks the start of a snapshot file, 'TQAC'.
+     */
+    private static final int MAGIC = 0x54514143;
+
+    /**
+     * Version of the snapshot format.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Prefixes of the classes a snapshot may hold.
+     */
+    private static final String[] ALLOWED_CLASSES = {
+            "com.gkenna.tullamoreqa.domain.",
+            "java.lang.String",
+            "java.lang.Boolean",
+            "java.lang.Integer",
+            "java.lang.Long",
+            "java.lang.Number",
+            "java.lang.Enum",
+            "java.util.ArrayList",
+            "java.util.Arrays$ArrayList",
+            "java.util.Collections$",
+            "java.util.Date",
+            "java.util.HashMap",
+            "java.util.HashSet",
+            "java.util.LinkedHashMap",
+            "java.util.LinkedHashSet",
+            "java.util.TreeMap",
+            "java.util.TreeSet",
+            "java.sql.Timestamp",
+            "org.hibernate.collection.internal.Persistent",
+            "org.hibernate.proxy.",
+    };
+
+    /**
+     * Caches being snapshot.
+     */
+    private final CacheRegistry caches;
+
+    /**
+     * Should caches be snapshot and restored at all.
+     */
+    private final boolean enabled;
+
+    /**
+     * Location of the snapshot file.
+     */
+    private final Path path;
+
+    /**
+     * Snapshots older than this are ignored, in millis.
+     */
+    private final long maxAgeMillis;
+
+    /**
+     * Create a CacheSnapshot.
+     *
+     * @param caches        Caches being snapshot.
+     * @param enabled       Should caches be snapshot and restored at all.
+     * @param path          Location of the snapshot file.
+     * @param maxAgeSeconds Snapshots older than this are ignored.
+     */
+    @Autowired
+    public CacheSnapshot(
+            final CacheRegistry caches,
+            @Value("${tullamoreqa.cache.snapshot.enabled:true}")
+            final boolean enabled,
+            @Value("${tullamoreqa.cache.snapshot.path:"
+                    + "${tullamoreqa.data-dir:${user.home}/.tullamoreqa}"
+                    + "/cache.snapshot}")
+            final String path,
+            @Value("${tullamoreqa.cache.snapshot.max-age-seconds:86400}")
+            final long maxAgeSeconds) {
+        this.caches = caches;
+        this.enabled = enabled;
+        this.path = Paths.get(path);
+        this.maxAgeMillis = TimeUnit.SECONDS.toMillis(maxAgeSeconds);
+    }
+
+    /**
+     * Write every cache to the snapshot file. The file is written next to
+     * the old one and moved into place, so a failed write never leaves a
+     * half written snapshot behind.
+     */
+    @PreDestroy
+    public void save() {
+        if (!enabled) {
+            return;
+        }
+        final long start = System.nanoTime();
+        final Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            PrivateDirectory.createFor(path);
+            final byte[] bytes = serialize();
+            try (FileChannel channel = FileChannel.open(temp,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                final MappedByteBuffer buffer = channel.map(
+                        FileChannel.MapMode.READ_WRITE, 0, bytes.length);
+                buffer.put(bytes);
+                buffer.force();
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.info("Wrote {} byte cache snapshot to {} in {} ms.",
+                    bytes.length, path, TimeUnit.NANOSECONDS.toMillis(
+                            System.nanoTime() - start));
+        } catch (IOException e) {
+            LOGGER.warn("Could not write cache snapshot to {}.", path, e);
+        }
+    }
+
+    /**
+     * Restore every cache from the snapshot file, if there is a recent
+     * enough one. The file is removed once read.
+     *
+     * @return Number of values restored.
+     */
+    public int restore() {
+        if (!enabled || !Files.exists(path)) {
+            return 0;
+        }
+        try {
+            PrivateDirectory.createFor(path);
+        } catch (IOException e) {
+            LOGGER.warn("Not restoring cache snapshot {}.", path, e);
+            return 0;
+        }
+        try {
+            final byte[] bytes;
+            try (FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.READ)) {
+                final MappedByteBuffer buffer = channel.map(
+                        FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+            }
+            return deserialize(bytes);
+        } catch (IOException | ClassNotFoundException
+                | ClassCastException e) {
+            LOGGER.warn("Could not restore cache snapshot from {}.", path, e);
+            return 0;
+        } finally {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                LOGGER.warn("Could not remove cache snapshot {}.", path, e);
+            }
+        }
+    }
+
+    /**
+     * Write the header and every cache entry.
+     *
+     * @return The serialized snapshot.
+     * @throws IOException If a cached value can't be serialized.
+     */
+    private byte[] serialize() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(caches.all().size());
+            for (LocalCache<?, ?> cache : caches.all()) {
+                final Map<?, ? extends CachedValue<?>> entries =
+                        cache.entries();
+                out.writeUTF(cache.getName());
+                out.writeInt(entries.size());
+                for (Map.Entry<?, ? extends CachedValue<?>> e
+                        : entries.entrySet()) {
+                    out.writeObject(e.getKey());
+                    out.writeObject(e.getValue().getValue());
+                    out.writeLong(e.getValue().getLoadedAt());
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Read the header and restore every cache entry.
+     *
+     * @param bytes The serialized snapshot.
+     * @return Number of values restored.
+     * @throws IOException            If the snapshot is corrupt.
+     * @throws ClassNotFoundException If a cached class no longer exists.
+     */
+    private int deserialize(final byte[] bytes)
+            throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new SnapshotInputStream(
+                new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                LOGGER.warn("Ignoring {}, not a cache snapshot of this"
+                        + " version.", path);
+                return 0;
+            }
+            final long age = System.currentTimeMillis() - in.readLong();
+            if (age > maxAgeMillis) {
+                LOGGER.info("Ignoring cache snapshot {}, it is {} s old.",
+                        path, TimeUnit.MILLISECONDS.toSeconds(age));
+                return 0;
+            }
+
+            final Map<String, LocalCache<?, ?>> byName = new HashMap<>();
+            for (LocalCache<?, ?> cache : caches.all()) {
+                byName.put(cache.getName(), cache);
+            }
+            final List<Runnable> restores = new ArrayList<>();
+            final int cacheCount = in.readInt();
+            for (int c = 0; c < cacheCount; c++) {
+                final LocalCache<?, ?> cache = byName.get(in.readUTF());
+                final int entryCount = in.readInt();
+                for (int i = 0; i < entryCount; i++) {
+                    final Object key = in.readObject();
+                    final Object value = in.readObject();
+                    final long loadedAt = in.readLong();
+                    if (cache != null) {
+                        restores.add(() ->
+                                restore(cache, key, value, loadedAt));
+                    }
+                }
+            }
+            // Nothing is restored unless the whole snapshot could be read.
+            restores.forEach(Runnable::run);
+            LOGGER.info("Restored {} cached values from {}.",
+                    restores.size(), path);
+            return restores.size();
+        }
+    }
+
+    /**
+     * Restore a single value into a cache.
+     *
+     * @param cache    Cache to restore into.
+     * @param key      Key of the value.
+     * @param value    Value to restore.
+     * @param loadedAt Epoch millis at which the value was originally loaded.
+     * @param <K>      Type of the cache key.
+     * @param <V>      Type of the cached value.
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V> void restore(final LocalCache<K, V> cache,
+                                       final Object key, final Object value,
+                                       final long loadedAt) {
+        cache.restore((K) key, (V) value, loadedAt);
+    }
+
+    /**
+     * Reads a snapshot, refusing any class that isn't allowed in one.
+     */
+    private static final class SnapshotInputStream
+            extends ObjectInputStream {
+
+        /**
+         * Create a SnapshotInputStream.
+         *
+         * @param in The snapshot.
+         * @throws IOException If its stream header is corrupt.
+         */
+        SnapshotInputStream(final InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc)
+                throws IOException, ClassNotFoundException {
+            String name = desc.getName();
+            while (name.startsWith("[")) {
+                name = name.substring(1);
+            }
+            if (name.startsWith("L") && name.endsWith(";")) {
+                name = name.substring(1, name.length() - 1);
+            }
+            if (name.length() > 1 && !isAllowed(name)) {
+                throw new InvalidClassException(desc.getName(),
+                        "not allowed in a cache snapshot");
+            }
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(final String[] interfaces)
+                throws IOException {
+            throw new InvalidClassException("Proxy",
+                    "not allowed in a cache snapshot");
+        }
+
+        /**
+         * Is a class allowed in a snapshot.
+         *
+         * @param name Name of the class.
+         * @return True if it is.
+         */
+        private static boolean isAllowed(final String name) {
+            for (String prefix : ALLOWED_CLASSES) {
+                if (name.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
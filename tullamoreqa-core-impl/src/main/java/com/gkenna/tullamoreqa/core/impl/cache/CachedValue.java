@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.cache;
+
+/**
+ * A single value held by a {@link LocalCache}, along with the time it was
+ * loaded from the Database.
+ *
+ * @param <V> Type of the cached value.
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public final class CachedValue<V> {
+
+    /**
+     * The cached value itself.
+     */
+    private final V value;
+
+    /**
+     * Epoch millis at which the value was loaded.
+     */
+    private final long loadedAt;
+
+    /**
+     * Create a new CachedValue.
+     *
+     * @param value    The value to cache.
+     * @param loadedAt Epoch millis at which the value was loaded.
+     */
+    public CachedValue(final V value, final long loadedAt) {
+        this.value = value;
+        this.loadedAt = loadedAt;
+    }
+
+    /**
+     * Return the cached value.
+     *
+     * @return The cached value.
+     */
+    public V getValue() {
+        return value;
+    }
+
+    /**
+     * Return the epoch millis at which the value was loaded.
+     *
+     * @return Epoch millis at which the value was loaded.
+     */
+    public long getLoadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * Return how old this value is.
+     *
+     * @param now Current epoch millis.
+     * @return Age of the value in millis.
+     */
+    public long ageAt(final long now) {
+        return now - loadedAt;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.cache;
+
+import com.gkenna.tullamoreqa.core.impl.limiter.LimitExceededException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.TransactionException;
+
+import javax.persistence.PersistenceException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stops calls going to the Database once it has failed too many times in a
+ * row. After a number of consecutive failures the breaker opens and every
+ * call is refused until the open period has passed, then a single trial
+ * call is let through; if it succeeds the breaker closes again, otherwise
+ * it stays open for another period.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public class CircuitBreaker {
+
+    /**
+     * Circuit Breaker Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(CircuitBreaker.class);
+
+    /**
+     * States the breaker can be in.
+     */
+    public enum State {
+        /**
+         * Calls go through as normal.
+         */
+        CLOSED,
+        /**
+         * Calls are refused.
+         */
+        OPEN,
+        /**
+         * A single trial call is let through.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Consecutive failures at which the breaker opens.
+     */
+    private final int failureThreshold;
+
+    /**
+     * How long the breaker stays open before a trial call, in millis.
+     */
+    private final long openMillis;
+
+    /**
+     * Number of consecutive failures.
+     */
+    private final AtomicInteger failures = new AtomicInteger();
+
+    /**
+     * Is a trial call currently in flight.
+     */
+    private final AtomicBoolean trialInFlight = new AtomicBoolean();
+
+    /**
+     * Epoch millis at which the breaker last opened, 0 when closed.
+     */
+    private volatile long openedAt;
+
+    /**
+     * Create a new CircuitBreaker.
+     *
+     * @param failureThreshold Consecutive failures at which it opens.
+     * @param openMillis       How long it stays open, in millis.
+     */
+    public CircuitBreaker(final int failureThreshold, final long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Is the given exception a sign the Database is failing, as opposed to
+     * a problem with the request itself.
+     *
+     * @param e Exception thrown by a Database call.
+     * @return True if it counts against the breaker.
+     */
+    public static boolean isDatabaseFailure(final RuntimeException e) {
+        return e instanceof DataAccessException
+                || e instanceof TransactionException
+                || e instanceof PersistenceException
+                || e instanceof LoadTimeoutException
+                || e instanceof LimitExceededException;
+    }
+
+    /**
+     * May a call go to the Database right now.
+     *
+     * @return True if the call may go ahead.
+     */
+    public boolean allowRequest() {
+        switch (getState()) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                return trialInFlight.compareAndSet(false, true);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Record a successful call, closing the breaker.
+     */
+    public void recordSuccess() {
+        if (openedAt != 0) {
+            LOGGER.info("Database calls are succeeding again, closing.");
+        }
+        failures.set(0);
+        openedAt = 0;
+        trialInFlight.set(false);
+    }
+
+    /**
+     * Record a failed call, opening the breaker if there were too many.
+     */
+    public void recordFailure() {
+        final int failed = failures.incrementAndGet();
+        if (failed >= failureThreshold) {
+            if (openedAt == 0) {
+                LOGGER.warn("{} Database calls failed in a row, opening for"
+                        + " {} ms.", failed, openMillis);
+            }
+            openedAt = now();
+        }
+        trialInFlight.set(false);
+    }
+
+    /**
+     * Return the current state of the breaker.
+     *
+     * @return Current state.
+     */
+    public State getState() {
+        final long opened = openedAt;
+        if (opened == 0) {
+            return State.CLOSED;
+        }
+        if (now() - opened < openMillis) {
+            return State.OPEN;
+        }
+        return State.HALF_OPEN;
+    }
+
+    /**
+     * Current time, overridable for tests.
+     *
+     * @return Current epoch millis.
+     */
+    protected long now() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Count-Min Sketch, a fixed size probabilistic frequency counter. The
+ * estimate for a key is never lower than its true count, and is higher only
+ * by the collisions in the least collided row.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public class CountMinSketch {
+
+    /**
+     * Multiplier used to derive a per-row hash from the key hash.
+     */
+    private static final int ROW_SEED = 0x9E3779B9;
+
+    /**
+     * Number of bits to shift when mixing a hash.
+     */
+    private static final int MIX_SHIFT = 16;
+
+    /**
+     * Multiplier used when mixing a hash.
+     */
+    private static final int MIX_MULTIPLIER = 0x85EBCA6B;
+
+    /**
+     * One row of counters per hash function.
+     */
+    private final AtomicLongArray[] rows;
+
+    /**
+     * Number of counters per row.
+     */
+    private final int width;
+
+    /**
+     * Create a new CountMinSketch.
+     *
+     * @param depth Number of hash functions (rows).
+     * @param width Number of counters per row.
+     */
+    public CountMinSketch(final int depth, final int width) {
+        this.width = width;
+        this.rows = new AtomicLongArray[depth];
+        for (int i = 0; i < depth; i++) {
+            rows[i] = new AtomicLongArray(width);
+        }
+    }
+
+    /**
+     * Count one occurrence of a key.
+     *
+     * @param key Key that occurred.
+     */
+    public void add(final Object key) {
+        final int hash = key.hashCode();
+        for (int i = 0; i < rows.length; i++) {
+            rows[i].incrementAndGet(index(hash, i));
+        }
+    }
+
+    /**
+     * Estimate how often a key has occurred.
+     *
+     * @param key Key to estimate.
+     * @return Estimated number of occurrences.
+     */
+    public long estimate(final Object key) {
+        final int hash = key.hashCode();
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < rows.length; i++) {
+            min = Math.min(min, rows[i].get(index(hash, i)));
+        }
+        return min;
+    }
+
+    /**
+     * Reset every counter to zero.
+     */
+    public void clear() {
+        for (AtomicLongArray row : rows) {
+            for (int i = 0; i < width; i++) {
+                row.set(i, 0L);
+            }
+        }
+    }
+
+    /**
+     * Return the counter index of a hash in a given row.
+     *
+     * @param hash Hash of the key.
+     * @param row  Row being indexed.
+     * @return Index of the counter.
+     */
+    private int index(final int hash, final int row) {
+        int h = hash + (row + 1) * ROW_SEED;
+        h ^= h >>> MIX_SHIFT;
+        h *= MIX_MULTIPLIER;
+        h ^= h >>> MIX_SHIFT;
+        return Math.floorMod(h, width);
+    }
+}
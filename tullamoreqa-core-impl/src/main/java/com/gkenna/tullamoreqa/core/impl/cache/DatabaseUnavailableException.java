@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.cache;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when the Database {@link CircuitBreaker} is open and there is no
+ * recently cached value to serve instead.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class DatabaseUnavailableException extends RuntimeException {
+    /**
+     * Constructs a <tt>DatabaseUnavailableException</tt> with the specified
+     * cause.
+     *
+     * @param message Additional exception information.
+     */
+    public DatabaseUnavailableException(final String message) {
+        super(message);
+    }
+}
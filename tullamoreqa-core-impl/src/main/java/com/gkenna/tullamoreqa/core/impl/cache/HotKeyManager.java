@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.cache;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detects hot keys on the Question and Tag listing caches and keeps them
+ * pinned. Once per sub-window the sliding window of every
+ * {@link HotKeyTracker} is moved forward, newly hot keys are pinned, keys
+ * that cooled down are unpinned and every pinned key is proactively
+ * reloaded so reads of it never miss.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class HotKeyManager {
+
+    /**
+     * Hot Key Manager Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(HotKeyManager.class);
+
+    /**
+     * Caches whose hot keys are tracked.
+     */
+    private final List<LocalCache<?, ?>> trackedCaches;
+
+    /**
+     * Create a HotKeyManager and start tracking reads on the Question and
+     * Tag listing caches.
+     *
+     * @param caches     Caches to track.
+     * @param subWindows Number of sub-windows in the sliding window.
+     * @param threshold  Reads within the window at which a key becomes hot.
+     * @param maxKeys    Maximum number of hot keys per cache.
+     */
+    @Autowired
+    public HotKeyManager(
+            final CacheRegistry caches,
+            @Value("${tullamoreqa.hotkeys.sub-windows:6}")
+            final int subWindows,
+            @Value("${tullamoreqa.hotkeys.threshold:100}")
+            final long threshold,
+            @Value("${tullamoreqa.hotkeys.max-keys:100}")
+            final int maxKeys) {
+        caches.questions().trackHotKeys(
+                new HotKeyTracker<>(subWindows, threshold, maxKeys));
+        caches.tagListings().trackHotKeys(
+                new HotKeyTracker<>(subWindows, threshold, maxKeys));
+        caches.taggedQuestions().trackHotKeys(
+                new HotKeyTracker<>(subWindows, threshold, maxKeys));
+        this.trackedCaches = Arrays.<LocalCache<?, ?>>asList(
+                caches.questions(), caches.tagListings(),
+                caches.taggedQuestions());
+    }
+
+    /**
+     * Slide every window forward, then pin and refresh the hot keys.
+     */
+    @Scheduled(fixedRateString =
+            "${tullamoreqa.hotkeys.sub-window-millis:10000}")
+    public void refreshHotKeys() {
+        for (LocalCache<?, ?> cache : trackedCaches) {
+            refresh(cache);
+        }
+    }
+
+    /**
+     * Return the current hot keys of every tracked cache, along with their
+     * estimated read counts within the window.
+     *
+     * @return Hot keys by cache name.
+     */
+    public Map<String, Map<String, Long>> hotKeys() {
+        final Map<String, Map<String, Long>> output = new LinkedHashMap<>();
+        for (LocalCache<?, ?> cache : trackedCaches) {
+            final Map<String, Long> keys = new LinkedHashMap<>();
+            for (Map.Entry<?, Long> e
+                    : cache.getHotKeyTracker().hotKeys().entrySet()) {
+                keys.put(String.valueOf(e.getKey()), e.getValue());
+            }
+            output.put(cache.getName(), keys);
+        }
+        return output;
+    }
+
+    /**
+     * Pin, unpin and refresh the hot keys of a single cache.
+     *
+     * @param cache Cache to refresh.
+     * @param <K>   Type of the cache key.
+     * @param <V>   Type of the cached value.
+     */
+    private <K, V> void refresh(final LocalCache<K, V> cache) {
+        final HotKeyTracker<K> tracker = cache.getHotKeyTracker();
+        tracker.rotate();
+        final Map<K, Long> hot = tracker.hotKeys();
+
+        for (K key : cache.pinnedKeys()) {
+            if (!hot.containsKey(key)) {
+                LOGGER.debug("Unpinning cooled down key {} of {}", key,
+                        cache.getName());
+                cache.unpin(key);
+            }
+        }
+        for (K key : hot.keySet()) {
+            cache.pin(key);
+            try {
+                cache.refresh(key);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Could not refresh hot key {} of {}", key,
+                        cache.getName(), e);
+            }
+        }
+    }
+}
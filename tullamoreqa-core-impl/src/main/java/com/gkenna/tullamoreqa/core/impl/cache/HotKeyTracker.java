@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Finds the keys of a {@link LocalCache} that are read more often than a
+ * threshold within a sliding window. The window is split into sub-windows,
+ * each counted by its own {@link CountMinSketch}; {@link #rotate()} drops
+ * the oldest sub-window and starts a new one.
+ *
+ * @param <K> Type of the tracked key.
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public class HotKeyTracker<K> {
+
+    /**
+     * Depth of each sketch.
+     */
+    private static final int SKETCH_DEPTH = 4;
+
+    /**
+     * Width of each sketch.
+     */
+    private static final int SKETCH_WIDTH = 2048;
+
+    /**
+     * One sketch per sub-window, used as a ring.
+     */
+    private final CountMinSketch[] windows;
+
+    /**
+     * Number of reads within the window at which a key becomes hot.
+     */
+    private final long threshold;
+
+    /**
+     * Maximum number of hot keys tracked at once.
+     */
+    private final int maxKeys;
+
+    /**
+     * Hot keys along with their last estimated read count.
+     */
+    private final ConcurrentMap<K, Long> hotKeys = new ConcurrentHashMap<>();
+
+    /**
+     * Index of the sub-window currently being counted.
+     */
+    private volatile int current;
+
+    /**
+     * Create a new HotKeyTracker.
+     *
+     * @param subWindows Number of sub-windows in the sliding window.
+     * @param threshold  Reads within the window at which a key becomes hot.
+     * @param maxKeys    Maximum number of hot keys tracked at once.
+     */
+    public HotKeyTracker(final int subWindows, final long threshold,
+                         final int maxKeys) {
+        this.threshold = threshold;
+        this.maxKeys = maxKeys;
+        this.windows = new CountMinSketch[subWindows];
+        for (int i = 0; i < subWindows; i++) {
+            windows[i] = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+        }
+    }
+
+    /**
+     * Count a read of a key.
+     *
+     * @param key Key that was read.
+     */
+    public void record(final K key) {
+        windows[current].add(key);
+        final long estimate = estimate(key);
+        if (estimate >= threshold
+                && (hotKeys.containsKey(key) || hotKeys.size() < maxKeys)) {
+            hotKeys.put(key, estimate);
+        }
+    }
+
+    /**
+     * Estimate how often a key has been read within the window.
+     *
+     * @param key Key to estimate.
+     * @return Estimated number of reads.
+     */
+    public long estimate(final K key) {
+        long total = 0;
+        for (CountMinSketch window : windows) {
+            total += window.estimate(key);
+        }
+        return total;
+    }
+
+    /**
+     * Slide the window forward by one sub-window. Keys that are no longer
+     * above the threshold stop being hot.
+     */
+    public synchronized void rotate() {
+        final int next = (current + 1) % windows.length;
+        windows[next].clear();
+        current = next;
+
+        for (K key : hotKeys.keySet()) {
+            final long estimate = estimate(key);
+            if (estimate < threshold) {
+                hotKeys.remove(key);
+            } else {
+                hotKeys.put(key, estimate);
+            }
+        }
+    }
+
+    /**
+     * Return the current hot keys and their estimated read counts.
+     *
+     * @return Copy of the hot keys.
+     */
+    public Map<K, Long> hotKeys() {
+        return new HashMap<>(hotKeys);
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.cache;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a caller has waited longer than allowed for a load that
+ * another caller started for the same key.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class LoadTimeoutException extends RuntimeException {
+    /**
+     * Constructs a <tt>LoadTimeoutException</tt> with the specified cause.
+     *
+     * @param message Additional exception information.
+     */
+    public LoadTimeoutException(final String message) {
+        super(message);
+    }
+}
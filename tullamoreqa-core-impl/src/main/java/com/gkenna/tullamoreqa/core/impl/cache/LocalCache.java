@@ -0,0 +1,782 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.cache;
+
+import com.gkenna.tullamoreqa.core.impl.tenant.Tenants;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A simple, thread safe, in-memory cache with a time to live and an upper
+ * bound on the number of values held. Values are loaded by the Services and
+ * put here so repeated reads of the same key don't go to the Database. When
+ * full, the least recently used value makes room for a new one.
+ * <p>
+ * Null keys and null values are never cached, a lookup of a null key is
+ * always a miss.
+ * <p>
+ * Keys can be pinned, a pinned key never expires and is never evicted to
+ * make room. Pinned keys are kept up to date with {@link #refresh(Object)},
+ * which reloads them through the loader registered by the Service.
+ * <p>
+ * Loads through {@link #get(Object, Supplier)} are coalesced, concurrent
+ * misses on the same key share a single load. A load that an invalidation
+ * or eviction overtook is returned but not cached, as it may have read the
+ * value from before the change.
+ * <p>
+ * With {@link #serveStaleOnError(CircuitBreaker, long)} a value past its
+ * time to live, but within a bounded staleness window, is served instead of
+ * failing when the Database is failing or its circuit breaker is open.
+ * With {@link #timeLoads(TransactionTemplate)} those loads also run in a
+ * transaction with a timeout, so a Database that hangs rather than fails
+ * times out and counts against the breaker too.
+ * <p>
+ * Values restored from a snapshot with {@link #restore(Object, Object,
+ * long)} keep their original load time. If a revalidator is registered they
+ * are checked against the Database on first read, and if still current are
+ * served as freshly loaded.
+ * <p>
+ * Invalidations are told to the listener registered with
+ * {@link #setInvalidationListener(Consumer)}, to be passed on to other
+ * instances, which {@link #evict(Object)} the same keys.
+ * <p>
+ * Only the default tenant's values are cached. Keys aren't unique across
+ * tenants, so reads for any other tenant always load, and what they load
+ * is not kept. The same goes for reads run through
+ * {@link CacheBypass#run(Runnable)}.
+ *
+ * @param <K> Type of the cache key.
+ * @param <V> Type of the cached value.
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public class LocalCache<K, V> {
+
+    /**
+     * Default time a caller waits on another callers load, in millis.
+     */
+    private static final long DEFAULT_LOAD_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * Name of this cache, i.e. 'questions'.
+     */
+    private final String name;
+
+    /**
+     * How long a value is considered fresh, in millis.
+     */
+    private final long ttlMillis;
+
+    /**
+     * Maximum number of values held at any one time.
+     */
+    private final int maxSize;
+
+    /**
+     * The cached values, least recently used first. Guarded by itself.
+     */
+    private final Map<K, CachedValue<V>> values =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Number of lookups that found a fresh value.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * Number of lookups that did not find a fresh value.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Ticket of the load in flight for each key. Evicting a key takes its
+     * ticket back, so a load started before the eviction knows not to
+     * cache what it read.
+     */
+    private final ConcurrentMap<K, Object> loading =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Keys that never expire and are never evicted.
+     */
+    private final Set<K> pinned = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Loads a value from the Database, used to refresh pinned keys.
+     */
+    private volatile Function<K, V> loader;
+
+    /**
+     * Tracks which keys are read most, if hot key tracking is enabled.
+     */
+    private volatile HotKeyTracker<K> hotKeyTracker;
+
+    /**
+     * Coalesces concurrent loads of the same key.
+     */
+    private final SingleFlight<K, V> singleFlight;
+
+    /**
+     * Number of stale values served because the Database was failing.
+     */
+    private final AtomicLong staleServed = new AtomicLong();
+
+    /**
+     * Guards Database loads, null if stale values are never served.
+     */
+    private volatile CircuitBreaker breaker;
+
+    /**
+     * How far past its time to live a value may still be served when the
+     * Database is failing, in millis.
+     */
+    private volatile long maxStaleMillis;
+
+    /**
+     * Transaction, with a timeout, that loads guarded by the breaker run
+     * in, null to run them as they are.
+     */
+    private volatile TransactionTemplate loadTransaction;
+
+    /**
+     * Keys restored from a snapshot that haven't been revalidated yet.
+     */
+    private final Set<K> unvalidated = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Checks a restored value is still current, null if restored values
+     * are trusted until their time to live runs out.
+     */
+    private volatile Predicate<V> revalidator;
+
+    /**
+     * Told the key of each invalidation, null for all, if set.
+     */
+    private volatile Consumer<K> invalidationListener;
+
+    /**
+     * Create a new LocalCache.
+     *
+     * @param name      Name of this cache.
+     * @param ttlMillis How long a value is considered fresh, in millis.
+     * @param maxSize   Maximum number of values held at any one time.
+     */
+    public LocalCache(final String name, final long ttlMillis,
+                      final int maxSize) {
+        this(name, ttlMillis, maxSize, DEFAULT_LOAD_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Create a new LocalCache.
+     *
+     * @param name              Name of this cache.
+     * @param ttlMillis         How long a value is fresh, in millis.
+     * @param maxSize           Maximum number of values held at once.
+     * @param loadTimeoutMillis How long a caller waits on another callers
+     *                          load of the same key, in millis.
+     */
+    public LocalCache(final String name, final long ttlMillis,
+                      final int maxSize, final long loadTimeoutMillis) {
+        this.name = name;
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+        this.singleFlight = new SingleFlight<>(loadTimeoutMillis);
+    }
+
+    /**
+     * Return the fresh value for the key, loading it on a miss. Concurrent
+     * misses on the same key share one load, and its result or failure.
+     * A null result is returned but not cached.
+     *
+     * @param key       Key to look up.
+     * @param valueLoad Loads the value on a miss, null if it doesn't exist.
+     * @return The cached or loaded value.
+     */
+    public V get(final K key, final Supplier<V> valueLoad) {
+        if (!Tenants.isDefault() || CacheBypass.isActive()) {
+            return valueLoad.get();
+        }
+        final V cached = getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (key == null) {
+            return valueLoad.get();
+        }
+        final CircuitBreaker guard = breaker;
+        if (guard == null) {
+            return singleFlight.load(key, () -> load(key, valueLoad));
+        }
+
+        if (!guard.allowRequest()) {
+            final V stale = getStale(key);
+            if (stale != null) {
+                return stale;
+            }
+            throw new DatabaseUnavailableException("Database circuit is"
+                    + " open, no recent value of " + key + " in " + name);
+        }
+        try {
+            return singleFlight.load(key, () ->
+                    load(key, () -> guarded(guard, timed(valueLoad))));
+        } catch (RuntimeException e) {
+            if (!CircuitBreaker.isDatabaseFailure(e)) {
+                throw e;
+            }
+            final V stale = getStale(key);
+            if (stale == null) {
+                throw e;
+            }
+            return stale;
+        }
+    }
+
+    /**
+     * Serve values past their time to live when the Database is failing or
+     * the breaker is open, as long as they are no more than the given time
+     * past it.
+     *
+     * @param circuitBreaker Breaker guarding the Database.
+     * @param maxStale       How far past its time to live a value may be
+     *                       served, in millis.
+     */
+    public void serveStaleOnError(final CircuitBreaker circuitBreaker,
+                                  final long maxStale) {
+        this.maxStaleMillis = maxStale;
+        this.breaker = circuitBreaker;
+    }
+
+    /**
+     * Run the loads guarded by the breaker in a transaction, joining the
+     * caller's if there is one, so every statement of them times out with
+     * it.
+     *
+     * @param transaction Transaction with a timeout.
+     */
+    public void timeLoads(final TransactionTemplate transaction) {
+        this.loadTransaction = transaction;
+    }
+
+    /**
+     * Return the fresh value for the key, if there is one.
+     *
+     * @param key Key to look up.
+     * @return The cached value, or null if absent or expired.
+     */
+    public V getIfPresent(final K key) {
+        if (CacheBypass.isActive()) {
+            return null;
+        }
+        if (key == null || !Tenants.isDefault()) {
+            misses.incrementAndGet();
+            return null;
+        }
+        final HotKeyTracker<K> tracker = hotKeyTracker;
+        if (tracker != null) {
+            tracker.record(key);
+        }
+        CachedValue<V> cached;
+        synchronized (values) {
+            cached = values.get(key);
+        }
+        if (cached != null && unvalidated.contains(key)) {
+            cached = revalidate(key, cached);
+        }
+        if (cached != null
+                && (pinned.contains(key) || isFresh(cached, now()))) {
+            hits.incrementAndGet();
+            return cached.getValue();
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Cache a value that was just loaded.
+     *
+     * @param key   Key of the value.
+     * @param value Value to cache.
+     */
+    public void put(final K key, final V value) {
+        put(key, value, now());
+    }
+
+    /**
+     * Cache a value that was loaded at the given time.
+     *
+     * @param key      Key of the value.
+     * @param value    Value to cache.
+     * @param loadedAt Epoch millis at which the value was loaded.
+     */
+    public void put(final K key, final V value, final long loadedAt) {
+        if (key == null || value == null || !Tenants.isDefault()
+                || CacheBypass.isActive()) {
+            return;
+        }
+        synchronized (values) {
+            if (!values.containsKey(key) && values.size() >= maxSize) {
+                evictEldest();
+            }
+            values.put(key, new CachedValue<>(value, loadedAt));
+        }
+        unvalidated.remove(key);
+    }
+
+    /**
+     * Restore a value from a snapshot, keeping the time it was originally
+     * loaded. If a revalidator is registered the value is checked against
+     * the Database the first time it is read.
+     *
+     * @param key      Key of the value.
+     * @param value    Value to restore.
+     * @param loadedAt Epoch millis at which the value was originally loaded.
+     */
+    public void restore(final K key, final V value, final long loadedAt) {
+        if (key == null || value == null) {
+            return;
+        }
+        synchronized (values) {
+            if (values.containsKey(key)) {
+                return;
+            }
+        }
+        put(key, value, loadedAt);
+        if (revalidator != null) {
+            unvalidated.add(key);
+        }
+    }
+
+    /**
+     * Register how restored values are checked against the Database.
+     *
+     * @param isCurrent Returns true if a restored value is still current.
+     */
+    public void setRevalidator(final Predicate<V> isCurrent) {
+        this.revalidator = isCurrent;
+    }
+
+    /**
+     * Remove the value for a key.
+     *
+     * @param key Key to remove.
+     */
+    public void invalidate(final K key) {
+        if (key != null) {
+            evict(key);
+            final Consumer<K> listener = invalidationListener;
+            if (listener != null) {
+                listener.accept(key);
+            }
+        }
+    }
+
+    /**
+     * Remove every value from this cache.
+     */
+    public void invalidateAll() {
+        evictAll();
+        final Consumer<K> listener = invalidationListener;
+        if (listener != null) {
+            listener.accept(null);
+        }
+    }
+
+    /**
+     * Remove the value for a key without telling the invalidation
+     * listener, i.e. as it was invalidated on another instance.
+     *
+     * @param key Key to remove.
+     */
+    public void evict(final K key) {
+        if (key != null) {
+            loading.remove(key);
+            synchronized (values) {
+                values.remove(key);
+            }
+            unvalidated.remove(key);
+        }
+    }
+
+    /**
+     * Remove every value from this cache without telling the invalidation
+     * listener.
+     */
+    public void evictAll() {
+        loading.clear();
+        synchronized (values) {
+            values.clear();
+        }
+        unvalidated.clear();
+    }
+
+    /**
+     * Register who is told of each invalidation, i.e. to pass it on to
+     * other instances.
+     *
+     * @param listener Told the key invalidated, or null when every value
+     *                 is.
+     */
+    public void setInvalidationListener(final Consumer<K> listener) {
+        this.invalidationListener = listener;
+    }
+
+    /**
+     * Pin a key, so its value never expires and is never evicted.
+     *
+     * @param key Key to pin.
+     */
+    public void pin(final K key) {
+        if (key != null) {
+            pinned.add(key);
+        }
+    }
+
+    /**
+     * Unpin a key, its value expires as normal from now on.
+     *
+     * @param key Key to unpin.
+     */
+    public void unpin(final K key) {
+        if (key != null) {
+            pinned.remove(key);
+        }
+    }
+
+    /**
+     * Return a copy of the currently pinned keys.
+     *
+     * @return Pinned keys.
+     */
+    public Set<K> pinnedKeys() {
+        return new HashSet<>(pinned);
+    }
+
+    /**
+     * Register how values are loaded from the Database.
+     *
+     * @param valueLoader Loads the value of a key, or null if it is gone.
+     */
+    public void setLoader(final Function<K, V> valueLoader) {
+        this.loader = valueLoader;
+    }
+
+    /**
+     * Reload the value of a key through the registered loader. If the value
+     * no longer exists it is removed.
+     *
+     * @param key Key to reload.
+     * @return True if the key was reloaded.
+     */
+    public boolean refresh(final K key) {
+        final Function<K, V> valueLoader = loader;
+        if (valueLoader == null || key == null) {
+            return false;
+        }
+        final V value = singleFlight.load(key, () -> {
+            final V loaded = load(key, () -> valueLoader.apply(key));
+            if (loaded == null) {
+                synchronized (values) {
+                    values.remove(key);
+                }
+            }
+            return loaded;
+        });
+        return value != null;
+    }
+
+    /**
+     * Start tracking which keys of this cache are read most.
+     *
+     * @param tracker Tracker to record reads with.
+     */
+    public void trackHotKeys(final HotKeyTracker<K> tracker) {
+        this.hotKeyTracker = tracker;
+    }
+
+    /**
+     * Return the hot key tracker of this cache, if there is one.
+     *
+     * @return The hot key tracker, or null.
+     */
+    public HotKeyTracker<K> getHotKeyTracker() {
+        return hotKeyTracker;
+    }
+
+    /**
+     * Return a point in time copy of every value held, fresh or not.
+     *
+     * @return Copy of the cached values.
+     */
+    public Map<K, CachedValue<V>> entries() {
+        synchronized (values) {
+            return new ConcurrentHashMap<>(values);
+        }
+    }
+
+    /**
+     * Return the name of this cache.
+     *
+     * @return Name of this cache.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Return the number of values held, fresh or not.
+     *
+     * @return Number of values held.
+     */
+    public int size() {
+        synchronized (values) {
+            return values.size();
+        }
+    }
+
+    /**
+     * Return the number of lookups that found a fresh value.
+     *
+     * @return Number of hits.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Return the number of lookups that did not find a fresh value.
+     *
+     * @return Number of misses.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Return the number of loads that actually went to the Database.
+     *
+     * @return Number of loads.
+     */
+    public long getLoads() {
+        return singleFlight.getLoads();
+    }
+
+    /**
+     * Return the number of misses that shared another callers load
+     * rather than going to the Database.
+     *
+     * @return Number of coalesced misses.
+     */
+    public long getCoalesced() {
+        return singleFlight.getCoalesced();
+    }
+
+    /**
+     * Return the number of misses that gave up waiting on another
+     * callers load.
+     *
+     * @return Number of load timeouts.
+     */
+    public long getLoadTimeouts() {
+        return singleFlight.getTimeouts();
+    }
+
+    /**
+     * Return the number of stale values served because the Database was
+     * failing.
+     *
+     * @return Number of stale values served.
+     */
+    public long getStaleServed() {
+        return staleServed.get();
+    }
+
+    /**
+     * Return the breaker guarding the Database loads of this cache.
+     *
+     * @return The breaker, or null if stale values are never served.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return breaker;
+    }
+
+    /**
+     * Is the cached value still within its time to live.
+     *
+     * @param cached Value to check.
+     * @param now    Current epoch millis.
+     * @return True if still fresh.
+     */
+    protected boolean isFresh(final CachedValue<V> cached, final long now) {
+        return cached.ageAt(now) < ttlMillis;
+    }
+
+    /**
+     * Current time, overridable for tests.
+     *
+     * @return Current epoch millis.
+     */
+    protected long now() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Load the value of a key and cache it, unless the key was evicted
+     * since the load started. An eviction that lands while the value is
+     * being put takes it back out again.
+     *
+     * @param key       Key of the value.
+     * @param valueLoad Loads the value, null if it doesn't exist.
+     * @return The loaded value.
+     */
+    private V load(final K key, final Supplier<V> valueLoad) {
+        final Object ticket = new Object();
+        loading.put(key, ticket);
+        try {
+            final V value = valueLoad.get();
+            if (loading.get(key) != ticket) {
+                return value;
+            }
+            put(key, value);
+            if (loading.get(key) != ticket) {
+                synchronized (values) {
+                    final CachedValue<V> cached = values.get(key);
+                    if (cached != null && cached.getValue() == value) {
+                        values.remove(key);
+                    }
+                }
+            }
+            return value;
+        } finally {
+            loading.remove(key, ticket);
+        }
+    }
+
+    /**
+     * Return a load that runs in the load transaction, if there is one.
+     *
+     * @param valueLoad Load to run.
+     * @return The load, as run.
+     */
+    private Supplier<V> timed(final Supplier<V> valueLoad) {
+        final TransactionTemplate transaction = loadTransaction;
+        if (transaction == null) {
+            return valueLoad;
+        }
+        return () -> transaction.execute(status -> valueLoad.get());
+    }
+
+    /**
+     * Run a load, recording its outcome against the breaker. Failures
+     * that aren't the Database's fault count as the Database answering.
+     *
+     * @param guard     Breaker guarding the Database.
+     * @param valueLoad Load to run.
+     * @return The loaded value.
+     */
+    private V guarded(final CircuitBreaker guard,
+                      final Supplier<V> valueLoad) {
+        try {
+            final V value = valueLoad.get();
+            guard.recordSuccess();
+            return value;
+        } catch (RuntimeException e) {
+            if (CircuitBreaker.isDatabaseFailure(e)) {
+                guard.recordFailure();
+            } else {
+                guard.recordSuccess();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Check a restored value against the Database. A current value is
+     * treated as freshly loaded, anything else is dropped. If the check
+     * itself fails the value is left as it was, to be checked again later.
+     *
+     * @param key    Key of the restored value.
+     * @param cached The restored value.
+     * @return The value to use, or null if it was dropped.
+     */
+    private CachedValue<V> revalidate(final K key,
+                                      final CachedValue<V> cached) {
+        final Predicate<V> isCurrent = revalidator;
+        if (isCurrent == null || !unvalidated.remove(key)) {
+            synchronized (values) {
+                return values.get(key);
+            }
+        }
+        final boolean current;
+        try {
+            current = isCurrent.test(cached.getValue());
+        } catch (RuntimeException e) {
+            unvalidated.add(key);
+            return cached;
+        }
+        final CachedValue<V> revalidated =
+                new CachedValue<>(cached.getValue(), now());
+        synchronized (values) {
+            if (values.get(key) != cached) {
+                return current ? revalidated : null;
+            }
+            if (!current) {
+                values.remove(key);
+                return null;
+            }
+            values.put(key, revalidated);
+        }
+        return revalidated;
+    }
+
+    /**
+     * Return the value of a key if it is within the staleness window, and
+     * mark the current response as stale.
+     *
+     * @param key Key to look up.
+     * @return The stale value, or null if there is none recent enough.
+     */
+    private V getStale(final K key) {
+        final CachedValue<V> cached;
+        synchronized (values) {
+            cached = values.get(key);
+        }
+        if (cached == null) {
+            return null;
+        }
+        final long age = cached.ageAt(now());
+        if (age >= ttlMillis + maxStaleMillis) {
+            return null;
+        }
+        staleServed.incrementAndGet();
+        Staleness.mark(age);
+        return cached.getValue();
+    }
+
+    /**
+     * Make room for a new value by dropping the least recently used
+     * unpinned one. Only called holding the lock on the values.
+     */
+    private void evictEldest() {
+        final Iterator<K> keys = values.keySet().iterator();
+        while (keys.hasNext()) {
+            if (!pinned.contains(keys.next())) {
+                keys.remove();
+                return;
+            }
+        }
+    }
+}
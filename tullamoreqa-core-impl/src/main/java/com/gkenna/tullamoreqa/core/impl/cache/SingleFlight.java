@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key. The first caller for a key
+ * runs the load, every caller that arrives while it is in flight waits for
+ * it and shares its result or its failure, instead of going to the
+ * Database itself.
+ *
+ * @param <K> Type of the key.
+ * @param <V> Type of the loaded value.
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public class SingleFlight<K, V> {
+
+    /**
+     * Loads currently in flight, by key.
+     */
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight =
+            new ConcurrentHashMap<>();
+
+    /**
+     * How long a waiting caller waits for the in flight load, in millis.
+     */
+    private final long timeoutMillis;
+
+    /**
+     * Number of loads actually run.
+     */
+    private final AtomicLong loads = new AtomicLong();
+
+    /**
+     * Number of callers that shared another callers load.
+     */
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Number of waiting callers that gave up on the in flight load.
+     */
+    private final AtomicLong timeouts = new AtomicLong();
+
+    /**
+     * Create a new SingleFlight.
+     *
+     * @param timeoutMillis How long a waiting caller waits, in millis.
+     */
+    public SingleFlight(final long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Load the value of a key, sharing the load with any concurrent callers
+     * for the same key.
+     *
+     * @param key    Key to load.
+     * @param loader Loads the value, only run by the first caller.
+     * @return The loaded value.
+     */
+    public V load(final K key, final Supplier<V> loader) {
+        final CompletableFuture<V> mine = new CompletableFuture<>();
+        final CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return await(key, existing);
+        }
+
+        loads.incrementAndGet();
+        try {
+            final V value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Wait for another callers load to finish.
+     *
+     * @param key    Key being loaded.
+     * @param future The in flight load.
+     * @return The loaded value.
+     */
+    private V await(final K key, final CompletableFuture<V> future) {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            throw new LoadTimeoutException("Timed out after " + timeoutMillis
+                    + " ms waiting for the load of " + key);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LoadTimeoutException("Interrupted waiting for the load"
+                    + " of " + key);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Return the number of loads actually run.
+     *
+     * @return Number of loads.
+     */
+    public long getLoads() {
+        return loads.get();
+    }
+
+    /**
+     * Return the number of callers that shared another callers load.
+     *
+     * @return Number of coalesced callers.
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * Return the number of waiting callers that gave up.
+     *
+     * @return Number of timeouts.
+     */
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+}
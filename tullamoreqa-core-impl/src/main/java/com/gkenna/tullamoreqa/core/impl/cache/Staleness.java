@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.cache;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Remembers, for the current HTTP request, that a stale cached value was
+ * served in place of a Database read, so {@link StalenessHeaderAdvice} can
+ * tell the client. Outside of a request, i.e. during warm-up, nothing is
+ * recorded.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public final class Staleness {
+
+    /**
+     * Request attribute holding the age of the oldest stale value served.
+     */
+    static final String ATTRIBUTE = Staleness.class.getName() + ".AGE";
+
+    /**
+     * Utility class, never instantiated.
+     */
+    private Staleness() {
+    }
+
+    /**
+     * Record that a stale value of the given age was served.
+     *
+     * @param ageMillis Age of the value served, in millis.
+     */
+    public static void mark(final long ageMillis) {
+        final RequestAttributes attributes =
+                RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return;
+        }
+        final Object previous = attributes.getAttribute(ATTRIBUTE,
+                RequestAttributes.SCOPE_REQUEST);
+        if (previous instanceof Long && (Long) previous >= ageMillis) {
+            return;
+        }
+        attributes.setAttribute(ATTRIBUTE, ageMillis,
+                RequestAttributes.SCOPE_REQUEST);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.cache;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation
+        .ResponseBodyAdvice;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marks responses built from stale cached values. Such responses carry an
+ * {@value #AGE_HEADER} header with the age of the data in seconds, along
+ * with the standard {@value #WARNING_HEADER} header
+ * {@value #STALE_WARNING}.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@ControllerAdvice
+public class StalenessHeaderAdvice implements ResponseBodyAdvice<Object> {
+
+    /**
+     * Header holding the age of the data served, in seconds.
+     */
+    public static final String AGE_HEADER = "Age";
+
+    /**
+     * Header used to flag the response as stale.
+     */
+    public static final String WARNING_HEADER = "Warning";
+
+    /**
+     * Warning value of a stale response, as per RFC 7234.
+     */
+    public static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
+    @Override
+    public final boolean supports(
+            final MethodParameter returnType,
+            final Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public final Object beforeBodyWrite(
+            final Object body, final MethodParameter returnType,
+            final MediaType selectedContentType,
+            final Class<? extends HttpMessageConverter<?>> selectedConverter,
+            final ServerHttpRequest request,
+            final ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest)) {
+            return body;
+        }
+        final Object age = ((ServletServerHttpRequest) request)
+                .getServletRequest().getAttribute(Staleness.ATTRIBUTE);
+        if (age instanceof Long) {
+            response.getHeaders().set(AGE_HEADER, String.valueOf(
+                    TimeUnit.MILLISECONDS.toSeconds((Long) age)));
+            response.getHeaders().set(WARNING_HEADER, STALE_WARNING);
+        }
+        return body;
+    }
+}
@@ -0,0 +1,8 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+/**
+ * In-memory caches that sit between the Services and the Repositories.
+ */
+package com.gkenna.tullamoreqa.core.impl.cache;
@@ -0,0 +1,453 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.coherence;
+
+import com.gkenna.tullamoreqa.core.impl.cache.CacheRegistry;
+import com.gkenna.tullamoreqa.core.impl.cache.LocalCache;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support
+        .TransactionSynchronizationAdapter;
+import org.springframework.transaction.support
+        .TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Passes the invalidations made to the caches of the
+ * {@link CacheRegistry} on to other instances, and applies theirs.
+ * <p>
+ * Invalidations are gathered and sent as one {@link InvalidationBatch}
+ * every <tt>batch-millis</tt>, a key invalidated twice being sent once,
+ * and a cache invalidated entirely, or with more than <tt>max-keys</tt>
+ * keys, being sent without keys. Batches are numbered per instance and
+ * applied in order; a batch seen again is ignored, and one arriving after
+ * a gap, as batches were lost or reordered, flushes every cache, as which
+ * keys were missed can't be known. A heartbeat carrying the number of the
+ * last batch is sent every <tt>heartbeat-millis</tt>, so losing the last
+ * batch before a quiet spell is found as a gap as well.
+ * <p>
+ * Invalidations made in a transaction are only gathered once it commits,
+ * so another instance can't reload the value from before the change.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class CacheCoherence {
+
+    /**
+     * Cache Coherence Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(CacheCoherence.class);
+
+    /**
+     * Identifies this instance, afresh each time it starts, as its
+     * numbering of batches starts over.
+     */
+    private final String origin = UUID.randomUUID().toString();
+
+    /**
+     * Is coherence enabled.
+     */
+    private final boolean enabled;
+
+    /**
+     * Most keys sent for one cache before it is sent as invalidated
+     * entirely.
+     */
+    private final int maxKeys;
+
+    /**
+     * Carries batches between instances.
+     */
+    private final InvalidationTransport transport;
+
+    /**
+     * Caches kept coherent, by name.
+     */
+    private final Map<String, Member<?>> members = new LinkedHashMap<>();
+
+    /**
+     * Caches invalidated entirely since the last batch was sent.
+     */
+    private Set<String> pendingFlushed = new LinkedHashSet<>();
+
+    /**
+     * Keys invalidated since the last batch was sent, by cache.
+     */
+    private Map<String, Set<String>> pendingKeys = new LinkedHashMap<>();
+
+    /**
+     * Held while numbering and sending a batch, so batches are sent in
+     * the order they are numbered.
+     */
+    private final Object sendLock = new Object();
+
+    /**
+     * Number of the last batch sent.
+     */
+    private long sequence;
+
+    /**
+     * Number of the last batch applied, by the instance that sent it.
+     */
+    private final Map<String, Long> applied = new HashMap<>();
+
+    /**
+     * Batches sent.
+     */
+    private final AtomicLong sent = new AtomicLong();
+
+    /**
+     * Batches that couldn't be sent.
+     */
+    private final AtomicLong sendFailures = new AtomicLong();
+
+    /**
+     * Batches received from other instances.
+     */
+    private final AtomicLong received = new AtomicLong();
+
+    /**
+     * Batches received again, and ignored.
+     */
+    private final AtomicLong duplicates = new AtomicLong();
+
+    /**
+     * Gaps in the batches received, each flushing every cache.
+     */
+    private final AtomicLong gaps = new AtomicLong();
+
+    /**
+     * Create a CacheCoherence, keeping every cache of a registry coherent.
+     *
+     * @param caches    Caches kept coherent.
+     * @param transport Carries batches between instances.
+     * @param enabled   Is coherence enabled.
+     * @param maxKeys   Most keys sent for one cache before it is sent as
+     *                  invalidated entirely.
+     */
+    @Autowired
+    public CacheCoherence(
+            final CacheRegistry caches,
+            final InvalidationTransport transport,
+            @Value("${tullamoreqa.coherence.enabled:false}")
+            final boolean enabled,
+            @Value("${tullamoreqa.coherence.max-keys:1000}")
+            final int maxKeys) {
+        this.transport = transport;
+        this.enabled = enabled;
+        this.maxKeys = maxKeys;
+        if (!enabled) {
+            return;
+        }
+        register(caches.questions(), Long::valueOf);
+        register(caches.tags(), Function.identity());
+        register(caches.tagListings(), Function.identity());
+        register(caches.taggedQuestions(), Function.identity());
+        register(caches.authors(), Function.identity());
+        transport.subscribe(this::receive);
+    }
+
+    /**
+     * Return the ID of this instance in the batches it sends.
+     *
+     * @return Origin ID.
+     */
+    public String getOrigin() {
+        return origin;
+    }
+
+    /**
+     * Send the invalidations gathered since the last batch, if any, on a
+     * fixed delay.
+     */
+    @Scheduled(fixedDelayString = "${tullamoreqa.coherence.batch-millis:50}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (sendLock) {
+            final InvalidationBatch batch;
+            synchronized (this) {
+                if (pendingFlushed.isEmpty() && pendingKeys.isEmpty()) {
+                    return;
+                }
+                batch = new InvalidationBatch(origin, ++sequence,
+                        pendingFlushed, pendingKeys);
+                pendingFlushed = new LinkedHashSet<>();
+                pendingKeys = new LinkedHashMap<>();
+            }
+            try {
+                transport.publish(batch.encode());
+                sent.incrementAndGet();
+            } catch (RuntimeException e) {
+                // Receivers will see the gap and flush.
+                sendFailures.incrementAndGet();
+                LOGGER.warn("Failed to send invalidation batch {}.",
+                        batch.getSequence(), e);
+            }
+        }
+    }
+
+    /**
+     * Send the number of the last batch, on a fixed delay, so other
+     * instances find out about a last batch that didn't reach them.
+     */
+    @Scheduled(fixedDelayString =
+            "${tullamoreqa.coherence.heartbeat-millis:5000}")
+    public void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (sendLock) {
+            final long last;
+            synchronized (this) {
+                last = sequence;
+            }
+            try {
+                transport.publish(new InvalidationBatch(origin, last,
+                        Collections.emptySet(), Collections.emptyMap())
+                        .encode());
+            } catch (RuntimeException e) {
+                LOGGER.warn("Failed to send invalidation heartbeat {}.",
+                        last, e);
+            }
+        }
+    }
+
+    /**
+     * Apply a batch from another instance.
+     *
+     * @param message The encoded batch.
+     */
+    public void receive(final byte[] message) {
+        final InvalidationBatch batch;
+        try {
+            batch = InvalidationBatch.decode(message);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Flushing every cache after an unreadable"
+                    + " invalidation batch.", e);
+            gaps.incrementAndGet();
+            evictAll();
+            return;
+        }
+        if (origin.equals(batch.getOrigin())) {
+            return;
+        }
+        received.incrementAndGet();
+        synchronized (applied) {
+            final Long last = applied.get(batch.getOrigin());
+            if (batch.isHeartbeat()) {
+                receiveHeartbeat(batch, last == null ? 0 : last);
+                return;
+            }
+            final long expected = last == null ? 1 : last + 1;
+            if (last != null && batch.getSequence() < expected) {
+                duplicates.incrementAndGet();
+                return;
+            }
+            if (batch.getSequence() > expected) {
+                gaps.incrementAndGet();
+                LOGGER.warn("Flushing every cache, expected invalidation"
+                        + " batch {} from {} but got {}.", expected,
+                        batch.getOrigin(), batch.getSequence());
+                evictAll();
+            } else {
+                apply(batch);
+            }
+            applied.put(batch.getOrigin(), batch.getSequence());
+        }
+    }
+
+    /**
+     * Flush every cache if a heartbeat numbers a batch that wasn't
+     * applied.
+     *
+     * @param heartbeat The heartbeat.
+     * @param last      Number of the last batch applied from its origin.
+     */
+    private void receiveHeartbeat(final InvalidationBatch heartbeat,
+                                  final long last) {
+        if (heartbeat.getSequence() > last) {
+            gaps.incrementAndGet();
+            LOGGER.warn("Flushing every cache, heartbeat from {} is at"
+                    + " invalidation batch {} but {} was the last"
+                    + " applied.", heartbeat.getOrigin(),
+                    heartbeat.getSequence(), last);
+            evictAll();
+        }
+        applied.put(heartbeat.getOrigin(),
+                Math.max(last, heartbeat.getSequence()));
+    }
+
+    /**
+     * Return the state of coherence with other instances.
+     *
+     * @return Metrics by name.
+     */
+    public Map<String, Object> toMap() {
+        final Map<String, Object> output = new LinkedHashMap<>();
+        output.put("enabled", enabled);
+        output.put("origin", origin);
+        output.put("transport", transport.getClass().getSimpleName());
+        output.put("sent", sent.get());
+        output.put("sendFailures", sendFailures.get());
+        output.put("received", received.get());
+        output.put("duplicates", duplicates.get());
+        output.put("gaps", gaps.get());
+        synchronized (applied) {
+            output.put("peers", applied.size());
+        }
+        return output;
+    }
+
+    /**
+     * Keep a cache coherent.
+     *
+     * @param cache The cache.
+     * @param parse Reads a key back from how it is sent.
+     * @param <K>   Type of the cache key.
+     */
+    private <K> void register(final LocalCache<K, ?> cache,
+                              final Function<String, K> parse) {
+        members.put(cache.getName(), new Member<>(cache, parse));
+        cache.setInvalidationListener(key ->
+                afterCommit(() -> record(cache.getName(), key)));
+    }
+
+    /**
+     * Run an action once the current transaction commits, or now if there
+     * is none. Nothing is run if it rolls back, as nothing changed.
+     *
+     * @param action The action.
+     */
+    private static void afterCommit(final Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCommit() {
+                        action.run();
+                    }
+                });
+    }
+
+    /**
+     * Gather an invalidation for the next batch.
+     *
+     * @param cache Name of the cache.
+     * @param key   Key invalidated, null if every value was.
+     */
+    private synchronized void record(final String cache, final Object key) {
+        if (pendingFlushed.contains(cache)) {
+            return;
+        }
+        final Set<String> keys = pendingKeys.computeIfAbsent(cache,
+                name -> new LinkedHashSet<>());
+        if (key != null) {
+            keys.add(String.valueOf(key));
+        }
+        if (key == null || keys.size() > maxKeys) {
+            pendingKeys.remove(cache);
+            pendingFlushed.add(cache);
+        }
+    }
+
+    /**
+     * Apply the invalidations of a batch, without sending them on.
+     *
+     * @param batch The batch.
+     */
+    private void apply(final InvalidationBatch batch) {
+        for (String cache : batch.getFlushed()) {
+            final Member<?> member = members.get(cache);
+            if (member != null) {
+                member.cache.evictAll();
+            }
+        }
+        for (Map.Entry<String, Set<String>> entry
+                : batch.getKeys().entrySet()) {
+            final Member<?> member = members.get(entry.getKey());
+            if (member != null) {
+                member.evict(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Flush every cache, without sending it on.
+     */
+    private void evictAll() {
+        for (Member<?> member : members.values()) {
+            member.cache.evictAll();
+        }
+    }
+
+    /**
+     * A cache kept coherent, and how its keys are read back.
+     *
+     * @param <K> Type of the cache key.
+     */
+    private static final class Member<K> {
+
+        /**
+         * The cache.
+         */
+        private final LocalCache<K, ?> cache;
+
+        /**
+         * Reads a key back from how it is sent.
+         */
+        private final Function<String, K> parse;
+
+        /**
+         * Create a Member.
+         *
+         * @param cache The cache.
+         * @param parse Reads a key back from how it is sent.
+         */
+        private Member(final LocalCache<K, ?> cache,
+                       final Function<String, K> parse) {
+            this.cache = cache;
+            this.parse = parse;
+        }
+
+        /**
+         * Evict keys, as sent.
+         *
+         * @param keys The keys.
+         */
+        private void evict(final Set<String> keys) {
+            for (String key : keys) {
+                try {
+                    cache.evict(parse.apply(key));
+                } catch (IllegalArgumentException e) {
+                    LOGGER.warn("Flushing cache {}, unreadable key {}.",
+                            cache.getName(), key);
+                    cache.evictAll();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.coherence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The invalidations one instance made over a short while, numbered in the
+ * order it sent them.
+ * <p>
+ * Each cache is named once, followed by the keys invalidated in it, and a
+ * cache that was invalidated entirely is named without keys. Keys are
+ * written as strings. A batch naming no cache is a heartbeat, numbered as
+ * the last batch sent before it.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public final class InvalidationBatch {
+
+    /**
+     * Version of the encoding, written first.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Instance that sent the batch.
+     */
+    private final String origin;
+
+    /**
+     * Number of the batch, 1 for the first the instance sent.
+     */
+    private final long sequence;
+
+    /**
+     * Caches invalidated entirely.
+     */
+    private final Set<String> flushed;
+
+    /**
+     * Keys invalidated, by cache.
+     */
+    private final Map<String, Set<String>> keys;
+
+    /**
+     * Create an InvalidationBatch.
+     *
+     * @param origin   Instance that sent the batch.
+     * @param sequence Number of the batch, 1 for the first the instance
+     *                 sent.
+     * @param flushed  Caches invalidated entirely.
+     * @param keys     Keys invalidated, by cache.
+     */
+    public InvalidationBatch(final String origin, final long sequence,
+                             final Set<String> flushed,
+                             final Map<String, Set<String>> keys) {
+        this.origin = origin;
+        this.sequence = sequence;
+        this.flushed = Collections.unmodifiableSet(flushed);
+        this.keys = Collections.unmodifiableMap(keys);
+    }
+
+    /**
+     * Read a batch.
+     *
+     * @param message The encoded batch.
+     * @return The batch.
+     * @throws IllegalArgumentException If it isn't an encoded batch.
+     */
+    public static InvalidationBatch decode(final byte[] message) {
+        try (DataInputStream input = new DataInputStream(
+                new ByteArrayInputStream(message))) {
+            final int version = input.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unknown invalidation"
+                        + " batch version " + version + ".");
+            }
+            final String origin = input.readUTF();
+            final long sequence = input.readLong();
+            final Set<String> flushed = new LinkedHashSet<>();
+            final Map<String, Set<String>> keys = new LinkedHashMap<>();
+            final int caches = input.readInt();
+            for (int i = 0; i < caches; i++) {
+                final String cache = input.readUTF();
+                final int count = input.readInt();
+                if (count == 0) {
+                    flushed.add(cache);
+                    continue;
+                }
+                final Set<String> cacheKeys = new LinkedHashSet<>();
+                for (int j = 0; j < count; j++) {
+                    cacheKeys.add(input.readUTF());
+                }
+                keys.put(cache, cacheKeys);
+            }
+            return new InvalidationBatch(origin, sequence, flushed, keys);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed invalidation"
+                    + " batch.", e);
+        }
+    }
+
+    /**
+     * Write this batch.
+     *
+     * @return The encoded batch.
+     */
+    public byte[] encode() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(VERSION);
+            output.writeUTF(origin);
+            output.writeLong(sequence);
+            output.writeInt(flushed.size() + keys.size());
+            for (String cache : flushed) {
+                output.writeUTF(cache);
+                output.writeInt(0);
+            }
+            for (Map.Entry<String, Set<String>> entry : keys.entrySet()) {
+                output.writeUTF(entry.getKey());
+                output.writeInt(entry.getValue().size());
+                for (String key : entry.getValue()) {
+                    output.writeUTF(key);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Return the instance that sent the batch.
+     *
+     * @return Its origin ID.
+     */
+    public String getOrigin() {
+        return origin;
+    }
+
+    /**
+     * Return the number of the batch.
+     *
+     * @return 1 for the first the instance sent.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Return whether this is a heartbeat rather than a batch of
+     * invalidations.
+     *
+     * @return True if it names no cache.
+     */
+    public boolean isHeartbeat() {
+        return flushed.isEmpty() && keys.isEmpty();
+    }
+
+    /**
+     * Return the caches invalidated entirely.
+     *
+     * @return Cache names.
+     */
+    public Set<String> getFlushed() {
+        return flushed;
+    }
+
+    /**
+     * Return the keys invalidated.
+     *
+     * @return Keys by cache name.
+     */
+    public Map<String, Set<String>> getKeys() {
+        return keys;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.coherence;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries encoded {@link InvalidationBatch}es between instances.
+ * {@link LoopbackInvalidationTransport} is used unless another
+ * implementation is selected with <tt>tullamoreqa.coherence.transport</tt>.
+ * <p>
+ * Delivery may be lost, repeated or reordered; receivers detect each from
+ * the sequence numbers of the batches.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public interface InvalidationTransport {
+    /**
+     * Add a receiver of every message published from now on, by any
+     * instance, this one included.
+     *
+     * @param receiver The receiver.
+     */
+    void subscribe(Consumer<byte[]> receiver);
+
+    /**
+     * Send a message to every receiver.
+     *
+     * @param message The encoded batch.
+     * @throws RuntimeException If it couldn't be sent.
+     */
+    void publish(byte[] message);
+}
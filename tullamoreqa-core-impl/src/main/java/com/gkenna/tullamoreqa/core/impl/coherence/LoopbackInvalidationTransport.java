@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.coherence;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * {@link InvalidationTransport} that hands every message straight to the
+ * receivers in this process, on the publishing thread. With one instance
+ * it carries nothing anywhere; it stands in for a real transport in tests,
+ * where each receiver plays an instance.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+@ConditionalOnProperty(name = "tullamoreqa.coherence.transport",
+        havingValue = "loopback", matchIfMissing = true)
+public class LoopbackInvalidationTransport implements InvalidationTransport {
+
+    /**
+     * Loopback Invalidation Transport Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(LoopbackInvalidationTransport.class);
+
+    /**
+     * Receivers, in the order they subscribed.
+     */
+    private final List<Consumer<byte[]>> receivers =
+            new CopyOnWriteArrayList<>();
+
+    @Override
+    public final void subscribe(final Consumer<byte[]> receiver) {
+        receivers.add(receiver);
+    }
+
+    @Override
+    public final void publish(final byte[] message) {
+        for (Consumer<byte[]> receiver : receivers) {
+            try {
+                receiver.accept(Arrays.copyOf(message, message.length));
+            } catch (RuntimeException e) {
+                LOGGER.warn("Receiver {} failed on a message.", receiver, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+/**
+ * Keeps the local caches of several instances coherent, by passing the
+ * invalidations each makes on to the others.
+ */
+package com.gkenna.tullamoreqa.core.impl.coherence;
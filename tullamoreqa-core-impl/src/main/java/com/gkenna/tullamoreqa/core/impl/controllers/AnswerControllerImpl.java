@@ -6,22 +6,34 @@ package com.gkenna.tullamoreqa.core.impl.controllers;
 
 import com.gkenna.tullamoreqa.core.api.controllers.AnswerController;
 import com.gkenna.tullamoreqa.core.api.exceptions.AnswerNotFoundException;
+import com.gkenna.tullamoreqa.core.api.exceptions.InvalidPatchException;
+import com.gkenna.tullamoreqa.core.api.exceptions.VersionMismatchException;
 import com.gkenna.tullamoreqa.core.api.services.AnswerService;
+import com.gkenna.tullamoreqa.core.impl.bulkhead.BulkheadRegistry;
+import com.gkenna.tullamoreqa.core.impl.idempotency.Idempotency;
+import com.gkenna.tullamoreqa.core.impl.services.MergePatch;
 import com.gkenna.tullamoreqa.domain.Answer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Implementation of {@link AnswerController}.
@@ -48,88 +60,175 @@ public class AnswerControllerImpl extends EntryControllerImpl
     @Autowired
     private AnswerService answerService;
 
+    /**
+     * Bulkheads the requests are run on.
+     */
+    @Autowired
+    private BulkheadRegistry bulkheads;
+
+    /**
+     * Answers repeats of a request with the response to the first.
+     */
+    @Autowired
+    private Idempotency idempotency;
+
     @Override
     @RequestMapping(method = RequestMethod.POST)
-    public final ResponseEntity<?> addAnswer(@RequestBody final Answer input) {
-        LOGGER.debug("Adding Answer {}", input);
+    public final WebAsyncTask<ResponseEntity<?>> addAnswer(
+            @RequestBody final Answer input,
+            @RequestHeader(value = Idempotency.HEADER, required = false)
+            final String idempotencyKey) {
+        final String key = idempotency.keyOf("answer", idempotencyKey);
+        final String fingerprint = idempotency.fingerprintOf(key, input);
+        final UriComponentsBuilder resource = ServletUriComponentsBuilder
+                .fromCurrentRequest().path("/{id}");
+        return bulkheads.answers().call(() -> idempotency.execute(key,
+                fingerprint, () -> {
+            LOGGER.debug("Adding Answer {}", input);
+
+            //TODO Add exception handling
+            answerService.addAnswer(input);
+
+            /*
+            Retrieving URI of new Answer.
+             */
+            HttpHeaders headers = new HttpHeaders();
+            URI location = resource.buildAndExpand(input.getId())
+                    .toUri();
+
+            LOGGER.debug("Answer #{} URI location is {}", input.getId(),
+                    location);
+
+            headers.setLocation(location);
+            return new ResponseEntity<String>(headers, HttpStatus.CREATED);
+        }));
+    }
 
-        //TODO Add exception handling
-        answerService.addAnswer(input);
 
-        /*
-        Retrieving URI of new Answer.
-         */
-        HttpHeaders headers = new HttpHeaders();
-        URI location = ServletUriComponentsBuilder
-                .fromCurrentRequest().path("/{id}")
-                .buildAndExpand(input.getId()).toUri();
+    @Override
+    @RequestMapping(method = RequestMethod.POST, value = "/bulk")
+    public final WebAsyncTask<ResponseEntity<List<Long>>> addAnswers(
+            @RequestBody final Answer[] input) {
+        return bulkheads.answers().call(() -> {
+            LOGGER.debug("Adding {} Answers", input.length);
 
-        LOGGER.debug("Answer #{} URI location is {}", input.getId(), location);
+            final List<Long> output =
+                    answerService.addAnswers(Arrays.asList(input));
 
-        headers.setLocation(location);
-        return new ResponseEntity<String>(headers, HttpStatus.CREATED);
+            return new ResponseEntity<>(output, HttpStatus.CREATED);
+        });
     }
 
     @Override
     @RequestMapping(method = RequestMethod.GET, value = "/{id}")
-    public final ResponseEntity<Answer> getAnswer(
+    public final WebAsyncTask<ResponseEntity<Answer>> getAnswer(
             @PathVariable("id") final Long answerId) {
-
-        LOGGER.debug("Attempting to get Answer {}", answerId);
-        Answer output;
-
-        try {
-            output = answerService.getAnswer(answerId);
-        } catch (AnswerNotFoundException e) {
-            LOGGER.error("Answer with id {} not found.", answerId);
-
-            return new ResponseEntity(e, HttpStatus.NOT_FOUND);
-        }
-
-        return new ResponseEntity<Answer>(output, HttpStatus.OK);
+        return bulkheads.answers().call(() -> {
+            LOGGER.debug("Attempting to get Answer {}", answerId);
+            Answer output;
+
+            try {
+                output = answerService.getAnswer(answerId);
+            } catch (AnswerNotFoundException e) {
+                LOGGER.error("Answer with id {} not found.", answerId);
+
+                return new ResponseEntity(e, HttpStatus.NOT_FOUND);
+            }
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setETag(ETags.of(output.getVersion()));
+            return new ResponseEntity<Answer>(output, headers, HttpStatus.OK);
+        });
     }
 
     @Override
     @RequestMapping(method = RequestMethod.PUT, value = "/{id}")
-    public final ResponseEntity<?> updateAnswer(
+    public final WebAsyncTask<ResponseEntity<?>> updateAnswer(
             @PathVariable("id") final Long answerId,
-            @RequestBody final Answer input) {
-
-        LOGGER.debug("Updating Answer {} with the following details {}",
-                answerId, input);
-        Answer output;
-        try {
-            output = answerService.updateAnswer(answerId, input);
-        } catch (AnswerNotFoundException e) {
-            LOGGER.error("Answer with id {} not found.", answerId);
-            // TODO Replace this exception with custom exception
-            return new ResponseEntity(new Exception("Answer with id "
-                    + answerId + " not found"), HttpStatus.NOT_FOUND);
-        }
-        return new ResponseEntity<Answer>(output, HttpStatus.OK);
+            @RequestBody final Answer input,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+            final String ifMatch) {
+        return bulkheads.answers().call(() -> {
+            LOGGER.debug("Updating Answer {} with the following details {}",
+                    answerId, input);
+            Answer output;
+            try {
+                output = answerService.updateAnswer(answerId, input,
+                        ETags.expectedVersion(ifMatch));
+            } catch (AnswerNotFoundException e) {
+                LOGGER.error("Answer with id {} not found.", answerId);
+                // TODO Replace this exception with custom exception
+                return new ResponseEntity(new Exception("Answer with id "
+                        + answerId + " not found"), HttpStatus.NOT_FOUND);
+            } catch (VersionMismatchException e) {
+                LOGGER.warn("Answer {} does not match {}.", answerId, ifMatch);
+                return new ResponseEntity(HttpStatus.PRECONDITION_FAILED);
+            } catch (NumberFormatException e) {
+                LOGGER.warn("If-Match {} of Answer {} is not an"
+                        + " ETag.", ifMatch, answerId);
+                return new ResponseEntity(HttpStatus.BAD_REQUEST);
+            }
+            HttpHeaders headers = new HttpHeaders();
+            headers.setETag(ETags.of(output.getVersion()));
+            return new ResponseEntity<Answer>(output, headers, HttpStatus.OK);
+        });
     }
 
     @Override
     @RequestMapping(method = RequestMethod.DELETE, value = "/{id}")
-    public final ResponseEntity<?> deleteAnswer(
+    public final WebAsyncTask<ResponseEntity<?>> deleteAnswer(
             @PathVariable("id") final Long answerId) {
-        LOGGER.debug("Deleting Answer {}", answerId);
-        Answer output;
-        try {
-            output = answerService.deleteAnswer(answerId);
-        } catch (AnswerNotFoundException e) {
-            LOGGER.error("Answer with id {} not found.", answerId);
-            // TODO Replace this exception with custom exception
-            return new ResponseEntity(new Exception("Answer with id "
-                    + answerId + " not found"), HttpStatus.NO_CONTENT);
-        }
-        return new ResponseEntity<Answer>(output, HttpStatus.OK);
+        return bulkheads.answers().call(() -> {
+            LOGGER.debug("Deleting Answer {}", answerId);
+            Answer output;
+            try {
+                output = answerService.deleteAnswer(answerId);
+            } catch (AnswerNotFoundException e) {
+                LOGGER.error("Answer with id {} not found.", answerId);
+                // TODO Replace this exception with custom exception
+                return new ResponseEntity(new Exception("Answer with id "
+                        + answerId + " not found"), HttpStatus.NO_CONTENT);
+            }
+            return new ResponseEntity<Answer>(output, HttpStatus.OK);
+        });
     }
 
     @Override
-    public final ResponseEntity<?> patchAnswer(final Long answerId,
-                                               final Answer input) {
-
-        return null;
+    @RequestMapping(method = RequestMethod.PATCH, value = "/{id}",
+            consumes = {MergePatch.MEDIA_TYPE,
+                    MediaType.APPLICATION_JSON_VALUE})
+    public final WebAsyncTask<ResponseEntity<?>> patchAnswer(
+            @PathVariable("id") final Long answerId,
+            @RequestBody final Map<String, Object> patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+            final String ifMatch) {
+        return bulkheads.answers().call(() -> {
+            LOGGER.debug("Patching Answer {} with {}", answerId, patch);
+
+            long output;
+            try {
+                output = answerService.patchAnswer(answerId, patch,
+                        ETags.expectedVersion(ifMatch));
+            } catch (AnswerNotFoundException e) {
+                LOGGER.error(e);
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            } catch (VersionMismatchException e) {
+                LOGGER.warn("Answer {} does not match {}.", answerId, ifMatch);
+                return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+            } catch (NumberFormatException e) {
+                LOGGER.warn("If-Match {} of Answer {} is not an"
+                        + " ETag.", ifMatch, answerId);
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            } catch (InvalidPatchException e) {
+                LOGGER.warn("Invalid patch of Answer {}: {}", answerId,
+                        e.getMessage());
+                return new ResponseEntity<>(e.getMessage(),
+                        HttpStatus.BAD_REQUEST);
+            }
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setETag(ETags.of(output));
+            return new ResponseEntity<>(headers, HttpStatus.NO_CONTENT);
+        });
     }
 }
@@ -6,22 +6,34 @@ package com.gkenna.tullamoreqa.core.impl.controllers;
 
 import com.gkenna.tullamoreqa.core.api.controllers.CommentController;
 import com.gkenna.tullamoreqa.core.api.exceptions.CommentNotFoundException;
+import com.gkenna.tullamoreqa.core.api.exceptions.InvalidPatchException;
+import com.gkenna.tullamoreqa.core.api.exceptions.VersionMismatchException;
 import com.gkenna.tullamoreqa.core.api.services.CommentService;
+import com.gkenna.tullamoreqa.core.impl.bulkhead.BulkheadRegistry;
+import com.gkenna.tullamoreqa.core.impl.idempotency.Idempotency;
+import com.gkenna.tullamoreqa.core.impl.services.MergePatch;
 import com.gkenna.tullamoreqa.domain.Comment;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Implementation of {@link CommentController}.
@@ -40,6 +52,11 @@ public class CommentControllerImpl extends EntryControllerImpl
     private static final Logger LOGGER =
             LogManager.getLogger(CommentControllerImpl.class);
 
+    /**
+     * Comments returned per Entry of a thread, unless asked otherwise.
+     */
+    private static final String DEFAULT_PER_PARENT = "5";
+
     /**
      * Comment Service, that will be AutoWired by Spring in the Constructor.
      * This object is used to interact with the Comment Repo
@@ -48,90 +65,162 @@ public class CommentControllerImpl extends EntryControllerImpl
     @Autowired
     private CommentService commentService;
 
+    /**
+     * Bulkheads the requests are run on.
+     */
+    @Autowired
+    private BulkheadRegistry bulkheads;
+
+    /**
+     * Answers repeats of a request with the response to the first.
+     */
+    @Autowired
+    private Idempotency idempotency;
 
     @Override
     @RequestMapping(method = RequestMethod.POST)
-    public final ResponseEntity<?> addComment(
-            @RequestBody final Comment input) {
-
-        LOGGER.debug("Adding Comment {}", input);
-
-        //TODO Add exception handling
-        commentService.addComment(input);
-        /*
-        Retrieving URI of new Comment.
-         */
-        HttpHeaders headers = new HttpHeaders();
-        URI location = ServletUriComponentsBuilder
-                .fromCurrentRequest().path("/{id}")
-                .buildAndExpand(input.getId()).toUri();
-
-        LOGGER.debug("Comment #{} URI location is {}",
-                input.getId(), location);
-
-        headers.setLocation(location);
-        return new ResponseEntity<String>(headers, HttpStatus.CREATED);
+    public final WebAsyncTask<ResponseEntity<?>> addComment(
+            @RequestBody final Comment input,
+            @RequestHeader(value = Idempotency.HEADER, required = false)
+            final String idempotencyKey) {
+        final String key = idempotency.keyOf("comment", idempotencyKey);
+        final String fingerprint = idempotency.fingerprintOf(key, input);
+        final UriComponentsBuilder resource = ServletUriComponentsBuilder
+                .fromCurrentRequest().path("/{id}");
+        return bulkheads.comments().call(() -> idempotency.execute(key,
+                fingerprint, () -> {
+            LOGGER.debug("Adding Comment {}", input);
+
+            //TODO Add exception handling
+            commentService.addComment(input);
+            /*
+            Retrieving URI of new Comment.
+             */
+            HttpHeaders headers = new HttpHeaders();
+            URI location = resource.buildAndExpand(input.getId())
+                    .toUri();
+
+            LOGGER.debug("Comment #{} URI location is {}",
+                    input.getId(), location);
+
+            headers.setLocation(location);
+            return new ResponseEntity<String>(headers, HttpStatus.CREATED);
+        }));
     }
 
     @Override
     @RequestMapping(method = RequestMethod.GET, value = "/{id}")
-    public final ResponseEntity<Comment> getComment(
+    public final WebAsyncTask<ResponseEntity<Comment>> getComment(
             @PathVariable("id") final Long commentId) {
-
-        LOGGER.debug("Attempting to get Comment {}", commentId);
-        Comment output = commentService.getComment(commentId);
-        if (output == null) {
-            LOGGER.error("Comment with id {} not found.", commentId);
-            // TODO Replace this exception with custom exception
-            return new ResponseEntity(new Exception("Comment with id "
-                    + commentId + " not found"), HttpStatus.NOT_FOUND);
-        }
-        return new ResponseEntity<Comment>(output, HttpStatus.OK);
+        return bulkheads.comments().call(() -> {
+            LOGGER.debug("Attempting to get Comment {}", commentId);
+            Comment output = commentService.getComment(commentId);
+            if (output == null) {
+                LOGGER.error("Comment with id {} not found.", commentId);
+                // TODO Replace this exception with custom exception
+                return new ResponseEntity(new Exception("Comment with id "
+                        + commentId + " not found"), HttpStatus.NOT_FOUND);
+            }
+            return new ResponseEntity<Comment>(output, HttpStatus.OK);
+        });
     }
 
     @Override
     @RequestMapping(method = RequestMethod.PUT, value = "/{id}")
-    public final ResponseEntity<?> updateComment(
+    public final WebAsyncTask<ResponseEntity<?>> updateComment(
             @PathVariable("id") final Long commentId,
             @RequestBody final Comment input) {
-
-        LOGGER.debug("Updating Comment {} with the following details {}",
-                commentId, input);
-
-        Comment output;
-        try {
-            output = commentService.updateComment(commentId, input);
-        } catch (CommentNotFoundException e) {
-            LOGGER.error("Comment with id {} not found.", commentId);
-            // TODO Replace this exception with custom exception
-            return new ResponseEntity(new Exception("Answer with id "
-                    + commentId + " not found"), HttpStatus.NOT_FOUND);
-        }
-        return new ResponseEntity<Comment>(output, HttpStatus.OK);
+        return bulkheads.comments().call(() -> {
+            LOGGER.debug("Updating Comment {} with the following details {}",
+                    commentId, input);
+
+            Comment output;
+            try {
+                output = commentService.updateComment(commentId, input);
+            } catch (CommentNotFoundException e) {
+                LOGGER.error("Comment with id {} not found.", commentId);
+                // TODO Replace this exception with custom exception
+                return new ResponseEntity(new Exception("Answer with id "
+                        + commentId + " not found"), HttpStatus.NOT_FOUND);
+            }
+            return new ResponseEntity<Comment>(output, HttpStatus.OK);
+        });
     }
 
     @Override
     @RequestMapping(method = RequestMethod.DELETE, value = "/{id}")
-    public final ResponseEntity<?> deleteComment(
+    public final WebAsyncTask<ResponseEntity<?>> deleteComment(
             @PathVariable("id") final Long commentId) {
-
-        LOGGER.debug("Deleting Comment {}", commentId);
-        Comment output;
-        try {
-            output = commentService.deleteComment(commentId);
-        } catch (CommentNotFoundException e) {
-            LOGGER.error("Comment with id {} not found.", commentId);
-            // TODO Replace this exception with custom exception
-            return new ResponseEntity(new Exception("Comment with id "
-                    + commentId + " not found"), HttpStatus.NO_CONTENT);
-        }
-        return new ResponseEntity<Comment>(output, HttpStatus.OK);
+        return bulkheads.comments().call(() -> {
+            LOGGER.debug("Deleting Comment {}", commentId);
+            Comment output;
+            try {
+                output = commentService.deleteComment(commentId);
+            } catch (CommentNotFoundException e) {
+                LOGGER.error("Comment with id {} not found.", commentId);
+                // TODO Replace this exception with custom exception
+                return new ResponseEntity(new Exception("Comment with id "
+                        + commentId + " not found"), HttpStatus.NO_CONTENT);
+            }
+            return new ResponseEntity<Comment>(output, HttpStatus.OK);
+        });
     }
 
     @Override
-    public final ResponseEntity<?> patchComment(final Long commentId,
-                                                final Comment input) {
+    @RequestMapping(method = RequestMethod.PATCH, value = "/{id}",
+            consumes = {MergePatch.MEDIA_TYPE,
+                    MediaType.APPLICATION_JSON_VALUE})
+    public final WebAsyncTask<ResponseEntity<?>> patchComment(
+            @PathVariable("id") final Long commentId,
+            @RequestBody final Map<String, Object> patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+            final String ifMatch) {
+        return bulkheads.comments().call(() -> {
+            LOGGER.debug("Patching Comment {} with {}", commentId, patch);
+
+            long output;
+            try {
+                output = commentService.patchComment(commentId, patch,
+                        ETags.expectedVersion(ifMatch));
+            } catch (CommentNotFoundException e) {
+                LOGGER.error(e);
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            } catch (VersionMismatchException e) {
+                LOGGER.warn("Comment {} does not match {}.", commentId,
+                        ifMatch);
+                return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+            } catch (NumberFormatException e) {
+                LOGGER.warn("If-Match {} of Comment {} is not an"
+                        + " ETag.", ifMatch, commentId);
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            } catch (InvalidPatchException e) {
+                LOGGER.warn("Invalid patch of Comment {}: {}", commentId,
+                        e.getMessage());
+                return new ResponseEntity<>(e.getMessage(),
+                        HttpStatus.BAD_REQUEST);
+            }
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setETag(ETags.of(output));
+            return new ResponseEntity<>(headers, HttpStatus.NO_CONTENT);
+        });
+    }
 
-        return null;
+    @Override
+    @RequestMapping(method = RequestMethod.GET, value = "/question/{id}")
+    public final WebAsyncTask<ResponseEntity<Map<Long, List<Comment>>>>
+    getCommentThreads(
+            @PathVariable("id") final Long questionId,
+            @RequestParam(value = "perParent",
+                    defaultValue = DEFAULT_PER_PARENT) final int perParent) {
+        return bulkheads.comments().call(() -> {
+            LOGGER.debug("Getting Comment threads of Question {}", questionId);
+            if (perParent < 1) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            return new ResponseEntity<>(
+                    commentService.getCommentThreads(questionId, perParent),
+                    HttpStatus.OK);
+        });
     }
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.controllers;
+
+/**
+ * Converts between the version of an Entry or Tag and the ETag it is served
+ * with, so clients can send it back in an If-Match header to make their
+ * update conditional.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+final class ETags {
+
+    /**
+     * If-Match value that matches any version.
+     */
+    private static final String ANY = "*";
+
+    /**
+     * Prefix of a weak ETag.
+     */
+    private static final String WEAK = "W/";
+
+    /**
+     * Quote surrounding an ETag.
+     */
+    private static final String QUOTE = "\"";
+
+    /**
+     * Utility class, not to be constructed.
+     */
+    private ETags() {
+    }
+
+    /**
+     * Return the ETag of a version.
+     *
+     * @param version Version of the Entry or Tag.
+     * @return The quoted ETag.
+     */
+    static String of(final long version) {
+        return QUOTE + version + QUOTE;
+    }
+
+    /**
+     * Return the version an If-Match header expects.
+     *
+     * @param ifMatch The If-Match header, may be null.
+     * @return The expected version, or null when any version matches.
+     * @throws NumberFormatException If the header isn't one of our ETags.
+     */
+    static Long expectedVersion(final String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals(ANY)) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith(WEAK)) {
+            tag = tag.substring(WEAK.length());
+        }
+        if (tag.startsWith(QUOTE) && tag.endsWith(QUOTE)
+                && tag.length() > 1) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        return Long.valueOf(tag);
+    }
+}
@@ -42,7 +42,13 @@ public class EntryControllerImpl implements EntryController {
                                             final Vote vote) {
 
         LOGGER.debug("Casting Vote {} ", vote);
-        entryService.castVote(entryId, vote);
+        try {
+            entryService.castVote(entryId, vote);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        }
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
@@ -51,7 +57,11 @@ public class EntryControllerImpl implements EntryController {
                                               final Vote vote) {
 
         LOGGER.debug("Deleting Vote {} ", vote);
-        entryService.deleteVote(entryId, vote);
+        try {
+            entryService.deleteVote(entryId, vote);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+        }
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 }
@@ -5,23 +5,35 @@
 package com.gkenna.tullamoreqa.core.impl.controllers;
 
 import com.gkenna.tullamoreqa.core.api.controllers.QuestionController;
+import com.gkenna.tullamoreqa.core.api.exceptions.InvalidPatchException;
 import com.gkenna.tullamoreqa.core.api.exceptions.QuestionNotFoundException;
+import com.gkenna.tullamoreqa.core.api.exceptions.VersionMismatchException;
 import com.gkenna.tullamoreqa.core.api.services.QuestionService;
+import com.gkenna.tullamoreqa.core.impl.bulkhead.BulkheadRegistry;
+import com.gkenna.tullamoreqa.core.impl.idempotency.Idempotency;
+import com.gkenna.tullamoreqa.core.impl.services.MergePatch;
 import com.gkenna.tullamoreqa.domain.Question;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Implementation of {@link QuestionController}.
@@ -48,93 +60,165 @@ public class QuestionControllerImpl extends EntryControllerImpl
     @Autowired
     private QuestionService questionService;
 
+    /**
+     * Bulkheads the requests are run on.
+     */
+    @Autowired
+    private BulkheadRegistry bulkheads;
+
+    /**
+     * Answers repeats of a request with the response to the first.
+     */
+    @Autowired
+    private Idempotency idempotency;
+
     @Override
     @RequestMapping(method = RequestMethod.POST)
-    public final ResponseEntity<?> addQuestion(
-            @RequestBody final Question input) {
-
-        LOGGER.info("Add Question : {}", input);
-        questionService.addQuestion(input);
+    public final WebAsyncTask<ResponseEntity<?>> addQuestion(
+            @RequestBody final Question input,
+            @RequestHeader(value = Idempotency.HEADER, required = false)
+            final String idempotencyKey) {
+        final String key = idempotency.keyOf("question", idempotencyKey);
+        final String fingerprint = idempotency.fingerprintOf(key, input);
+        final UriComponentsBuilder resource = ServletUriComponentsBuilder
+                .fromCurrentRequest().path("/{id}");
+        return bulkheads.questions().call(() -> idempotency.execute(key,
+                fingerprint, () -> {
+            LOGGER.info("Add Question : {}", input);
+            questionService.addQuestion(input);
+
+            HttpHeaders headers = new HttpHeaders();
+            URI location = resource.buildAndExpand(input.getId())
+                    .toUri();
+
+            headers.setLocation(location);
+            return new ResponseEntity<String>(headers, HttpStatus.CREATED);
+        }));
+    }
 
-        HttpHeaders headers = new HttpHeaders();
-        URI location = ServletUriComponentsBuilder
-                .fromCurrentRequest().path("/{id}")
-                .buildAndExpand(input.getId()).toUri();
 
-        headers.setLocation(location);
-        return new ResponseEntity<String>(headers, HttpStatus.CREATED);
+    @Override
+    @RequestMapping(method = RequestMethod.POST, value = "/bulk")
+    public final WebAsyncTask<ResponseEntity<List<Long>>> addQuestions(
+            @RequestBody final Question[] input) {
+        return bulkheads.questions().call(() -> {
+            LOGGER.info("Add {} Questions", input.length);
+            final List<Long> output =
+                    questionService.addQuestions(Arrays.asList(input));
+
+            return new ResponseEntity<>(output, HttpStatus.CREATED);
+        });
     }
 
     @Override
     @RequestMapping(method = RequestMethod.GET, value = "/{id}")
-    public final ResponseEntity<Question> getQuestion(
+    public final WebAsyncTask<ResponseEntity<Question>> getQuestion(
             @PathVariable("id") final Long questionId) {
-
-        LOGGER.debug("Attempting to get Question {}", questionId);
-        Question output;
-
-        try {
-            output = questionService.getQuestion(questionId);
-        } catch (QuestionNotFoundException e) {
-            LOGGER.error(e);
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-
-        return new ResponseEntity<>(output, HttpStatus.OK);
+        return bulkheads.questions().call(() -> {
+            LOGGER.debug("Attempting to get Question {}", questionId);
+            Question output;
+
+            try {
+                output = questionService.getQuestion(questionId);
+            } catch (QuestionNotFoundException e) {
+                LOGGER.error(e);
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setETag(ETags.of(output.getVersion()));
+            return new ResponseEntity<>(output, headers, HttpStatus.OK);
+        });
     }
 
     @Override
     @RequestMapping(method = RequestMethod.PUT, value = "/{id}")
-    public final ResponseEntity<?> updateQuestion(
+    public final WebAsyncTask<ResponseEntity<?>> updateQuestion(
             @PathVariable("id") final Long questionId,
-            @RequestBody final Question input) {
-
-        LOGGER.debug("Updating Question {} with the following details {}",
-                questionId, input);
-
-        Question output;
-        try {
-            output = questionService.updateQuestion(questionId, input);
-        } catch (QuestionNotFoundException e) {
-            LOGGER.error(e);
-            return new ResponseEntity(HttpStatus.NOT_FOUND);
-        }
-        return new ResponseEntity<>(output, HttpStatus.OK);
+            @RequestBody final Question input,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+            final String ifMatch) {
+        return bulkheads.questions().call(() -> {
+            LOGGER.debug("Updating Question {} with the following details {}",
+                    questionId, input);
+
+            Question output;
+            try {
+                output = questionService.updateQuestion(questionId, input,
+                        ETags.expectedVersion(ifMatch));
+            } catch (QuestionNotFoundException e) {
+                LOGGER.error(e);
+                return new ResponseEntity(HttpStatus.NOT_FOUND);
+            } catch (VersionMismatchException e) {
+                LOGGER.warn("Question {} does not match {}.", questionId,
+                        ifMatch);
+                return new ResponseEntity(HttpStatus.PRECONDITION_FAILED);
+            } catch (NumberFormatException e) {
+                LOGGER.warn("If-Match {} of Question {} is not an"
+                        + " ETag.", ifMatch, questionId);
+                return new ResponseEntity(HttpStatus.BAD_REQUEST);
+            }
+            HttpHeaders headers = new HttpHeaders();
+            headers.setETag(ETags.of(output.getVersion()));
+            return new ResponseEntity<>(output, headers, HttpStatus.OK);
+        });
     }
 
     @Override
-    @RequestMapping(method = RequestMethod.PATCH, value = "/{id}")
-    public final ResponseEntity<?> patchQuestion(
+    @RequestMapping(method = RequestMethod.PATCH, value = "/{id}",
+            consumes = {MergePatch.MEDIA_TYPE,
+                    MediaType.APPLICATION_JSON_VALUE})
+    public final WebAsyncTask<ResponseEntity<?>> patchQuestion(
             @PathVariable("id") final Long questionId,
-            @RequestBody final Question input) {
-
-        LOGGER.debug("Patching Question {} with the following details {}",
-                questionId, input);
-
-        Question output;
-        try {
-            output = questionService.patchQuestion(questionId, input);
-        } catch (QuestionNotFoundException e) {
-            LOGGER.error(e);
-            return new ResponseEntity(HttpStatus.NOT_FOUND);
-        }
-        return new ResponseEntity<>(output, HttpStatus.OK);
+            @RequestBody final Map<String, Object> patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+            final String ifMatch) {
+        return bulkheads.questions().call(() -> {
+            LOGGER.debug("Patching Question {} with {}", questionId, patch);
+
+            long output;
+            try {
+                output = questionService.patchQuestion(questionId, patch,
+                        ETags.expectedVersion(ifMatch));
+            } catch (QuestionNotFoundException e) {
+                LOGGER.error(e);
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            } catch (VersionMismatchException e) {
+                LOGGER.warn("Question {} does not match {}.", questionId,
+                        ifMatch);
+                return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+            } catch (NumberFormatException e) {
+                LOGGER.warn("If-Match {} of Question {} is not an"
+                        + " ETag.", ifMatch, questionId);
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            } catch (InvalidPatchException e) {
+                LOGGER.warn("Invalid patch of Question {}: {}", questionId,
+                        e.getMessage());
+                return new ResponseEntity<>(e.getMessage(),
+                        HttpStatus.BAD_REQUEST);
+            }
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setETag(ETags.of(output));
+            return new ResponseEntity<>(headers, HttpStatus.NO_CONTENT);
+        });
     }
 
     @Override
     @RequestMapping(method = RequestMethod.DELETE, value = "/{id}")
-    public final ResponseEntity<?> deleteQuestion(
+    public final WebAsyncTask<ResponseEntity<?>> deleteQuestion(
             @PathVariable("id") final Long questionId) {
-
-        LOGGER.debug("Deleting Question {}", questionId);
-
-        try {
-            questionService.deleteQuestion(questionId);
-        } catch (QuestionNotFoundException e) {
-            LOGGER.error(e);
-            return new ResponseEntity(HttpStatus.NOT_FOUND);
-        }
-
-        return new ResponseEntity<Question>(HttpStatus.NO_CONTENT);
+        return bulkheads.questions().call(() -> {
+            LOGGER.debug("Deleting Question {}", questionId);
+
+            try {
+                questionService.deleteQuestion(questionId);
+            } catch (QuestionNotFoundException e) {
+                LOGGER.error(e);
+                return new ResponseEntity(HttpStatus.NOT_FOUND);
+            }
+
+            return new ResponseEntity<Question>(HttpStatus.NO_CONTENT);
+        });
     }
 }
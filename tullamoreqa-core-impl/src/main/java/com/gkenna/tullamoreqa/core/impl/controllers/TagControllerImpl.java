@@ -5,24 +5,34 @@
 package com.gkenna.tullamoreqa.core.impl.controllers;
 
 import com.gkenna.tullamoreqa.core.api.controllers.TagController;
+import com.gkenna.tullamoreqa.core.api.exceptions.InvalidPatchException;
 import com.gkenna.tullamoreqa.core.api.exceptions.TagAlreadyExistsException;
 import com.gkenna.tullamoreqa.core.api.exceptions.TagNotFoundException;
+import com.gkenna.tullamoreqa.core.api.exceptions.VersionMismatchException;
 import com.gkenna.tullamoreqa.core.api.services.TagService;
+import com.gkenna.tullamoreqa.core.impl.bulkhead.BulkheadRegistry;
+import com.gkenna.tullamoreqa.core.impl.services.MergePatch;
 import com.gkenna.tullamoreqa.domain.Tag;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Implementation of {@link TagController}.
@@ -47,112 +57,192 @@ public class TagControllerImpl implements TagController {
      */
     private final TagService tagService;
 
+    /**
+     * Bulkheads the requests are run on.
+     */
+    private final BulkheadRegistry bulkheads;
+
     /**
      * Constructor that Auto wires the Tag Service.
      *
      * @param tagService Tag Service implementation.
+     * @param bulkheads  Bulkheads the requests are run on.
      */
     @Autowired
-    public TagControllerImpl(final TagService tagService) {
+    public TagControllerImpl(final TagService tagService,
+                             final BulkheadRegistry bulkheads) {
         this.tagService = tagService;
+        this.bulkheads = bulkheads;
     }
 
     @Override
     @RequestMapping(method = RequestMethod.POST)
-    public final ResponseEntity<?> addTag(@RequestBody final Tag input) {
+    public final WebAsyncTask<ResponseEntity<?>> addTag(
+            @RequestBody final Tag input) {
+        /*
+        Retrieving URI of new Tag, on the servlet thread that has the
+        request.
+         */
+        final URI location = ServletUriComponentsBuilder
+                .fromCurrentRequest().path("/{id}")
+                .buildAndExpand(input.getName()).toUri();
+        return bulkheads.tags().call(() -> {
             LOGGER.debug("Adding Tag {}", input);
 
-        HttpHeaders headers = new HttpHeaders();
+            HttpHeaders headers = new HttpHeaders();
 
-        /*
-         * Check if a Tag already exists.
-         * If so return a 409 and return original Tag.
-         */
-        try {
-            tagService.addTag(input);
-        } catch (TagAlreadyExistsException e) {
-            LOGGER.error(e);
-
-            URI location = ServletUriComponentsBuilder
-                    .fromCurrentRequest().path("/{id}")
-                    .buildAndExpand(input.getName()).toUri();
-            headers.setLocation(location);
+            /*
+             * Check if a Tag already exists.
+             * If so return a 409 and return original Tag.
+             */
+            try {
+                tagService.addTag(input);
+            } catch (TagAlreadyExistsException e) {
+                LOGGER.error(e);
 
-            return new ResponseEntity<String>(headers, HttpStatus.CONFLICT);
-        }
+                headers.setLocation(location);
 
-        /*
-        Retrieving URI of new Tag.
-         */
-        URI location = ServletUriComponentsBuilder
-                .fromCurrentRequest().path("/{id}")
-                .buildAndExpand(input.getName()).toUri();
+                return new ResponseEntity<String>(headers, HttpStatus.CONFLICT);
+            }
+
+            LOGGER.debug("Tag #{} URI location is {}", input.getName(),
+                    location);
 
-        LOGGER.debug("Tag #{} URI location is {}", input.getName(), location);
+            headers.setLocation(location);
+            return new ResponseEntity<String>(headers, HttpStatus.CREATED);
+        });
+    }
 
-        headers.setLocation(location);
-        return new ResponseEntity<String>(headers, HttpStatus.CREATED);
+
+    @Override
+    @RequestMapping(method = RequestMethod.POST, value = "/bulk")
+    public final WebAsyncTask<ResponseEntity<List<String>>> addTags(
+            @RequestBody final Tag[] input) {
+        return bulkheads.tags().call(() -> {
+            LOGGER.debug("Adding {} Tags", input.length);
+
+            final List<String> output;
+            try {
+                output = tagService.addTags(Arrays.asList(input));
+            } catch (TagAlreadyExistsException e) {
+                LOGGER.error(e);
+                return new ResponseEntity<>(HttpStatus.CONFLICT);
+            }
+
+            return new ResponseEntity<>(output, HttpStatus.CREATED);
+        });
     }
 
     @Override
     @RequestMapping(method = RequestMethod.GET, value = "/{id}")
-    public final ResponseEntity<Tag> getTag(
+    public final WebAsyncTask<ResponseEntity<Tag>> getTag(
             @PathVariable("id") final String tagId) {
-
-        LOGGER.debug("Attempting to get Tag {}", tagId);
-
-        Tag output;
-
-        try {
-            output = tagService.getTag(tagId);
-        } catch (TagNotFoundException e) {
-            LOGGER.error(e);
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-
-        return new ResponseEntity<>(output, HttpStatus.OK);
+        return bulkheads.tags().call(() -> {
+            LOGGER.debug("Attempting to get Tag {}", tagId);
+
+            Tag output;
+
+            try {
+                output = tagService.getTag(tagId);
+            } catch (TagNotFoundException e) {
+                LOGGER.error(e);
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setETag(ETags.of(output.getVersion()));
+            return new ResponseEntity<>(output, headers, HttpStatus.OK);
+        });
     }
 
     @Override
     @RequestMapping(method = RequestMethod.PUT, value = "/{id}")
-    public final ResponseEntity<?> updateTag(
+    public final WebAsyncTask<ResponseEntity<?>> updateTag(
             @PathVariable("id") final String tagId,
-            @RequestBody final Tag input) {
-
-        LOGGER.debug("Updating Tag {} with the following details {}",
-                tagId, input);
-
-        Tag output;
-
-        try {
-            output = tagService.updateTag(tagId, input);
-        } catch (TagNotFoundException e) {
-            LOGGER.error(e);
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-        return new ResponseEntity<>(output, HttpStatus.OK);
+            @RequestBody final Tag input,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+            final String ifMatch) {
+        return bulkheads.tags().call(() -> {
+            LOGGER.debug("Updating Tag {} with the following details {}",
+                    tagId, input);
+
+            Tag output;
+
+            try {
+                output = tagService.updateTag(tagId, input,
+                        ETags.expectedVersion(ifMatch));
+            } catch (TagNotFoundException e) {
+                LOGGER.error(e);
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            } catch (VersionMismatchException e) {
+                LOGGER.warn("Tag {} does not match {}.", tagId, ifMatch);
+                return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+            } catch (NumberFormatException e) {
+                LOGGER.warn("If-Match {} of Tag {} is not an"
+                        + " ETag.", ifMatch, tagId);
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setETag(ETags.of(output.getVersion()));
+            return new ResponseEntity<>(output, headers, HttpStatus.OK);
+        });
     }
 
     @Override
     @RequestMapping(method = RequestMethod.DELETE, value = "/{id}")
-    public final ResponseEntity<?> deleteTag(
+    public final WebAsyncTask<ResponseEntity<?>> deleteTag(
             @PathVariable("id") final String tagId) {
-
-        LOGGER.debug("Deleting Tag {}", tagId);
-
-        try {
-            tagService.deleteTag(tagId);
-        } catch (TagNotFoundException e) {
-            LOGGER.error(e);
-            return new ResponseEntity(HttpStatus.NOT_FOUND);
-        }
-
-        return new ResponseEntity<Tag>(HttpStatus.NO_CONTENT);
+        return bulkheads.tags().call(() -> {
+            LOGGER.debug("Deleting Tag {}", tagId);
+
+            try {
+                tagService.deleteTag(tagId);
+            } catch (TagNotFoundException e) {
+                LOGGER.error(e);
+                return new ResponseEntity(HttpStatus.NOT_FOUND);
+            }
+
+            return new ResponseEntity<Tag>(HttpStatus.NO_CONTENT);
+        });
     }
 
     @Override
-    public final ResponseEntity<?> patchTag(final String tagId,
-                                            final  Tag input) {
-        return null;
+    @RequestMapping(method = RequestMethod.PATCH, value = "/{id}",
+            consumes = {MergePatch.MEDIA_TYPE,
+                    MediaType.APPLICATION_JSON_VALUE})
+    public final WebAsyncTask<ResponseEntity<?>> patchTag(
+            @PathVariable("id") final String tagId,
+            @RequestBody final Map<String, Object> patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+            final String ifMatch) {
+        return bulkheads.tags().call(() -> {
+            LOGGER.debug("Patching Tag {} with {}", tagId, patch);
+
+            long output;
+            try {
+                output = tagService.patchTag(tagId, patch,
+                        ETags.expectedVersion(ifMatch));
+            } catch (TagNotFoundException e) {
+                LOGGER.error(e);
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            } catch (VersionMismatchException e) {
+                LOGGER.warn("Tag {} does not match {}.", tagId, ifMatch);
+                return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+            } catch (NumberFormatException e) {
+                LOGGER.warn("If-Match {} of Tag {} is not an"
+                        + " ETag.", ifMatch, tagId);
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            } catch (InvalidPatchException e) {
+                LOGGER.warn("Invalid patch of Tag {}: {}", tagId,
+                        e.getMessage());
+                return new ResponseEntity<>(e.getMessage(),
+                        HttpStatus.BAD_REQUEST);
+            }
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setETag(ETags.of(output));
+            return new ResponseEntity<>(headers, HttpStatus.NO_CONTENT);
+        });
     }
 }
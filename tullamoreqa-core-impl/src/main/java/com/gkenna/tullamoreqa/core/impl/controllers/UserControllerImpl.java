@@ -5,23 +5,33 @@
 package com.gkenna.tullamoreqa.core.impl.controllers;
 
 import com.gkenna.tullamoreqa.core.api.controllers.UserController;
+import com.gkenna.tullamoreqa.core.api.exceptions.InvalidPatchException;
 import com.gkenna.tullamoreqa.core.api.exceptions.UserNotFoundException;
 import com.gkenna.tullamoreqa.core.api.services.UserService;
+import com.gkenna.tullamoreqa.core.impl.bulkhead.BulkheadRegistry;
+import com.gkenna.tullamoreqa.core.impl.idempotency.Idempotency;
+import com.gkenna.tullamoreqa.core.impl.services.MergePatch;
+import com.gkenna.tullamoreqa.domain.AuthorSummary;
 import com.gkenna.tullamoreqa.domain.User;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
+import java.util.Map;
 
 /**
  * Implementation of {@link UserController}.
@@ -47,92 +57,151 @@ public class UserControllerImpl implements UserController {
     @Autowired
     private UserService userService;
 
+    /**
+     * Bulkheads the requests are run on.
+     */
+    @Autowired
+    private BulkheadRegistry bulkheads;
+
+    /**
+     * Answers repeats of a request with the response to the first.
+     */
+    @Autowired
+    private Idempotency idempotency;
+
     @Override
     @RequestMapping(method = RequestMethod.POST)
-    public final ResponseEntity<?> addUser(@RequestBody final User input) {
-        LOGGER.debug("Adding User {}", input);
-
-        //TODO Add exception handling
-        userService.addUser(input);
-        /*
-        Retrieving URI of new User.
-         */
-        HttpHeaders headers = new HttpHeaders();
-        URI location = ServletUriComponentsBuilder
-                .fromCurrentRequest().path("/{username}")
-                .buildAndExpand(input.getUsername()).toUri();
-
-        LOGGER.debug("User #{} URI location is {}", input.getUsername(),
-                location);
-
-        headers.setLocation(location);
-        return new ResponseEntity<String>(headers, HttpStatus.CREATED);
+    public final WebAsyncTask<ResponseEntity<?>> addUser(
+            @RequestBody final User input,
+            @RequestHeader(value = Idempotency.HEADER, required = false)
+            final String idempotencyKey) {
+        final String key = idempotency.keyOf("user", idempotencyKey);
+        final String fingerprint = idempotency.fingerprintOf(key, input);
+        final UriComponentsBuilder resource = ServletUriComponentsBuilder
+                .fromCurrentRequest().path("/{username}");
+        return bulkheads.users().call(() -> idempotency.execute(key,
+                fingerprint, () -> {
+            LOGGER.debug("Adding User {}", input);
+
+            //TODO Add exception handling
+            userService.addUser(input);
+            /*
+            Retrieving URI of new User.
+             */
+            HttpHeaders headers = new HttpHeaders();
+            URI location = resource.buildAndExpand(input.getUsername())
+                    .toUri();
+
+            LOGGER.debug("User #{} URI location is {}", input.getUsername(),
+                    location);
+
+            headers.setLocation(location);
+            return new ResponseEntity<String>(headers, HttpStatus.CREATED);
+        }));
     }
 
     @Override
     @RequestMapping(method = RequestMethod.GET, value = "/{username}")
-    public final ResponseEntity<User> getUser(
+    public final WebAsyncTask<ResponseEntity<User>> getUser(
             @PathVariable("username") final String username) {
-
-        LOGGER.debug("Attempting to get User {}", username);
-        User output = null;
-        try {
-            output = userService.getUser(username);
-        } catch (UserNotFoundException e) {
-            e.printStackTrace();
-        }
-        if (output == null) {
-            LOGGER.error("User with username {} not found.", username);
-            // TODO Replace this exception with custom exception
-            return new ResponseEntity(new Exception("User with username "
-                    + username + " not found"), HttpStatus.NOT_FOUND);
-        }
-        return new ResponseEntity<User>(output, HttpStatus.OK);
+        return bulkheads.users().call(() -> {
+            LOGGER.debug("Attempting to get User {}", username);
+            User output = null;
+            try {
+                output = userService.getUser(username);
+            } catch (UserNotFoundException e) {
+                e.printStackTrace();
+            }
+            if (output == null) {
+                LOGGER.error("User with username {} not found.", username);
+                // TODO Replace this exception with custom exception
+                return new ResponseEntity(new Exception("User with username "
+                        + username + " not found"), HttpStatus.NOT_FOUND);
+            }
+            return new ResponseEntity<User>(output, HttpStatus.OK);
+        });
     }
 
     @Override
     @RequestMapping(method = RequestMethod.PUT, value = "/{username}")
-    public final ResponseEntity<?> updateUser(
+    public final WebAsyncTask<ResponseEntity<?>> updateUser(
             @PathVariable("username") final String username,
             @RequestBody final User input) {
-
-        LOGGER.debug("Updating User {} with the following details {}",
-                username, input);
-
-        User output;
-        try {
-            output = userService.updateUser(username, input);
-        } catch (UserNotFoundException e) {
-            LOGGER.error("User with username {} not found.", username);
-            // TODO Replace this exception with custom exception
-            return new ResponseEntity(new Exception("Answer with username "
-                    + username + " not found"), HttpStatus.NOT_FOUND);
-        }
-        return new ResponseEntity<User>(output, HttpStatus.OK);
+        return bulkheads.users().call(() -> {
+            LOGGER.debug("Updating User {} with the following details {}",
+                    username, input);
+
+            User output;
+            try {
+                output = userService.updateUser(username, input);
+            } catch (UserNotFoundException e) {
+                LOGGER.error("User with username {} not found.", username);
+                // TODO Replace this exception with custom exception
+                return new ResponseEntity(new Exception("Answer with username "
+                        + username + " not found"), HttpStatus.NOT_FOUND);
+            }
+            return new ResponseEntity<User>(output, HttpStatus.OK);
+        });
     }
 
     @Override
     @RequestMapping(method = RequestMethod.DELETE, value = "/{username}")
-    public final ResponseEntity<?> deleteUser(
+    public final WebAsyncTask<ResponseEntity<?>> deleteUser(
             @PathVariable("username") final String username) {
-
-        LOGGER.debug("Deleting User {}", username);
-        User output;
-        try {
-            output = userService.deleteUser(username);
-        } catch (UserNotFoundException e) {
-            LOGGER.error("User with username {} not found.", username);
-            // TODO Replace this exception with custom exception
-            return new ResponseEntity(new Exception("User with username "
-                    + username + " not found"), HttpStatus.NO_CONTENT);
-        }
-        return new ResponseEntity<User>(output, HttpStatus.OK);
+        return bulkheads.users().call(() -> {
+            LOGGER.debug("Deleting User {}", username);
+            User output;
+            try {
+                output = userService.deleteUser(username);
+            } catch (UserNotFoundException e) {
+                LOGGER.error("User with username {} not found.", username);
+                // TODO Replace this exception with custom exception
+                return new ResponseEntity(new Exception("User with username "
+                        + username + " not found"), HttpStatus.NO_CONTENT);
+            }
+            return new ResponseEntity<User>(output, HttpStatus.OK);
+        });
     }
 
     @Override
-    public final ResponseEntity<?> patchUser(final String username,
-                                             final User input) {
+    @RequestMapping(method = RequestMethod.GET, value = "/{username}/summary")
+    public final WebAsyncTask<ResponseEntity<AuthorSummary>> getAuthorSummary(
+            @PathVariable("username") final String username) {
+        return bulkheads.users().call(() -> {
+            LOGGER.debug("Attempting to get Author Summary of {}", username);
+            AuthorSummary output;
+            try {
+                output = userService.getAuthorSummary(username);
+            } catch (UserNotFoundException e) {
+                LOGGER.error(e);
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            return new ResponseEntity<>(output, HttpStatus.OK);
+        });
+    }
 
-        return null;
+    @Override
+    @RequestMapping(method = RequestMethod.PATCH, value = "/{username}",
+            consumes = {MergePatch.MEDIA_TYPE,
+                    MediaType.APPLICATION_JSON_VALUE})
+    public final WebAsyncTask<ResponseEntity<?>> patchUser(
+            @PathVariable("username") final String username,
+            @RequestBody final Map<String, Object> patch) {
+        return bulkheads.users().call(() -> {
+            LOGGER.debug("Patching User {} with {}", username, patch);
+
+            try {
+                userService.patchUser(username, patch);
+            } catch (UserNotFoundException e) {
+                LOGGER.error(e);
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            } catch (InvalidPatchException e) {
+                LOGGER.warn("Invalid patch of User {}: {}", username,
+                        e.getMessage());
+                return new ResponseEntity<>(e.getMessage(),
+                        HttpStatus.BAD_REQUEST);
+            }
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        });
     }
 }
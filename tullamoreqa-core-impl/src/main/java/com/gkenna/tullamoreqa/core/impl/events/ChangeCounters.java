@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.events;
+
+import com.gkenna.tullamoreqa.domain.events.ChangeEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Subscriber counting the changes relayed by this instance, by the type
+ * of entity that changed and what happened to it, along with the latest
+ * event relayed, so how far behind the relay is can be seen.
+ * <p>
+ * Counts start from zero when the instance starts. A batch redelivered
+ * after a subscriber failed is counted again.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class ChangeCounters implements ChangeEventListener {
+
+    /**
+     * Changes relayed, by entity type then change type.
+     */
+    private final Map<String, Map<String, AtomicLong>> counts =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Latest event relayed, null until one is.
+     */
+    private volatile ChangeEvent latest;
+
+    /**
+     * Constructor that subscribes to the Bus.
+     *
+     * @param bus Bus events are published to.
+     */
+    @Autowired
+    public ChangeCounters(final ChangeEventBus bus) {
+        bus.subscribe(this);
+    }
+
+    @Override
+    public final void onChanges(final List<ChangeEvent> events) {
+        for (ChangeEvent event : events) {
+            counts.computeIfAbsent(event.getAggregateType(),
+                    type -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(event.getChangeType().name(),
+                            type -> new AtomicLong())
+                    .incrementAndGet();
+        }
+        if (!events.isEmpty()) {
+            latest = events.get(events.size() - 1);
+        }
+    }
+
+    /**
+     * Return the changes relayed, and the latest event relayed.
+     *
+     * @return Counts by entity type then change type, and latest event.
+     */
+    public final Map<String, Object> toMap() {
+        final Map<String, Object> output = new LinkedHashMap<>();
+        final Map<String, Map<String, Long>> changes = new TreeMap<>();
+        for (Map.Entry<String, Map<String, AtomicLong>> type
+                : counts.entrySet()) {
+            final Map<String, Long> byChange = new TreeMap<>();
+            for (Map.Entry<String, AtomicLong> change
+                    : type.getValue().entrySet()) {
+                byChange.put(change.getKey(), change.getValue().get());
+            }
+            changes.put(type.getKey(), byChange);
+        }
+        output.put("changes", changes);
+        final ChangeEvent last = latest;
+        if (last != null) {
+            final Map<String, Object> event = new LinkedHashMap<>();
+            event.put("id", last.getId());
+            event.put("aggregateType", last.getAggregateType());
+            event.put("aggregateId", last.getAggregateId());
+            event.put("changeType", last.getChangeType().name());
+            event.put("occurredAt", last.getOccurredAt().getTime());
+            output.put("latest", event);
+        }
+        return output;
+    }
+}
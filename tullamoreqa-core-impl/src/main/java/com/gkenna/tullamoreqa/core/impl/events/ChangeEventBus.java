@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.events;
+
+import com.gkenna.tullamoreqa.domain.events.ChangeEvent;
+
+import java.util.List;
+
+/**
+ * Delivers {@link ChangeEvent}s relayed from the outbox to subscribers.
+ * {@link InMemoryChangeEventBus} is used unless another implementation is
+ * selected with <tt>tullamoreqa.events.bus</tt>.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public interface ChangeEventBus {
+    /**
+     * Add a subscriber to every event published from now on.
+     *
+     * @param listener The subscriber.
+     */
+    void subscribe(ChangeEventListener listener);
+
+    /**
+     * Deliver a batch of events to every subscriber.
+     *
+     * @param events Events in the order they were recorded.
+     * @throws RuntimeException If any subscriber failed, in which case the
+     *                          batch should be published again.
+     */
+    void publish(List<ChangeEvent> events);
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.events;
+
+import com.gkenna.tullamoreqa.domain.events.ChangeEvent;
+
+import java.util.List;
+
+/**
+ * Subscriber to the {@link ChangeEventBus}, i.e. a search index, cache,
+ * counter or feed kept up to date from changes.
+ * <p>
+ * Delivery is at least once, a batch is redelivered if any subscriber
+ * failed on it, so handling an event twice must be harmless. Each batch is
+ * of one tenant's changes, delivered with that tenant current, see
+ * {@link com.gkenna.tullamoreqa.core.impl.tenant.Tenants#current()}.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@FunctionalInterface
+public interface ChangeEventListener {
+    /**
+     * Handle a batch of committed changes.
+     *
+     * @param events Events in the order they were recorded.
+     */
+    void onChanges(List<ChangeEvent> events);
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.events;
+
+import com.gkenna.tullamoreqa.domain.events.ChangeEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * {@link ChangeEventBus} that calls every subscriber in this instance
+ * directly, on the thread publishing the batch. A failing subscriber
+ * doesn't stop the others from getting the batch, but the first failure is
+ * rethrown afterwards so the batch is published again.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+@ConditionalOnProperty(name = "tullamoreqa.events.bus",
+        havingValue = "in-memory", matchIfMissing = true)
+public class InMemoryChangeEventBus implements ChangeEventBus {
+
+    /**
+     * In Memory Change Event Bus Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(InMemoryChangeEventBus.class);
+
+    /**
+     * Subscribers, in the order they subscribed.
+     */
+    private final List<ChangeEventListener> listeners =
+            new CopyOnWriteArrayList<>();
+
+    @Override
+    public final void subscribe(final ChangeEventListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public final void publish(final List<ChangeEvent> events) {
+        RuntimeException failure = null;
+        for (ChangeEventListener listener : listeners) {
+            try {
+                listener.onChanges(events);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Subscriber {} failed on {} events.", listener,
+                        events.size(), e);
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.events;
+
+import com.gkenna.tullamoreqa.core.api.repositories.ChangeEventRepository;
+import com.gkenna.tullamoreqa.domain.events.ChangeEvent;
+import com.gkenna.tullamoreqa.domain.events.ChangeType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Records a {@link ChangeEvent} for every change the Services make. It must
+ * be called within the transaction making the change, so the event is
+ * committed or rolled back along with it, and {@link OutboxRelay} later
+ * publishes it.
+ * <p>
+ * Each tenant's changes are recorded in the outbox in its own schema,
+ * which the relay reads for each tenant in turn.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class Outbox {
+
+    /**
+     * Change Event Repository the outbox is kept in.
+     */
+    private final ChangeEventRepository changeEventRepository;
+
+    /**
+     * Constructor that Auto wires the Change Event Repository.
+     *
+     * @param changeEventRepository ChangeEventRepo object.
+     */
+    @Autowired
+    public Outbox(final ChangeEventRepository changeEventRepository) {
+        this.changeEventRepository = changeEventRepository;
+    }
+
+    /**
+     * Record a change to an entity in the current transaction.
+     *
+     * @param type       Type of the entity that changed.
+     * @param id         ID of the entity that changed.
+     * @param changeType What happened to the entity.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public void record(final Class<?> type, final Object id,
+                       final ChangeType changeType) {
+        changeEventRepository.save(new ChangeEvent(type, id, changeType));
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.events;
+
+import com.gkenna.tullamoreqa.core.api.repositories.ChangeEventRepository;
+import com.gkenna.tullamoreqa.core.impl.jobs.JobScheduler;
+import com.gkenna.tullamoreqa.core.impl.jobs.LeaseLostException;
+import com.gkenna.tullamoreqa.core.impl.tenant.TenantRouter;
+import com.gkenna.tullamoreqa.domain.events.ChangeEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Publishes the outbox to the {@link ChangeEventBus}. Every poll the oldest
+ * events are read in batches, published and only then deleted, so an event
+ * is delivered at least once: a batch whose publishing failed, or that was
+ * published just before this instance stopped, is published again.
+ * <p>
+ * With several instances only the one running the background jobs relays,
+ * under the {@link JobScheduler} lease. Each batch is read, published and
+ * deleted in one transaction fenced by the lease, so two instances never
+ * relay the same events at once, and events stay in the order they were
+ * recorded. Each tenant has an outbox in its own schema, relayed in turn
+ * with the tenant current, so subscribers can tell whose events they
+ * are.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class OutboxRelay {
+
+    /**
+     * Outbox Relay Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(OutboxRelay.class);
+
+    /**
+     * Name of the job.
+     */
+    private static final String JOB = "outbox-relay";
+
+    /**
+     * Change Event Repository the outbox is kept in.
+     */
+    private final ChangeEventRepository changeEventRepository;
+
+    /**
+     * Bus events are published to.
+     */
+    private final ChangeEventBus bus;
+
+    /**
+     * Runs each batch in its own transaction.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Runs relaying on one instance at a time.
+     */
+    private final JobScheduler jobs;
+
+    /**
+     * Relays the outbox of each tenant.
+     */
+    private final TenantRouter tenants;
+
+    /**
+     * Maximum number of events published at once.
+     */
+    private final int batchSize;
+
+    /**
+     * Constructor that Auto wires the Change Event Repository, Bus,
+     * Transaction Manager, Job Scheduler and Tenant Router.
+     *
+     * @param changeEventRepository ChangeEventRepo object.
+     * @param bus                   Bus events are published to.
+     * @param transactionManager    Transaction Manager.
+     * @param jobs                  Runs relaying on one instance at a time.
+     * @param tenants               Relays the outbox of each tenant.
+     * @param batchSize             Maximum events published at once.
+     */
+    @Autowired
+    public OutboxRelay(final ChangeEventRepository changeEventRepository,
+                       final ChangeEventBus bus,
+                       final PlatformTransactionManager transactionManager,
+                       final JobScheduler jobs,
+                       final TenantRouter tenants,
+                       @Value("${tullamoreqa.outbox.batch-size:100}")
+                       final int batchSize) {
+        this.changeEventRepository = changeEventRepository;
+        this.bus = bus;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobs = jobs;
+        this.tenants = tenants;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Relay the outbox of every tenant on a fixed delay, if this instance
+     * runs the jobs.
+     */
+    @Scheduled(fixedDelayString = "${tullamoreqa.outbox.poll-millis:500}")
+    public void poll() {
+        jobs.runQuietly(JOB, () -> tenants.forEachTenant(this::relay));
+    }
+
+    /**
+     * Publish and delete batches of events from the outbox of the current
+     * tenant until it is empty or publishing a batch fails.
+     *
+     * @return Number of events relayed.
+     * @throws LeaseLostException If the lease relaying started under was
+     *                            lost.
+     */
+    public int relay() {
+        int relayed = 0;
+        while (true) {
+            final Integer published;
+            try {
+                published = transactionTemplate.execute(status -> {
+                    jobs.fence();
+                    final List<ChangeEvent> batch = changeEventRepository
+                            .findAllByOrderByIdAsc(
+                                    PageRequest.of(0, batchSize));
+                    if (!batch.isEmpty()) {
+                        bus.publish(batch);
+                        changeEventRepository.deleteInBatch(batch);
+                    }
+                    return batch.size();
+                });
+            } catch (LeaseLostException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                LOGGER.warn("Publishing events failed, retrying on the next"
+                        + " poll.", e);
+                break;
+            }
+            relayed += published;
+            if (published < batchSize) {
+                break;
+            }
+        }
+        if (relayed > 0) {
+            LOGGER.debug("Relayed {} events.", relayed);
+        }
+        return relayed;
+    }
+}
@@ -0,0 +1,9 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+/**
+ * Transactional outbox of change events and the bus they are relayed to
+ * subscribers through, off the request path.
+ */
+package com.gkenna.tullamoreqa.core.impl.events;
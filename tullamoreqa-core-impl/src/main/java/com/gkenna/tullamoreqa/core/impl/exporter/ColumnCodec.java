@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.exporter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Encodes and decodes the values of a single column of a row group. A
+ * chunk starts with a bitmap of the null rows, followed by the non-null
+ * values encoded as their {@link ColumnType} says. Dictionary columns are
+ * encoded from and decoded to their dictionary IDs.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+final class ColumnCodec {
+
+    /**
+     * Bits of a value carried by each byte of a variable length number.
+     */
+    private static final int VARINT_BITS = 7;
+
+    /**
+     * Mask of the value bits of a variable length number byte.
+     */
+    private static final int VARINT_MASK = 0x7F;
+
+    /**
+     * Set on every byte of a variable length number but the last.
+     */
+    private static final int VARINT_MORE = 0x80;
+
+    /**
+     * Most bytes a variable length long takes.
+     */
+    private static final int VARINT_MAX_BYTES = 10;
+
+    /**
+     * Utility class, not to be constructed.
+     */
+    private ColumnCodec() {
+    }
+
+    /**
+     * Encode the values of a column.
+     *
+     * @param type   Type of the column.
+     * @param values Values of each row, may contain nulls.
+     * @return The encoded chunk.
+     * @throws IOException Never, as the chunk is encoded in memory.
+     */
+    static byte[] encode(final ColumnType type, final List<Object> values)
+            throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        final BitSet nulls = new BitSet(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i) == null) {
+                nulls.set(i);
+            }
+        }
+        writeBytes(out, nulls.toByteArray());
+
+        switch (type) {
+            case LONG:
+            case TIMESTAMP:
+                long previous = 0;
+                for (Object value : values) {
+                    if (value != null) {
+                        final long current = toLong(value);
+                        writeVarLong(out, zigZag(current - previous));
+                        previous = current;
+                    }
+                }
+                break;
+            case BOOLEAN:
+                final BitSet bits = new BitSet(values.size());
+                for (int i = 0; i < values.size(); i++) {
+                    if (Boolean.TRUE.equals(values.get(i))) {
+                        bits.set(i);
+                    }
+                }
+                writeBytes(out, bits.toByteArray());
+                break;
+            case STRING:
+                for (Object value : values) {
+                    if (value != null) {
+                        writeBytes(out, value.toString()
+                                .getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+                break;
+            case DICTIONARY:
+                for (Object value : values) {
+                    if (value != null) {
+                        writeVarLong(out, (Integer) value);
+                    }
+                }
+                break;
+            case BYTES:
+                for (Object value : values) {
+                    if (value != null) {
+                        writeBytes(out, (byte[]) value);
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown type " + type);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode the values of a column.
+     *
+     * @param type  Type of the column.
+     * @param rows  Number of rows in the chunk.
+     * @param chunk The encoded chunk.
+     * @return Values of each row, Longs, Dates, Booleans, Strings,
+     * dictionary IDs as Integers or byte arrays.
+     * @throws IOException If the chunk is truncated or malformed.
+     */
+    static List<Object> decode(final ColumnType type, final int rows,
+                               final byte[] chunk) throws IOException {
+        final DataInputStream in =
+                new DataInputStream(new ByteArrayInputStream(chunk));
+        final BitSet nulls = BitSet.valueOf(readBytes(in));
+        final List<Object> output = new ArrayList<>(rows);
+
+        switch (type) {
+            case LONG:
+            case TIMESTAMP:
+                long previous = 0;
+                for (int i = 0; i < rows; i++) {
+                    if (nulls.get(i)) {
+                        output.add(null);
+                        continue;
+                    }
+                    previous += unZigZag(readVarLong(in));
+                    output.add(type == ColumnType.TIMESTAMP
+                            ? new Date(previous) : (Object) previous);
+                }
+                break;
+            case BOOLEAN:
+                final BitSet bits = BitSet.valueOf(readBytes(in));
+                for (int i = 0; i < rows; i++) {
+                    output.add(nulls.get(i) ? null : bits.get(i));
+                }
+                break;
+            case STRING:
+                for (int i = 0; i < rows; i++) {
+                    output.add(nulls.get(i) ? null : new String(
+                            readBytes(in), StandardCharsets.UTF_8));
+                }
+                break;
+            case DICTIONARY:
+                for (int i = 0; i < rows; i++) {
+                    output.add(nulls.get(i) ? null
+                            : (Object) Math.toIntExact(readVarLong(in)));
+                }
+                break;
+            case BYTES:
+                for (int i = 0; i < rows; i++) {
+                    output.add(nulls.get(i) ? null : readBytes(in));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown type " + type);
+        }
+        if (in.available() > 0) {
+            throw new IOException("Chunk has " + in.available()
+                    + " trailing bytes.");
+        }
+        return output;
+    }
+
+    /**
+     * Write length prefixed bytes.
+     *
+     * @param out   Destination.
+     * @param bytes The bytes.
+     * @throws IOException If the bytes couldn't be written.
+     */
+    static void writeBytes(final DataOutput out, final byte[] bytes)
+            throws IOException {
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Read length prefixed bytes.
+     *
+     * @param in Source.
+     * @return The bytes.
+     * @throws IOException If the bytes are truncated.
+     */
+    static byte[] readBytes(final DataInput in) throws IOException {
+        final byte[] output = new byte[Math.toIntExact(readVarLong(in))];
+        in.readFully(output);
+        return output;
+    }
+
+    /**
+     * Write a non-negative number in as few bytes as it needs.
+     *
+     * @param out   Destination.
+     * @param value The number.
+     * @throws IOException If the number couldn't be written.
+     */
+    static void writeVarLong(final DataOutput out, final long value)
+            throws IOException {
+        long remaining = value;
+        while ((remaining & ~VARINT_MASK) != 0) {
+            out.writeByte((int) (remaining & VARINT_MASK) | VARINT_MORE);
+            remaining >>>= VARINT_BITS;
+        }
+        out.writeByte((int) remaining);
+    }
+
+    /**
+     * Read a number written by {@link #writeVarLong(DataOutput, long)}.
+     *
+     * @param in Source.
+     * @return The number.
+     * @throws IOException If the number is truncated or too long.
+     */
+    static long readVarLong(final DataInput in) throws IOException {
+        long output = 0;
+        for (int i = 0; i < VARINT_MAX_BYTES; i++) {
+            final int b = in.readUnsignedByte();
+            output |= (long) (b & VARINT_MASK) << (i * VARINT_BITS);
+            if ((b & VARINT_MORE) == 0) {
+                return output;
+            }
+        }
+        throw new IOException("Malformed variable length number.");
+    }
+
+    /**
+     * Map a signed number onto an unsigned one, small either side of zero.
+     *
+     * @param value Signed number.
+     * @return Unsigned number.
+     */
+    private static long zigZag(final long value) {
+        return (value << 1) ^ (value >> (Long.SIZE - 1));
+    }
+
+    /**
+     * Reverse {@link #zigZag(long)}.
+     *
+     * @param value Unsigned number.
+     * @return Signed number.
+     */
+    private static long unZigZag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Return a number or point in time as a long.
+     *
+     * @param value A Number or Date.
+     * @return The long, epoch millis for Dates.
+     */
+    private static long toLong(final Object value) {
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        }
+        return ((Number) value).longValue();
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.exporter;
+
+/**
+ * ColumnType Enum. Specifies how the values of a column of an export file
+ * are encoded. Every type may hold nulls.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public enum ColumnType {
+
+    /**
+     * Whole numbers, written as zig-zag variable length deltas from the
+     * previous value, so ascending IDs take a byte or two each.
+     */
+    LONG,
+
+    /**
+     * Points in time, written as {@link #LONG}s of epoch millis.
+     */
+    TIMESTAMP,
+
+    /**
+     * Booleans, written as a bitmap.
+     */
+    BOOLEAN,
+
+    /**
+     * Free text, written as length prefixed UTF-8.
+     */
+    STRING,
+
+    /**
+     * Often repeated text, such as usernames and Tag names, written as
+     * variable length IDs into the dictionary of the file.
+     */
+    DICTIONARY,
+
+    /**
+     * Opaque binary values, such as archived Questions, written as length
+     * prefixed bytes.
+     */
+    BYTES
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.exporter;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads an export file written by {@link ColumnarWriter} front to back,
+ * checking the checksum of every column chunk and that every dictionary ID
+ * and row count is consistent. Reading a file without a row handler just
+ * verifies it.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ * @see ColumnarWriter
+ */
+public final class ColumnarReader {
+
+    /**
+     * Utility class, not to be constructed.
+     */
+    private ColumnarReader() {
+    }
+
+    /**
+     * Read every table of an export file.
+     *
+     * @param source The file, compressed.
+     * @param rows   Called with the table name and values of every row,
+     *               dictionary values resolved. May be null.
+     * @return Row counts by table, in the order read.
+     * @throws IOException If the file is truncated, corrupt or
+     *                     inconsistent.
+     */
+    public static Map<String, Long> read(
+            final InputStream source,
+            final BiConsumer<String, Object[]> rows) throws IOException {
+        return read(source, rows, null);
+    }
+
+    /**
+     * Read every table of an export file, along with the checksum of its
+     * column chunks, to compare with {@link ColumnarWriter#getChecksums()}.
+     *
+     * @param source    The file, compressed.
+     * @param rows      Called with the table name and values of every row,
+     *                  dictionary values resolved. May be null.
+     * @param checksums Filled with the checksum of the CRC32s of the
+     *                  chunks by table. May be null.
+     * @return Row counts by table, in the order read.
+     * @throws IOException If the file is truncated, corrupt or
+     *                     inconsistent.
+     */
+    public static Map<String, Long> read(
+            final InputStream source,
+            final BiConsumer<String, Object[]> rows,
+            final Map<String, Long> checksums) throws IOException {
+        final DataInputStream in =
+                new DataInputStream(new GZIPInputStream(source));
+        if (in.readInt() != ColumnarWriter.MAGIC) {
+            throw new IOException("Not an export file.");
+        }
+        final int version = in.readInt();
+        if (version != ColumnarWriter.FORMAT_VERSION) {
+            throw new IOException("Unsupported export format " + version);
+        }
+
+        final List<String> dictionary = new ArrayList<>();
+        final Map<String, Long> output = new LinkedHashMap<>();
+        int marker = in.readUnsignedByte();
+        while (marker == ColumnarWriter.TABLE) {
+            final String table = readString(in);
+            final int columnCount = Math.toIntExact(
+                    ColumnCodec.readVarLong(in));
+            final ColumnType[] types = new ColumnType[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                readString(in);
+                types[i] = ColumnType.values()[in.readUnsignedByte()];
+            }
+
+            long tableRows = 0;
+            final CRC32 checksum = new CRC32();
+            marker = in.readUnsignedByte();
+            while (marker == ColumnarWriter.ROW_GROUP) {
+                tableRows += readRowGroup(in, table, types, dictionary,
+                        checksum, rows);
+                marker = in.readUnsignedByte();
+            }
+            if (marker != ColumnarWriter.END_TABLE
+                    || ColumnCodec.readVarLong(in) != tableRows) {
+                throw new IOException("Table " + table
+                        + " ends inconsistently.");
+            }
+            output.put(table, tableRows);
+            if (checksums != null) {
+                checksums.put(table, checksum.getValue());
+            }
+            marker = in.readUnsignedByte();
+        }
+        if (marker != ColumnarWriter.END
+                || ColumnCodec.readVarLong(in) != dictionary.size()) {
+            throw new IOException("Export file ends inconsistently.");
+        }
+        return output;
+    }
+
+    /**
+     * Read, check and hand on a single row group.
+     *
+     * @param in         Source.
+     * @param table      Name of the table.
+     * @param types      Types of its columns.
+     * @param dictionary Dictionary read so far, extended by the group.
+     * @param checksum   Checksum of the chunks of the table, extended by
+     *                   the group.
+     * @param rows       Row handler, may be null.
+     * @return Rows in the group.
+     * @throws IOException If the group is truncated or corrupt.
+     */
+    private static int readRowGroup(final DataInputStream in,
+                                    final String table,
+                                    final ColumnType[] types,
+                                    final List<String> dictionary,
+                                    final CRC32 checksum,
+                                    final BiConsumer<String, Object[]> rows)
+            throws IOException {
+        final long newEntries = ColumnCodec.readVarLong(in);
+        for (long i = 0; i < newEntries; i++) {
+            dictionary.add(readString(in));
+        }
+
+        final int count = Math.toIntExact(ColumnCodec.readVarLong(in));
+        final List<List<Object>> columns = new ArrayList<>(types.length);
+        final CRC32 crc = new CRC32();
+        for (ColumnType type : types) {
+            final byte[] chunk = new byte[Math.toIntExact(
+                    ColumnCodec.readVarLong(in))];
+            final long expected = in.readLong();
+            in.readFully(chunk);
+            crc.reset();
+            crc.update(chunk);
+            if (crc.getValue() != expected) {
+                throw new IOException("Checksum mismatch in " + table);
+            }
+            ColumnarWriter.addChunk(checksum, expected);
+            columns.add(ColumnCodec.decode(type, count, chunk));
+        }
+
+        for (int row = 0; row < count; row++) {
+            final Object[] values = new Object[types.length];
+            for (int i = 0; i < types.length; i++) {
+                Object value = columns.get(i).get(row);
+                if (types[i] == ColumnType.DICTIONARY && value != null) {
+                    final int id = (Integer) value;
+                    if (id >= dictionary.size()) {
+                        throw new IOException("Unknown dictionary ID " + id
+                                + " in " + table);
+                    }
+                    value = dictionary.get(id);
+                }
+                values[i] = value;
+            }
+            if (rows != null) {
+                rows.accept(table, values);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Read length prefixed UTF-8.
+     *
+     * @param in Source.
+     * @return The string.
+     * @throws IOException If it is truncated.
+     */
+    private static String readString(final DataInputStream in)
+            throws IOException {
+        return new String(ColumnCodec.readBytes(in), StandardCharsets.UTF_8);
+    }
+}
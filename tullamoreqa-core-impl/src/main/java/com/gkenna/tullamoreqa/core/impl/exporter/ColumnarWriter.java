@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.exporter;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes tables to a gzip compressed, column-oriented export file. Rows are
+ * buffered into row groups, and each row group is written a column at a
+ * time, so similar values sit together and compress well. Memory is bound
+ * by the row group size, not by the size of the table.
+ * <p>
+ * {@link ColumnType#DICTIONARY} columns share one dictionary per file.
+ * Each row group starts with the dictionary entries first used in it, so a
+ * file can be read front to back in one pass.
+ * <p>
+ * Layout, inside the gzip stream:
+ * <pre>
+ * int MAGIC, int FORMAT_VERSION
+ * per table:  TABLE, name, columns, (name, type) per column
+ *   per row group: ROW_GROUP, new dictionary entries, rows,
+ *                  (length, CRC32, chunk) per column
+ *   END_TABLE, total rows
+ * END, dictionary size
+ * </pre>
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ * @see ColumnarReader
+ */
+public final class ColumnarWriter implements Closeable {
+
+    /**
+     * Marks the start of an export file, 'TQAX'.
+     */
+    static final int MAGIC = 0x54514158;
+
+    /**
+     * Version of the export format.
+     */
+    static final int FORMAT_VERSION = 1;
+
+    /**
+     * Marks the end of the file.
+     */
+    static final int END = 0;
+
+    /**
+     * Marks the start of a table.
+     */
+    static final int TABLE = 1;
+
+    /**
+     * Marks the start of a row group.
+     */
+    static final int ROW_GROUP = 2;
+
+    /**
+     * Marks the end of a table.
+     */
+    static final int END_TABLE = 3;
+
+    /**
+     * Destination, compressed.
+     */
+    private final DataOutputStream out;
+
+    /**
+     * Rows buffered per row group at most.
+     */
+    private final int rowGroupSize;
+
+    /**
+     * Dictionary IDs of every dictionary value written so far.
+     */
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    /**
+     * Dictionary values first used in the buffered row group.
+     */
+    private final List<String> newEntries = new ArrayList<>();
+
+    /**
+     * Rows written, by table.
+     */
+    private final Map<String, Long> rowCounts = new LinkedHashMap<>();
+
+    /**
+     * Checksum of the CRC32s of every column chunk written, by table.
+     */
+    private final Map<String, CRC32> checksums = new LinkedHashMap<>();
+
+    /**
+     * Name of the table being written, null between tables.
+     */
+    private String table;
+
+    /**
+     * Types of the columns of the table being written.
+     */
+    private ColumnType[] types;
+
+    /**
+     * Buffered values of the row group, by column.
+     */
+    private List<List<Object>> columns;
+
+    /**
+     * Rows buffered in the row group.
+     */
+    private int buffered;
+
+    /**
+     * Start an export file.
+     *
+     * @param destination  Where the file is written, closed with this.
+     * @param rowGroupSize Rows buffered per row group at most.
+     * @throws IOException If the header couldn't be written.
+     */
+    public ColumnarWriter(final OutputStream destination,
+                          final int rowGroupSize) throws IOException {
+        this.out = new DataOutputStream(new GZIPOutputStream(destination));
+        this.rowGroupSize = rowGroupSize;
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+    }
+
+    /**
+     * Start a table.
+     *
+     * @param name        Name of the table.
+     * @param columnNames Names of its columns.
+     * @param columnTypes Types of its columns, in the same order.
+     * @throws IOException If the table header couldn't be written.
+     */
+    public void startTable(final String name, final String[] columnNames,
+                           final ColumnType[] columnTypes)
+            throws IOException {
+        if (table != null) {
+            throw new IllegalStateException(table + " was not ended.");
+        }
+        if (columnNames.length != columnTypes.length) {
+            throw new IllegalArgumentException("Every column needs a type.");
+        }
+        table = name;
+        types = columnTypes.clone();
+        columns = new ArrayList<>(types.length);
+        for (int i = 0; i < types.length; i++) {
+            columns.add(new ArrayList<>(rowGroupSize));
+        }
+        buffered = 0;
+
+        out.writeByte(TABLE);
+        writeString(name);
+        ColumnCodec.writeVarLong(out, types.length);
+        for (int i = 0; i < types.length; i++) {
+            writeString(columnNames[i]);
+            out.writeByte(types[i].ordinal());
+        }
+    }
+
+    /**
+     * Add a row to the table being written.
+     *
+     * @param values Value of each column, nulls allowed. Dictionary
+     *               columns take Strings.
+     * @throws IOException If a full row group couldn't be written.
+     */
+    public void addRow(final Object[] values) throws IOException {
+        if (values.length != types.length) {
+            throw new IllegalArgumentException("Expected " + types.length
+                    + " values, got " + values.length);
+        }
+        for (int i = 0; i < values.length; i++) {
+            columns.get(i).add(types[i] == ColumnType.DICTIONARY
+                    ? dictionaryId(values[i]) : values[i]);
+        }
+        buffered++;
+        if (buffered >= rowGroupSize) {
+            writeRowGroup();
+        }
+    }
+
+    /**
+     * End the table being written.
+     *
+     * @throws IOException If the last row group couldn't be written.
+     */
+    public void endTable() throws IOException {
+        if (buffered > 0) {
+            writeRowGroup();
+        }
+        out.writeByte(END_TABLE);
+        ColumnCodec.writeVarLong(out, rowCounts.getOrDefault(table, 0L));
+        rowCounts.putIfAbsent(table, 0L);
+        checksums.putIfAbsent(table, new CRC32());
+        table = null;
+    }
+
+    /**
+     * Return the rows written so far.
+     *
+     * @return Row counts by table, in the order written.
+     */
+    public Map<String, Long> getRowCounts() {
+        return new LinkedHashMap<>(rowCounts);
+    }
+
+    /**
+     * Return a checksum of the column chunks written so far, which tells
+     * whether every chunk read back is the chunk written.
+     *
+     * @return Checksum of the CRC32s of the chunks by table, in the order
+     * written.
+     */
+    public Map<String, Long> getChecksums() {
+        final Map<String, Long> output = new LinkedHashMap<>();
+        checksums.forEach((name, checksum) ->
+                output.put(name, checksum.getValue()));
+        return output;
+    }
+
+    /**
+     * Add the CRC32 of a column chunk to the checksum of its table.
+     *
+     * @param checksum Checksum of the chunks of the table so far.
+     * @param crc      CRC32 of the chunk.
+     */
+    static void addChunk(final CRC32 checksum, final long crc) {
+        for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+            checksum.update((int) (crc >>> shift));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.writeByte(END);
+            ColumnCodec.writeVarLong(out, dictionary.size());
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Return the dictionary ID of a value, adding it if it is new.
+     *
+     * @param value The value, may be null.
+     * @return Its dictionary ID, or null for null.
+     */
+    private Integer dictionaryId(final Object value) {
+        if (value == null) {
+            return null;
+        }
+        final String key = value.toString();
+        Integer id = dictionary.get(key);
+        if (id == null) {
+            id = dictionary.size();
+            dictionary.put(key, id);
+            newEntries.add(key);
+        }
+        return id;
+    }
+
+    /**
+     * Write the buffered row group, a column at a time.
+     *
+     * @throws IOException If the row group couldn't be written.
+     */
+    private void writeRowGroup() throws IOException {
+        out.writeByte(ROW_GROUP);
+        ColumnCodec.writeVarLong(out, newEntries.size());
+        for (String entry : newEntries) {
+            writeString(entry);
+        }
+        newEntries.clear();
+
+        ColumnCodec.writeVarLong(out, buffered);
+        final CRC32 crc = new CRC32();
+        final CRC32 checksum =
+                checksums.computeIfAbsent(table, name -> new CRC32());
+        for (int i = 0; i < types.length; i++) {
+            final byte[] chunk = ColumnCodec.encode(types[i], columns.get(i));
+            crc.reset();
+            crc.update(chunk);
+            ColumnCodec.writeVarLong(out, chunk.length);
+            out.writeLong(crc.getValue());
+            out.write(chunk);
+            addChunk(checksum, crc.getValue());
+            columns.get(i).clear();
+        }
+        rowCounts.merge(table, (long) buffered, Long::sum);
+        buffered = 0;
+    }
+
+    /**
+     * Write length prefixed UTF-8.
+     *
+     * @param value The string.
+     * @throws IOException If it couldn't be written.
+     */
+    private void writeString(final String value) throws IOException {
+        ColumnCodec.writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.exporter;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Exports every Tag, Question, Answer and Vote, the Votes compacted into
+ * rollups and ballots, and every archived Question to a {@link ColumnarWriter
+ * columnar file}, all read in one read-only, repeatable read transaction so
+ * the export is a consistent snapshot even while the instance takes writes.
+ * <p>
+ * Each table is read with a forward only cursor and a fetch size, so rows
+ * are streamed from the Database into row groups and never all held in
+ * memory. Tag names, usernames and vote types are dictionary encoded.
+ * <p>
+ * Questions archived by the {@link
+ * com.gkenna.tullamoreqa.core.impl.archive.QuestionArchive}, along with
+ * their Answers, Comments and Votes, are exported as the compressed
+ * payload they are archived as, one row each, which the archive reads.
+ * The rollup, ballot and archive tables have no entities, so are read
+ * with SQL rather than HQL.
+ * <p>
+ * The file is written next to its destination and only moved into place
+ * once it has been read back, every column chunk matching its CRC32, and
+ * found to hold every row and every chunk written.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class SnapshotExporter {
+
+    /**
+     * Snapshot Exporter Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(SnapshotExporter.class);
+
+    /**
+     * Suffix of the file being written.
+     */
+    private static final String TMP_SUFFIX = ".tmp";
+
+    /**
+     * Tables exported, in order.
+     */
+    private static final Table[] TABLES = {
+            new Table("tags",
+                    "select t.name, t.description, t.version from Tag t"
+                            + " order by t.name",
+                    new String[]{"name", "description", "version"},
+                    new ColumnType[]{ColumnType.DICTIONARY,
+                            ColumnType.STRING, ColumnType.LONG}),
+            new Table("questions",
+                    "select q.id, q.title, q.body, u.username, q.createdAt,"
+                            + " q.lastUpdatedAt, q.version from Question q"
+                            + " left join q.createdBy u order by q.id",
+                    new String[]{"id", "title", "body", "created_by",
+                            "created_at", "last_updated_at", "version"},
+                    new ColumnType[]{ColumnType.LONG, ColumnType.STRING,
+                            ColumnType.STRING, ColumnType.DICTIONARY,
+                            ColumnType.TIMESTAMP, ColumnType.TIMESTAMP,
+                            ColumnType.LONG}),
+            new Table("question_tags",
+                    "select q.id, t.name from Question q join q.tags t"
+                            + " order by q.id, t.name",
+                    new String[]{"question_id", "tag"},
+                    new ColumnType[]{ColumnType.LONG,
+                            ColumnType.DICTIONARY}),
+            new Table("answers",
+                    "select a.id, a.question.id, u.username, a.body,"
+                            + " a.chosenAnswer, a.createdAt, a.version"
+                            + " from Answer a left join a.createdBy u"
+                            + " order by a.id",
+                    new String[]{"id", "question_id", "created_by", "body",
+                            "chosen", "created_at", "version"},
+                    new ColumnType[]{ColumnType.LONG, ColumnType.LONG,
+                            ColumnType.DICTIONARY, ColumnType.STRING,
+                            ColumnType.BOOLEAN, ColumnType.TIMESTAMP,
+                            ColumnType.LONG}),
+            new Table("votes",
+                    "select v.id, v.entry.id, u.username, v.voteType,"
+                            + " v.voteCastDate from Vote v"
+                            + " left join v.voteCastBy u order by v.id",
+                    new String[]{"id", "entry_id", "cast_by", "type",
+                            "cast_at"},
+                    new ColumnType[]{ColumnType.LONG, ColumnType.LONG,
+                            ColumnType.DICTIONARY, ColumnType.DICTIONARY,
+                            ColumnType.TIMESTAMP}),
+            new Table("vote_rollups",
+                    "SELECT entry_id, upvotes, downvotes FROM vote_rollups"
+                            + " ORDER BY entry_id", true,
+                    new String[]{"entry_id", "upvotes", "downvotes"},
+                    new ColumnType[]{ColumnType.LONG, ColumnType.LONG,
+                            ColumnType.LONG}),
+            new Table("vote_ballots",
+                    "SELECT entry_id, cast_by_user_username, vote_value"
+                            + " FROM vote_ballots"
+                            + " ORDER BY entry_id, cast_by_user_username",
+                    true, new String[]{"entry_id", "cast_by", "value"},
+                    new ColumnType[]{ColumnType.LONG,
+                            ColumnType.DICTIONARY, ColumnType.LONG}),
+            new Table("question_archive",
+                    "SELECT question_id, archived_at, payload"
+                            + " FROM question_archive ORDER BY question_id",
+                    true, new String[]{"question_id", "archived_at",
+                            "payload"},
+                    new ColumnType[]{ColumnType.LONG, ColumnType.TIMESTAMP,
+                            ColumnType.BYTES}),
+    };
+
+    /**
+     * Entity Manager bound to the current transaction.
+     */
+    private final EntityManager entityManager;
+
+    /**
+     * Runs the export in one read-only, repeatable read transaction.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Is an export running.
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Rows fetched from the Database per round trip.
+     */
+    @Value("${tullamoreqa.export.fetch-size:1000}")
+    private int fetchSize;
+
+    /**
+     * Rows per row group.
+     */
+    @Value("${tullamoreqa.export.row-group-size:65536}")
+    private int rowGroupSize;
+
+    /**
+     * Constructor that Auto wires the Entity Manager Factory and
+     * Transaction Manager.
+     *
+     * @param entityManagerFactory Entity Manager Factory.
+     * @param transactionManager   Transaction Manager.
+     */
+    @Autowired
+    public SnapshotExporter(final EntityManagerFactory entityManagerFactory,
+                            final PlatformTransactionManager
+                                    transactionManager) {
+        this.entityManager = SharedEntityManagerCreator
+                .createSharedEntityManager(entityManagerFactory);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.transactionTemplate.setIsolationLevel(
+                TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Export a snapshot, replacing any file already at the destination.
+     *
+     * @param file Destination.
+     * @return Rows exported by table, or null if an export is already
+     * running.
+     * @throws IOException If the file couldn't be written or didn't read
+     *                     back as written.
+     */
+    public Map<String, Long> export(final Path file) throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        final Path tmp = file.resolveSibling(file.getFileName() + TMP_SUFFIX);
+        try {
+            final long start = System.currentTimeMillis();
+            final Map<String, Long> writtenChecksums = new LinkedHashMap<>();
+            final Map<String, Long> written = write(tmp, writtenChecksums);
+            final Map<String, Long> readChecksums = new LinkedHashMap<>();
+            final Map<String, Long> read;
+            try (InputStream in = Files.newInputStream(tmp)) {
+                read = ColumnarReader.read(in, null, readChecksums);
+            }
+            if (!read.equals(written)) {
+                throw new IOException("Export read back " + read
+                        + " but wrote " + written);
+            }
+            if (!readChecksums.equals(writtenChecksums)) {
+                throw new IOException("Export read back chunks "
+                        + readChecksums + " but wrote " + writtenChecksums);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.info("Exported {} to {} in {}ms.", written, file,
+                    System.currentTimeMillis() - start);
+            return written;
+        } finally {
+            Files.deleteIfExists(tmp);
+            running.set(false);
+        }
+    }
+
+    /**
+     * Write every table within the snapshot transaction.
+     *
+     * @param file      Destination.
+     * @param checksums Filled with the checksum of the column chunks
+     *                  written by table.
+     * @return Rows written by table.
+     * @throws IOException If the file couldn't be written.
+     */
+    private Map<String, Long> write(final Path file,
+                                    final Map<String, Long> checksums)
+            throws IOException {
+        try (OutputStream out = new BufferedOutputStream(
+                Files.newOutputStream(file));
+             ColumnarWriter writer = new ColumnarWriter(out, rowGroupSize)) {
+            transactionTemplate.execute(status -> {
+                final Session session = entityManager.unwrap(Session.class);
+                for (Table table : TABLES) {
+                    try {
+                        writeTable(session, table, writer);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return null;
+            });
+            checksums.putAll(writer.getChecksums());
+            return writer.getRowCounts();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Stream a single table from the Database into the file.
+     *
+     * @param session Session of the snapshot transaction.
+     * @param table   The table.
+     * @param writer  Destination.
+     * @throws IOException If the table couldn't be written.
+     */
+    private void writeTable(final Session session, final Table table,
+                            final ColumnarWriter writer) throws IOException {
+        writer.startTable(table.name, table.columns, table.types);
+        final Query<?> query = table.sql
+                ? session.createNativeQuery(table.query)
+                : session.createQuery(table.query);
+        final ScrollableResults results = query
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (results.next()) {
+                final Object[] row = results.get();
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = writable(row[i]);
+                }
+                writer.addRow(row);
+            }
+        } finally {
+            results.close();
+        }
+        writer.endTable();
+    }
+
+    /**
+     * Return a value read from the Database as the file holds it, enums by
+     * name and BLOBs as the bytes they hold.
+     *
+     * @param value The value read.
+     * @return The value to write.
+     * @throws IOException If a BLOB couldn't be read.
+     */
+    private static Object writable(final Object value) throws IOException {
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        if (value instanceof Blob) {
+            try {
+                final Blob blob = (Blob) value;
+                return blob.getBytes(1, Math.toIntExact(blob.length()));
+            } catch (SQLException e) {
+                throw new IOException("Couldn't read a BLOB.", e);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * A table of the export and the query reading it.
+     */
+    private static final class Table {
+
+        /**
+         * Name of the table in the file.
+         */
+        private final String name;
+
+        /**
+         * HQL projection, or SQL query, reading its rows.
+         */
+        private final String query;
+
+        /**
+         * Is the query SQL.
+         */
+        private final boolean sql;
+
+        /**
+         * Names of its columns, in projection order.
+         */
+        private final String[] columns;
+
+        /**
+         * Types of its columns, in projection order.
+         */
+        private final ColumnType[] types;
+
+        /**
+         * Constructor of a table read with HQL.
+         *
+         * @param name    Name of the table in the file.
+         * @param query   HQL projection reading its rows.
+         * @param columns Names of its columns.
+         * @param types   Types of its columns.
+         */
+        private Table(final String name, final String query,
+                      final String[] columns, final ColumnType[] types) {
+            this(name, query, false, columns, types);
+        }
+
+        /**
+         * Constructor.
+         *
+         * @param name    Name of the table in the file.
+         * @param query   HQL projection or SQL query reading its rows.
+         * @param sql     Is the query SQL.
+         * @param columns Names of its columns.
+         * @param types   Types of its columns.
+         */
+        private Table(final String name, final String query,
+                      final boolean sql, final String[] columns,
+                      final ColumnType[] types) {
+            this.name = name;
+            this.query = query;
+            this.sql = sql;
+            this.columns = columns;
+            this.types = types;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+/**
+ * Consistent snapshot export to a compressed, column-oriented file for
+ * analytics and backups.
+ */
+package com.gkenna.tullamoreqa.core.impl.exporter;
@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gkenna.tullamoreqa.core.impl.tenant.Tenants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Callable;
+
+/**
+ * Answers requests bearing an <tt>Idempotency-Key</tt> header once, and
+ * repeats of them with the response to the first. A repeat arriving while
+ * the first is still being answered waits for it, rather than doing its
+ * work a second time.
+ * <p>
+ * Keys are kept per tenant and endpoint, in memory or, with
+ * <tt>tullamoreqa.idempotency.store=database</tt>, in the Database, where
+ * every instance sees them. Only responses that aren't server errors are
+ * kept; a request that fails releases its key, for the client to retry.
+ * <p>
+ * Along with its key, each request is known by a fingerprint of its
+ * method, path and body. A request bearing the key of one that asked for
+ * something else is refused with a 422, rather than answered with the
+ * response to the other.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class Idempotency {
+
+    /**
+     * Header bearing the key.
+     */
+    public static final String HEADER = "Idempotency-Key";
+
+    /**
+     * Longest key a client may send.
+     */
+    public static final int MAX_KEY_LENGTH = 128;
+
+    /**
+     * Idempotency Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(Idempotency.class);
+
+    /**
+     * Prefix of every setting.
+     */
+    private static final String PREFIX = "tullamoreqa.idempotency.";
+
+    /**
+     * Store keeping keys in the Database.
+     */
+    private static final String DATABASE = "database";
+
+    /**
+     * Default most keys kept in memory.
+     */
+    private static final int DEFAULT_MAX_KEYS = 10000;
+
+    /**
+     * Default time to live of a key, in millis.
+     */
+    private static final long DEFAULT_TTL_MILLIS = 86400000;
+
+    /**
+     * Default time a claim may go without a response, in millis.
+     */
+    private static final long DEFAULT_LEASE_MILLIS = 60000;
+
+    /**
+     * Default time between reads of a key claimed elsewhere, in millis.
+     */
+    private static final long DEFAULT_POLL_MILLIS = 50;
+
+    /**
+     * Default time a repeat waits for the first request, in millis.
+     */
+    private static final long DEFAULT_WAIT_MILLIS = 10000;
+
+    /**
+     * Status from which a response is a server error.
+     */
+    private static final int SERVER_ERROR = 500;
+
+    /**
+     * Keeps the keys.
+     */
+    private final IdempotencyStore store;
+
+    /**
+     * Writes the bodies of requests, to fingerprint them.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * How long a repeat waits for the first request, in millis.
+     */
+    private final long waitMillis;
+
+    /**
+     * Create an Idempotency, keeping keys where its settings say.
+     *
+     * @param environment  Settings of this instance.
+     * @param jdbcTemplate JDBC Template, for keys kept in the Database.
+     * @param objectMapper Writes the bodies of requests.
+     */
+    @Autowired
+    public Idempotency(final Environment environment,
+                       final JdbcTemplate jdbcTemplate,
+                       final ObjectMapper objectMapper) {
+        this(createStore(environment, jdbcTemplate),
+                environment.getProperty(PREFIX + "wait-millis", Long.class,
+                        DEFAULT_WAIT_MILLIS), objectMapper);
+    }
+
+    /**
+     * Create an Idempotency.
+     *
+     * @param store        Keeps the keys.
+     * @param waitMillis   How long a repeat waits for the first request, in
+     *                     millis.
+     * @param objectMapper Writes the bodies of requests.
+     */
+    public Idempotency(final IdempotencyStore store, final long waitMillis,
+                       final ObjectMapper objectMapper) {
+        this.store = store;
+        this.waitMillis = waitMillis;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Return the key a request is known by, which is the key it bears
+     * qualified by its tenant and endpoint. To be called on the thread
+     * the request arrived on.
+     *
+     * @param endpoint Name of the endpoint, i.e. 'question'.
+     * @param header   Key the request bears, null if none.
+     * @return Qualified key, null if it bears none.
+     * @throws InvalidIdempotencyKeyException If the key is empty or
+     *                                        longer than
+     *                                        {@value #MAX_KEY_LENGTH}.
+     */
+    public String keyOf(final String endpoint, final String header) {
+        if (header == null) {
+            return null;
+        }
+        if (header.trim().isEmpty() || header.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException(HEADER + " must be 1 to "
+                    + MAX_KEY_LENGTH + " characters.");
+        }
+        return Tenants.current() + ":" + endpoint + ":" + header;
+    }
+
+    /**
+     * Return the fingerprint of a request bearing a key, a hex SHA-256 of
+     * its method, path and body as read. To be called on the thread the
+     * request arrived on.
+     *
+     * @param key  Key from {@link #keyOf(String, String)}.
+     * @param body Body of the request.
+     * @return The fingerprint, null if it bears no key.
+     */
+    public String fingerprintOf(final String key, final Object body) {
+        if (key == null) {
+            return null;
+        }
+        final StringBuilder request = new StringBuilder();
+        final RequestAttributes attributes =
+                RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            final HttpServletRequest servletRequest =
+                    ((ServletRequestAttributes) attributes).getRequest();
+            request.append(servletRequest.getMethod()).append(' ')
+                    .append(servletRequest.getRequestURI());
+        }
+        request.append('\n');
+        try {
+            request.append(objectMapper.writeValueAsString(body));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot fingerprint the body"
+                    + " of " + key + ".", e);
+        }
+        return digest(request.toString());
+    }
+
+    /**
+     * Answer a request, once per key.
+     *
+     * @param key         Key from {@link #keyOf(String, String)}, null to
+     *                    answer it regardless.
+     * @param fingerprint Fingerprint from
+     *                    {@link #fingerprintOf(String, Object)}.
+     * @param call        Answers the request.
+     * @return Its response, or the response to the first request with the
+     * key.
+     * @throws IdempotencyConflictException If the first request with the
+     *                                      key is still being answered
+     *                                      after waiting.
+     * @throws IdempotencyMismatchException If the first request with the
+     *                                      key asked for something else.
+     * @throws Exception                    If answering it failed.
+     */
+    public ResponseEntity<?> execute(final String key,
+                                     final String fingerprint,
+                                     final Callable<ResponseEntity<?>> call)
+            throws Exception {
+        if (key == null) {
+            return call.call();
+        }
+        final StoredResponse stored = store.claim(key, fingerprint,
+                waitMillis);
+        if (stored != null) {
+            LOGGER.debug("Replaying the response to {}.", key);
+            return stored.toResponseEntity();
+        }
+        boolean completed = false;
+        try {
+            final ResponseEntity<?> output = call.call();
+            if (output.getStatusCodeValue() < SERVER_ERROR) {
+                store.complete(key, StoredResponse.of(output));
+                completed = true;
+            }
+            return output;
+        } finally {
+            if (!completed) {
+                store.release(key);
+            }
+        }
+    }
+
+    /**
+     * Forget expired keys on a fixed delay.
+     */
+    @Scheduled(fixedDelayString =
+            "${tullamoreqa.idempotency.purge-millis:60000}")
+    public void purge() {
+        try {
+            final int purged = store.purge();
+            if (purged > 0) {
+                LOGGER.debug("Purged {} idempotency keys.", purged);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to purge idempotency keys.", e);
+        }
+    }
+
+    /**
+     * Return the hex SHA-256 digest of a value.
+     *
+     * @param value The value.
+     * @return 64 hex digits.
+     */
+    private static String digest(final String value) {
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(value.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder output = new StringBuilder();
+            for (byte b : hash) {
+                output.append(String.format("%02x", b));
+            }
+            return output.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Create the store the settings say to.
+     *
+     * @param environment  Settings of this instance.
+     * @param jdbcTemplate JDBC Template, for keys kept in the Database.
+     * @return The store.
+     */
+    private static IdempotencyStore createStore(
+            final Environment environment, final JdbcTemplate jdbcTemplate) {
+        final long ttlMillis = environment.getProperty(PREFIX + "ttl-millis",
+                Long.class, DEFAULT_TTL_MILLIS);
+        if (DATABASE.equals(environment.getProperty(PREFIX + "store"))) {
+            return new JdbcIdempotencyStore(jdbcTemplate, ttlMillis,
+                    environment.getProperty(PREFIX + "lease-millis",
+                            Long.class, DEFAULT_LEASE_MILLIS),
+                    environment.getProperty(PREFIX + "poll-millis",
+                            Long.class, DEFAULT_POLL_MILLIS));
+        }
+        return new InMemoryIdempotencyStore(environment.getProperty(
+                PREFIX + "max-keys", Integer.class, DEFAULT_MAX_KEYS),
+                ttlMillis);
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.idempotency;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a request repeats one with the same idempotency key that is
+ * still being answered after waiting for it.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class IdempotencyConflictException extends RuntimeException {
+    /**
+     * Constructs a <tt>IdempotencyConflictException</tt> with the specified
+     * cause.
+     *
+     * @param message Additional exception information.
+     */
+    public IdempotencyConflictException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.idempotency;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a request bears the idempotency key of an earlier request
+ * that asked for something else, i.e. with another body.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+public class IdempotencyMismatchException extends RuntimeException {
+    /**
+     * Constructs a <tt>IdempotencyMismatchException</tt> with the specified
+     * cause.
+     *
+     * @param message Additional exception information.
+     */
+    public IdempotencyMismatchException(final String message) {
+        super(message);
+    }
+}
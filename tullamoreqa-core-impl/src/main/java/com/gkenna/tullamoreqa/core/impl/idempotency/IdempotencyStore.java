@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.idempotency;
+
+
+/**
+ * Keeps, for a while, the response to each request with an idempotency
+ * key, and which are still being answered.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Claim a key, to answer the request bearing it. If the key is already
+     * claimed, wait for the request bearing it to be answered, claiming
+     * the key if it is released instead.
+     *
+     * @param key         The key.
+     * @param fingerprint What the request bearing it asks for.
+     * @param waitMillis  How long to wait for a request already bearing
+     *                    it.
+     * @return Null if the key was claimed, or the response to the request
+     * that bore it first.
+     * @throws IdempotencyConflictException If the first request is still
+     *                                      being answered after waiting.
+     * @throws IdempotencyMismatchException If the first request asked for
+     *                                      something else.
+     * @throws InterruptedException         If interrupted while waiting.
+     */
+    StoredResponse claim(String key, String fingerprint, long waitMillis)
+            throws InterruptedException;
+
+    /**
+     * Keep the response to the request that claimed a key, for repeats.
+     *
+     * @param key      The key.
+     * @param response The response.
+     */
+    void complete(String key, StoredResponse response);
+
+    /**
+     * Release a key without a response, so a repeat may claim it.
+     *
+     * @param key The key.
+     */
+    void release(String key);
+
+    /**
+     * Forget keys that expired, and claims that were abandoned.
+     *
+     * @return Keys forgotten.
+     */
+    int purge();
+}
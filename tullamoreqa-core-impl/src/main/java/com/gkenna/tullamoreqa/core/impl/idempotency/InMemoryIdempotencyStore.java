@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.idempotency;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link IdempotencyStore} kept in the memory of this instance, so repeats
+ * are only recognised by the instance that answered the first request.
+ * <p>
+ * Responses are kept for a time to live, and only the most recent
+ * maxKeys of them, the oldest being forgotten first.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    /**
+     * Most responses kept.
+     */
+    private final int maxKeys;
+
+    /**
+     * How long a response is kept, in millis.
+     */
+    private final long ttlMillis;
+
+    /**
+     * Responses kept, oldest first.
+     */
+    private final LinkedHashMap<String, Kept> responses;
+
+    /**
+     * Requests being answered, completed with their response once they
+     * are, or with null if their key is released.
+     */
+    private final Map<String, CompletableFuture<StoredResponse>> inFlight =
+            new HashMap<>();
+
+    /**
+     * What the request that claimed each key asked for, while it is being
+     * answered and as long as its response is kept.
+     */
+    private final Map<String, String> fingerprints = new HashMap<>();
+
+    /**
+     * Create an InMemoryIdempotencyStore.
+     *
+     * @param maxKeys   Most responses kept.
+     * @param ttlMillis How long a response is kept, in millis.
+     */
+    public InMemoryIdempotencyStore(final int maxKeys, final long ttlMillis) {
+        if (maxKeys < 1 || ttlMillis < 1) {
+            throw new IllegalArgumentException("Idempotency store needs"
+                    + " room for a key and a time to live.");
+        }
+        this.maxKeys = maxKeys;
+        this.ttlMillis = ttlMillis;
+        this.responses = new LinkedHashMap<String, Kept>() {
+            @Override
+            protected boolean removeEldestEntry(
+                    final Map.Entry<String, Kept> eldest) {
+                if (size() <= InMemoryIdempotencyStore.this.maxKeys) {
+                    return false;
+                }
+                forget(eldest.getKey());
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public StoredResponse claim(final String key, final String fingerprint,
+                                final long waitMillis)
+            throws InterruptedException {
+        final long deadline = now() + waitMillis;
+        while (true) {
+            final CompletableFuture<StoredResponse> theirs;
+            synchronized (this) {
+                final Kept kept = responses.get(key);
+                final boolean claimed = inFlight.containsKey(key)
+                        || kept != null && !isExpired(kept);
+                final String claimedFor = fingerprints.get(key);
+                if (claimed && claimedFor != null
+                        && !claimedFor.equals(fingerprint)) {
+                    throw new IdempotencyMismatchException("Key " + key
+                            + " was used for another request.");
+                }
+                if (kept != null && !isExpired(kept)) {
+                    return kept.response;
+                }
+                theirs = inFlight.get(key);
+                if (theirs == null) {
+                    inFlight.put(key, new CompletableFuture<>());
+                    if (fingerprint == null) {
+                        fingerprints.remove(key);
+                    } else {
+                        fingerprints.put(key, fingerprint);
+                    }
+                    return null;
+                }
+            }
+            final StoredResponse response;
+            try {
+                response = theirs.get(Math.max(0, deadline - now()),
+                        TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                throw new IdempotencyConflictException("Request with key "
+                        + key + " is still being answered.");
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+            if (response != null) {
+                return response;
+            }
+        }
+    }
+
+    @Override
+    public void complete(final String key, final StoredResponse response) {
+        final CompletableFuture<StoredResponse> claim;
+        synchronized (this) {
+            responses.remove(key);
+            responses.put(key, new Kept(response, now()));
+            claim = inFlight.remove(key);
+        }
+        if (claim != null) {
+            claim.complete(response);
+        }
+    }
+
+    @Override
+    public void release(final String key) {
+        final CompletableFuture<StoredResponse> claim;
+        synchronized (this) {
+            claim = inFlight.remove(key);
+            if (!responses.containsKey(key)) {
+                fingerprints.remove(key);
+            }
+        }
+        if (claim != null) {
+            claim.complete(null);
+        }
+    }
+
+    @Override
+    public synchronized int purge() {
+        int purged = 0;
+        final Iterator<String> keys = responses.keySet().iterator();
+        while (keys.hasNext()) {
+            final String key = keys.next();
+            if (!isExpired(responses.get(key))) {
+                break;
+            }
+            keys.remove();
+            forget(key);
+            purged++;
+        }
+        return purged;
+    }
+
+    /**
+     * Return the current time.
+     *
+     * @return Current time, in millis.
+     */
+    protected long now() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Forget what the request that claimed a key asked for, unless the key
+     * is claimed again.
+     *
+     * @param key The key.
+     */
+    private void forget(final String key) {
+        if (!inFlight.containsKey(key)) {
+            fingerprints.remove(key);
+        }
+    }
+
+    /**
+     * Has a response been kept past its time to live.
+     *
+     * @param kept The response.
+     * @return True if it has.
+     */
+    private boolean isExpired(final Kept kept) {
+        return now() - kept.keptAt >= ttlMillis;
+    }
+
+    /**
+     * A response, and when it was kept.
+     */
+    private static final class Kept {
+
+        /**
+         * The response.
+         */
+        private final StoredResponse response;
+
+        /**
+         * When it was kept, in millis.
+         */
+        private final long keptAt;
+
+        /**
+         * Create a Kept.
+         *
+         * @param response The response.
+         * @param keptAt   When it was kept, in millis.
+         */
+        private Kept(final StoredResponse response, final long keptAt) {
+            this.response = response;
+            this.keptAt = keptAt;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.idempotency;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a request bears an idempotency key that is empty or too
+ * long.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidIdempotencyKeyException extends RuntimeException {
+    /**
+     * Constructs a <tt>InvalidIdempotencyKeyException</tt> with the
+     * specified cause.
+     *
+     * @param message Additional exception information.
+     */
+    public InvalidIdempotencyKeyException(final String message) {
+        super(message);
+    }
+}
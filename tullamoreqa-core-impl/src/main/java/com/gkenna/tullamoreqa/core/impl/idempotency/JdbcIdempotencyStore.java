@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.idempotency;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+/**
+ * {@link IdempotencyStore} kept in the <tt>idempotency_keys</tt> table, so
+ * a repeat is recognised whichever instance it reaches.
+ * <p>
+ * A key is claimed by inserting its row, the primary key making sure only
+ * one request can, and completed by filling in its response. A repeat
+ * finding the row without a response polls it until it has one, and one
+ * finding the row of a request that asked for something else is refused
+ * at once. Rows are
+ * purged once their time to live is up, or their lease if never
+ * completed, as the instance that claimed them is taken to have died.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    /**
+     * Claims a key.
+     */
+    private static final String CLAIM = "INSERT INTO idempotency_keys"
+            + " (idempotency_key, request_hash, claimed_at) VALUES (?, ?, ?)";
+
+    /**
+     * Reads the row of a key.
+     */
+    private static final String SELECT = "SELECT status, location,"
+            + " request_hash, claimed_at FROM idempotency_keys"
+            + " WHERE idempotency_key = ?";
+
+    /**
+     * Fills in the response of a key.
+     */
+    private static final String COMPLETE = "UPDATE idempotency_keys"
+            + " SET status = ?, location = ? WHERE idempotency_key = ?";
+
+    /**
+     * Deletes a key not yet completed.
+     */
+    private static final String RELEASE = "DELETE FROM idempotency_keys"
+            + " WHERE idempotency_key = ? AND status IS NULL";
+
+    /**
+     * Deletes a key if it is still the row that was read.
+     */
+    private static final String EXPIRE = "DELETE FROM idempotency_keys"
+            + " WHERE idempotency_key = ? AND claimed_at = ?";
+
+    /**
+     * Deletes expired keys and abandoned claims.
+     */
+    private static final String PURGE = "DELETE FROM idempotency_keys"
+            + " WHERE claimed_at < ? OR (status IS NULL AND claimed_at < ?)";
+
+    /**
+     * Runs the SQL.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * How long a response is kept, in millis.
+     */
+    private final long ttlMillis;
+
+    /**
+     * How long a claim may go without a response, in millis.
+     */
+    private final long leaseMillis;
+
+    /**
+     * Time between reads of a claimed key's row, in millis.
+     */
+    private final long pollMillis;
+
+    /**
+     * Create a JdbcIdempotencyStore.
+     *
+     * @param jdbcTemplate JDBC Template.
+     * @param ttlMillis    How long a response is kept, in millis.
+     * @param leaseMillis  How long a claim may go without a response, in
+     *                     millis.
+     * @param pollMillis   Time between reads of a claimed key's row, in
+     *                     millis.
+     */
+    public JdbcIdempotencyStore(final JdbcTemplate jdbcTemplate,
+                                final long ttlMillis,
+                                final long leaseMillis,
+                                final long pollMillis) {
+        if (ttlMillis < 1 || leaseMillis < 1 || pollMillis < 1) {
+            throw new IllegalArgumentException("Idempotency store needs a"
+                    + " time to live, lease and poll interval.");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlMillis = ttlMillis;
+        this.leaseMillis = leaseMillis;
+        this.pollMillis = pollMillis;
+    }
+
+    @Override
+    public StoredResponse claim(final String key, final String fingerprint,
+                                final long waitMillis)
+            throws InterruptedException {
+        final long deadline = now() + waitMillis;
+        while (true) {
+            try {
+                jdbcTemplate.update(CLAIM, key, fingerprint, now());
+                return null;
+            } catch (DuplicateKeyException e) {
+                // Claimed already, see by whom below.
+            }
+            final SqlRowSet row = jdbcTemplate.queryForRowSet(SELECT, key);
+            if (!row.next()) {
+                continue;
+            }
+            final long claimedAt = row.getLong("claimed_at");
+            final int status = row.getInt("status");
+            final boolean completed = !row.wasNull();
+            final long age = now() - claimedAt;
+            if (age >= ttlMillis || !completed && age >= leaseMillis) {
+                jdbcTemplate.update(EXPIRE, key, claimedAt);
+                continue;
+            }
+            final String claimedFor = row.getString("request_hash");
+            if (claimedFor != null && !claimedFor.equals(fingerprint)) {
+                throw new IdempotencyMismatchException("Key " + key
+                        + " was used for another request.");
+            }
+            if (completed) {
+                return new StoredResponse(status, row.getString("location"));
+            }
+            if (now() >= deadline) {
+                throw new IdempotencyConflictException("Request with key "
+                        + key + " is still being answered.");
+            }
+            Thread.sleep(Math.min(pollMillis,
+                    Math.max(1, deadline - now())));
+        }
+    }
+
+    @Override
+    public void complete(final String key, final StoredResponse response) {
+        jdbcTemplate.update(COMPLETE, response.getStatus(),
+                response.getLocation(), key);
+    }
+
+    @Override
+    public void release(final String key) {
+        jdbcTemplate.update(RELEASE, key);
+    }
+
+    @Override
+    public int purge() {
+        final long now = now();
+        return jdbcTemplate.update(PURGE, now - ttlMillis, now - leaseMillis);
+    }
+
+    /**
+     * Return the current time.
+     *
+     * @return Current time, in millis.
+     */
+    protected long now() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.idempotency;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.net.URI;
+
+/**
+ * What is kept of the response to a request with an idempotency key, to be
+ * replayed to repeats of it. That is its status and Location, all the
+ * endpoints adding Entries and Users answer with.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public final class StoredResponse {
+
+    /**
+     * Header marking a response as a replay.
+     */
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    /**
+     * HTTP status.
+     */
+    private final int status;
+
+    /**
+     * Location header, null if there was none.
+     */
+    private final String location;
+
+    /**
+     * Create a StoredResponse.
+     *
+     * @param status   HTTP status.
+     * @param location Location header, null if there was none.
+     */
+    public StoredResponse(final int status, final String location) {
+        this.status = status;
+        this.location = location;
+    }
+
+    /**
+     * Keep what is replayed of a response.
+     *
+     * @param response The response.
+     * @return What is kept of it.
+     */
+    public static StoredResponse of(final ResponseEntity<?> response) {
+        final URI location = response.getHeaders().getLocation();
+        return new StoredResponse(response.getStatusCodeValue(),
+                location == null ? null : location.toString());
+    }
+
+    /**
+     * Return the HTTP status.
+     *
+     * @return i.e. 201.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Return the Location header.
+     *
+     * @return URI, null if there was none.
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Create the response replayed to a repeat.
+     *
+     * @return The response, marked as a replay.
+     */
+    public ResponseEntity<?> toResponseEntity() {
+        final HttpHeaders headers = new HttpHeaders();
+        if (location != null) {
+            headers.setLocation(URI.create(location));
+        }
+        headers.set(REPLAYED_HEADER, Boolean.TRUE.toString());
+        return new ResponseEntity<String>(headers,
+                HttpStatus.valueOf(status));
+    }
+}
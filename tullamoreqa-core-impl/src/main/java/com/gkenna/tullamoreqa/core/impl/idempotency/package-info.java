@@ -0,0 +1,9 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+/**
+ * Answers a repeated request bearing the same idempotency key with the
+ * response to the first, rather than doing its work twice.
+ */
+package com.gkenna.tullamoreqa.core.impl.idempotency;
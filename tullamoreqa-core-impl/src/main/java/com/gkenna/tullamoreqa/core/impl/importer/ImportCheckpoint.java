@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.importer;
+
+import com.gkenna.tullamoreqa.core.impl.storage.PrivateDirectory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * How far an import of a dump got, so an interrupted import can resume
+ * rather than start over. Along with the last line every earlier line was
+ * written up to, it holds the batches written beyond that line and the
+ * reference maps built so far, which later records are resolved through.
+ * <p>
+ * Only the lines are saved to the checkpoint file, a few fields written
+ * with {@link DataOutputStream} to a {@link PrivateDirectory}. Each batch
+ * and the references it created are recorded in the Database, along with
+ * the batch, by the {@link ImportLedger}, which fills them back in on
+ * resume.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public final class ImportCheckpoint {
+
+    /**
+     * Import Checkpoint Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(ImportCheckpoint.class);
+
+    /**
+     * Marks the start of a checkpoint file, 'TQAI'.
+     */
+    private static final int MAGIC = 0x54514149;
+
+    /**
+     * Version of the checkpoint format.
+     */
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * Absolute path of the dump being imported.
+     */
+    private final String source;
+
+    /**
+     * Size of the dump being imported, in bytes.
+     */
+    private final long size;
+
+    /**
+     * Identifies the dump in the Database, a digest of its path and size.
+     */
+    private final String dump;
+
+    /**
+     * Every line up to and including this one has been written.
+     */
+    private long line;
+
+    /**
+     * Batches written beyond {@link #line}, first line to last line.
+     */
+    private final TreeMap<Long, Long> written = new TreeMap<>();
+
+    /**
+     * Usernames of the Users imported so far.
+     */
+    private final Set<String> usernames = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Names of the Tags imported so far.
+     */
+    private final Set<String> tagNames = ConcurrentHashMap.newKeySet();
+
+    /**
+     * IDs of imported Entries by the ID they had in the dump, per type.
+     */
+    private final Map<RecordType, Map<Long, Long>> entryIds =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Start a checkpoint for a dump imported from the beginning.
+     *
+     * @param source Absolute path of the dump.
+     * @param size   Size of the dump in bytes.
+     */
+    public ImportCheckpoint(final String source, final long size) {
+        this.source = source;
+        this.size = size;
+        this.dump = digest(source + '\n' + size);
+        entryIds.put(RecordType.QUESTION, new ConcurrentHashMap<>());
+        entryIds.put(RecordType.ANSWER, new ConcurrentHashMap<>());
+        entryIds.put(RecordType.COMMENT, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Read the lines written of a dump from its checkpoint file, or start
+     * a new checkpoint if there is no file at path, it is of another dump
+     * or others can write to its directory.
+     *
+     * @param path   Location of the checkpoint file.
+     * @param source Absolute path of the dump.
+     * @param size   Size of the dump in bytes.
+     * @return The checkpoint to resume from.
+     */
+    public static ImportCheckpoint resume(final Path path,
+                                          final String source,
+                                          final long size) {
+        final ImportCheckpoint output = new ImportCheckpoint(source, size);
+        if (!Files.exists(path)) {
+            return output;
+        }
+        try {
+            PrivateDirectory.createFor(path);
+            try (DataInputStream in =
+                         new DataInputStream(Files.newInputStream(path))) {
+                if (in.readInt() != MAGIC
+                        || in.readInt() != FORMAT_VERSION) {
+                    LOGGER.info("{} is not a checkpoint of this version,"
+                            + " ignoring it.", path);
+                    return output;
+                }
+                if (!in.readUTF().equals(source) || in.readLong() != size) {
+                    LOGGER.info("Checkpoint {} is of another dump, ignoring"
+                            + " it.", path);
+                    return output;
+                }
+                output.line = in.readLong();
+                final int batches = in.readInt();
+                for (int i = 0; i < batches; i++) {
+                    output.written(in.readLong(), in.readLong());
+                }
+            }
+            LOGGER.info("Resuming import of {} after line {}.", source,
+                    output.line);
+        } catch (IOException e) {
+            LOGGER.warn("Could not read checkpoint {}, ignoring it.", path,
+                    e);
+        }
+        return output;
+    }
+
+    /**
+     * Write the lines written to a file, replacing any earlier one at
+     * once.
+     *
+     * @param path Location of the checkpoint file.
+     * @throws IOException If the checkpoint couldn't be written.
+     */
+    public void save(final Path path) throws IOException {
+        PrivateDirectory.createFor(path);
+        final Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out =
+                     new DataOutputStream(Files.newOutputStream(tmp))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(source);
+            out.writeLong(size);
+            synchronized (this) {
+                out.writeLong(line);
+                out.writeInt(written.size());
+                for (Map.Entry<Long, Long> batch : written.entrySet()) {
+                    out.writeLong(batch.getKey());
+                    out.writeLong(batch.getValue());
+                }
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Record that a batch of lines was written, moving {@link #line} on
+     * past every batch that now directly follows it.
+     *
+     * @param first First line of the batch.
+     * @param last  Last line of the batch.
+     */
+    public synchronized void written(final long first, final long last) {
+        if (last <= line) {
+            return;
+        }
+        written.put(first, last);
+        while (!written.isEmpty() && written.firstKey() <= line + 1) {
+            line = Math.max(line, written.pollFirstEntry().getValue());
+        }
+    }
+
+    /**
+     * Was a line written before, in this import or an earlier attempt.
+     *
+     * @param lineNumber Number of the line.
+     * @return True if it should be skipped.
+     */
+    public synchronized boolean isWritten(final long lineNumber) {
+        if (lineNumber <= line) {
+            return true;
+        }
+        final Map.Entry<Long, Long> batch = written.floorEntry(lineNumber);
+        return batch != null && batch.getValue() >= lineNumber;
+    }
+
+    /**
+     * Return the last line every earlier line was written up to.
+     *
+     * @return The line to resume after.
+     */
+    public synchronized long getLine() {
+        return line;
+    }
+
+    /**
+     * Return what identifies the dump in the Database.
+     *
+     * @return Digest of the path and size of the dump.
+     */
+    public String getDump() {
+        return dump;
+    }
+
+    /**
+     * Return the usernames of the Users imported so far.
+     *
+     * @return Usernames, safe to update concurrently.
+     */
+    public Set<String> getUsernames() {
+        return usernames;
+    }
+
+    /**
+     * Return the names of the Tags imported so far.
+     *
+     * @return Tag names, safe to update concurrently.
+     */
+    public Set<String> getTagNames() {
+        return tagNames;
+    }
+
+    /**
+     * Return the IDs of the imported Entries of a type, by the ID they had
+     * in the dump.
+     *
+     * @param type Question, Answer or Comment.
+     * @return New IDs by dump ID, safe to update concurrently.
+     */
+    public Map<Long, Long> getEntryIds(final RecordType type) {
+        return entryIds.get(type);
+    }
+
+    /**
+     * Return the hex SHA-256 digest of a value.
+     *
+     * @param value The value.
+     * @return 64 hex digits.
+     */
+    private static String digest(final String value) {
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(value.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder output = new StringBuilder();
+            for (byte b : hash) {
+                output.append(String.format("%02x", b));
+            }
+            return output.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.importer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records in the Database the lines of a dump each batch covered and the
+ * Users, Tags and Entries it created, in the <tt>import_batches</tt> and
+ * <tt>import_refs</tt> tables. It is written through the connection of the
+ * transaction the batch is written in, so a batch is recorded if and only
+ * if it was committed, and a resumed import skips exactly the lines
+ * already written, whatever the checkpoint file says.
+ * <p>
+ * Only the rows of a batch are written with it, the ledger is read back
+ * once when an import starts and deleted once it completes.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public class ImportLedger {
+
+    /**
+     * Records the lines a batch covered.
+     */
+    private static final String RECORD_BATCH = "INSERT INTO import_batches"
+            + " (dump, first_line, last_line) VALUES (?, ?, ?)";
+
+    /**
+     * Records a User, Tag or Entry a batch created.
+     */
+    private static final String RECORD_REF = "INSERT INTO import_refs"
+            + " (dump, kind, dump_key, new_id) VALUES (?, ?, ?, ?)";
+
+    /**
+     * Reads the lines every batch of a dump covered.
+     */
+    private static final String BATCHES = "SELECT first_line, last_line"
+            + " FROM import_batches WHERE dump = ?";
+
+    /**
+     * Reads what every batch of a dump created.
+     */
+    private static final String REFS = "SELECT kind, dump_key, new_id"
+            + " FROM import_refs WHERE dump = ?";
+
+    /**
+     * Forgets the batches of a dump.
+     */
+    private static final String DELETE_BATCHES =
+            "DELETE FROM import_batches WHERE dump = ?";
+
+    /**
+     * Forgets what the batches of a dump created.
+     */
+    private static final String DELETE_REFS =
+            "DELETE FROM import_refs WHERE dump = ?";
+
+    /**
+     * Runs the SQL.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Create an ImportLedger.
+     *
+     * @param jdbcTemplate JDBC Template.
+     */
+    public ImportLedger(final JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Record a batch and what it created. Must be called in the
+     * transaction the batch is written in.
+     *
+     * @param checkpoint Checkpoint of the import.
+     * @param type       Type of every record in the batch.
+     * @param first      First line the batch covered.
+     * @param last       Last line the batch covered.
+     * @param created    Keys in the dump of what it created, a username or
+     *                   Tag name, or the dump ID of an Entry, with the ID
+     *                   of the new Entry, null for Users and Tags.
+     */
+    public void record(final ImportCheckpoint checkpoint,
+                       final RecordType type, final long first,
+                       final long last, final Map<String, Long> created) {
+        jdbcTemplate.update(RECORD_BATCH, checkpoint.getDump(), first, last);
+        if (created.isEmpty()) {
+            return;
+        }
+        final List<Object[]> rows = new ArrayList<>(created.size());
+        for (Map.Entry<String, Long> e : created.entrySet()) {
+            rows.add(new Object[]{checkpoint.getDump(), type.getName(),
+                    e.getKey(), e.getValue()});
+        }
+        jdbcTemplate.batchUpdate(RECORD_REF, rows);
+    }
+
+    /**
+     * Fill in the batches written and the reference maps of a checkpoint
+     * from what an earlier attempt at the same dump recorded.
+     *
+     * @param checkpoint Checkpoint of the import.
+     * @return Number of batches written by earlier attempts.
+     */
+    public int load(final ImportCheckpoint checkpoint) {
+        int output = 0;
+        final SqlRowSet batches =
+                jdbcTemplate.queryForRowSet(BATCHES, checkpoint.getDump());
+        while (batches.next()) {
+            checkpoint.written(batches.getLong("first_line"),
+                    batches.getLong("last_line"));
+            output++;
+        }
+        final SqlRowSet refs =
+                jdbcTemplate.queryForRowSet(REFS, checkpoint.getDump());
+        while (refs.next()) {
+            final RecordType type = RecordType.of(refs.getString("kind"));
+            final String key = refs.getString("dump_key");
+            if (type == RecordType.USER) {
+                checkpoint.getUsernames().add(key);
+            } else if (type == RecordType.TAG) {
+                checkpoint.getTagNames().add(key);
+            } else if (type != null && checkpoint.getEntryIds(type) != null) {
+                checkpoint.getEntryIds(type)
+                        .put(Long.valueOf(key), refs.getLong("new_id"));
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Forget everything recorded of a dump, once its import completes.
+     *
+     * @param checkpoint Checkpoint of the import.
+     */
+    public void delete(final ImportCheckpoint checkpoint) {
+        jdbcTemplate.update(DELETE_REFS, checkpoint.getDump());
+        jdbcTemplate.update(DELETE_BATCHES, checkpoint.getDump());
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.importer;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress metrics of a single import, updated by the reader and the
+ * writers while it runs.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public final class ImportProgress {
+
+    /**
+     * State of an import.
+     */
+    public enum State {
+        /**
+         * Lines are still being read or written.
+         */
+        RUNNING,
+        /**
+         * Every line was read and written.
+         */
+        COMPLETED,
+        /**
+         * A batch failed to be written, the import can be resumed.
+         */
+        FAILED
+    }
+
+    /**
+     * Absolute path of the dump being imported.
+     */
+    private final String source;
+
+    /**
+     * When the import started, from {@link System#nanoTime()}.
+     */
+    private final long startedAt = System.nanoTime();
+
+    /**
+     * Lines read from the dump.
+     */
+    private final AtomicLong linesRead = new AtomicLong();
+
+    /**
+     * Records written, by type.
+     */
+    private final Map<RecordType, AtomicLong> written =
+            new EnumMap<>(RecordType.class);
+
+    /**
+     * Records skipped, as malformed, already imported or referencing
+     * something that wasn't.
+     */
+    private final AtomicLong skipped = new AtomicLong();
+
+    /**
+     * Batches committed.
+     */
+    private final AtomicLong batches = new AtomicLong();
+
+    /**
+     * Batches read but not yet written.
+     */
+    private final AtomicLong queued = new AtomicLong();
+
+    /**
+     * Last line every earlier line was written up to when last
+     * checkpointed.
+     */
+    private volatile long checkpointLine;
+
+    /**
+     * State of the import.
+     */
+    private volatile State state = State.RUNNING;
+
+    /**
+     * Start tracking an import.
+     *
+     * @param source         Absolute path of the dump.
+     * @param checkpointLine Line the import resumes after.
+     */
+    public ImportProgress(final String source, final long checkpointLine) {
+        this.source = source;
+        this.checkpointLine = checkpointLine;
+        for (RecordType type : RecordType.values()) {
+            written.put(type, new AtomicLong());
+        }
+    }
+
+    /**
+     * Count a line read.
+     */
+    void lineRead() {
+        linesRead.incrementAndGet();
+    }
+
+    /**
+     * Count records written.
+     *
+     * @param type  Type of the records.
+     * @param count Number of records.
+     */
+    void written(final RecordType type, final long count) {
+        written.get(type).addAndGet(count);
+    }
+
+    /**
+     * Count a record skipped.
+     */
+    void skipped() {
+        skipped.incrementAndGet();
+    }
+
+    /**
+     * Count a batch handed to the writers.
+     */
+    void batchQueued() {
+        queued.incrementAndGet();
+    }
+
+    /**
+     * Count a batch finished by the writers, committed or not.
+     *
+     * @param committed Was the batch committed.
+     */
+    void batchDone(final boolean committed) {
+        queued.decrementAndGet();
+        if (committed) {
+            batches.incrementAndGet();
+        }
+    }
+
+    /**
+     * Record the line a checkpoint was saved at.
+     *
+     * @param line Last line every earlier line was written up to.
+     */
+    void checkpointed(final long line) {
+        this.checkpointLine = line;
+    }
+
+    /**
+     * Record how the import ended.
+     *
+     * @param finalState Completed or Failed.
+     */
+    void finish(final State finalState) {
+        this.state = finalState;
+    }
+
+    /**
+     * Return the state of the import.
+     *
+     * @return Running, Completed or Failed.
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Return the total records written.
+     *
+     * @return Records written across every type.
+     */
+    public long getTotalWritten() {
+        long output = 0;
+        for (AtomicLong count : written.values()) {
+            output += count.get();
+        }
+        return output;
+    }
+
+    /**
+     * Return every metric of the import.
+     *
+     * @return Metrics by name.
+     */
+    public Map<String, Object> toMap() {
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(
+                System.nanoTime() - startedAt);
+        final Map<String, Object> output = new LinkedHashMap<>();
+        output.put("source", source);
+        output.put("state", state);
+        output.put("linesRead", linesRead.get());
+        final Map<String, Long> counts = new LinkedHashMap<>();
+        for (Map.Entry<RecordType, AtomicLong> e : written.entrySet()) {
+            counts.put(e.getKey().getName(), e.getValue().get());
+        }
+        output.put("written", counts);
+        output.put("skipped", skipped.get());
+        output.put("batches", batches.get());
+        output.put("queuedBatches", queued.get());
+        output.put("checkpointLine", checkpointLine);
+        output.put("elapsedMillis", elapsedMillis);
+        output.put("recordsPerSecond", elapsedMillis == 0 ? 0
+                : getTotalWritten() * TimeUnit.SECONDS.toMillis(1)
+                / elapsedMillis);
+        return output;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.importer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Imports a dump on startup, before warm-up, when started with
+ * <tt>--tullamoreqa.import.file=&lt;path&gt;</tt>. Starting again with the
+ * same file resumes an import that didn't complete.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ImportRunner implements CommandLineRunner {
+
+    /**
+     * Import Runner Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(ImportRunner.class);
+
+    /**
+     * Dump to import, empty for none.
+     */
+    @Value("${tullamoreqa.import.file:}")
+    private String file;
+
+    /**
+     * Imports the dump.
+     */
+    private final NdjsonImporter importer;
+
+    /**
+     * Constructor that Auto wires the Importer.
+     *
+     * @param importer Imports the dump.
+     */
+    @Autowired
+    public ImportRunner(final NdjsonImporter importer) {
+        this.importer = importer;
+    }
+
+    @Override
+    public final void run(final String... args) throws IOException {
+        if (file == null || file.isEmpty()) {
+            return;
+        }
+        LOGGER.info("Importing {} on startup.", file);
+        final ImportProgress progress = importer.importFile(Paths.get(file));
+        if (progress.getState() != ImportProgress.State.COMPLETED) {
+            LOGGER.error("Import of {} did not complete, start again to"
+                    + " resume it.", file);
+        }
+    }
+}
@@ -0,0 +1,804 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.importer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gkenna.tullamoreqa.core.impl.cache.CacheRegistry;
+import com.gkenna.tullamoreqa.core.impl.cache.LocalCache;
+import com.gkenna.tullamoreqa.domain.Answer;
+import com.gkenna.tullamoreqa.domain.Comment;
+import com.gkenna.tullamoreqa.domain.Entry;
+import com.gkenna.tullamoreqa.domain.Question;
+import com.gkenna.tullamoreqa.domain.Tag;
+import com.gkenna.tullamoreqa.domain.User;
+import com.gkenna.tullamoreqa.domain.Vote;
+import com.gkenna.tullamoreqa.domain.VoteType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Imports an NDJSON dump of Users, Tags, Questions, Answers, Comments and
+ * Votes, one {@link RecordType record} per line, into a fresh instance.
+ * <p>
+ * The dump is read a line at a time and cut into batches of a single
+ * record type. Batches are handed to a pool of writers through a bounded
+ * queue, so the reader never gets more than a few batches ahead and memory
+ * stays flat however large the dump is. Each batch is written in its own
+ * transaction, flushed once so Hibernate sends its inserts as JDBC batches,
+ * and the persistence context is cleared after it.
+ * <p>
+ * References are resolved through in-memory maps of the usernames, Tag
+ * names and dump IDs imported so far, so records are never looked up in
+ * the Database. As a record may reference any record of an earlier type,
+ * the writers are drained whenever the record type changes. A record
+ * referencing something that wasn't imported is skipped. Dump IDs of
+ * Questions, Answers and Comments must be unique across all three.
+ * <p>
+ * Each batch is recorded in the {@link ImportLedger}, with the references
+ * it created, in the same transaction it is written in, so an interrupted
+ * import of the same dump skips exactly the lines already written and
+ * resolves references to them as before. Every time the writers are
+ * drained an {@link ImportCheckpoint} is saved as well, so the lines
+ * before the last line written are skipped without being parsed. Both are
+ * deleted once the import completes.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class NdjsonImporter {
+
+    /**
+     * NDJSON Importer Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(NdjsonImporter.class);
+
+    /**
+     * Entity Manager bound to the current transaction.
+     */
+    private final EntityManager entityManager;
+
+    /**
+     * Runs each batch in its own transaction.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Records each batch in the transaction it is written in.
+     */
+    private final ImportLedger ledger;
+
+    /**
+     * Caches emptied once an import finishes.
+     */
+    private final CacheRegistry caches;
+
+    /**
+     * Parses each line of the dump.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Is an import running.
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Progress of the running or last import.
+     */
+    private final AtomicReference<ImportProgress> progress =
+            new AtomicReference<>();
+
+    /**
+     * Records written per transaction.
+     */
+    @Value("${tullamoreqa.import.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * Number of writers.
+     */
+    @Value("${tullamoreqa.import.workers:4}")
+    private int workers;
+
+    /**
+     * Batches read ahead of the writers at most.
+     */
+    @Value("${tullamoreqa.import.queue-capacity:8}")
+    private int queueCapacity;
+
+    /**
+     * Batches written between checkpoints at most.
+     */
+    @Value("${tullamoreqa.import.checkpoint-batches:50}")
+    private int checkpointBatches;
+
+    /**
+     * Location of the checkpoint file.
+     */
+    @Value("${tullamoreqa.import.checkpoint-path:"
+            + "${tullamoreqa.data-dir:${user.home}/.tullamoreqa}"
+            + "/import.checkpoint}")
+    private String checkpointPath;
+
+    /**
+     * Constructor that Auto wires the Entity Manager Factory, Transaction
+     * Manager, JDBC Template, caches and Object Mapper.
+     *
+     * @param entityManagerFactory Entity Manager Factory.
+     * @param transactionManager   Transaction Manager.
+     * @param jdbcTemplate         JDBC Template.
+     * @param caches               Caches emptied once an import finishes.
+     * @param objectMapper         Parses each line of the dump.
+     */
+    @Autowired
+    public NdjsonImporter(final EntityManagerFactory entityManagerFactory,
+                          final PlatformTransactionManager transactionManager,
+                          final JdbcTemplate jdbcTemplate,
+                          final CacheRegistry caches,
+                          final ObjectMapper objectMapper) {
+        this.entityManager = SharedEntityManagerCreator
+                .createSharedEntityManager(entityManagerFactory);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ledger = new ImportLedger(jdbcTemplate);
+        this.caches = caches;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Return the progress of the running or last import.
+     *
+     * @return Progress, or null if nothing was imported yet.
+     */
+    public ImportProgress getProgress() {
+        return progress.get();
+    }
+
+    /**
+     * Import a dump in the background.
+     *
+     * @param file The dump.
+     * @return False if an import is already running.
+     */
+    public boolean start(final Path file) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        progress.set(new ImportProgress(file.toAbsolutePath().toString(),
+                0));
+        final Thread thread = new Thread(() -> {
+            try {
+                run(file);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error("Import of {} failed.", file, e);
+            } finally {
+                running.set(false);
+            }
+        }, "ndjson-import");
+        thread.start();
+        return true;
+    }
+
+    /**
+     * Import a dump, resuming from its checkpoint if there is one.
+     *
+     * @param file The dump.
+     * @return Progress of the finished import.
+     * @throws IOException If the dump couldn't be read.
+     */
+    public ImportProgress importFile(final Path file) throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An import is already running.");
+        }
+        try {
+            return run(file);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Read the dump and write it through the writers.
+     *
+     * @param file The dump.
+     * @return Progress of the finished import.
+     * @throws IOException If the dump couldn't be read.
+     */
+    private ImportProgress run(final Path file) throws IOException {
+        final String source = file.toAbsolutePath().toString();
+        final Path checkpointFile = Paths.get(checkpointPath);
+        final ImportCheckpoint checkpoint = ImportCheckpoint.resume(
+                checkpointFile, source, Files.size(file));
+        final int written = ledger.load(checkpoint);
+        if (written > 0) {
+            LOGGER.info("{} batches of {} were written before, skipping"
+                    + " them.", written, source);
+        }
+        final ImportProgress output =
+                new ImportProgress(source, checkpoint.getLine());
+        progress.set(output);
+
+        final Run importRun = new Run(checkpoint, output, checkpointFile);
+        try (BufferedReader reader =
+                     Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            importRun.read(reader);
+        } finally {
+            importRun.close();
+        }
+
+        for (LocalCache<?, ?> cache : caches.all()) {
+            cache.invalidateAll();
+        }
+        if (output.getState() == ImportProgress.State.COMPLETED) {
+            ledger.delete(checkpoint);
+            Files.deleteIfExists(checkpointFile);
+        }
+        LOGGER.info("Import of {} finished: {}", source, output.toMap());
+        return output;
+    }
+
+    /**
+     * A batch of records of one type, and the lines of the dump it covers.
+     */
+    private static final class Batch {
+
+        /**
+         * Type of every record in the batch.
+         */
+        private final RecordType type;
+
+        /**
+         * First line covered, the line after the previous batch.
+         */
+        private final long first;
+
+        /**
+         * Last line covered, the line of the last record.
+         */
+        private long last;
+
+        /**
+         * The records.
+         */
+        private final List<JsonNode> records = new ArrayList<>();
+
+        /**
+         * Start a batch.
+         *
+         * @param type  Type of every record in the batch.
+         * @param first First line covered.
+         */
+        Batch(final RecordType type, final long first) {
+            this.type = type;
+            this.first = first;
+        }
+    }
+
+    /**
+     * State of a single import while it runs.
+     */
+    private final class Run {
+
+        /**
+         * Checkpoint being resumed from and kept up to date.
+         */
+        private final ImportCheckpoint checkpoint;
+
+        /**
+         * Progress of this import.
+         */
+        private final ImportProgress importProgress;
+
+        /**
+         * Location of the checkpoint file.
+         */
+        private final Path checkpointFile;
+
+        /**
+         * The writers.
+         */
+        private final ExecutorService writers =
+                Executors.newFixedThreadPool(workers);
+
+        /**
+         * Bounds the batches queued or being written.
+         */
+        private final Semaphore slots =
+                new Semaphore(workers + queueCapacity);
+
+        /**
+         * Batches handed to the writers since they were last drained.
+         */
+        private final List<Future<?>> pending = new ArrayList<>();
+
+        /**
+         * First failure of a writer, stops the import.
+         */
+        private final AtomicReference<RuntimeException> failure =
+                new AtomicReference<>();
+
+        /**
+         * Start an import.
+         *
+         * @param checkpoint     Checkpoint to resume from.
+         * @param importProgress Progress of this import.
+         * @param checkpointFile Location of the checkpoint file.
+         */
+        Run(final ImportCheckpoint checkpoint,
+            final ImportProgress importProgress, final Path checkpointFile) {
+            this.checkpoint = checkpoint;
+            this.importProgress = importProgress;
+            this.checkpointFile = checkpointFile;
+        }
+
+        /**
+         * Read every line not yet written, cutting them into batches. A
+         * batch never spans a line that was written, and the writers are
+         * drained before the first line after one, as the batch before it
+         * may be of an earlier type.
+         *
+         * @param reader The dump.
+         * @throws IOException If the dump couldn't be read.
+         */
+        void read(final BufferedReader reader) throws IOException {
+            final long resumeAfter = checkpoint.getLine();
+            long lineNumber = 0;
+            long cut = resumeAfter;
+            Batch batch = null;
+            String line;
+            while (failure.get() == null
+                    && (line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber <= resumeAfter) {
+                    continue;
+                }
+                if (checkpoint.isWritten(lineNumber)) {
+                    if (batch != null) {
+                        dispatch(batch);
+                        batch = null;
+                    }
+                    if (!pending.isEmpty()) {
+                        drain();
+                    }
+                    cut = lineNumber;
+                    continue;
+                }
+                importProgress.lineRead();
+                final JsonNode record = parse(line, lineNumber);
+                final RecordType type = record == null ? null
+                        : RecordType.of(record.path("type").asText());
+                if (type == null) {
+                    if (record != null) {
+                        LOGGER.warn("Line {} has no known type, skipping.",
+                                lineNumber);
+                        importProgress.skipped();
+                    }
+                    continue;
+                }
+                if (batch != null && batch.type != type) {
+                    cut = dispatch(batch);
+                    batch = null;
+                    drain();
+                }
+                if (batch == null) {
+                    batch = new Batch(type, cut + 1);
+                }
+                batch.records.add(record);
+                batch.last = lineNumber;
+                if (batch.records.size() >= batchSize) {
+                    cut = dispatch(batch);
+                    batch = null;
+                    if (pending.size() >= checkpointBatches) {
+                        drain();
+                    }
+                }
+            }
+            if (batch != null && failure.get() == null) {
+                dispatch(batch);
+            }
+            drain();
+            importProgress.finish(failure.get() == null
+                    ? ImportProgress.State.COMPLETED
+                    : ImportProgress.State.FAILED);
+        }
+
+        /**
+         * Parse a line of the dump.
+         *
+         * @param line       The line.
+         * @param lineNumber Number of the line.
+         * @return The record, or null if the line is blank or malformed.
+         */
+        private JsonNode parse(final String line, final long lineNumber) {
+            if (line.trim().isEmpty()) {
+                return null;
+            }
+            try {
+                return objectMapper.readTree(line);
+            } catch (IOException e) {
+                LOGGER.warn("Line {} is not valid JSON, skipping.",
+                        lineNumber);
+                importProgress.skipped();
+                return null;
+            }
+        }
+
+        /**
+         * Hand a batch to the writers, waiting while the queue is full.
+         *
+         * @param batch The batch.
+         * @return Last line covered by the batch.
+         * @throws IOException If interrupted while waiting.
+         */
+        private long dispatch(final Batch batch) throws IOException {
+            try {
+                slots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while importing.", e);
+            }
+            importProgress.batchQueued();
+            pending.add(writers.submit(() -> {
+                try {
+                    write(batch);
+                } finally {
+                    slots.release();
+                }
+            }));
+            return batch.last;
+        }
+
+        /**
+         * Wait for every batch handed to the writers, then save a
+         * checkpoint.
+         *
+         * @throws IOException If interrupted while waiting.
+         */
+        private void drain() throws IOException {
+            for (Future<?> future : pending) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while importing.", e);
+                } catch (ExecutionException e) {
+                    LOGGER.error("Writer failed.", e.getCause());
+                }
+            }
+            pending.clear();
+            try {
+                checkpoint.save(checkpointFile);
+                importProgress.checkpointed(checkpoint.getLine());
+            } catch (IOException e) {
+                LOGGER.warn("Could not save checkpoint {}.", checkpointFile,
+                        e);
+            }
+        }
+
+        /**
+         * Write a batch in its own transaction, recording it in the ledger
+         * in the same one, then publish the references it created for
+         * later batches. A failing batch is rolled back and stops the
+         * import.
+         *
+         * @param batch The batch.
+         */
+        private void write(final Batch batch) {
+            final Set<String> names = new HashSet<>();
+            final Map<Long, Entry> created = new HashMap<>();
+            final Integer persisted;
+            try {
+                persisted = transactionTemplate.execute(status -> {
+                    int count = 0;
+                    for (JsonNode record : batch.records) {
+                        final Object entity = toEntity(batch.type, record);
+                        if (entity == null) {
+                            importProgress.skipped();
+                            continue;
+                        }
+                        entityManager.persist(entity);
+                        count++;
+                        if (entity instanceof Entry) {
+                            created.put(record.path("id").asLong(),
+                                    (Entry) entity);
+                        } else if (entity instanceof User) {
+                            names.add(((User) entity).getUsername());
+                        } else if (entity instanceof Tag) {
+                            names.add(((Tag) entity).getName());
+                        }
+                    }
+                    entityManager.flush();
+                    final Map<String, Long> refs = new HashMap<>();
+                    for (String name : names) {
+                        refs.put(name, null);
+                    }
+                    for (Map.Entry<Long, Entry> e : created.entrySet()) {
+                        refs.put(String.valueOf(e.getKey()),
+                                e.getValue().getId());
+                    }
+                    ledger.record(checkpoint, batch.type, batch.first,
+                            batch.last, refs);
+                    entityManager.clear();
+                    return count;
+                });
+            } catch (RuntimeException e) {
+                LOGGER.error("Batch of lines {} to {} failed.", batch.first,
+                        batch.last, e);
+                failure.compareAndSet(null, e);
+                importProgress.batchDone(false);
+                return;
+            }
+
+            if (batch.type == RecordType.USER) {
+                checkpoint.getUsernames().addAll(names);
+            } else if (batch.type == RecordType.TAG) {
+                checkpoint.getTagNames().addAll(names);
+            } else if (checkpoint.getEntryIds(batch.type) != null) {
+                final Map<Long, Long> ids =
+                        checkpoint.getEntryIds(batch.type);
+                for (Map.Entry<Long, Entry> e : created.entrySet()) {
+                    ids.put(e.getKey(), e.getValue().getId());
+                }
+            }
+            checkpoint.written(batch.first, batch.last);
+            importProgress.written(batch.type, persisted);
+            importProgress.batchDone(true);
+        }
+
+        /**
+         * Build the entity a record describes, resolving its references.
+         *
+         * @param type   Type of the record.
+         * @param record The record.
+         * @return The new entity, or null if it was already imported or
+         * references something that wasn't.
+         */
+        private Object toEntity(final RecordType type, final JsonNode record) {
+            switch (type) {
+                case USER:
+                    return toUser(record);
+                case TAG:
+                    return toTag(record);
+                case QUESTION:
+                    return toQuestion(record);
+                case ANSWER:
+                    return toAnswer(record);
+                case COMMENT:
+                    return toComment(record);
+                case VOTE:
+                    return toVote(record);
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * Build a {@link User}.
+         *
+         * @param record The record.
+         * @return The User, or null if already imported.
+         */
+        private User toUser(final JsonNode record) {
+            final String username = record.path("username").asText(null);
+            if (username == null
+                    || checkpoint.getUsernames().contains(username)) {
+                return null;
+            }
+            final User output = new User(username);
+            output.setEmail(record.path("email").asText(null));
+            output.setFirstName(record.path("firstName").asText(null));
+            output.setSecondName(record.path("secondName").asText(null));
+            output.setPassword(record.path("password").asText(null));
+            output.setAvatarURL(record.path("avatarURL").asText(null));
+            output.setDescription(record.path("description").asText(null));
+            output.setEnabled(record.path("enabled").asBoolean(true));
+            return output;
+        }
+
+        /**
+         * Build a {@link Tag}.
+         *
+         * @param record The record.
+         * @return The Tag, or null if already imported.
+         */
+        private Tag toTag(final JsonNode record) {
+            final String name = record.path("name").asText(null);
+            if (name == null || checkpoint.getTagNames().contains(name)) {
+                return null;
+            }
+            final Tag output = new Tag(name);
+            output.setDescription(record.path("description").asText(null));
+            return output;
+        }
+
+        /**
+         * Build a {@link Question}, dropping Tags that weren't imported.
+         *
+         * @param record The record.
+         * @return The Question, or null if its author wasn't imported.
+         */
+        private Question toQuestion(final JsonNode record) {
+            final User createdBy = user(record.path("createdBy").asText());
+            if (createdBy == null) {
+                return null;
+            }
+            final Question output = new Question();
+            output.setCreatedBy(createdBy);
+            output.setTitle(record.path("title").asText(null));
+            output.setBody(record.path("body").asText(null));
+            final Set<Tag> tags = new HashSet<>();
+            for (JsonNode tagName : record.path("tags")) {
+                if (checkpoint.getTagNames().contains(tagName.asText())) {
+                    tags.add(entityManager.getReference(Tag.class,
+                            tagName.asText()));
+                }
+            }
+            output.setTags(tags);
+            setCreatedAt(output, record);
+            return output;
+        }
+
+        /**
+         * Build an {@link Answer}.
+         *
+         * @param record The record.
+         * @return The Answer, or null if its Question or author wasn't
+         * imported.
+         */
+        private Answer toAnswer(final JsonNode record) {
+            final Long questionId = checkpoint
+                    .getEntryIds(RecordType.QUESTION)
+                    .get(record.path("question").asLong());
+            final User createdBy = user(record.path("createdBy").asText());
+            if (questionId == null || createdBy == null) {
+                return null;
+            }
+            final Answer output = new Answer(
+                    entityManager.getReference(Question.class, questionId),
+                    createdBy, record.path("body").asText(null));
+            output.setChosenAnswer(record.path("chosenAnswer").asBoolean());
+            setCreatedAt(output, record);
+            return output;
+        }
+
+        /**
+         * Build a {@link Comment}.
+         *
+         * @param record The record.
+         * @return The Comment, or null if its parent or author wasn't
+         * imported.
+         */
+        private Comment toComment(final JsonNode record) {
+            final Entry parent = entryOf(record.path("parent").asLong());
+            final User createdBy = user(record.path("createdBy").asText());
+            if (parent == null || createdBy == null) {
+                return null;
+            }
+            final Comment output = new Comment(parent, createdBy,
+                    record.path("body").asText(null));
+            setCreatedAt(output, record);
+            return output;
+        }
+
+        /**
+         * Build a {@link Vote}.
+         *
+         * @param record The record.
+         * @return The Vote, or null if its Entry or caster wasn't imported,
+         * or its type is unknown.
+         */
+        private Vote toVote(final JsonNode record) {
+            final Entry entry = entryOf(record.path("entry").asLong());
+            final User castBy = user(record.path("castBy").asText());
+            final VoteType voteType;
+            try {
+                voteType = VoteType.valueOf(
+                        record.path("voteType").asText());
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            if (entry == null || castBy == null) {
+                return null;
+            }
+            final Vote output = new Vote(castBy, voteType);
+            output.setEntry(entry);
+            if (record.has("castAt")) {
+                output.setVoteCastDate(
+                        new Date(record.path("castAt").asLong()));
+            }
+            return output;
+        }
+
+        /**
+         * Resolve a username to a reference, without reading the User.
+         *
+         * @param username The username.
+         * @return The reference, or null if the User wasn't imported.
+         */
+        private User user(final String username) {
+            if (!checkpoint.getUsernames().contains(username)) {
+                return null;
+            }
+            return entityManager.getReference(User.class, username);
+        }
+
+        /**
+         * Resolve the dump ID of a Question, Answer or Comment to a
+         * reference, without reading the Entry.
+         *
+         * @param dumpId ID of the Entry in the dump.
+         * @return The reference, or null if no such Entry was imported.
+         */
+        private Entry entryOf(final long dumpId) {
+            Long id = checkpoint.getEntryIds(RecordType.QUESTION).get(dumpId);
+            if (id != null) {
+                return entityManager.getReference(Question.class, id);
+            }
+            id = checkpoint.getEntryIds(RecordType.ANSWER).get(dumpId);
+            if (id != null) {
+                return entityManager.getReference(Answer.class, id);
+            }
+            id = checkpoint.getEntryIds(RecordType.COMMENT).get(dumpId);
+            if (id != null) {
+                return entityManager.getReference(Comment.class, id);
+            }
+            return null;
+        }
+
+        /**
+         * Keep the creation time an Entry had in the dump, if it has one.
+         *
+         * @param entry  The Entry.
+         * @param record The record.
+         */
+        private void setCreatedAt(final Entry entry, final JsonNode record) {
+            if (record.has("createdAt")) {
+                final Date createdAt =
+                        new Date(record.path("createdAt").asLong());
+                entry.setCreatedAt(createdAt);
+                entry.setLastUpdatedAt(createdAt);
+            }
+        }
+
+        /**
+         * Stop the writers.
+         */
+        void close() {
+            writers.shutdownNow();
+        }
+    }
+}
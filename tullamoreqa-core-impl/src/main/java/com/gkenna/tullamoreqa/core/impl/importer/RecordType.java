@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.importer;
+
+/**
+ * RecordType Enum. Specifies what a line of an NDJSON dump holds, given by
+ * its <tt>type</tt> field. Records may only reference records of an
+ * earlier type, which is the order a dump is expected to be in.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public enum RecordType {
+
+    /**
+     * A User, <tt>{"type":"user","username":..,"email":..,"firstName":..,
+     * "secondName":..,"password":..,"avatarURL":..,"description":..}</tt>.
+     */
+    USER("user"),
+
+    /**
+     * A Tag, <tt>{"type":"tag","name":..,"description":..}</tt>.
+     */
+    TAG("tag"),
+
+    /**
+     * A Question, <tt>{"type":"question","id":..,"createdBy":..,"title":..,
+     * "body":..,"tags":[..],"createdAt":..}</tt>.
+     */
+    QUESTION("question"),
+
+    /**
+     * An Answer, <tt>{"type":"answer","id":..,"question":..,"createdBy":..,
+     * "body":..,"chosenAnswer":..,"createdAt":..}</tt>.
+     */
+    ANSWER("answer"),
+
+    /**
+     * A Comment on a Question, Answer or earlier Comment,
+     * <tt>{"type":"comment","id":..,"parent":..,"createdBy":..,"body":..,
+     * "createdAt":..}</tt>.
+     */
+    COMMENT("comment"),
+
+    /**
+     * A Vote on a Question, Answer or Comment,
+     * <tt>{"type":"vote","entry":..,"castBy":..,"voteType":..,
+     * "castAt":..}</tt>.
+     */
+    VOTE("vote");
+
+    /**
+     * Value of the <tt>type</tt> field for this record type.
+     */
+    private final String name;
+
+    /**
+     * Default constructor for RecordType enum.
+     *
+     * @param name Value of the type field.
+     */
+    RecordType(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Return the value of the <tt>type</tt> field for this record type.
+     *
+     * @return i.e. 'question'.
+     */
+    public final String getName() {
+        return name;
+    }
+
+    /**
+     * Return the record type a <tt>type</tt> field names.
+     *
+     * @param name Value of the type field.
+     * @return The record type, or null if there is none by that name.
+     */
+    public static RecordType of(final String name) {
+        for (RecordType type : values()) {
+            if (type.name.equals(name)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
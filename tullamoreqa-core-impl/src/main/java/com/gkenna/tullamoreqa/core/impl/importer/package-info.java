@@ -0,0 +1,8 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+/**
+ * Streaming bulk import of NDJSON dumps into a fresh instance.
+ */
+package com.gkenna.tullamoreqa.core.impl.importer;
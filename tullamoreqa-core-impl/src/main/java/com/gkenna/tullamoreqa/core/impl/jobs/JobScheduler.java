@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.jobs;
+
+import com.gkenna.tullamoreqa.core.impl.tenant.Tenants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs background jobs, which poll on a schedule on every instance, on
+ * the one instance holding the <tt>jobs</tt> {@link LeaseLock}, so each
+ * runs on exactly one instance at a time.
+ * <p>
+ * The lease is renewed every <tt>renew-millis</tt> on a thread of its own,
+ * so a long run can't hold up renewing it, and if the instance holding it
+ * dies another takes it once it expires, after <tt>lease-millis</tt>. A
+ * job checks the lease it was started under is still held, with
+ * {@link #fence()}, inside the transaction of each batch of work. That
+ * locks the row of the lease until the batch commits, so the lease can't
+ * change hands in between, and if it was lost the batch is rolled back and
+ * the job stops. A batch for any other tenant than the default records
+ * its token in the job_leases table of the tenant's schema instead, which
+ * refuses batches under earlier tokens once a later one was recorded.
+ * <p>
+ * Every run is recorded in the <tt>job_runs</tt> table with its duration
+ * and outcome, and kept for <tt>history-days</tt>.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class JobScheduler {
+
+    /**
+     * Job Scheduler Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(JobScheduler.class);
+
+    /**
+     * Prefix of every setting.
+     */
+    private static final String PREFIX = "tullamoreqa.jobs.";
+
+    /**
+     * Name of the lease jobs run under.
+     */
+    private static final String LEASE = "jobs";
+
+    /**
+     * Default time the lease lasts unless renewed, in millis.
+     */
+    private static final long DEFAULT_LEASE_MILLIS = 30000;
+
+    /**
+     * Default time between renewals of the lease, in millis.
+     */
+    private static final long DEFAULT_RENEW_MILLIS = 10000;
+
+    /**
+     * Default days runs are kept for.
+     */
+    private static final long DEFAULT_HISTORY_DAYS = 30;
+
+    /**
+     * Longest error message kept of a failed run.
+     */
+    private static final int MAX_ERROR_LENGTH = 1024;
+
+    /**
+     * Records a run.
+     */
+    private static final String RECORD = "INSERT INTO job_runs"
+            + " (job, started_at, owner, token, duration_millis, status,"
+            + " error) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Deletes runs started before a time.
+     */
+    private static final String PURGE =
+            "DELETE FROM job_runs WHERE started_at < ?";
+
+    /**
+     * Sums up the runs of every job.
+     */
+    private static final String SUMMARY = "SELECT job, COUNT(*) AS runs,"
+            + " SUM(CASE WHEN status = 'SUCCEEDED' THEN 0 ELSE 1 END)"
+            + " AS failures, AVG(duration_millis) AS average_millis,"
+            + " MAX(duration_millis) AS max_millis,"
+            + " MAX(started_at) AS last_started_at"
+            + " FROM job_runs GROUP BY job ORDER BY job";
+
+    /**
+     * Reads the latest runs of a job.
+     */
+    private static final String RUNS = "SELECT started_at, owner, token,"
+            + " duration_millis, status, error FROM job_runs"
+            + " WHERE job = ? ORDER BY started_at DESC";
+
+    /**
+     * Runs the SQL.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Do jobs only run on the instance holding the lease.
+     */
+    private final boolean enabled;
+
+    /**
+     * Lease jobs run under.
+     */
+    private final LeaseLock lease;
+
+    /**
+     * Time between renewals of the lease, in millis.
+     */
+    private final long renewMillis;
+
+    /**
+     * How long runs are kept, in millis.
+     */
+    private final long historyMillis;
+
+    /**
+     * Token of the lease the job running on this thread was started
+     * under.
+     */
+    private final ThreadLocal<Long> running = new ThreadLocal<>();
+
+    /**
+     * Renews the lease, once started.
+     */
+    private ScheduledExecutorService renewals;
+
+    /**
+     * Create a JobScheduler.
+     *
+     * @param environment  Settings of this instance.
+     * @param jdbcTemplate JDBC Template.
+     */
+    @Autowired
+    public JobScheduler(final Environment environment,
+                        final JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, new LeaseLock(jdbcTemplate, LEASE, owner(),
+                        environment.getProperty(PREFIX + "lease-millis",
+                                Long.class, DEFAULT_LEASE_MILLIS)),
+                environment.getProperty(PREFIX + "leader-election",
+                        Boolean.class, true),
+                environment.getProperty(PREFIX + "renew-millis",
+                        Long.class, DEFAULT_RENEW_MILLIS),
+                TimeUnit.DAYS.toMillis(environment.getProperty(
+                        PREFIX + "history-days", Long.class,
+                        DEFAULT_HISTORY_DAYS)));
+    }
+
+    /**
+     * Create a JobScheduler.
+     *
+     * @param jdbcTemplate  JDBC Template.
+     * @param lease         Lease jobs run under.
+     * @param enabled       Do jobs only run on the instance holding the
+     *                      lease.
+     * @param renewMillis   Time between renewals of the lease, in millis.
+     * @param historyMillis How long runs are kept, in millis.
+     */
+    public JobScheduler(final JdbcTemplate jdbcTemplate,
+                        final LeaseLock lease, final boolean enabled,
+                        final long renewMillis, final long historyMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.lease = lease;
+        this.enabled = enabled;
+        this.renewMillis = renewMillis;
+        this.historyMillis = historyMillis;
+    }
+
+    /**
+     * Start renewing the lease.
+     */
+    @PostConstruct
+    public synchronized void start() {
+        if (!enabled || renewals != null) {
+            return;
+        }
+        renewals = Executors.newSingleThreadScheduledExecutor(
+                new CustomizableThreadFactory("job-lease-"));
+        renewals.scheduleWithFixedDelay(this::heartbeat, 0, renewMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop renewing the lease and let it go, for another instance to take
+     * at once.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (renewals == null) {
+            return;
+        }
+        renewals.shutdownNow();
+        renewals = null;
+        try {
+            lease.release();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to release the job lease, it expires on"
+                    + " its own.", e);
+        }
+    }
+
+    /**
+     * Renew or take the lease, and while holding it forget old runs.
+     */
+    public void heartbeat() {
+        try {
+            if (lease.heartbeat()) {
+                jdbcTemplate.update(PURGE, lease.now() - historyMillis);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to renew the job lease.", e);
+        }
+    }
+
+    /**
+     * Is this instance the one jobs run on.
+     *
+     * @return True if it holds the lease, or the lease isn't used.
+     */
+    public boolean isLeader() {
+        return !enabled || lease.isHeld();
+    }
+
+    /**
+     * Run a job if this instance holds the lease, recording the run. A
+     * job that throws is logged, to be run again on its next poll.
+     *
+     * @param job  Name of the job.
+     * @param work The work of the job.
+     * @return True if it ran and succeeded.
+     */
+    public boolean run(final String job, final Runnable work) {
+        return run(job, work, true);
+    }
+
+    /**
+     * Run a job polled too often for every run to be worth recording, if
+     * this instance holds the lease. Only runs that failed or were fenced
+     * are recorded.
+     *
+     * @param job  Name of the job.
+     * @param work The work of the job.
+     * @return True if it ran and succeeded.
+     */
+    public boolean runQuietly(final String job, final Runnable work) {
+        return run(job, work, false);
+    }
+
+    /**
+     * Run a job if this instance holds the lease.
+     *
+     * @param job       Name of the job.
+     * @param work      The work of the job.
+     * @param succeeded Are runs that succeed recorded.
+     * @return True if it ran and succeeded.
+     */
+    private boolean run(final String job, final Runnable work,
+                        final boolean succeeded) {
+        if (!isLeader()) {
+            LOGGER.debug("Not running job {}, another instance leads.", job);
+            return false;
+        }
+        final long token = enabled ? lease.getToken() : 0;
+        final long startedAt = lease.now();
+        final long start = System.nanoTime();
+        JobStatus status = JobStatus.SUCCEEDED;
+        String error = null;
+        running.set(token);
+        try {
+            work.run();
+        } catch (LeaseLostException e) {
+            status = JobStatus.FENCED;
+            error = e.getMessage();
+            LOGGER.warn("Job {} stopped, {}", job, e.getMessage());
+        } catch (RuntimeException e) {
+            status = JobStatus.FAILED;
+            error = String.valueOf(e);
+            LOGGER.warn("Job {} failed, retrying on the next poll.", job, e);
+        } finally {
+            running.remove();
+        }
+        if (succeeded || status != JobStatus.SUCCEEDED) {
+            record(job, startedAt, token, TimeUnit.NANOSECONDS.toMillis(
+                    System.nanoTime() - start), status, error);
+        }
+        return status == JobStatus.SUCCEEDED;
+    }
+
+    /**
+     * Check the lease the job running on this thread was started under is
+     * still held. Does nothing outside a job, or if the lease isn't used.
+     * Called inside the transaction of a batch of work, the lease can't
+     * change hands until it ends, and throwing rolls the batch back.
+     *
+     * @throws LeaseLostException If it was lost.
+     */
+    public void fence() {
+        final Long token = running.get();
+        if (token == null || token == 0) {
+            return;
+        }
+        if (Tenants.isDefault() ? lease.isCurrent(token)
+                : lease.admits(token)) {
+            return;
+        }
+        throw new LeaseLostException("lease " + LEASE + " held with token "
+                + token + " was lost.");
+    }
+
+    /**
+     * Return the state of the lease, and a summary of the runs of every
+     * job.
+     *
+     * @return Lease and jobs by name.
+     */
+    public Map<String, Object> toMap() {
+        final Map<String, Object> output = new LinkedHashMap<>();
+        output.put("leaderElection", enabled);
+        output.put("leader", isLeader());
+        output.put("lease", lease.toMap());
+        final Map<String, Object> jobs = new LinkedHashMap<>();
+        final SqlRowSet rows = jdbcTemplate.queryForRowSet(SUMMARY);
+        while (rows.next()) {
+            final Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("runs", rows.getLong("runs"));
+            summary.put("failures", rows.getLong("failures"));
+            summary.put("averageMillis", rows.getLong("average_millis"));
+            summary.put("maxMillis", rows.getLong("max_millis"));
+            summary.put("lastStartedAt", rows.getLong("last_started_at"));
+            jobs.put(rows.getString("job"), summary);
+        }
+        output.put("jobs", jobs);
+        return output;
+    }
+
+    /**
+     * Return the latest runs of a job.
+     *
+     * @param job   Name of the job.
+     * @param limit Most runs returned.
+     * @return Runs, latest first.
+     */
+    public List<Map<String, Object>> getRuns(final String job,
+                                             final int limit) {
+        final List<Map<String, Object>> output = new ArrayList<>();
+        final SqlRowSet rows = jdbcTemplate.queryForRowSet(RUNS, job);
+        while (output.size() < limit && rows.next()) {
+            final Map<String, Object> run = new LinkedHashMap<>();
+            run.put("startedAt", rows.getLong("started_at"));
+            run.put("owner", rows.getString("owner"));
+            run.put("token", rows.getLong("token"));
+            run.put("durationMillis", rows.getLong("duration_millis"));
+            run.put("status", rows.getString("status"));
+            run.put("error", rows.getString("error"));
+            output.add(run);
+        }
+        return output;
+    }
+
+    /**
+     * Record a run, logging rather than throwing if it can't be.
+     *
+     * @param job            Name of the job.
+     * @param startedAt      When it started, in millis.
+     * @param token          Token of the lease it ran under.
+     * @param durationMillis How long it took, in millis.
+     * @param status         How it ended.
+     * @param error          Why it failed, null if it didn't.
+     */
+    private void record(final String job, final long startedAt,
+                        final long token, final long durationMillis,
+                        final JobStatus status, final String error) {
+        try {
+            jdbcTemplate.update(RECORD, job, startedAt, lease.getOwner(),
+                    token, durationMillis, status.name(), error == null
+                            ? null : error.substring(0, Math.min(
+                            error.length(), MAX_ERROR_LENGTH)));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to record a run of job {}.", job, e);
+        }
+    }
+
+    /**
+     * Create a name for this instance to hold the lease under, unique
+     * each time it starts.
+     *
+     * @return Host name and a random suffix.
+     */
+    private static String owner() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
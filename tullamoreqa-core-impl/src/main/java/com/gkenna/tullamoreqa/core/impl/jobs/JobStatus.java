@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.jobs;
+
+/**
+ * Job Status Enum. Specifies how a run of a background job ended.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public enum JobStatus {
+
+    /**
+     * Ran to the end.
+     */
+    SUCCEEDED,
+
+    /**
+     * Threw, and will be run again on the next poll.
+     */
+    FAILED,
+
+    /**
+     * Stopped as the lease was lost to another instance part way through.
+     */
+    FENCED
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.jobs;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A lease on a row of the <tt>job_leases</tt> table, held by one instance
+ * at a time until it expires, unless renewed.
+ * <p>
+ * Each time the lease changes hands its token goes up by one. The holder
+ * keeps its token, and work done under the lease is fenced by checking the
+ * token in the table is still it, so an instance that stalled past its
+ * lease, and lost it, finds out before doing more. The check locks the row
+ * of the lease, so done inside the transaction of the work, the lease
+ * can't change hands before the work commits.
+ * <p>
+ * Expiry is in the holder's clock, so the time to live must be well above
+ * the skew between the clocks of the instances.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public class LeaseLock {
+
+    /**
+     * Lease Lock Logger.
+     */
+    private static final Logger LOGGER = LogManager.getLogger(LeaseLock.class);
+
+    /**
+     * Creates the lease, held, if it has never been.
+     */
+    private static final String CREATE = "INSERT INTO job_leases"
+            + " (name, owner, token, expires_at) VALUES (?, ?, 1, ?)";
+
+    /**
+     * Takes the lease if it expired.
+     */
+    private static final String TAKE = "UPDATE job_leases SET owner = ?,"
+            + " token = token + 1, expires_at = ?"
+            + " WHERE name = ? AND expires_at < ?";
+
+    /**
+     * Extends the lease if still held with the same token.
+     */
+    private static final String RENEW = "UPDATE job_leases"
+            + " SET expires_at = ?"
+            + " WHERE name = ? AND owner = ? AND token = ?";
+
+    /**
+     * Lets the lease expire at once, for another instance to take.
+     */
+    private static final String RELEASE = "UPDATE job_leases"
+            + " SET expires_at = 0"
+            + " WHERE name = ? AND owner = ? AND token = ?";
+
+    /**
+     * Reads the holder of the lease.
+     */
+    private static final String HOLDER = "SELECT owner, token, expires_at"
+            + " FROM job_leases WHERE name = ?";
+
+    /**
+     * Reads the holder of the lease, locking its row until the transaction
+     * ends.
+     */
+    private static final String FENCE = "SELECT owner, token, expires_at"
+            + " FROM job_leases WHERE name = ? FOR UPDATE";
+
+    /**
+     * Records work done in a tenant's schema under a token, unless work
+     * was done there under a later one.
+     */
+    private static final String ADMIT = "UPDATE job_leases"
+            + " SET owner = ?, token = ? WHERE name = ? AND token <= ?";
+
+    /**
+     * Records the first work done in a tenant's schema under a token.
+     */
+    private static final String ADMIT_FIRST = "INSERT INTO job_leases"
+            + " (name, owner, token, expires_at) VALUES (?, ?, ?, 0)";
+
+    /**
+     * Runs the SQL.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Name of the lease.
+     */
+    private final String name;
+
+    /**
+     * Identifies this instance as the holder.
+     */
+    private final String owner;
+
+    /**
+     * How long the lease lasts unless renewed, in millis.
+     */
+    private final long ttlMillis;
+
+    /**
+     * Token the lease is held with, 0 if it isn't.
+     */
+    private volatile long token;
+
+    /**
+     * When the lease expires unless renewed, in millis.
+     */
+    private volatile long heldUntil;
+
+    /**
+     * Create a LeaseLock.
+     *
+     * @param jdbcTemplate JDBC Template.
+     * @param name         Name of the lease.
+     * @param owner        Identifies this instance as the holder.
+     * @param ttlMillis    How long the lease lasts unless renewed, in
+     *                     millis.
+     */
+    public LeaseLock(final JdbcTemplate jdbcTemplate, final String name,
+                     final String owner, final long ttlMillis) {
+        if (ttlMillis < 1) {
+            throw new IllegalArgumentException("Lease " + name
+                    + " needs a time to live.");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.name = name;
+        this.owner = owner;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Renew the lease if held, otherwise take it if it expired.
+     *
+     * @return True if the lease is held afterwards.
+     */
+    public synchronized boolean heartbeat() {
+        final long now = now();
+        final long until = now + ttlMillis;
+        if (token != 0) {
+            if (jdbcTemplate.update(RENEW, until, name, owner, token) == 1) {
+                heldUntil = until;
+                return true;
+            }
+            LOGGER.warn("Lost lease {} held with token {}.", name, token);
+            token = 0;
+        }
+        try {
+            jdbcTemplate.update(CREATE, name, owner, until);
+            return took(1, until);
+        } catch (DuplicateKeyException e) {
+            // Held before, take it below if it expired.
+        }
+        if (jdbcTemplate.update(TAKE, owner, until, name, now) != 1) {
+            return false;
+        }
+        final SqlRowSet row = jdbcTemplate.queryForRowSet(HOLDER, name);
+        if (!row.next() || !owner.equals(row.getString("owner"))) {
+            return false;
+        }
+        return took(row.getLong("token"), until);
+    }
+
+    /**
+     * Let the lease go, for another instance to take at once.
+     */
+    public synchronized void release() {
+        if (token == 0) {
+            return;
+        }
+        jdbcTemplate.update(RELEASE, name, owner, token);
+        LOGGER.info("Released lease {} held with token {}.", name, token);
+        token = 0;
+    }
+
+    /**
+     * Is the lease held by this instance, and not expired as far as it
+     * knows.
+     *
+     * @return True if it is.
+     */
+    public boolean isHeld() {
+        return token != 0 && now() < heldUntil;
+    }
+
+    /**
+     * Return the name this instance holds the lease under.
+     *
+     * @return Owner name.
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * Return the token the lease is held with.
+     *
+     * @return Token, 0 if it isn't held.
+     */
+    public long getToken() {
+        return token;
+    }
+
+    /**
+     * Is the lease still held with a token, as the table says. Inside a
+     * transaction, the row of the lease stays locked until it ends, so
+     * the lease can't be taken or renewed meanwhile.
+     *
+     * @param heldWith The token.
+     * @return True if this instance still holds it with that token.
+     */
+    public boolean isCurrent(final long heldWith) {
+        if (heldWith == 0 || heldWith != token || !isHeld()) {
+            return false;
+        }
+        final SqlRowSet row = jdbcTemplate.queryForRowSet(FENCE, name);
+        return row.next() && owner.equals(row.getString("owner"))
+                && row.getLong("token") == heldWith;
+    }
+
+    /**
+     * Record in the job_leases table of the current tenant's schema, which
+     * the lease isn't kept in, that work is done there under a token,
+     * unless work was already done there under a later one. Inside a
+     * transaction, the row stays locked until it ends, so work by an
+     * instance that lost the lease is refused once its successor did any.
+     *
+     * @param heldWith The token.
+     * @return True if work may be done under the token.
+     */
+    public boolean admits(final long heldWith) {
+        if (heldWith == 0 || heldWith != token || !isHeld()) {
+            return false;
+        }
+        if (jdbcTemplate.update(ADMIT, owner, heldWith, name, heldWith)
+                == 1) {
+            return true;
+        }
+        try {
+            jdbcTemplate.update(ADMIT_FIRST, name, owner, heldWith);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Return who holds the lease, as the table says, and whether this
+     * instance does.
+     *
+     * @return Lease state by name.
+     */
+    public Map<String, Object> toMap() {
+        final Map<String, Object> output = new LinkedHashMap<>();
+        output.put("name", name);
+        output.put("self", owner);
+        output.put("held", isHeld());
+        final SqlRowSet row = jdbcTemplate.queryForRowSet(HOLDER, name);
+        if (row.next()) {
+            output.put("owner", row.getString("owner"));
+            output.put("token", row.getLong("token"));
+            output.put("expiresAt", row.getLong("expires_at"));
+        }
+        output.put("ttlMillis", ttlMillis);
+        return output;
+    }
+
+    /**
+     * Return the current time.
+     *
+     * @return Current time, in millis.
+     */
+    protected long now() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Note the lease was taken.
+     *
+     * @param takenWith Token it was taken with.
+     * @param until     When it expires unless renewed, in millis.
+     * @return True.
+     */
+    private boolean took(final long takenWith, final long until) {
+        token = takenWith;
+        heldUntil = until;
+        LOGGER.info("Took lease {} with token {}.", name, takenWith);
+        return true;
+    }
+}
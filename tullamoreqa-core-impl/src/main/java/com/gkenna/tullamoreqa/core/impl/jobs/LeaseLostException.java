@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.jobs;
+
+/**
+ * Thrown by {@link JobScheduler#fence()} when a job finds the lease it
+ * was started under has been lost, so another instance may be running
+ * jobs, and it must stop.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public class LeaseLostException extends RuntimeException {
+    /**
+     * Constructs a <tt>LeaseLostException</tt> with the specified cause.
+     *
+     * @param message Additional exception information.
+     */
+    public LeaseLostException(final String message) {
+        super(message);
+    }
+}
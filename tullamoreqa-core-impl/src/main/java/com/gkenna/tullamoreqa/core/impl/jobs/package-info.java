@@ -0,0 +1,9 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+/**
+ * Runs background jobs on one instance at a time, the one holding a lease
+ * in the Database, and keeps a history of their runs.
+ */
+package com.gkenna.tullamoreqa.core.impl.jobs;
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.layout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * EntryLayout Enum. Specifies how the Entry hierarchy is laid out in
+ * tables, selected by <tt>tullamoreqa.entry.layout</tt>, which names the
+ * orm.xml mapping file under <tt>META-INF/entry-layout</tt> that is used.
+ * Every layout uses the same column names, only the tables they are in
+ * differ.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public enum EntryLayout {
+
+    /**
+     * A table per concrete type holding every column. Polymorphic reads
+     * are a UNION ALL over all of them.
+     */
+    TABLE_PER_CLASS("table-per-class"),
+
+    /**
+     * The common columns in {@link #ROOT_TABLE}, joined by ID to a table
+     * per concrete type holding the rest.
+     */
+    JOINED("joined"),
+
+    /**
+     * Every column in {@link #ROOT_TABLE}, the concrete type given by
+     * {@link #DISCRIMINATOR}.
+     */
+    SINGLE_TABLE("single-table");
+
+    /**
+     * Table of the common columns, or of every column in a single table.
+     */
+    public static final String ROOT_TABLE = "entry";
+
+    /**
+     * Column of the concrete type in a single table.
+     */
+    public static final String DISCRIMINATOR = "entry_type";
+
+    /**
+     * Columns every Entry has, the ID first.
+     */
+    public static final List<String> ROOT_COLUMNS =
+            Collections.unmodifiableList(Arrays.asList("id", "version",
+                    "body", "created_at", "last_updated_at",
+                    "created_by_username", "mod_user_username"));
+
+    /**
+     * Alias of the root table when joined.
+     */
+    private static final String ROOT_ALIAS = "e.";
+
+    /**
+     * Alias of the concrete type's table when joined.
+     */
+    private static final String TYPE_ALIAS = "t.";
+
+    /**
+     * Value of tullamoreqa.entry.layout for this layout.
+     */
+    private final String name;
+
+    /**
+     * Default constructor for EntryLayout enum.
+     *
+     * @param name Value of tullamoreqa.entry.layout.
+     */
+    EntryLayout(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Return the value of <tt>tullamoreqa.entry.layout</tt> for this
+     * layout, which is also the name of its mapping file.
+     *
+     * @return i.e. 'joined'.
+     */
+    public final String getName() {
+        return name;
+    }
+
+    /**
+     * Return the layout a <tt>tullamoreqa.entry.layout</tt> value names.
+     *
+     * @param name Value of tullamoreqa.entry.layout.
+     * @return The layout.
+     * @throws IllegalArgumentException If there is no such layout.
+     */
+    public static EntryLayout of(final String name) {
+        for (EntryLayout layout : values()) {
+            if (layout.name.equals(name)) {
+                return layout;
+            }
+        }
+        throw new IllegalArgumentException("No Entry layout " + name);
+    }
+
+    /**
+     * Return the tables holding the Entry hierarchy in this layout.
+     *
+     * @return Table names.
+     */
+    public final List<String> getTables() {
+        final List<String> output = new ArrayList<>();
+        if (this != TABLE_PER_CLASS) {
+            output.add(ROOT_TABLE);
+        }
+        if (this != SINGLE_TABLE) {
+            for (EntryType type : EntryType.values()) {
+                output.add(type.getTable());
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Return a query selecting every column of every Entry of a type, by
+     * column name, in order of ID.
+     *
+     * @param type The concrete type.
+     * @return SQL.
+     */
+    public final String select(final EntryType type) {
+        return select(type, null, 0);
+    }
+
+    /**
+     * Return a query selecting every column of the Entries of a type whose
+     * column is one of some values, by column name, in order of ID.
+     *
+     * @param type   The concrete type.
+     * @param column Column filtered on, of any table of the type.
+     * @param count  Number of values, each bound to a parameter.
+     * @return SQL with a parameter per value.
+     * @throws IllegalArgumentException If there are no values.
+     */
+    public final String select(final EntryType type, final String column,
+                               final int count) {
+        if (column != null && count < 1) {
+            throw new IllegalArgumentException("No values of " + column);
+        }
+        switch (this) {
+            case JOINED:
+                return "SELECT " + columns(ROOT_ALIAS, ROOT_COLUMNS) + ", "
+                        + columns(TYPE_ALIAS, type.getColumns())
+                        + " FROM " + ROOT_TABLE + " e JOIN " + type.getTable()
+                        + " t ON t.id = e.id"
+                        + in(" WHERE ", ROOT_COLUMNS.contains(column)
+                        ? ROOT_ALIAS : TYPE_ALIAS, column, count)
+                        + " ORDER BY e.id";
+            case SINGLE_TABLE:
+                return "SELECT " + columns("", all(type)) + " FROM "
+                        + ROOT_TABLE + " WHERE " + DISCRIMINATOR + " = '"
+                        + type.getDiscriminator() + "'"
+                        + in(" AND ", "", column, count) + " ORDER BY id";
+            default:
+                return "SELECT " + columns("", all(type)) + " FROM "
+                        + type.getTable() + in(" WHERE ", "", column, count)
+                        + " ORDER BY id";
+        }
+    }
+
+    /**
+     * Return the columns an Entry of a type is inserted into, by table, in
+     * the order the tables must be inserted into.
+     *
+     * @param type The concrete type.
+     * @return Column names by table, including {@link #DISCRIMINATOR}
+     * in a single table.
+     */
+    public final Map<String, List<String>> inserts(final EntryType type) {
+        final Map<String, List<String>> output = new LinkedHashMap<>();
+        switch (this) {
+            case JOINED:
+                output.put(ROOT_TABLE, ROOT_COLUMNS);
+                final List<String> typeColumns = new ArrayList<>();
+                typeColumns.add(ROOT_COLUMNS.get(0));
+                typeColumns.addAll(type.getColumns());
+                output.put(type.getTable(), typeColumns);
+                break;
+            case SINGLE_TABLE:
+                final List<String> columns = new ArrayList<>();
+                columns.add(DISCRIMINATOR);
+                columns.addAll(all(type));
+                output.put(ROOT_TABLE, columns);
+                break;
+            default:
+                output.put(type.getTable(), all(type));
+                break;
+        }
+        return output;
+    }
+
+    /**
+     * Return every column of a type, the common ones first.
+     *
+     * @param type The concrete type.
+     * @return Column names.
+     */
+    private static List<String> all(final EntryType type) {
+        final List<String> output = new ArrayList<>(ROOT_COLUMNS);
+        output.addAll(type.getColumns());
+        return output;
+    }
+
+    /**
+     * Return a condition that a column is one of some parameters.
+     *
+     * @param keyword Keyword the condition follows.
+     * @param alias   Prefix of the column.
+     * @param column  The column, null for no condition.
+     * @param count   Number of parameters.
+     * @return i.e. ' WHERE t.question_id IN (?, ?)', empty for no column.
+     */
+    private static String in(final String keyword, final String alias,
+                             final String column, final int count) {
+        if (column == null) {
+            return "";
+        }
+        final StringBuilder output = new StringBuilder(keyword)
+                .append(alias).append(column).append(" IN (");
+        for (int i = 0; i < count; i++) {
+            output.append(i == 0 ? "?" : ", ?");
+        }
+        return output.append(')').toString();
+    }
+
+    /**
+     * Join column names into a select list.
+     *
+     * @param alias   Prefix of every column.
+     * @param columns Column names.
+     * @return i.e. 'e.id, e.body'.
+     */
+    private static String columns(final String alias,
+                                  final List<String> columns) {
+        final StringBuilder output = new StringBuilder();
+        for (String column : columns) {
+            if (output.length() > 0) {
+                output.append(", ");
+            }
+            output.append(alias).append(column);
+        }
+        return output.toString();
+    }
+}
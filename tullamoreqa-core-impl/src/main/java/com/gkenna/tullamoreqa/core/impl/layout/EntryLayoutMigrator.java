@@ -0,0 +1,531 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.layout;
+
+import com.gkenna.tullamoreqa.core.impl.cache.CacheRegistry;
+import com.gkenna.tullamoreqa.core.impl.cache.LocalCache;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Copies a Database laid out under one {@link EntryLayout} into this
+ * instance's Database, freshly created under the layout it runs with.
+ * <p>
+ * The Entry hierarchy is read from the source layout's tables and written
+ * to this layout's, a concrete type at a time. Every other table is the
+ * same under every layout and is copied as is, column by column. Tables
+ * are copied in order of their foreign keys, so nothing is inserted before
+ * what it references, and the ID sequences are moved past the IDs copied.
+ * <p>
+ * Rows are inserted in JDBC batches, all in one transaction committed once
+ * the sequences are moved on, so a failed migration leaves this instance's
+ * Database as empty as it was and can simply be run again.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class EntryLayoutMigrator {
+
+    /**
+     * Entry Layout Migrator Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(EntryLayoutMigrator.class);
+
+    /**
+     * Stands for the tables of the Entry hierarchy when ordering tables.
+     */
+    private static final String HIERARCHY = "entry hierarchy";
+
+    /**
+     * Table of the schema migrations applied, kept by each Database for
+     * its own layout and never copied.
+     */
+    private static final String SCHEMA_HISTORY = "flyway_schema_history";
+
+    /**
+     * ID sequences, by the table whose IDs they allocate. Under Databases
+     * without sequences they are tables and are copied with the rest.
+     */
+    private static final Map<String, String> SEQUENCES;
+
+    static {
+        final Map<String, String> sequences = new LinkedHashMap<>();
+        sequences.put(HIERARCHY, "entry_ids");
+        sequences.put("votes", "vote_ids");
+        sequences.put("outbox", "outbox_ids");
+        SEQUENCES = Collections.unmodifiableMap(sequences);
+    }
+
+    /**
+     * This instance's Database.
+     */
+    private final DataSource dataSource;
+
+    /**
+     * Caches emptied once a migration finishes.
+     */
+    private final CacheRegistry caches;
+
+    /**
+     * Layout this instance runs with.
+     */
+    @Value("${tullamoreqa.entry.layout:table-per-class}")
+    private String layout;
+
+    /**
+     * Rows inserted per JDBC batch.
+     */
+    @Value("${tullamoreqa.entry.migrate-from.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * Constructor that Auto wires the Data Source and caches.
+     *
+     * @param dataSource This instance's Database.
+     * @param caches     Caches emptied once a migration finishes.
+     */
+    @Autowired
+    public EntryLayoutMigrator(final DataSource dataSource,
+                               final CacheRegistry caches) {
+        this.dataSource = dataSource;
+        this.caches = caches;
+    }
+
+    /**
+     * Return the layout this instance runs with.
+     *
+     * @return The layout.
+     */
+    public EntryLayout getLayout() {
+        return EntryLayout.of(layout);
+    }
+
+    /**
+     * Copy every table of a Database into this instance's Database.
+     *
+     * @param source       Database to copy.
+     * @param sourceLayout Layout of the Entry hierarchy in it.
+     * @return Rows copied by table, the Entry hierarchy by concrete type.
+     * @throws SQLException          If either Database fails.
+     * @throws IllegalStateException If this instance already has Entries.
+     */
+    public Map<String, Long> migrate(final DataSource source,
+                                     final EntryLayout sourceLayout)
+            throws SQLException {
+        final EntryLayout target = getLayout();
+        final Map<String, Long> output = new LinkedHashMap<>();
+        final long start = System.currentTimeMillis();
+        LOGGER.info("Migrating Entries from {} to {}.",
+                sourceLayout.getName(), target.getName());
+
+        try (Connection from = source.getConnection();
+             Connection to = dataSource.getConnection()) {
+            from.setReadOnly(true);
+            to.setAutoCommit(false);
+            try {
+                copyAll(from, to, sourceLayout, target, output);
+                to.commit();
+            } catch (SQLException | RuntimeException e) {
+                LOGGER.error("Migration from {} failed, rolling it back.",
+                        sourceLayout.getName(), e);
+                to.rollback();
+                throw e;
+            }
+        }
+
+        for (LocalCache<?, ?> cache : caches.all()) {
+            cache.invalidateAll();
+        }
+        LOGGER.info("Migrated {} in {}ms.", output,
+                System.currentTimeMillis() - start);
+        return output;
+    }
+
+    /**
+     * Copy every table, then move the ID sequences past the IDs copied,
+     * without committing.
+     *
+     * @param from         Source connection.
+     * @param to           Target connection.
+     * @param sourceLayout Layout of the source.
+     * @param target       Layout of the target.
+     * @param output       Rows copied by table, filled in.
+     * @throws SQLException          If either Database fails.
+     * @throws IllegalStateException If this instance already has Entries.
+     */
+    private void copyAll(final Connection from, final Connection to,
+                         final EntryLayout sourceLayout,
+                         final EntryLayout target,
+                         final Map<String, Long> output)
+            throws SQLException {
+        final Map<String, List<String>> tables = columnsByTable(to);
+        for (String table : target.getTables()) {
+            if (count(to, table) > 0) {
+                throw new IllegalStateException("Cannot migrate into a"
+                        + " Database that already has Entries.");
+            }
+        }
+        final Set<String> hierarchy = new HashSet<>(target.getTables());
+        final Map<String, List<String>> sourceTables = columnsByTable(from);
+
+        for (String table : order(to, tables.keySet(), hierarchy)) {
+            if (HIERARCHY.equals(table)) {
+                for (EntryType type : EntryType.values()) {
+                    output.put(type.getTable(), copyEntries(from, to,
+                            sourceLayout, target, type));
+                }
+            } else if (sourceTables.containsKey(table)
+                    && !SCHEMA_HISTORY.equals(table)) {
+                final List<String> columns =
+                        new ArrayList<>(tables.get(table));
+                columns.retainAll(sourceTables.get(table));
+                if (SEQUENCES.containsValue(table)) {
+                    clear(to, table);
+                }
+                output.put(table, copy(from, to, "SELECT "
+                        + String.join(", ", columns) + " FROM " + table,
+                        Collections.singletonMap(table, columns), null));
+            }
+        }
+        restartSequences(to, tables.keySet(), target);
+    }
+
+    /**
+     * Delete the row a sequence table is seeded with by the schema
+     * migrations, to be replaced by the source's.
+     *
+     * @param to    Target connection.
+     * @param table The sequence table.
+     * @throws SQLException If the target fails.
+     */
+    private static void clear(final Connection to, final String table)
+            throws SQLException {
+        try (Statement statement = to.createStatement()) {
+            statement.executeUpdate("DELETE FROM " + table);
+        }
+    }
+
+    /**
+     * Copy every Entry of a concrete type between layouts.
+     *
+     * @param from   Source connection.
+     * @param to     Target connection.
+     * @param source Layout of the source.
+     * @param target Layout of the target.
+     * @param type   The concrete type.
+     * @return Entries copied.
+     * @throws SQLException If either Database fails.
+     */
+    private long copyEntries(final Connection from, final Connection to,
+                             final EntryLayout source,
+                             final EntryLayout target, final EntryType type)
+            throws SQLException {
+        return copy(from, to, source.select(type), target.inserts(type),
+                type.getDiscriminator());
+    }
+
+    /**
+     * Copy the rows of a query into one or more tables, taking each
+     * inserted column from the query column of the same name.
+     *
+     * @param from          Source connection.
+     * @param to            Target connection.
+     * @param query         Query selecting the rows.
+     * @param inserts       Columns inserted by table, in insert order.
+     * @param discriminator Value of {@link EntryLayout#DISCRIMINATOR}, or
+     *                      null if it isn't inserted.
+     * @return Rows copied.
+     * @throws SQLException If either Database fails.
+     */
+    private long copy(final Connection from, final Connection to,
+                      final String query,
+                      final Map<String, List<String>> inserts,
+                      final String discriminator) throws SQLException {
+        final List<PreparedStatement> statements = new ArrayList<>();
+        long rows = 0;
+        try (Statement select = from.createStatement()) {
+            select.setFetchSize(batchSize);
+            for (Map.Entry<String, List<String>> insert
+                    : inserts.entrySet()) {
+                statements.add(to.prepareStatement(insertSql(
+                        insert.getKey(), insert.getValue())));
+            }
+            final List<List<String>> columns =
+                    new ArrayList<>(inserts.values());
+            try (ResultSet results = select.executeQuery(query)) {
+                while (results.next()) {
+                    for (int i = 0; i < statements.size(); i++) {
+                        bind(statements.get(i), columns.get(i), results,
+                                discriminator);
+                    }
+                    rows++;
+                    if (rows % batchSize == 0) {
+                        flush(statements);
+                    }
+                }
+            }
+            flush(statements);
+        } finally {
+            for (PreparedStatement statement : statements) {
+                statement.close();
+            }
+        }
+        LOGGER.debug("Copied {} rows of {}.", rows, inserts.keySet());
+        return rows;
+    }
+
+    /**
+     * Add a row to the batch of an insert.
+     *
+     * @param statement     The insert.
+     * @param columns       Its columns.
+     * @param row           Source row, positioned.
+     * @param discriminator Value of the discriminator, may be null.
+     * @throws SQLException If either Database fails.
+     */
+    private static void bind(final PreparedStatement statement,
+                             final List<String> columns, final ResultSet row,
+                             final String discriminator)
+            throws SQLException {
+        for (int i = 0; i < columns.size(); i++) {
+            final String column = columns.get(i);
+            statement.setObject(i + 1,
+                    EntryLayout.DISCRIMINATOR.equals(column)
+                            ? discriminator : row.getObject(column));
+        }
+        statement.addBatch();
+    }
+
+    /**
+     * Execute the batches of every insert, in order.
+     *
+     * @param statements The inserts.
+     * @throws SQLException If the target fails.
+     */
+    private static void flush(final List<PreparedStatement> statements)
+            throws SQLException {
+        for (PreparedStatement statement : statements) {
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Move the ID sequences of the target past the highest ID copied.
+     *
+     * @param to     Target connection.
+     * @param tables Tables of the target.
+     * @param target Layout of the target.
+     * @throws SQLException If the target fails.
+     */
+    private static void restartSequences(final Connection to,
+                                         final Set<String> tables,
+                                         final EntryLayout target)
+            throws SQLException {
+        for (Map.Entry<String, String> sequence : SEQUENCES.entrySet()) {
+            if (tables.contains(sequence.getValue())) {
+                continue;
+            }
+            final List<String> owners = HIERARCHY.equals(sequence.getKey())
+                    ? target.getTables()
+                    : Collections.singletonList(sequence.getKey());
+            long next = 1;
+            for (String owner : owners) {
+                if (tables.contains(owner)) {
+                    next = Math.max(next, maxId(to, owner) + 1);
+                }
+            }
+            try (Statement statement = to.createStatement()) {
+                statement.execute("ALTER SEQUENCE " + sequence.getValue()
+                        + " RESTART WITH " + next);
+            }
+        }
+    }
+
+    /**
+     * Order tables so every table comes after the tables it references.
+     * The tables of the Entry hierarchy are ordered as one,
+     * {@link #HIERARCHY}.
+     *
+     * @param connection Connection.
+     * @param tables     Tables to order.
+     * @param hierarchy  Tables of the Entry hierarchy.
+     * @return The tables in insert order.
+     * @throws SQLException If the Database fails.
+     */
+    private static List<String> order(final Connection connection,
+                                      final Set<String> tables,
+                                      final Set<String> hierarchy)
+            throws SQLException {
+        final DatabaseMetaData metaData = connection.getMetaData();
+        final Map<String, Set<String>> references = new LinkedHashMap<>();
+        for (String table : tables) {
+            final String node = hierarchy.contains(table) ? HIERARCHY : table;
+            final Set<String> referenced =
+                    references.computeIfAbsent(node, k -> new HashSet<>());
+            try (ResultSet keys = metaData.getImportedKeys(
+                    connection.getCatalog(), connection.getSchema(),
+                    physical(metaData, table))) {
+                while (keys.next()) {
+                    final String key = keys.getString("PKTABLE_NAME")
+                            .toLowerCase(Locale.ROOT);
+                    referenced.add(hierarchy.contains(key) ? HIERARCHY : key);
+                }
+            }
+            referenced.remove(node);
+        }
+
+        final List<String> output = new ArrayList<>();
+        final Set<String> remaining = new LinkedHashSet<>(references.keySet());
+        while (!remaining.isEmpty()) {
+            String next = null;
+            for (String table : remaining) {
+                final Set<String> pending =
+                        new HashSet<>(references.get(table));
+                pending.retainAll(remaining);
+                if (pending.isEmpty()) {
+                    next = table;
+                    break;
+                }
+            }
+            if (next == null) {
+                LOGGER.warn("Foreign keys of {} form a cycle.", remaining);
+                next = remaining.iterator().next();
+            }
+            remaining.remove(next);
+            output.add(next);
+        }
+        return output;
+    }
+
+    /**
+     * Return the columns of every table of a Database, both lower case.
+     *
+     * @param connection Connection.
+     * @return Column names by table name.
+     * @throws SQLException If the Database fails.
+     */
+    private static Map<String, List<String>> columnsByTable(
+            final Connection connection) throws SQLException {
+        final DatabaseMetaData metaData = connection.getMetaData();
+        final Map<String, List<String>> output = new HashMap<>();
+        try (ResultSet tables = metaData.getTables(connection.getCatalog(),
+                connection.getSchema(), "%", new String[]{"TABLE"})) {
+            while (tables.next()) {
+                output.put(tables.getString("TABLE_NAME")
+                        .toLowerCase(Locale.ROOT), new ArrayList<>());
+            }
+        }
+        try (ResultSet columns = metaData.getColumns(connection.getCatalog(),
+                connection.getSchema(), "%", "%")) {
+            while (columns.next()) {
+                final List<String> table = output.get(columns
+                        .getString("TABLE_NAME").toLowerCase(Locale.ROOT));
+                if (table != null) {
+                    table.add(columns.getString("COLUMN_NAME")
+                            .toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Return a table name the way the Database stores it.
+     *
+     * @param metaData Database Meta Data.
+     * @param table    Lower case table name.
+     * @return The stored table name.
+     * @throws SQLException If the Database fails.
+     */
+    private static String physical(final DatabaseMetaData metaData,
+                                   final String table) throws SQLException {
+        return metaData.storesUpperCaseIdentifiers()
+                ? table.toUpperCase(Locale.ROOT) : table;
+    }
+
+    /**
+     * Return the rows of a table.
+     *
+     * @param connection Connection.
+     * @param table      Table name.
+     * @return Row count.
+     * @throws SQLException If the Database fails.
+     */
+    private static long count(final Connection connection,
+                              final String table) throws SQLException {
+        return single(connection, "SELECT COUNT(*) FROM " + table);
+    }
+
+    /**
+     * Return the highest ID of a table.
+     *
+     * @param connection Connection.
+     * @param table      Table name.
+     * @return Highest ID, 0 if it is empty.
+     * @throws SQLException If the Database fails.
+     */
+    private static long maxId(final Connection connection,
+                              final String table) throws SQLException {
+        return single(connection, "SELECT COALESCE(MAX(id), 0) FROM "
+                + table);
+    }
+
+    /**
+     * Return the single number a query selects.
+     *
+     * @param connection Connection.
+     * @param query      The query.
+     * @return The number.
+     * @throws SQLException If the Database fails.
+     */
+    private static long single(final Connection connection,
+                               final String query) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(query)) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+
+    /**
+     * Return an insert of the given columns.
+     *
+     * @param table   Table name.
+     * @param columns Column names.
+     * @return SQL with a parameter per column.
+     */
+    public static String insertSql(final String table,
+                                   final List<String> columns) {
+        final StringBuilder values = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            values.append(i == 0 ? "?" : ", ?");
+        }
+        return "INSERT INTO " + table + " (" + String.join(", ", columns)
+                + ") VALUES (" + values + ")";
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.layout;
+
+import com.gkenna.tullamoreqa.domain.Answer;
+import com.gkenna.tullamoreqa.domain.Comment;
+import com.gkenna.tullamoreqa.domain.Entry;
+import com.gkenna.tullamoreqa.domain.Question;
+
+import javax.persistence.Table;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * EntryType Enum. The concrete Entries and the columns each has on top of
+ * the columns every Entry has, in the order they are migrated so every
+ * reference is migrated before whatever refers to it.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public enum EntryType {
+
+    /**
+     * A Question.
+     */
+    QUESTION(Question.class, "title"),
+
+    /**
+     * An Answer, referencing its Question.
+     */
+    ANSWER(Answer.class, "question_id", "chosen_answer"),
+
+    /**
+     * A Comment, referencing the Entry it comments on.
+     */
+    COMMENT(Comment.class, "entry_id", "parent_type");
+
+    /**
+     * The Entity.
+     */
+    private final Class<? extends Entry> entity;
+
+    /**
+     * Columns of this type only.
+     */
+    private final List<String> columns;
+
+    /**
+     * Default constructor for EntryType enum.
+     *
+     * @param entity  The Entity.
+     * @param columns Columns of this type only.
+     */
+    EntryType(final Class<? extends Entry> entity, final String... columns) {
+        this.entity = entity;
+        this.columns = Collections.unmodifiableList(Arrays.asList(columns));
+    }
+
+    /**
+     * Return the table of this type, in the layouts that give it one.
+     *
+     * @return i.e. 'questions'.
+     */
+    public final String getTable() {
+        return entity.getAnnotation(Table.class).name();
+    }
+
+    /**
+     * Return the discriminator of this type in a single table layout.
+     *
+     * @return i.e. 'Question'.
+     */
+    public final String getDiscriminator() {
+        return entity.getSimpleName();
+    }
+
+    /**
+     * Return the columns of this type only.
+     *
+     * @return Column names.
+     */
+    public final List<String> getColumns() {
+        return columns;
+    }
+}
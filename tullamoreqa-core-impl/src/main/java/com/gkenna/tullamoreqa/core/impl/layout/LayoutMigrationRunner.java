@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.layout;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * Migrates another Database into this instance's on startup, before
+ * warm-up, when started with
+ * <tt>--tullamoreqa.entry.migrate-from.url=&lt;jdbc url&gt;</tt>. The Entry
+ * hierarchy of the other Database is expected in
+ * <tt>tullamoreqa.entry.migrate-from.layout</tt>, and is moved to the
+ * layout this instance runs with.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class LayoutMigrationRunner implements CommandLineRunner {
+
+    /**
+     * Layout Migration Runner Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(LayoutMigrationRunner.class);
+
+    /**
+     * JDBC URL of the Database to migrate, empty for none.
+     */
+    @Value("${tullamoreqa.entry.migrate-from.url:}")
+    private String url;
+
+    /**
+     * User of the Database to migrate.
+     */
+    @Value("${tullamoreqa.entry.migrate-from.username:}")
+    private String username;
+
+    /**
+     * Password of the Database to migrate.
+     */
+    @Value("${tullamoreqa.entry.migrate-from.password:}")
+    private String password;
+
+    /**
+     * Layout of the Database to migrate.
+     */
+    @Value("${tullamoreqa.entry.migrate-from.layout:table-per-class}")
+    private String layout;
+
+    /**
+     * Migrates the Database.
+     */
+    private final EntryLayoutMigrator migrator;
+
+    /**
+     * Constructor that Auto wires the Migrator.
+     *
+     * @param migrator Migrates the Database.
+     */
+    @Autowired
+    public LayoutMigrationRunner(final EntryLayoutMigrator migrator) {
+        this.migrator = migrator;
+    }
+
+    @Override
+    public final void run(final String... args) throws SQLException {
+        if (url == null || url.isEmpty()) {
+            return;
+        }
+        LOGGER.info("Migrating {} on startup.", url);
+        migrator.migrate(new DriverManagerDataSource(url, username, password),
+                EntryLayout.of(layout));
+    }
+}
@@ -0,0 +1,9 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+/**
+ * Selectable table layouts of the Entry hierarchy and migration of a
+ * Database between them.
+ */
+package com.gkenna.tullamoreqa.core.impl.layout;
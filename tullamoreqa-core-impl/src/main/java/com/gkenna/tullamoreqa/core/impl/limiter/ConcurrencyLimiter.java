@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.limiter;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits how many Database calls may be in flight at once, the limit
+ * following how long the calls take.
+ * <p>
+ * The limit is adjusted by a gradient: a long running average of call
+ * latency is taken as what the Database manages when healthy, and each
+ * call that took notably longer than that shrinks the limit in proportion,
+ * while calls that didn't grow it by its square root. A call that failed
+ * as the Database is failing shrinks it by a fixed fraction. Calls made
+ * while less than half the limit was in use say nothing of whether it is
+ * too low, so leave it be.
+ * <p>
+ * Writes may use the whole limit, reads only a share of it, so when the
+ * Database slows reads are refused first. A refused call is not queued,
+ * the caller is told at once.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class ConcurrencyLimiter {
+
+    /**
+     * Concurrency Limiter Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(ConcurrencyLimiter.class);
+
+    /**
+     * Default limit on startup.
+     */
+    private static final int DEFAULT_INITIAL_LIMIT = 10;
+
+    /**
+     * Default lowest the limit may fall to.
+     */
+    private static final int DEFAULT_MIN_LIMIT = 2;
+
+    /**
+     * Default highest the limit may rise to.
+     */
+    private static final int DEFAULT_MAX_LIMIT = 50;
+
+    /**
+     * Default share of the limit reads may use.
+     */
+    private static final double DEFAULT_READ_SHARE = 0.8;
+
+    /**
+     * How much longer than the long running average a call may take
+     * before it shrinks the limit.
+     */
+    private static final double TOLERANCE = 1.5;
+
+    /**
+     * Lowest gradient a single call may apply.
+     */
+    private static final double MIN_GRADIENT = 0.5;
+
+    /**
+     * Weight of a new limit against the current one.
+     */
+    private static final double SMOOTHING = 0.2;
+
+    /**
+     * Fraction of the limit kept after a failed call.
+     */
+    private static final double BACKOFF = 0.9;
+
+    /**
+     * Calls the long running average of latency is taken over.
+     */
+    private static final int LONG_WINDOW = 100;
+
+    /**
+     * How much faster than the long running average calls must be before
+     * the average is pulled down quicker than it otherwise would.
+     */
+    private static final double RECOVERY_RATIO = 2.0;
+
+    /**
+     * Fraction of the long running average kept on each such call.
+     */
+    private static final double RECOVERY = 0.95;
+
+    /**
+     * Lowest the limit may fall to.
+     */
+    private final int minLimit;
+
+    /**
+     * Highest the limit may rise to.
+     */
+    private final int maxLimit;
+
+    /**
+     * Share of the limit reads may use.
+     */
+    private final double readShare;
+
+    /**
+     * Calls in flight.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * Reads let through.
+     */
+    private final AtomicLong readsAccepted = new AtomicLong();
+
+    /**
+     * Reads refused.
+     */
+    private final AtomicLong readsRejected = new AtomicLong();
+
+    /**
+     * Writes let through.
+     */
+    private final AtomicLong writesAccepted = new AtomicLong();
+
+    /**
+     * Writes refused.
+     */
+    private final AtomicLong writesRejected = new AtomicLong();
+
+    /**
+     * Calls that failed as the Database is failing.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Current limit, fractional so small adjustments add up.
+     */
+    private volatile double limit;
+
+    /**
+     * Long running average of call latency, in nanos, 0 before any.
+     */
+    private double longLatency;
+
+    /**
+     * Create a ConcurrencyLimiter with the default settings.
+     */
+    public ConcurrencyLimiter() {
+        this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT,
+                DEFAULT_READ_SHARE);
+    }
+
+    /**
+     * Create a ConcurrencyLimiter.
+     *
+     * @param initialLimit Limit on startup.
+     * @param minLimit     Lowest the limit may fall to.
+     * @param maxLimit     Highest the limit may rise to.
+     * @param readShare    Share of the limit reads may use, 0 to 1.
+     */
+    @Autowired
+    public ConcurrencyLimiter(
+            @Value("${tullamoreqa.limiter.initial-limit:10}")
+            final int initialLimit,
+            @Value("${tullamoreqa.limiter.min-limit:2}")
+            final int minLimit,
+            @Value("${tullamoreqa.limiter.max-limit:50}")
+            final int maxLimit,
+            @Value("${tullamoreqa.limiter.read-share:0.8}")
+            final double readShare) {
+        if (minLimit < 1 || maxLimit < minLimit || readShare <= 0
+                || readShare > 1) {
+            throw new IllegalArgumentException("Limits must be 1 <= "
+                    + minLimit + " <= " + maxLimit + ", read share 0 < "
+                    + readShare + " <= 1.");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.readShare = readShare;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Let a call through if the limit allows, counting it as in flight
+     * until {@link #release} is called.
+     *
+     * @param write Is the call a write.
+     * @return True if the call may go ahead.
+     */
+    public boolean tryAcquire(final boolean write) {
+        final int allowed = write ? getLimit()
+                : Math.max(1, (int) (getLimit() * readShare));
+        while (true) {
+            final int current = inFlight.get();
+            if (current >= allowed) {
+                (write ? writesRejected : readsRejected).incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                (write ? writesAccepted : readsAccepted).incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Record a call let through by {@link #tryAcquire} as done, adjusting
+     * the limit from how it went.
+     *
+     * @param latencyNanos How long the call took, in nanos.
+     * @param inFlightAt   Calls in flight when it started, itself included.
+     * @param failed       Did it fail as the Database is failing.
+     */
+    public void release(final long latencyNanos, final int inFlightAt,
+                        final boolean failed) {
+        inFlight.decrementAndGet();
+        if (failed) {
+            dropped.incrementAndGet();
+        }
+        adjust(latencyNanos, inFlightAt, failed);
+    }
+
+    /**
+     * Return the number of calls in flight.
+     *
+     * @return Calls in flight.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Return the current limit.
+     *
+     * @return Calls that may be in flight at once.
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Return the limit and counters of this limiter.
+     *
+     * @return Metrics by name.
+     */
+    public Map<String, Object> toMap() {
+        final Map<String, Object> output = new LinkedHashMap<>();
+        output.put("limit", getLimit());
+        output.put("minLimit", minLimit);
+        output.put("maxLimit", maxLimit);
+        output.put("readLimit", Math.max(1, (int) (getLimit() * readShare)));
+        output.put("inFlight", inFlight.get());
+        output.put("readsAccepted", readsAccepted.get());
+        output.put("readsRejected", readsRejected.get());
+        output.put("writesAccepted", writesAccepted.get());
+        output.put("writesRejected", writesRejected.get());
+        output.put("dropped", dropped.get());
+        synchronized (this) {
+            output.put("averageLatencyMillis",
+                    TimeUnit.NANOSECONDS.toMillis((long) longLatency));
+        }
+        return output;
+    }
+
+    /**
+     * Adjust the limit from a finished call.
+     *
+     * @param latencyNanos How long the call took, in nanos.
+     * @param inFlightAt   Calls in flight when it started.
+     * @param failed       Did it fail as the Database is failing.
+     */
+    private synchronized void adjust(final long latencyNanos,
+                                     final int inFlightAt,
+                                     final boolean failed) {
+        final double current = limit;
+        double next;
+        if (failed) {
+            next = current * BACKOFF;
+        } else {
+            final double latency = Math.max(1, latencyNanos);
+            if (longLatency == 0) {
+                longLatency = latency;
+            } else {
+                longLatency += (latency - longLatency) / LONG_WINDOW;
+            }
+            if (longLatency > latency * RECOVERY_RATIO) {
+                longLatency *= RECOVERY;
+            }
+            if (inFlightAt < current / 2) {
+                return;
+            }
+            final double gradient = Math.max(MIN_GRADIENT,
+                    Math.min(1.0, TOLERANCE * longLatency / latency));
+            next = current * gradient + Math.sqrt(current);
+            next = current * (1 - SMOOTHING) + next * SMOOTHING;
+        }
+        next = Math.max(minLimit, Math.min(maxLimit, next));
+        if ((int) next != (int) current) {
+            LOGGER.debug("Database concurrency limit now {}.", (int) next);
+        }
+        limit = next;
+    }
+}
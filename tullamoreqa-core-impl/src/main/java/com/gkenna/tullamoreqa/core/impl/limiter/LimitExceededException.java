@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.limiter;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown instead of making a Repository call when as many calls as the
+ * {@link ConcurrencyLimiter} currently allows are already in flight.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class LimitExceededException extends RuntimeException {
+    /**
+     * Constructs a <tt>LimitExceededException</tt> with the specified cause.
+     *
+     * @param message Additional exception information.
+     */
+    public LimitExceededException(final String message) {
+        super(message);
+    }
+}
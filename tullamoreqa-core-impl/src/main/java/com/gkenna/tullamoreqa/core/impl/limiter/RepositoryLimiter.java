@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.limiter;
+
+import com.gkenna.tullamoreqa.core.impl.cache.CircuitBreaker;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Puts every Repository behind the {@link ConcurrencyLimiter}, so each
+ * call to one is counted against the limit and refused with a
+ * {@link LimitExceededException} if it is reached.
+ * <p>
+ * A call is a read if its method name says so, i.e. <tt>findById</tt> or
+ * <tt>countByCreatedByUsername</tt>, and a write otherwise.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class RepositoryLimiter implements BeanPostProcessor {
+
+    /**
+     * Method name prefixes of Repository reads.
+     */
+    private static final List<String> READ_PREFIXES =
+            Collections.unmodifiableList(Arrays.asList("find", "get",
+                    "read", "query", "count", "exists", "stream",
+                    "search"));
+
+    /**
+     * Limiter the calls are counted against.
+     */
+    private final ConcurrencyLimiter limiter;
+
+    /**
+     * Are Repositories put behind the limiter.
+     */
+    private final boolean enabled;
+
+    /**
+     * Create a RepositoryLimiter.
+     *
+     * @param limiter Limiter the calls are counted against.
+     * @param enabled Are Repositories put behind the limiter.
+     */
+    @Autowired
+    public RepositoryLimiter(
+            final ConcurrencyLimiter limiter,
+            @Value("${tullamoreqa.limiter.enabled:true}")
+            final boolean enabled) {
+        this.limiter = limiter;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Is a Repository method a read.
+     *
+     * @param methodName Name of the method.
+     * @return True if it only reads.
+     */
+    static boolean isRead(final String methodName) {
+        for (String prefix : READ_PREFIXES) {
+            if (methodName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public final Object postProcessAfterInitialization(final Object bean,
+                                                       final String name) {
+        if (!enabled || !(bean instanceof Repository)) {
+            return bean;
+        }
+        final ProxyFactory proxy = new ProxyFactory();
+        proxy.setTarget(bean);
+        for (Class<?> type : ClassUtils.getAllInterfaces(bean)) {
+            if (Repository.class.isAssignableFrom(type)) {
+                proxy.addInterface(type);
+            }
+        }
+        proxy.addAdvice(new Interceptor());
+        return proxy.getProxy(bean.getClass().getClassLoader());
+    }
+
+    /**
+     * Counts each Repository call against the limiter.
+     */
+    private final class Interceptor implements MethodInterceptor {
+        @Override
+        public Object invoke(final MethodInvocation invocation)
+                throws Throwable {
+            final String method = invocation.getMethod().getName();
+            if (invocation.getMethod().getDeclaringClass() == Object.class) {
+                return invocation.proceed();
+            }
+            final boolean write = !isRead(method);
+            if (!limiter.tryAcquire(write)) {
+                throw new LimitExceededException(limiter
+                        .getInFlight() + " Database calls in flight, "
+                        + "refusing " + method + ".");
+            }
+            final int inFlightAt = limiter.getInFlight();
+            final long start = System.nanoTime();
+            boolean failed = false;
+            try {
+                return invocation.proceed();
+            } catch (RuntimeException e) {
+                failed = CircuitBreaker.isDatabaseFailure(e);
+                throw e;
+            } finally {
+                limiter.release(System.nanoTime() - start, inFlightAt,
+                        failed);
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+/**
+ * Limits how many Repository calls may be in flight at once, adjusting the
+ * limit from how long the calls take.
+ */
+package com.gkenna.tullamoreqa.core.impl.limiter;
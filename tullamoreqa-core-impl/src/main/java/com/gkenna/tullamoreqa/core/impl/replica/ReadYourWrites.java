@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.replica;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pins a client to the primary for a while after it writes, so it reads
+ * its own writes whatever the replicas have caught up on.
+ * <p>
+ * A write during an HTTP request pins the rest of that request, and sets
+ * the {@value #COOKIE} cookie to when the pin ends, which pins every
+ * request of the client carrying it until then. The request is read from
+ * {@link RequestContextHolder}, which the bulkheads bind it to on the
+ * threads running it too. Outside of a request, i.e. in scheduled jobs,
+ * nothing is pinned.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public final class ReadYourWrites {
+
+    /**
+     * Cookie holding the epoch millis until which the client is pinned.
+     */
+    public static final String COOKIE = "tullamoreqa-primary-until";
+
+    /**
+     * Request attribute marking a request that wrote.
+     */
+    static final String ATTRIBUTE = ReadYourWrites.class.getName() + ".WROTE";
+
+    /**
+     * Utility class, never instantiated.
+     */
+    private ReadYourWrites() {
+    }
+
+    /**
+     * Is the current request pinned to the primary.
+     *
+     * @return True if it, or an earlier request of the client within the
+     * pin, wrote.
+     */
+    public static boolean isPinned() {
+        final RequestAttributes attributes =
+                RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return false;
+        }
+        if (attributes.getAttribute(ATTRIBUTE,
+                RequestAttributes.SCOPE_REQUEST) != null) {
+            return true;
+        }
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return false;
+        }
+        final HttpServletRequest request =
+                ((ServletRequestAttributes) attributes).getRequest();
+        if (request.getCookies() == null) {
+            return false;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue())
+                            > System.currentTimeMillis();
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Record that the current request wrote, pinning its client for the
+     * given time.
+     *
+     * @param pinMillis How long to pin the client for, in millis.
+     */
+    public static void wrote(final long pinMillis) {
+        final RequestAttributes attributes =
+                RequestContextHolder.getRequestAttributes();
+        if (attributes == null || attributes.getAttribute(ATTRIBUTE,
+                RequestAttributes.SCOPE_REQUEST) != null) {
+            return;
+        }
+        attributes.setAttribute(ATTRIBUTE, Boolean.TRUE,
+                RequestAttributes.SCOPE_REQUEST);
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return;
+        }
+        final HttpServletResponse response =
+                ((ServletRequestAttributes) attributes).getResponse();
+        if (response == null || response.isCommitted()) {
+            return;
+        }
+        final Cookie cookie = new Cookie(COOKIE,
+                String.valueOf(System.currentTimeMillis() + pinMillis));
+        cookie.setMaxAge((int) Math.max(1,
+                TimeUnit.MILLISECONDS.toSeconds(pinMillis)));
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        response.addCookie(cookie);
+    }
+}
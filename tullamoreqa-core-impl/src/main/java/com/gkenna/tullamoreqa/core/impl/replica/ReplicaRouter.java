@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.replica;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Puts the primary {@link DataSource} behind a
+ * {@link ReplicaRoutingDataSource} when read replicas are configured, and
+ * checks their health on a schedule.
+ * <p>
+ * Replicas are listed by JDBC URL in <tt>tullamoreqa.replicas.urls</tt>
+ * and share the credentials of the primary unless
+ * <tt>tullamoreqa.replicas.username</tt> and <tt>password</tt> are set.
+ * With none listed the primary is left as it is.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class ReplicaRouter implements BeanPostProcessor, DisposableBean {
+
+    /**
+     * Replica Router Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(ReplicaRouter.class);
+
+    /**
+     * JDBC URLs of the replicas.
+     */
+    private final String[] urls;
+
+    /**
+     * Username on the replicas.
+     */
+    private final String username;
+
+    /**
+     * Password on the replicas.
+     */
+    private final String password;
+
+    /**
+     * How long to pin a client to the primary after it writes, in millis.
+     */
+    private final long pinMillis;
+
+    /**
+     * How often the replicas are checked, in millis.
+     */
+    private final long checkMillis;
+
+    /**
+     * How long a health check may wait on a replica, in seconds.
+     */
+    private final int checkTimeoutSeconds;
+
+    /**
+     * Replicas, once the primary has been put behind the router.
+     */
+    private final Map<String, DataSource> replicas = new LinkedHashMap<>();
+
+    /**
+     * Runs the health checks, once the primary has been put behind the
+     * router.
+     */
+    private ScheduledExecutorService healthChecks;
+
+    /**
+     * Create a ReplicaRouter.
+     *
+     * @param urls                JDBC URLs of the replicas.
+     * @param username            Username on the replicas.
+     * @param password            Password on the replicas.
+     * @param pinMillis           How long to pin a client to the primary
+     *                            after it writes, in millis.
+     * @param checkMillis         How often the replicas are checked, in
+     *                            millis.
+     * @param checkTimeoutSeconds How long a health check may wait on a
+     *                            replica, in seconds.
+     */
+    @Autowired
+    public ReplicaRouter(
+            @Value("${tullamoreqa.replicas.urls:}")
+            final String[] urls,
+            @Value("${tullamoreqa.replicas.username:"
+                    + "${spring.datasource.username:}}")
+            final String username,
+            @Value("${tullamoreqa.replicas.password:"
+                    + "${spring.datasource.password:}}")
+            final String password,
+            @Value("${tullamoreqa.replicas.pin-millis:5000}")
+            final long pinMillis,
+            @Value("${tullamoreqa.replicas.health-check-millis:5000}")
+            final long checkMillis,
+            @Value("${tullamoreqa.replicas.health-check-timeout-seconds:2}")
+            final int checkTimeoutSeconds) {
+        this.urls = urls.clone();
+        this.username = username;
+        this.password = password;
+        this.pinMillis = pinMillis;
+        this.checkMillis = checkMillis;
+        this.checkTimeoutSeconds = checkTimeoutSeconds;
+    }
+
+    @Override
+    public final synchronized Object postProcessAfterInitialization(
+            final Object bean, final String name) {
+        if (urls.length == 0 || !(bean instanceof DataSource)
+                || bean instanceof LazyConnectionDataSourceProxy
+                || healthChecks != null) {
+            return bean;
+        }
+        for (int i = 0; i < urls.length; i++) {
+            replicas.put("replica-" + i, DataSourceBuilder.create(
+                    bean.getClass().getClassLoader()).url(urls[i].trim())
+                    .username(username).password(password).build());
+        }
+        final ReplicaRoutingDataSource router = new ReplicaRoutingDataSource(
+                (DataSource) bean, replicas, pinMillis, checkTimeoutSeconds);
+
+        healthChecks = Executors.newSingleThreadScheduledExecutor(
+                new CustomizableThreadFactory("replica-health-"));
+        healthChecks.scheduleWithFixedDelay(router::checkHealth, 0,
+                checkMillis, TimeUnit.MILLISECONDS);
+        LOGGER.info("Sending read-only transactions to {} replicas.",
+                replicas.size());
+        return new LazyConnectionDataSourceProxy(router);
+    }
+
+    @Override
+    public final synchronized void destroy() {
+        if (healthChecks == null) {
+            return;
+        }
+        healthChecks.shutdownNow();
+        for (DataSource replica : replicas.values()) {
+            if (replica instanceof Closeable) {
+                try {
+                    ((Closeable) replica).close();
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to close a replica pool.", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.replica;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support
+        .TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gives out connections to a read replica inside read-only transactions,
+ * and to the primary otherwise.
+ * <p>
+ * Replicas take turns, skipping any that failed their last health check;
+ * with none healthy the primary serves reads too. A client that has just
+ * written is kept on the primary by {@link ReadYourWrites}.
+ * <p>
+ * Which Database a connection comes from is decided when it is obtained,
+ * so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * for the transaction to be known by then.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * Replica Routing Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(ReplicaRoutingDataSource.class);
+
+    /**
+     * Lookup key of the primary.
+     */
+    private static final String PRIMARY = "primary";
+
+    /**
+     * Replicas by name, in the order configured.
+     */
+    private final Map<String, DataSource> replicas;
+
+    /**
+     * How long to pin a client to the primary after it writes, in millis.
+     */
+    private final long pinMillis;
+
+    /**
+     * How long a health check may wait on a replica, in seconds.
+     */
+    private final int checkTimeoutSeconds;
+
+    /**
+     * Names of the replicas that passed their last health check.
+     */
+    private volatile List<String> healthy = Collections.emptyList();
+
+    /**
+     * Turn of the next replica.
+     */
+    private final AtomicInteger turn = new AtomicInteger();
+
+    /**
+     * Connections given out, by lookup key.
+     */
+    private final Map<String, AtomicLong> routed = new LinkedHashMap<>();
+
+    /**
+     * Create a new ReplicaRoutingDataSource, every replica unhealthy until
+     * first checked.
+     *
+     * @param primary             The primary.
+     * @param replicas            Replicas by name.
+     * @param pinMillis           How long to pin a client to the primary
+     *                            after it writes, in millis.
+     * @param checkTimeoutSeconds How long a health check may wait on a
+     *                            replica, in seconds.
+     */
+    public ReplicaRoutingDataSource(final DataSource primary,
+                                    final Map<String, DataSource> replicas,
+                                    final long pinMillis,
+                                    final int checkTimeoutSeconds) {
+        this.replicas = Collections.unmodifiableMap(
+                new LinkedHashMap<>(replicas));
+        this.pinMillis = pinMillis;
+        this.checkTimeoutSeconds = checkTimeoutSeconds;
+
+        final Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+
+        routed.put(PRIMARY, new AtomicLong());
+        for (String name : replicas.keySet()) {
+            routed.put(name, new AtomicLong());
+        }
+    }
+
+    /**
+     * Check every replica, taking those that fail out of turn until they
+     * pass again.
+     */
+    public void checkHealth() {
+        final List<String> output = new ArrayList<>();
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            final boolean wasHealthy = healthy.contains(replica.getKey());
+            if (isHealthy(replica.getValue())) {
+                output.add(replica.getKey());
+                if (!wasHealthy) {
+                    LOGGER.info("Replica {} is healthy, sending reads to"
+                            + " it.", replica.getKey());
+                }
+            } else if (wasHealthy) {
+                LOGGER.warn("Replica {} failed its health check, no longer"
+                        + " sending reads to it.", replica.getKey());
+            }
+        }
+        healthy = Collections.unmodifiableList(output);
+    }
+
+    /**
+     * Return the names of the replicas that passed their last health
+     * check.
+     *
+     * @return Replica names.
+     */
+    public List<String> getHealthy() {
+        return healthy;
+    }
+
+    /**
+     * Return how many connections were given out by each Database.
+     *
+     * @return Connections by 'primary' or replica name.
+     */
+    public Map<String, Long> getRouted() {
+        final Map<String, Long> output = new LinkedHashMap<>();
+        for (Map.Entry<String, AtomicLong> entry : routed.entrySet()) {
+            output.put(entry.getKey(), entry.getValue().get());
+        }
+        return output;
+    }
+
+    @Override
+    protected final Object determineCurrentLookupKey() {
+        final String output = route();
+        routed.get(output).incrementAndGet();
+        return output;
+    }
+
+    /**
+     * Pick the Database of a connection being obtained.
+     *
+     * @return 'primary' or a replica name.
+     */
+    private String route() {
+        if (!TransactionSynchronizationManager
+                .isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager
+                    .isActualTransactionActive()) {
+                ReadYourWrites.wrote(pinMillis);
+            }
+            return PRIMARY;
+        }
+        final List<String> candidates = healthy;
+        if (candidates.isEmpty() || ReadYourWrites.isPinned()) {
+            return PRIMARY;
+        }
+        return candidates.get(Math.floorMod(turn.getAndIncrement(),
+                candidates.size()));
+    }
+
+    /**
+     * Can a working connection be had from a replica.
+     *
+     * @param replica The replica.
+     * @return True if a connection was had and is valid.
+     */
+    private boolean isHealthy(final DataSource replica) {
+        try (Connection connection = replica.getConnection()) {
+            return connection.isValid(checkTimeoutSeconds);
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.debug("Replica health check failed.", e);
+            return false;
+        }
+    }
+}
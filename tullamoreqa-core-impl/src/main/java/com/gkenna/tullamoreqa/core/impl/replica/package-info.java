@@ -0,0 +1,9 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+/**
+ * Sends read-only transactions to read replicas of the Database, and the
+ * rest to the primary.
+ */
+package com.gkenna.tullamoreqa.core.impl.replica;
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.schema;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops everything in the schema before migrating it, so every start
+ * begins from an empty Database the way <tt>ddl-auto=create</tt> used to.
+ * Only enabled by <tt>tullamoreqa.schema.clean-on-start=true</tt>, meant for
+ * integration tests and other throwaway Databases.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+@ConditionalOnProperty(name = "tullamoreqa.schema.clean-on-start",
+        havingValue = "true")
+public class CleanMigrationStrategy implements FlywayMigrationStrategy {
+
+    /**
+     * Clean Migration Strategy Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(CleanMigrationStrategy.class);
+
+    @Override
+    public final void migrate(final Flyway flyway) {
+        LOGGER.warn("Dropping the schema before migrating it.");
+        flyway.clean();
+        flyway.migrate();
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.schema;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.collection.QueryableCollection;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.type.CollectionType;
+import org.hibernate.type.Type;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.EntityType;
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Warns on startup of Repository queries that filter a table on columns
+ * none of its indexes lead with, as each of those reads the whole table.
+ * <p>
+ * Derived queries are checked by the properties their method name filters
+ * on, {@link Query} methods by the {@link QueryFilters} found in their
+ * JPQL. Each filtered property is mapped to its table and column through
+ * Hibernate, and a table is covered when any one of the columns it is
+ * filtered on leads an index or its primary key. Native queries aren't
+ * checked. Disabled by <tt>tullamoreqa.schema.index-check.enabled</tt>.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class IndexCoverageCheck implements CommandLineRunner {
+
+    /**
+     * Index Coverage Check Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(IndexCoverageCheck.class);
+
+    /**
+     * Separates the properties of a path.
+     */
+    private static final char PATH_SEPARATOR = '.';
+
+    /**
+     * Whether the check runs on startup.
+     */
+    @Value("${tullamoreqa.schema.index-check.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Application Context holding the Repositories.
+     */
+    private final ApplicationContext context;
+
+    /**
+     * Entity Manager Factory, for the mapping of every entity.
+     */
+    private final EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Database whose indexes are checked.
+     */
+    private final DataSource dataSource;
+
+    /**
+     * Constructor that Auto wires the Context, the Entity Manager Factory
+     * and the Database.
+     *
+     * @param context              Application Context.
+     * @param entityManagerFactory Entity Manager Factory.
+     * @param dataSource           Database.
+     */
+    @Autowired
+    public IndexCoverageCheck(final ApplicationContext context,
+                              final EntityManagerFactory entityManagerFactory,
+                              final DataSource dataSource) {
+        this.context = context;
+        this.entityManagerFactory = entityManagerFactory;
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public final void run(final String... args) throws SQLException {
+        if (!enabled) {
+            return;
+        }
+        final List<String> uncovered = check();
+        for (String query : uncovered) {
+            LOGGER.warn("No index supports {}.", query);
+        }
+        LOGGER.info("Found {} Repository queries without a supporting"
+                + " index.", uncovered.size());
+    }
+
+    /**
+     * Check every query method of every Repository.
+     *
+     * @return Descriptions of the queries without a supporting index, as
+     * <tt>Repository.method on table [columns]</tt>.
+     * @throws SQLException If the Database fails.
+     */
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public List<String> check() throws SQLException {
+        final SessionFactoryImplementor sessionFactory = entityManagerFactory
+                .unwrap(SessionFactoryImplementor.class);
+        final Map<String, Class<?>> entities = new HashMap<>();
+        for (EntityType<?> entity
+                : sessionFactory.getMetamodel().getEntities()) {
+            entities.put(entity.getName(), entity.getJavaType());
+        }
+
+        final List<String> output = new ArrayList<>();
+        final Map<String, Set<String>> indexed = new HashMap<>();
+        final Repositories repositories = new Repositories(context);
+        try (Connection connection = dataSource.getConnection()) {
+            for (Class<?> domain : repositories) {
+                final RepositoryInformation information = repositories
+                        .getRepositoryInformationFor(domain).orElse(null);
+                if (information == null) {
+                    continue;
+                }
+                for (Method method : information.getQueryMethods()) {
+                    final String name = method.getDeclaringClass()
+                            .getSimpleName() + "." + method.getName();
+                    for (Map.Entry<Class<?>, Set<String>> filter
+                            : filters(method, domain, entities).entrySet()) {
+                        for (Map.Entry<String, Set<String>> table
+                                : columns(sessionFactory, filter.getKey(),
+                                filter.getValue()).entrySet()) {
+                            Set<String> leading = indexed.get(table.getKey());
+                            if (leading == null) {
+                                leading = leadingColumns(connection,
+                                        table.getKey());
+                                indexed.put(table.getKey(), leading);
+                            }
+                            if (!covered(table.getValue(), leading)) {
+                                output.add(name + " on " + table.getKey()
+                                        + " " + table.getValue());
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Return whether a table filtered on some columns can be searched
+     * through an index.
+     *
+     * @param columns Columns filtered on.
+     * @param leading Columns that lead an index or the primary key.
+     * @return True if any filtered column leads an index.
+     */
+    static boolean covered(final Set<String> columns,
+                           final Set<String> leading) {
+        return !Collections.disjoint(columns, leading);
+    }
+
+    /**
+     * Return the property paths a query method filters on.
+     *
+     * @param method   The query method.
+     * @param domain   Entity of the Repository.
+     * @param entities Entity classes by entity name.
+     * @return Property paths by the entity they start from.
+     */
+    private static Map<Class<?>, Set<String>> filters(
+            final Method method, final Class<?> domain,
+            final Map<String, Class<?>> entities) {
+        final Map<Class<?>, Set<String>> output = new LinkedHashMap<>();
+        final Query query = method.getAnnotation(Query.class);
+        if (query == null) {
+            output.put(domain, derived(method, domain));
+        } else if (!query.nativeQuery()) {
+            final QueryFilters parsed = QueryFilters.parse(query.value());
+            for (String alias : parsed.getAliases()) {
+                final Class<?> entity = entities.get(parsed.getEntity(alias));
+                if (entity != null) {
+                    output.computeIfAbsent(entity,
+                            key -> new LinkedHashSet<>())
+                            .addAll(parsed.getPaths(alias));
+                }
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Return the property paths a derived query filters on.
+     *
+     * @param method The query method.
+     * @param domain Entity of the Repository.
+     * @return The paths, empty if the method name isn't a derived query.
+     */
+    private static Set<String> derived(final Method method,
+                                       final Class<?> domain) {
+        final Set<String> output = new LinkedHashSet<>();
+        try {
+            for (Part part : new PartTree(method.getName(), domain)
+                    .getParts()) {
+                output.add(part.getProperty().toDotPath());
+            }
+        } catch (RuntimeException e) {
+            LOGGER.debug("{} isn't a derived query.", method, e);
+        }
+        return output;
+    }
+
+    /**
+     * Map property paths of an entity to the columns they filter, by
+     * table. Paths into a collection filter its collection table, paths
+     * that would need a join to another entity are skipped.
+     *
+     * @param sessionFactory Session Factory.
+     * @param entity         The entity.
+     * @param paths          Property paths.
+     * @return Lower case columns by lower case table.
+     */
+    private static Map<String, Set<String>> columns(
+            final SessionFactoryImplementor sessionFactory,
+            final Class<?> entity, final Set<String> paths) {
+        final AbstractEntityPersister persister = (AbstractEntityPersister)
+                sessionFactory.getMetamodel().entityPersister(entity);
+        final Map<String, Set<String>> output = new LinkedHashMap<>();
+        for (String path : paths) {
+            final int separator = path.indexOf(PATH_SEPARATOR);
+            final String property = separator < 0
+                    ? path : path.substring(0, separator);
+            try {
+                String table;
+                String column;
+                if (property.equals(persister.getIdentifierPropertyName())) {
+                    table = persister.getTableName();
+                    column = persister.getIdentifierColumnNames()[0];
+                } else {
+                    final Type type = persister.getPropertyType(property);
+                    if (type.isCollectionType()) {
+                        final QueryableCollection collection =
+                                (QueryableCollection) sessionFactory
+                                        .getMetamodel().collectionPersister(
+                                        ((CollectionType) type).getRole());
+                        table = collection.getTableName();
+                        column = collection.getElementColumnNames()[0];
+                    } else {
+                        table = persister.getPropertyTableName(property);
+                        if (table == null) {
+                            table = persister.getTableName();
+                        }
+                        column = persister.getPropertyColumnNames(path)[0];
+                    }
+                }
+                output.computeIfAbsent(table.toLowerCase(Locale.ROOT),
+                        key -> new LinkedHashSet<>())
+                        .add(column.toLowerCase(Locale.ROOT));
+            } catch (HibernateException e) {
+                LOGGER.debug("Skipping {} of {}, it isn't a column.", path,
+                        entity.getSimpleName(), e);
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Return the columns that lead an index or the primary key of a table.
+     *
+     * @param connection Connection.
+     * @param table      Lower case table name.
+     * @return Lower case column names.
+     * @throws SQLException If the Database fails.
+     */
+    private static Set<String> leadingColumns(final Connection connection,
+                                              final String table)
+            throws SQLException {
+        final DatabaseMetaData metaData = connection.getMetaData();
+        final String stored = metaData.storesUpperCaseIdentifiers()
+                ? table.toUpperCase(Locale.ROOT) : table;
+        final Set<String> output = new HashSet<>();
+        try (ResultSet indexes = metaData.getIndexInfo(
+                connection.getCatalog(), connection.getSchema(), stored,
+                false, true)) {
+            while (indexes.next()) {
+                final String column = indexes.getString("COLUMN_NAME");
+                if (column != null
+                        && indexes.getShort("ORDINAL_POSITION") == 1) {
+                    output.add(column.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        try (ResultSet keys = metaData.getPrimaryKeys(
+                connection.getCatalog(), connection.getSchema(), stored)) {
+            while (keys.next()) {
+                if (keys.getShort("KEY_SEQ") == 1) {
+                    output.add(keys.getString("COLUMN_NAME")
+                            .toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return output;
+    }
+}
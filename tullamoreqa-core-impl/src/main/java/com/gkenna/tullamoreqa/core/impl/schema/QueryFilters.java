@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.schema;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The properties a JPQL query filters on, by the entity they belong to.
+ * <p>
+ * This is a heuristic rather than a parser: every <tt>alias.path</tt>
+ * compared with <tt>=</tt>, <tt>&lt;</tt>, <tt>IN</tt>, <tt>LIKE</tt> and
+ * the like counts as a filter, wherever it is in the query. Paths through
+ * joined aliases are followed back to the entity the join started from,
+ * so <tt>JOIN a.createdBy u WHERE u.username = ?1</tt> filters
+ * <tt>createdBy.username</tt> of <tt>a</tt>.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+final class QueryFilters {
+
+    /**
+     * Entity and alias of a FROM clause.
+     */
+    private static final Pattern FROM = Pattern.compile(
+            "\\bFROM\\s+(\\w+)\\s+(?:AS\\s+)?(\\w+)",
+            Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Joined path and alias of a JOIN clause.
+     */
+    private static final Pattern JOIN = Pattern.compile(
+            "\\bJOIN\\s+(?:FETCH\\s+)?(\\w+)\\.([\\w.]+)"
+                    + "\\s+(?:AS\\s+)?(\\w+)",
+            Pattern.CASE_INSENSITIVE);
+
+    /**
+     * A path compared with something.
+     */
+    private static final Pattern FILTER = Pattern.compile(
+            "\\b(\\w+)\\.([\\w.]*\\w)\\s*(?:=|<>|!=|<=|>=|<|>"
+                    + "|(?:NOT\\s+)?(?:IN|LIKE|BETWEEN)\\b)",
+            Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Words that may follow an entity name in place of an alias.
+     */
+    private static final Set<String> KEYWORDS = Collections.unmodifiableSet(
+            new LinkedHashSet<>(Arrays.asList("where", "join",
+                    "inner", "left", "right", "group", "order", "having")));
+
+    /**
+     * Entity names, by the alias of the FROM clause they come from.
+     */
+    private final Map<String, String> entities = new LinkedHashMap<>();
+
+    /**
+     * Filtered paths, by the alias of the FROM clause they start from.
+     */
+    private final Map<String, Set<String>> paths = new LinkedHashMap<>();
+
+    /**
+     * Only built by {@link #parse(String)}.
+     */
+    private QueryFilters() {
+    }
+
+    /**
+     * Find the filters of a JPQL query.
+     *
+     * @param jpql The query.
+     * @return Its filters.
+     */
+    static QueryFilters parse(final String jpql) {
+        final QueryFilters output = new QueryFilters();
+        final Matcher from = FROM.matcher(jpql);
+        while (from.find()) {
+            final String alias = from.group(2);
+            if (!KEYWORDS.contains(alias.toLowerCase(Locale.ROOT))) {
+                output.entities.put(alias, from.group(1));
+                output.paths.put(alias, new LinkedHashSet<>());
+            }
+        }
+
+        final Map<String, String[]> joins = new LinkedHashMap<>();
+        final Matcher join = JOIN.matcher(jpql);
+        while (join.find()) {
+            joins.put(join.group(3),
+                    new String[]{join.group(1), join.group(2)});
+        }
+
+        final Matcher filter = FILTER.matcher(jpql);
+        while (filter.find()) {
+            String alias = filter.group(1);
+            String path = filter.group(2);
+            while (joins.containsKey(alias)) {
+                final String[] joined = joins.get(alias);
+                alias = joined[0];
+                path = joined[1] + "." + path;
+            }
+            final Set<String> filtered = output.paths.get(alias);
+            if (filtered != null) {
+                filtered.add(path);
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Return the aliases of the FROM clauses, subqueries included.
+     *
+     * @return Aliases, in query order.
+     */
+    Set<String> getAliases() {
+        return Collections.unmodifiableSet(entities.keySet());
+    }
+
+    /**
+     * Return the entity an alias stands for.
+     *
+     * @param alias Alias of a FROM clause.
+     * @return The entity name.
+     */
+    String getEntity(final String alias) {
+        return entities.get(alias);
+    }
+
+    /**
+     * Return the paths filtered on an alias, through joins included.
+     *
+     * @param alias Alias of a FROM clause.
+     * @return The property paths, empty if the alias isn't filtered.
+     */
+    Set<String> getPaths(final String alias) {
+        return Collections.unmodifiableSet(paths.get(alias));
+    }
+}
@@ -0,0 +1,9 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+/**
+ * Management of the Database schema, migrated by Flyway and checked for
+ * the indexes the Repositories rely on.
+ */
+package com.gkenna.tullamoreqa.core.impl.schema;
@@ -5,16 +5,30 @@
 package com.gkenna.tullamoreqa.core.impl.services;
 
 import com.gkenna.tullamoreqa.core.api.exceptions.AnswerNotFoundException;
+import com.gkenna.tullamoreqa.core.api.exceptions.InvalidPatchException;
+import com.gkenna.tullamoreqa.core.api.exceptions.VersionMismatchException;
 import com.gkenna.tullamoreqa.core.api.repositories.AnswerRepository;
 import com.gkenna.tullamoreqa.core.api.services.AnswerService;
+import com.gkenna.tullamoreqa.core.api.services.EntryService;
+import com.gkenna.tullamoreqa.core.impl.archive.QuestionArchive;
+import com.gkenna.tullamoreqa.core.impl.cache.CacheRegistry;
+import com.gkenna.tullamoreqa.core.impl.events.Outbox;
 import com.gkenna.tullamoreqa.domain.Answer;
+import com.gkenna.tullamoreqa.domain.Question;
 import com.gkenna.tullamoreqa.domain.User;
 import com.gkenna.tullamoreqa.domain.Vote;
+import com.gkenna.tullamoreqa.domain.events.ChangeType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -25,6 +39,7 @@ import java.util.Optional;
  * @since 0.0.0
  */
 @Service("answerService")
+@Transactional
 public class AnswerServiceImpl implements AnswerService {
 
     /**
@@ -33,6 +48,13 @@ public class AnswerServiceImpl implements AnswerService {
     private static final Logger LOGGER =
             LogManager.getLogger(AnswerServiceImpl.class);
 
+    /**
+     * Fields of an {@link Answer} that a merge patch may change.
+     */
+    private static final MergePatch PATCHABLE = new MergePatch(Answer.class)
+            .field("body", String.class)
+            .field("chosenAnswer", Boolean.class);
+
     /**
      * Answer Repository, that will be AutoWired by Spring in the Constructor.
      * This object is used to interact with the DB.
@@ -40,37 +62,112 @@ public class AnswerServiceImpl implements AnswerService {
      */
     private final AnswerRepository answerRepository;
 
+    /**
+     * Inserts Answers in batches for {@link #addAnswers(List)}.
+     */
+    private final BulkInserter bulkInserter;
+
+    /**
+     * Applies updates as a single conditional UPDATE.
+     */
+    private final ConditionalUpdater conditionalUpdater;
+
+    /**
+     * Records a change event for every change to an Answer.
+     */
+    private final Outbox outbox;
+
+    /**
+     * Restores the Questions Answers asked for are archived with.
+     */
+    private final QuestionArchive archive;
+
+    /**
+     * Caches emptied of Questions answered.
+     */
+    private final CacheRegistry caches;
+
+    /**
+     * Casts and withdraws Votes on every kind of Entry, through the
+     * {@link com.gkenna.tullamoreqa.core.impl.votes.VoteLedger}.
+     */
+    private final EntryService entryService;
+
     /**
      * Constructor that Auto wires the Answer Repository.
      *
-     * @param answerRepository Answer Repo object.
+     * @param answerRepository   Answer Repo object.
+     * @param bulkInserter       Inserts Answers in batches.
+     * @param conditionalUpdater Applies updates as a conditional UPDATE.
+     * @param outbox             Records change events.
+     * @param archive            Restores archived Questions.
+     * @param caches             Caches emptied of Questions answered.
+     * @param entryService       Casts and withdraws Votes.
      */
     @Autowired
-    public AnswerServiceImpl(final AnswerRepository answerRepository) {
+    public AnswerServiceImpl(final AnswerRepository answerRepository,
+                             final BulkInserter bulkInserter,
+                             final ConditionalUpdater conditionalUpdater,
+                             final Outbox outbox,
+                             final QuestionArchive archive,
+                             final CacheRegistry caches,
+                             @Qualifier("entryService")
+                             final EntryService entryService) {
         this.answerRepository = answerRepository;
+        this.bulkInserter = bulkInserter;
+        this.conditionalUpdater = conditionalUpdater;
+        this.outbox = outbox;
+        this.archive = archive;
+        this.caches = caches;
+        this.entryService = entryService;
     }
 
     @Override
-    public final void addAnswer(final Answer answer) {
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public void addAnswer(final Answer answer) {
         LOGGER.debug("Adding new Answer {}", answer);
         answerRepository.save(answer);
+        outbox.record(Answer.class, answer.getId(), ChangeType.CREATED);
+        /*
+        The Question answered changed along with its Answers.
+         */
+        if (answer.getQuestion() != null) {
+            conditionalUpdater.touch(Question.class,
+                    answer.getQuestion().getId());
+            caches.questions().invalidate(answer.getQuestion().getId());
+        }
         LOGGER.debug("New Answer with ID {} added successfully.",
                 answer.getId());
     }
 
     @Override
-    public final void deleteAnswer(final Answer answer) {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public List<Long> addAnswers(final List<Answer> answers) {
+        LOGGER.debug("Adding {} new Answers", answers.size());
+        final List<Long> output = bulkInserter.insert(answers, Answer::getId);
+        LOGGER.debug("{} new Answers added successfully.", output.size());
+        return output;
+    }
+
+    @Override
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public void deleteAnswer(final Answer answer) {
         LOGGER.debug("Deleting {}", answer);
         answerRepository.delete(answer);
+        outbox.record(Answer.class, answer.getId(), ChangeType.DELETED);
     }
 
     @Override
-    public final Answer deleteAnswer(final Long answerId)
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public Answer deleteAnswer(final Long answerId)
             throws AnswerNotFoundException {
         LOGGER.debug("Deleting {}", answerId);
-        if (answerRepository.existsById(answerId)) {
+        if (answerRepository.existsById(answerId)
+                || archive.restoreEntry(answerId, () -> Boolean.TRUE) != null) {
             Answer output = answerRepository.getOne(answerId);
             answerRepository.delete(output);
+            outbox.record(Answer.class, answerId, ChangeType.DELETED);
             return output;
         }
         LOGGER.error("Answer {} does not exist. Cannot delete.", answerId);
@@ -78,82 +175,140 @@ public class AnswerServiceImpl implements AnswerService {
     }
 
     @Override
-    public final Answer updateAnswer(final Long answerId,
-                                     final Answer input)
-            throws AnswerNotFoundException {
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public Answer updateAnswer(final Long answerId,
+                               final Answer input,
+                               final Long version)
+            throws AnswerNotFoundException, VersionMismatchException {
 
-        LOGGER.debug("Updating {} to {}", answerId, input);
-        if (answerRepository.existsById(answerId)) {
-            final Answer output = answerRepository.getOne(answerId);
+        LOGGER.debug("Updating {} at version {} to {}", answerId, version,
+                input);
+
+        final Map<String, Object> values = new LinkedHashMap<>();
+        values.put("body", input.getBody());
+        values.put("question", input.getQuestion());
+        values.put("createdBy", input.getCreatedBy());
+        values.put("chosenAnswer", input.isChosenAnswer());
 
-            LOGGER.debug("Answer before update {}", output);
+        conditionalUpdate(answerId, values, version);
+        final Answer output = answerRepository.findById(answerId).get();
+        LOGGER.debug("Answer after update {}", output);
+        return output;
+    }
 
-            output.setBody(input.getBody());
-            output.setQuestion(input.getQuestion());
-            output.setCreatedBy(input.getCreatedBy());
-            output.setChosenAnswer(input.isChosenAnswer());
+    @Override
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public long patchAnswer(final Long answerId,
+                            final Map<String, Object> patch,
+                            final Long version)
+            throws AnswerNotFoundException, VersionMismatchException,
+            InvalidPatchException {
+        LOGGER.debug("Merge patching {} at version {} with {}", answerId,
+                version, patch);
 
-            LOGGER.debug("Answer after update {}", output);
+        return conditionalUpdate(answerId, PATCHABLE.toColumns(patch),
+                version);
+    }
 
-            answerRepository.save(output);
-            return output;
+    /**
+     * Update the columns of an {@link Answer} in one conditional UPDATE,
+     * without reading it back. An Answer archived with its Question is
+     * restored and updated. The Answer is only looked up separately when
+     * nothing was updated, to tell a missing Answer from a stale version.
+     *
+     * @param answerId ID of the Answer to update.
+     * @param values   New column values by attribute name.
+     * @param version  Version the Answer must be at, or null for any.
+     * @return The version the Answer is at now.
+     * @throws AnswerNotFoundException  If the Answer doesn't exist.
+     * @throws VersionMismatchException If the Answer isn't at version.
+     */
+    private long conditionalUpdate(final Long answerId,
+                                   final Map<String, Object> values,
+                                   final Long version)
+            throws AnswerNotFoundException, VersionMismatchException {
+        if (conditionalUpdater.update(Answer.class, answerId, values,
+                version) || Boolean.TRUE.equals(archive.restoreEntry(answerId,
+                () -> conditionalUpdater.update(Answer.class, answerId, values,
+                        version)))) {
+            outbox.record(Answer.class, answerId, ChangeType.UPDATED);
+            return conditionalUpdater.updatedVersion(Answer.class, answerId,
+                    version);
+        }
+        if (answerRepository.existsById(answerId)) {
+            LOGGER.warn("Answer {} is no longer at version {}.", answerId,
+                    version);
+            throw new VersionMismatchException("Answer " + answerId
+                    + " is no longer at version " + version + ".");
         }
         LOGGER.error("Answer {} does not exist. Cannot update.", answerId);
         throw new AnswerNotFoundException(answerId + " does not exist.");
     }
 
     @Override
-    public final Answer patchAnswer(final String answerId, final Answer input)
-            throws AnswerNotFoundException {
-
-        return null;
-    }
-
-    @Override
-    public final boolean doesAnswerExist(final Answer answer) {
+    @Transactional(readOnly = true)
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public boolean doesAnswerExist(final Answer answer) {
         return this.doesAnswerExist(answer.getId());
     }
 
     @Override
-    public final boolean doesAnswerExist(final Long answerId) {
+    @Transactional(readOnly = true)
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public boolean doesAnswerExist(final Long answerId) {
         return answerRepository.existsById(answerId);
     }
 
     @Override
-    public final Answer getAnswer(final Long answerId)
+    @Transactional(readOnly = true)
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public Answer getAnswer(final Long answerId)
             throws AnswerNotFoundException {
         LOGGER.debug("Attempting to get Answer {}", answerId);
         Optional<Answer> answer = answerRepository.findById(answerId);
         if (answer.isPresent()) {
             return answer.get();
         }
+        final Answer restored = archive.restoreEntry(answerId, () ->
+                answerRepository.findById(answerId).orElse(null));
+        if (restored != null) {
+            return restored;
+        }
 
         LOGGER.error("Answer not found.");
         throw new AnswerNotFoundException(answerId + " does not exist.");
     }
 
     @Override
-    public final Iterable<Answer> getAllAnswers() {
+    @Transactional(readOnly = true)
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public Iterable<Answer> getAllAnswers() {
         return answerRepository.findAll();
     }
 
     @Override
-    public final Answer[] findAnswersAnsweredByUser(final User user) {
+    @Transactional(readOnly = true)
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public Answer[] findAnswersAnsweredByUser(final User user) {
         return this.findAnswersAnsweredByUsername(user.getUsername());
     }
 
     @Override
-    public final Answer[] findAnswersAnsweredByUsername(final String username) {
+    @Transactional(readOnly = true)
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public Answer[] findAnswersAnsweredByUsername(final String username) {
         return answerRepository.findAnswersByUserUsername(username);
     }
 
     @Override
-    public final void castVote(final Long entryId, final Vote vote) {
-
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public void castVote(final Long entryId, final Vote vote) {
+        entryService.castVote(entryId, vote);
     }
 
     @Override
-    public final void deleteVote(final Long entryId, final Vote vote) {
-
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public void deleteVote(final Long entryId, final Vote vote) {
+        entryService.deleteVote(entryId, vote);
     }
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.services;
+
+import com.gkenna.tullamoreqa.core.impl.events.Outbox;
+import com.gkenna.tullamoreqa.domain.events.ChangeEvent;
+import com.gkenna.tullamoreqa.domain.events.ChangeType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Inserts many new entities at once for the bulk create Services. Entities
+ * are persisted in chunks, each chunk flushed once and then cleared from
+ * the persistence context, so Hibernate can send its inserts as JDBC
+ * batches (see <tt>hibernate.jdbc.batch_size</tt> and
+ * <tt>hibernate.order_inserts</tt>) rather than one round trip per row,
+ * without holding every entity in memory.
+ * <p>
+ * Every chunk is inserted in one transaction, so a failing chunk rolls back
+ * the chunks before it too and a request either inserts everything or
+ * nothing, which makes it safe to retry. Each entity also records a created
+ * {@link ChangeEvent} through the {@link Outbox}, in the same transaction,
+ * like the single create Services do.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class BulkInserter {
+
+    /**
+     * Bulk Inserter Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(BulkInserter.class);
+
+    /**
+     * Entity Manager bound to the current transaction.
+     */
+    private final EntityManager entityManager;
+
+    /**
+     * Runs every chunk in one transaction.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Records a change event per entity inserted.
+     */
+    private final Outbox outbox;
+
+    /**
+     * Number of entities inserted per transaction.
+     */
+    private final int chunkSize;
+
+    /**
+     * Constructor that Auto wires the Entity Manager Factory, Transaction
+     * Manager and Outbox.
+     *
+     * @param entityManagerFactory Entity Manager Factory.
+     * @param transactionManager   Transaction Manager.
+     * @param outbox               Records a change event per entity.
+     * @param chunkSize            Entities inserted per flush.
+     */
+    @Autowired
+    public BulkInserter(
+            final EntityManagerFactory entityManagerFactory,
+            final PlatformTransactionManager transactionManager,
+            final Outbox outbox,
+            @Value("${tullamoreqa.bulk.chunk-size:500}")
+            final int chunkSize) {
+        this.entityManager = SharedEntityManagerCreator
+                .createSharedEntityManager(entityManagerFactory);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.outbox = outbox;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Insert every entity, a chunk per flush, all in one transaction.
+     *
+     * @param entities New entities to insert.
+     * @param idOf     Returns the ID of an entity once inserted.
+     * @param <T>      Type of the entity.
+     * @param <I>      Type of the entity ID.
+     * @return IDs of the inserted entities, in the order given.
+     * @throws RuntimeException If any insert failed, nothing is inserted.
+     */
+    public <T, I> List<I> insert(final List<T> entities,
+                                 final Function<T, I> idOf) {
+        final long start = System.nanoTime();
+        final List<I> ids = new ArrayList<>(entities.size());
+        transactionTemplate.execute(status -> {
+            for (int from = 0; from < entities.size(); from += chunkSize) {
+                final List<T> chunk = entities.subList(from,
+                        Math.min(from + chunkSize, entities.size()));
+                for (T entity : chunk) {
+                    entityManager.persist(entity);
+                    outbox.record(entity.getClass(), idOf.apply(entity),
+                            ChangeType.CREATED);
+                }
+                entityManager.flush();
+                entityManager.clear();
+                for (T entity : chunk) {
+                    ids.add(idOf.apply(entity));
+                }
+            }
+            return null;
+        });
+        LOGGER.debug("Inserted {} entities in {} ms.", entities.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return ids;
+    }
+}
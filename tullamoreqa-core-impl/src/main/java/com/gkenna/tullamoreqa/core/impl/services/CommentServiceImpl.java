@@ -5,16 +5,28 @@
 package com.gkenna.tullamoreqa.core.impl.services;
 
 import com.gkenna.tullamoreqa.core.api.exceptions.CommentNotFoundException;
+import com.gkenna.tullamoreqa.core.api.exceptions.InvalidPatchException;
+import com.gkenna.tullamoreqa.core.api.exceptions.VersionMismatchException;
 import com.gkenna.tullamoreqa.core.api.repositories.CommentRepository;
 import com.gkenna.tullamoreqa.core.api.services.CommentService;
+import com.gkenna.tullamoreqa.core.api.services.EntryService;
+import com.gkenna.tullamoreqa.core.impl.archive.QuestionArchive;
+import com.gkenna.tullamoreqa.core.impl.cache.CacheRegistry;
 import com.gkenna.tullamoreqa.domain.Comment;
+import com.gkenna.tullamoreqa.domain.Entry;
+import com.gkenna.tullamoreqa.domain.ParentType;
 import com.gkenna.tullamoreqa.domain.User;
 import com.gkenna.tullamoreqa.domain.Vote;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Implementation of {@link CommentService}.
@@ -32,6 +44,12 @@ public class CommentServiceImpl implements CommentService {
     private static final Logger LOGGER =
             LogManager.getLogger(CommentServiceImpl.class);
 
+    /**
+     * Fields of a {@link Comment} that a merge patch may change.
+     */
+    private static final MergePatch PATCHABLE = new MergePatch(Comment.class)
+            .field("body", String.class);
+
     /**
      * Comment Repository, that will be AutoWired by Spring in the Constructor.
      * This object is used to interact with the DB.
@@ -39,20 +57,61 @@ public class CommentServiceImpl implements CommentService {
      */
     private final CommentRepository commentRepository;
 
+    /**
+     * Applies patches as a single conditional UPDATE.
+     */
+    private final ConditionalUpdater conditionalUpdater;
+
+    /**
+     * Restores the Questions Comments asked for are archived with.
+     */
+    private final QuestionArchive archive;
+
+    /**
+     * Caches emptied of Entries commented on.
+     */
+    private final CacheRegistry caches;
+
+    /**
+     * Casts and withdraws Votes on every kind of Entry, through the
+     * {@link com.gkenna.tullamoreqa.core.impl.votes.VoteLedger}.
+     */
+    private final EntryService entryService;
+
     /**
      * Constructor that Auto wires the Comment Repository.
      *
-     * @param commentRepository CommentRepo object.
+     * @param commentRepository  CommentRepo object.
+     * @param conditionalUpdater Applies patches as a conditional UPDATE.
+     * @param archive            Restores archived Questions.
+     * @param caches             Caches emptied of Entries commented on.
+     * @param entryService       Casts and withdraws Votes.
      */
     @Autowired
-    public CommentServiceImpl(final CommentRepository commentRepository) {
+    public CommentServiceImpl(final CommentRepository commentRepository,
+                              final ConditionalUpdater conditionalUpdater,
+                              final QuestionArchive archive,
+                              final CacheRegistry caches,
+                              @Qualifier("entryService")
+                              final EntryService entryService) {
         this.commentRepository = commentRepository;
+        this.conditionalUpdater = conditionalUpdater;
+        this.archive = archive;
+        this.caches = caches;
+        this.entryService = entryService;
     }
 
     @Override
     public final void addComment(final Comment comment) {
         LOGGER.debug("Adding new Comment {}", comment);
         commentRepository.save(comment);
+        /*
+        The Entry commented on changed along with its Comments.
+         */
+        if (comment.getParentId() != null) {
+            conditionalUpdater.touch(Entry.class, comment.getParentId());
+            caches.questions().invalidate(comment.getParentId());
+        }
         LOGGER.debug("New Comment with ID {} added successfully.",
                 comment.getId());
     }
@@ -75,11 +134,30 @@ public class CommentServiceImpl implements CommentService {
     }
 
     @Override
-    public final Comment patchComment(final String commentId,
-                                      final Comment input)
-            throws CommentNotFoundException {
-
-        return null;
+    public final long patchComment(final Long commentId,
+                                   final Map<String, Object> patch,
+                                   final Long version)
+            throws CommentNotFoundException, VersionMismatchException,
+            InvalidPatchException {
+        LOGGER.debug("Merge patching {} at version {} with {}", commentId,
+                version, patch);
+
+        final Map<String, Object> values = PATCHABLE.toColumns(patch);
+        if (conditionalUpdater.update(Comment.class, commentId, values,
+                version) || Boolean.TRUE.equals(archive.restoreEntry(commentId,
+                () -> conditionalUpdater.update(Comment.class, commentId,
+                        values, version)))) {
+            return conditionalUpdater.updatedVersion(Comment.class,
+                    commentId, version);
+        }
+        if (commentRepository.existsById(commentId)) {
+            LOGGER.warn("Comment {} is no longer at version {}.", commentId,
+                    version);
+            throw new VersionMismatchException("Comment " + commentId
+                    + " is no longer at version " + version + ".");
+        }
+        LOGGER.error("Comment {} does not exist. Cannot patch.", commentId);
+        throw new CommentNotFoundException(commentId + " does not exist.");
     }
 
     @Override
@@ -94,7 +172,9 @@ public class CommentServiceImpl implements CommentService {
 
     @Override
     public final Comment getComment(final Long commentId) {
-        return commentRepository.getOne(commentId);
+        return commentRepository.findById(commentId).orElseGet(() ->
+                archive.restoreEntry(commentId, () ->
+                        commentRepository.findById(commentId).orElse(null)));
     }
 
     @Override
@@ -108,12 +188,48 @@ public class CommentServiceImpl implements CommentService {
     }
 
     @Override
-    public final void castVote(final Long entryId, final Vote vote) {
+    public final Map<Long, List<Comment>> getCommentThreads(
+            final Long questionId, final int perParent) {
+        if (perParent < 1) {
+            throw new IllegalArgumentException("At least one Comment per"
+                    + " Entry must be returned.");
+        }
+        LOGGER.debug("Getting at most {} Comments per Entry of Question {}",
+                perParent, questionId);
+
+        List<Comment> comments = commentRepository.findThreadsByQuestionId(
+                questionId, perParent);
+        if (comments.isEmpty()) {
+            final List<Comment> restored = archive.restoreEntry(questionId,
+                    () -> commentRepository.findThreadsByQuestionId(
+                            questionId, perParent));
+            if (restored != null) {
+                comments = restored;
+            }
+        }
+
+        final Map<Long, List<Comment>> output = new LinkedHashMap<>();
+        output.put(questionId, new ArrayList<>());
+        for (Comment comment : comments) {
+            final Long parentId =
+                    comment.getParentType() == ParentType.QUESTION
+                            ? questionId : comment.getParentId();
+            output.computeIfAbsent(parentId, k -> new ArrayList<>())
+                    .add(comment);
+        }
+        if (output.get(questionId).isEmpty()) {
+            output.remove(questionId);
+        }
+        return output;
+    }
 
+    @Override
+    public final void castVote(final Long entryId, final Vote vote) {
+        entryService.castVote(entryId, vote);
     }
 
     @Override
     public final void deleteVote(final Long entryId, final Vote vote) {
-
+        entryService.deleteVote(entryId, vote);
     }
 }
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.EntityType;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Applies an update to a single entity as one conditional
+ * <tt>UPDATE ... SET ..., version = version + 1
+ * WHERE id = ? AND version = ?</tt>, rather than reading the entity, changing
+ * it and writing it back. A version mismatch and a missing row both update
+ * nothing, so callers only need to tell the two apart when that happens.
+ * <p>
+ * Only plain columns and to-one references can be set this way, collections
+ * still have to be written through the entity, within the same transaction
+ * and after the update, whose row lock keeps other writes out until it
+ * ends. Changes that make no update, such as Votes or replies, bump the
+ * version with {@link #touch}, so every change is served under a new ETag.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class ConditionalUpdater {
+
+    /**
+     * Name of the version attribute of versioned entities.
+     */
+    public static final String VERSION = "version";
+
+    /**
+     * Name of the attribute of when an entity was last modified.
+     */
+    public static final String LAST_UPDATED_AT = "lastUpdatedAt";
+
+    /**
+     * Conditional Updater Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(ConditionalUpdater.class);
+
+    /**
+     * Entity Manager bound to the current transaction.
+     */
+    private final EntityManager entityManager;
+
+    /**
+     * Constructor that Auto wires the Entity Manager Factory.
+     *
+     * @param entityManagerFactory Entity Manager Factory.
+     */
+    @Autowired
+    public ConditionalUpdater(
+            final EntityManagerFactory entityManagerFactory) {
+        this.entityManager = SharedEntityManagerCreator
+                .createSharedEntityManager(entityManagerFactory);
+    }
+
+    /**
+     * Set the given attributes of an entity and bump its version, but only
+     * if it is still at the expected version. Entities without a version
+     * are updated by ID alone. Entities that record when they were last
+     * modified have that set to now along with any other value, unless it
+     * is given. Only the updated entity is detached afterwards, so it is
+     * read back as updated while everything else loaded stays managed.
+     *
+     * @param type     Type of the entity.
+     * @param id       ID of the entity.
+     * @param values   New values by attribute name, null values are set.
+     *                 Must not be empty for entities without a version.
+     * @param expected Version the entity must be at, or null for any.
+     * @param <T>      Type of the entity.
+     * @return True if the entity was updated, false if it doesn't exist or
+     * is at another version.
+     */
+    @Transactional
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public <T> boolean update(final Class<T> type, final Object id,
+                              final Map<String, Object> values,
+                              final Long expected) {
+        final CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        final CriteriaUpdate<T> update = builder.createCriteriaUpdate(type);
+        final Root<T> root = update.from(type);
+        final EntityType<T> entity = entityManager.getMetamodel().entity(type);
+        final boolean versioned = hasAttribute(entity, VERSION);
+        if (!versioned && expected != null) {
+            throw new IllegalArgumentException(type.getSimpleName()
+                    + " has no version to expect.");
+        }
+
+        final Map<String, Object> assignments = new LinkedHashMap<>(values);
+        if (!assignments.isEmpty()
+                && !assignments.containsKey(LAST_UPDATED_AT)
+                && hasAttribute(entity, LAST_UPDATED_AT)) {
+            assignments.put(LAST_UPDATED_AT, new Date());
+        }
+        for (Map.Entry<String, Object> value : assignments.entrySet()) {
+            set(builder, update, root.get(value.getKey()), value.getValue());
+        }
+        Predicate where = builder.equal(root.get(
+                entity.getId(entity.getIdType().getJavaType())), id);
+        if (versioned) {
+            final Path<Long> version = root.get(VERSION);
+            update.set(version, builder.sum(version, 1L));
+            if (expected != null) {
+                where = builder.and(where, builder.equal(version, expected));
+            }
+        }
+        update.where(where);
+
+        entityManager.flush();
+        final int updated = entityManager.createQuery(update).executeUpdate();
+        if (updated > 0) {
+            detach(type, id);
+        }
+
+        LOGGER.debug("Conditional update of {} {} at version {} updated {}"
+                + " rows.", type.getSimpleName(), id, expected, updated);
+        return updated > 0;
+    }
+
+    /**
+     * Bump the version of an entity changed other than through
+     * {@link #update}, i.e. through its collections or its replies.
+     *
+     * @param type Type of the entity, or a supertype of it.
+     * @param id   ID of the entity.
+     * @param <T>  Type of the entity.
+     * @return True if the entity was found and bumped.
+     */
+    @Transactional
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public <T> boolean touch(final Class<T> type, final Object id) {
+        return update(type, id, Collections.emptyMap(), null);
+    }
+
+    /**
+     * Return the version of an entity after {@link #update} updated it,
+     * without loading the entity. That is one past the version it was
+     * expected at, and only when any version was expected is its version
+     * column read back.
+     *
+     * @param type     Type of the entity.
+     * @param id       ID of the entity.
+     * @param expected Version the entity was expected at, or null for any.
+     * @param <T>      Type of the entity.
+     * @return The version it is at now.
+     */
+    @Transactional
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public <T> long updatedVersion(final Class<T> type, final Object id,
+                                   final Long expected) {
+        if (expected != null) {
+            return expected + 1;
+        }
+        final CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        final CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        final Root<T> root = query.from(type);
+        final EntityType<T> entity = entityManager.getMetamodel().entity(type);
+        query.select(root.get(VERSION)).where(builder.equal(root.get(
+                entity.getId(entity.getIdType().getJavaType())), id));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    /**
+     * Return whether an entity has an attribute.
+     *
+     * @param entity The entity type.
+     * @param name   Name of the attribute.
+     * @return True if it has a single valued attribute of that name.
+     */
+    private static boolean hasAttribute(final EntityType<?> entity,
+                                        final String name) {
+        return entity.getSingularAttributes().stream()
+                .anyMatch(attribute -> name.equals(attribute.getName()));
+    }
+
+    /**
+     * Detach an entity from the persistence context if it was loaded, so
+     * it is read again rather than returned as it was before the update.
+     *
+     * @param type Type of the entity.
+     * @param id   ID of the entity.
+     */
+    private void detach(final Class<?> type, final Object id) {
+        final SessionImplementor session =
+                entityManager.unwrap(SessionImplementor.class);
+        final EntityPersister persister = session.getFactory()
+                .getMetamodel().entityPersister(type);
+        final Object loaded = session.getPersistenceContext().getEntity(
+                session.generateEntityKey((Serializable) id, persister));
+        if (loaded != null) {
+            entityManager.detach(loaded);
+        }
+    }
+
+    /**
+     * Add a single assignment, using a typed null literal for null values.
+     *
+     * @param builder Criteria Builder.
+     * @param update  Update being built.
+     * @param path    Attribute to set.
+     * @param value   New value, may be null.
+     * @param <T>     Type of the entity.
+     * @param <Y>     Type of the attribute.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T, Y> void set(final CriteriaBuilder builder,
+                                   final CriteriaUpdate<T> update,
+                                   final Path<Y> path, final Object value) {
+        if (value == null) {
+            update.set(path, builder.nullLiteral(path.getJavaType()));
+        } else {
+            update.set(path, (Y) value);
+        }
+    }
+}
@@ -5,13 +5,26 @@
 package com.gkenna.tullamoreqa.core.impl.services;
 
 import com.gkenna.tullamoreqa.core.api.repositories.EntryRepository;
+import com.gkenna.tullamoreqa.core.api.repositories.UserRepository;
 import com.gkenna.tullamoreqa.core.api.services.EntryService;
+import com.gkenna.tullamoreqa.core.impl.archive.QuestionArchive;
+import com.gkenna.tullamoreqa.core.impl.cache.CacheRegistry;
+import com.gkenna.tullamoreqa.core.impl.votes.VoteLedger;
+import com.gkenna.tullamoreqa.domain.Entry;
 import com.gkenna.tullamoreqa.domain.Vote;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
 
 /**
  * Implementation of {@link EntryService}.
+ * <p>
+ * A User may vote on an Entry once, which the {@link VoteLedger} tells
+ * whether their Vote is still kept individually or was compacted.
  *
  * @author Gavin Kenna
  * @see EntryService
@@ -20,19 +33,115 @@ import org.springframework.stereotype.Service;
 @Service("entryService")
 public class EntryServiceImpl implements EntryService {
 
+    /**
+     * Entry Service Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(EntryServiceImpl.class);
+
     /**
      * EntryRepository object.
      */
     @Autowired
     private EntryRepository entryRepository;
 
-    @Override
-    public final void castVote(final Long entryId, final Vote vote) {
+    /**
+     * Resolves the User casting a Vote.
+     */
+    @Autowired
+    private UserRepository userRepository;
+
+    /**
+     * Tells whether a User already voted on an Entry.
+     */
+    @Autowired
+    private VoteLedger voteLedger;
+
+    /**
+     * Restores the Questions Entries voted on are archived with.
+     */
+    @Autowired
+    private QuestionArchive archive;
 
+    /**
+     * Caches emptied of Entries voted on.
+     */
+    @Autowired
+    private CacheRegistry caches;
+
+    /**
+     * Bumps the version of Entries voted on.
+     */
+    @Autowired
+    private ConditionalUpdater conditionalUpdater;
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException If the Entry or User doesn't exist.
+     * @throws IllegalStateException    If the User already voted on the
+     *                                  Entry.
+     */
+    @Override
+    @Transactional
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public void castVote(final Long entryId, final Vote vote) {
+        final String username = lock(vote);
+        Entry entry = entryRepository.findById(entryId).orElse(null);
+        if (entry == null) {
+            entry = archive.restoreEntry(entryId, () ->
+                    entryRepository.findById(entryId).orElse(null));
+        }
+        if (entry == null) {
+            throw new IllegalArgumentException("Entry " + entryId
+                    + " does not exist.");
+        }
+        if (voteLedger.hasVoted(entryId, username)) {
+            LOGGER.warn("{} already voted on Entry {}.", username, entryId);
+            throw new IllegalStateException(username
+                    + " already voted on Entry " + entryId + ".");
+        }
+        vote.setVoteCastBy(userRepository.findByUsername(username));
+        vote.setVoteCastDate(new Date());
+        entry.getVotes().add(vote);
+        entryRepository.saveAndFlush(entry);
+        conditionalUpdater.touch(Entry.class, entryId);
+        caches.questions().invalidate(entryId);
+        LOGGER.debug("{} voted on Entry {}.", username, entryId);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException If the User doesn't exist.
+     */
     @Override
-    public final void deleteVote(final Long entryId, final Vote vote) {
+    @Transactional
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public void deleteVote(final Long entryId, final Vote vote) {
+        final String username = lock(vote);
+        if (voteLedger.withdraw(entryId, username)) {
+            conditionalUpdater.touch(Entry.class, entryId);
+            caches.questions().invalidate(entryId);
+            LOGGER.debug("{} withdrew their Vote on Entry {}.", username,
+                    entryId);
+        }
+    }
 
+    /**
+     * Lock the User casting a Vote until the transaction ends.
+     *
+     * @param vote The Vote.
+     * @return Username of the User who cast it.
+     * @throws IllegalArgumentException If the User doesn't exist.
+     */
+    private String lock(final Vote vote) {
+        final String username = vote.getVoteCastBy() == null ? null
+                : vote.getVoteCastBy().getUsername();
+        if (username == null || !voteLedger.lock(username)) {
+            throw new IllegalArgumentException("User " + username
+                    + " does not exist.");
+        }
+        return username;
     }
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.services;
+
+import com.gkenna.tullamoreqa.core.api.exceptions.InvalidPatchException;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Whitelist of the fields of an entity that a JSON Merge Patch
+ * (RFC 7396) may change. A patch document is checked against it and
+ * turned into the column values of a single
+ * {@link ConditionalUpdater conditional UPDATE}, so only the columns named
+ * in the patch are written and the entity is never loaded to apply it.
+ * <p>
+ * Only flat, single column fields can be whitelisted. A null in the patch
+ * removes the value of the field, so it clears the column of a field the
+ * entity lets be empty and is refused for one that is {@link NotNull},
+ * {@link NotBlank}, not nullable or primitive.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public final class MergePatch {
+
+    /**
+     * Media type of a JSON Merge Patch document.
+     */
+    public static final String MEDIA_TYPE = "application/merge-patch+json";
+
+    /**
+     * Patchable fields by name, mapped to the type of their value.
+     */
+    private final Map<String, Class<?>> types = new HashMap<>();
+
+    /**
+     * Names of the patchable fields that a null clears.
+     */
+    private final Set<String> clearable = new HashSet<>();
+
+    /**
+     * Entity the whitelisted fields are declared by.
+     */
+    private final Class<?> entity;
+
+    /**
+     * Start a whitelist of the fields of an entity.
+     *
+     * @param entity Type of the entity patched.
+     */
+    public MergePatch(final Class<?> entity) {
+        this.entity = entity;
+    }
+
+    /**
+     * Whitelist a field. It may be cleared if the entity lets it be empty,
+     * but a String field that is set must not be blank.
+     *
+     * @param name Name of the field, as in the JSON and the entity.
+     * @param type Type of the field.
+     * @return This whitelist.
+     * @throws IllegalArgumentException If the entity has no such field.
+     */
+    public MergePatch field(final String name, final Class<?> type) {
+        types.put(name, type);
+        if (isNullable(declaredField(name))) {
+            clearable.add(name);
+        }
+        return this;
+    }
+
+    /**
+     * Check a patch document against this whitelist.
+     *
+     * @param patch The patch document, field names to new values.
+     * @return The new column values by field name, in patch order.
+     * @throws InvalidPatchException If a field isn't patchable or is given
+     *                               a value it can't hold.
+     */
+    public Map<String, Object> toColumns(final Map<String, Object> patch)
+            throws InvalidPatchException {
+        if (patch == null) {
+            return Collections.emptyMap();
+        }
+        final Map<String, Object> output = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> field : patch.entrySet()) {
+            output.put(field.getKey(),
+                    toColumn(field.getKey(), field.getValue()));
+        }
+        return output;
+    }
+
+    /**
+     * Check and convert the patched value of a single field.
+     *
+     * @param name  Name of the field.
+     * @param value Patched value.
+     * @return The column value.
+     * @throws InvalidPatchException If the field isn't patchable or can't
+     *                               hold value.
+     */
+    private Object toColumn(final String name, final Object value)
+            throws InvalidPatchException {
+        final Class<?> type = types.get(name);
+        if (type == null) {
+            throw new InvalidPatchException(name + " cannot be patched.");
+        }
+        if (value == null) {
+            if (!clearable.contains(name)) {
+                throw new InvalidPatchException(name + " cannot be cleared.");
+            }
+            return null;
+        }
+        if (!type.isInstance(value)) {
+            throw new InvalidPatchException(name + " must be a "
+                    + type.getSimpleName() + ".");
+        }
+        if (value instanceof String && ((String) value).trim().isEmpty()) {
+            throw new InvalidPatchException(name + " cannot be blank.");
+        }
+        return value;
+    }
+
+    /**
+     * Find a field of the entity, declared by it or a superclass.
+     *
+     * @param name Name of the field.
+     * @return The field.
+     * @throws IllegalArgumentException If the entity has no such field.
+     */
+    private Field declaredField(final String name) {
+        Class<?> type = entity;
+        while (type != null) {
+            try {
+                return type.getDeclaredField(name);
+            } catch (NoSuchFieldException e) {
+                type = type.getSuperclass();
+            }
+        }
+        throw new IllegalArgumentException(entity.getSimpleName()
+                + " has no field " + name + ".");
+    }
+
+    /**
+     * Return whether a field may be left empty.
+     *
+     * @param field The field.
+     * @return True unless it is primitive, an ID, required to be set or
+     * mapped to a column that is not nullable.
+     */
+    private static boolean isNullable(final Field field) {
+        final Column column = field.getAnnotation(Column.class);
+        return !field.getType().isPrimitive()
+                && !field.isAnnotationPresent(Id.class)
+                && !field.isAnnotationPresent(NotNull.class)
+                && !field.isAnnotationPresent(NotBlank.class)
+                && (column == null || column.nullable());
+    }
+}
@@ -4,22 +4,34 @@
 
 package com.gkenna.tullamoreqa.core.impl.services;
 
+import com.gkenna.tullamoreqa.core.api.exceptions.InvalidPatchException;
 import com.gkenna.tullamoreqa.core.api.exceptions.QuestionNotFoundException;
+import com.gkenna.tullamoreqa.core.api.exceptions.VersionMismatchException;
 import com.gkenna.tullamoreqa.core.api.repositories.QuestionRepository;
+import com.gkenna.tullamoreqa.core.api.services.EntryService;
 import com.gkenna.tullamoreqa.core.api.services.QuestionService;
+import com.gkenna.tullamoreqa.core.impl.archive.QuestionArchive;
+import com.gkenna.tullamoreqa.core.impl.cache.CacheRegistry;
+import com.gkenna.tullamoreqa.core.impl.events.Outbox;
 import com.gkenna.tullamoreqa.domain.Question;
 import com.gkenna.tullamoreqa.domain.Tag;
 import com.gkenna.tullamoreqa.domain.User;
 import com.gkenna.tullamoreqa.domain.Vote;
+import com.gkenna.tullamoreqa.domain.events.ChangeType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -39,6 +51,13 @@ public class QuestionServiceImpl implements QuestionService {
     private static final Logger LOGGER =
             LogManager.getLogger(QuestionServiceImpl.class);
 
+    /**
+     * Fields of a {@link Question} that a merge patch may change.
+     */
+    private static final MergePatch PATCHABLE = new MergePatch(Question.class)
+            .field("title", String.class)
+            .field("body", String.class);
+
     /**
      * QuestionRepository, that will be AutoWired by Spring in the Constructor.
      * This object is used to interact with the DB.
@@ -46,14 +65,70 @@ public class QuestionServiceImpl implements QuestionService {
      */
     private final QuestionRepository questionRepository;
 
+    /**
+     * Caches that {@link Question} reads go through.
+     */
+    private final CacheRegistry caches;
+
+    /**
+     * Inserts Questions in batches for {@link #addQuestions(List)}.
+     */
+    private final BulkInserter bulkInserter;
+
+    /**
+     * Applies updates and patches as a single conditional UPDATE.
+     */
+    private final ConditionalUpdater conditionalUpdater;
+
+    /**
+     * Records a change event for every change to a Question.
+     */
+    private final Outbox outbox;
+
+    /**
+     * Restores archived Questions when they are asked for.
+     */
+    private final QuestionArchive archive;
+
+    /**
+     * Casts and withdraws Votes on every kind of Entry, through the
+     * {@link com.gkenna.tullamoreqa.core.impl.votes.VoteLedger}.
+     */
+    private final EntryService entryService;
+
     /**
      * Constructor that Auto wires the Question Repository.
      *
      * @param questionRepository QuestionRepo object.
+     * @param caches             Caches that Question reads go through.
+     * @param bulkInserter       Inserts Questions in batches.
+     * @param conditionalUpdater Applies updates as a conditional UPDATE.
+     * @param outbox             Records change events.
+     * @param archive            Restores archived Questions.
+     * @param entryService       Casts and withdraws Votes.
      */
     @Autowired
-    public QuestionServiceImpl(final QuestionRepository questionRepository) {
+    public QuestionServiceImpl(final QuestionRepository questionRepository,
+                               final CacheRegistry caches,
+                               final BulkInserter bulkInserter,
+                               final ConditionalUpdater conditionalUpdater,
+                               final Outbox outbox,
+                               final QuestionArchive archive,
+                               @Qualifier("entryService")
+                               final EntryService entryService) {
         this.questionRepository = questionRepository;
+        this.caches = caches;
+        this.bulkInserter = bulkInserter;
+        this.conditionalUpdater = conditionalUpdater;
+        this.outbox = outbox;
+        this.archive = archive;
+        this.entryService = entryService;
+        this.caches.questions().setLoader(id ->
+                questionRepository.findById(id).orElse(null));
+        this.caches.questions().setRevalidator(this::isUnchanged);
+        this.caches.taggedQuestions().setLoader(tagId ->
+                questionRepository.findAllByTagsName(tagId,
+                        Pageable.unpaged()).getContent());
     }
 
     @Override
@@ -64,10 +139,27 @@ public class QuestionServiceImpl implements QuestionService {
         LOGGER.debug("Adding New Question {}", question);
 
         questionRepository.saveAndFlush(question);
+        outbox.record(Question.class, question.getId(), ChangeType.CREATED);
+        caches.taggedQuestions().invalidateAll();
 
         LOGGER.debug("New Question {} added successfully.", question.getId());
     }
 
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public List<Long> addQuestions(final List<Question> questions) {
+
+        LOGGER.debug("Adding {} New Questions", questions.size());
+
+        final List<Long> output =
+                bulkInserter.insert(questions, Question::getId);
+        caches.taggedQuestions().invalidateAll();
+
+        LOGGER.debug("{} New Questions added successfully.", output.size());
+        return output;
+    }
+
     @Override
     @Transactional
     @SuppressWarnings("checkstyle:DesignForExtension")
@@ -87,6 +179,12 @@ public class QuestionServiceImpl implements QuestionService {
 
         if (this.doesQuestionExist(questionId)) {
             questionRepository.deleteById(questionId);
+            outbox.record(Question.class, questionId, ChangeType.DELETED);
+            evict(questionId);
+            return;
+        }
+        if (archive.delete(questionId)) {
+            outbox.record(Question.class, questionId, ChangeType.DELETED);
             return;
         }
 
@@ -98,84 +196,97 @@ public class QuestionServiceImpl implements QuestionService {
     @Transactional
     @SuppressWarnings("checkstyle:DesignForExtension")
     public Question updateQuestion(final Long questionId,
-                                   final Question input)
-            throws QuestionNotFoundException {
-
-        LOGGER.debug("Updating {} to {}", questionId, input);
-
-        if (questionRepository.existsById(questionId)) {
-            final Question output =
-                    questionRepository.findById(questionId).get();
+                                   final Question input,
+                                   final Long version)
+            throws QuestionNotFoundException, VersionMismatchException {
 
-            LOGGER.info("Question before update {}", output);
+        LOGGER.debug("Updating {} at version {} to {}", questionId, version,
+                input);
 
-            output.update(input);
+        final Map<String, Object> values = new LinkedHashMap<>();
+        values.put("title", input.getTitle());
+        values.put("body", input.getBody());
+        values.put("createdBy", input.getCreatedBy());
+        values.put("modifiedBy", input.getModifiedBy());
 
-            questionRepository.save(output);
+        final Question output = guardedUpdate(questionId, values, version,
+                input.getTags(), input.getVotes());
 
-            LOGGER.info("Question after update {}", output);
-
-            questionRepository.saveAndFlush(output);
-            return output;
-        }
-
-        LOGGER.error("Question {} does not exist. Cannot update.",
-                questionId);
-        throw new QuestionNotFoundException(questionId + " does not exist.");
+        LOGGER.info("Question after update {}", output);
+        evict(questionId);
+        return output;
     }
 
     @Override
     @Transactional
     @SuppressWarnings("checkstyle:DesignForExtension")
-    public Question patchQuestion(final Long questionId, final Question input)
-            throws QuestionNotFoundException {
-        LOGGER.debug("Patching {} to {}", questionId, input);
-
-        if (questionRepository.existsById(questionId)) {
-            final Question output =
-                    questionRepository.findById(questionId).get();
-
-            LOGGER.info("Question before patch {}", output);
-
-            output.patch(input);
-
-            LOGGER.info("Question after patch {}", output);
-
-            questionRepository.saveAndFlush(output);
-            return output;
-        }
-
-        LOGGER.error("Question {} does not exist. Cannot patch.",
-                questionId);
-        throw new QuestionNotFoundException(questionId + " does not exist.");
+    public Question patchQuestion(final Long questionId, final Question input,
+                                  final Long version)
+            throws QuestionNotFoundException, VersionMismatchException {
+        LOGGER.debug("Patching {} at version {} to {}", questionId, version,
+                input);
+
+        final Map<String, Object> values = new LinkedHashMap<>();
+        putIfNotNull(values, "title", input.getTitle());
+        putIfNotNull(values, "body", input.getBody());
+        putIfNotNull(values, "createdBy", input.getCreatedBy());
+        putIfNotNull(values, "modifiedBy", input.getModifiedBy());
+
+        final Question output = guardedUpdate(questionId, values, version,
+                input.getTags(), input.getVotes());
+
+        LOGGER.info("Question after patch {}", output);
+        evict(questionId);
+        return output;
     }
 
     @Override
     @Transactional
     @SuppressWarnings("checkstyle:DesignForExtension")
+    public long patchQuestion(final Long questionId,
+                              final Map<String, Object> patch,
+                              final Long version)
+            throws QuestionNotFoundException, VersionMismatchException,
+            InvalidPatchException {
+        LOGGER.debug("Merge patching {} at version {} with {}", questionId,
+                version, patch);
+
+        final long output = conditionalUpdate(questionId,
+                PATCHABLE.toColumns(patch), version);
+        evict(questionId);
+        return output;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("checkstyle:DesignForExtension")
     public boolean doesQuestionExist(final Question question) {
         return this.doesQuestionExist(question.getId());
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     @SuppressWarnings("checkstyle:DesignForExtension")
     public boolean doesQuestionExist(final Long questionId) {
         return questionRepository.existsById(questionId);
     }
 
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     @SuppressWarnings("checkstyle:DesignForExtension")
     public Question getQuestion(final Long questionId) throws
             QuestionNotFoundException {
-        LOGGER.info("QuestionRepo is {}", questionRepository.toString());
-
         /*
         TODO replace doesExist with Optional<Question> get
          */
-        if (this.doesQuestionExist(questionId)) {
-            return questionRepository.findById(questionId).get();
+        final Question output = caches.questions().get(questionId, () ->
+                this.doesQuestionExist(questionId)
+                        ? questionRepository.findById(questionId).get()
+                        : archive.restore(questionId, () ->
+                        questionRepository.findById(questionId)
+                                .orElse(null)));
+        if (output != null) {
+            return output;
         }
 
         LOGGER.error("Question {} does not exist. Cannot retrieve.",
@@ -184,14 +295,14 @@ public class QuestionServiceImpl implements QuestionService {
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     @SuppressWarnings("checkstyle:DesignForExtension")
     public List<Question> getAllQuestions(final Pageable pageable) {
         return questionRepository.findAll();
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     @SuppressWarnings("checkstyle:DesignForExtension")
     public List<Question> findQuestionsByTitle(final String title,
                                                final Pageable pageable) {
@@ -211,7 +322,7 @@ public class QuestionServiceImpl implements QuestionService {
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     @SuppressWarnings("checkstyle:DesignForExtension")
     public List<Question> findQuestionsAskedByUser(final User user,
                                                    final Pageable pageable) {
@@ -231,7 +342,7 @@ public class QuestionServiceImpl implements QuestionService {
     }
 
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     @SuppressWarnings("checkstyle:DesignForExtension")
     public List<Question> findQuestionsByTag(final Tag tag,
                                              final Pageable pageable) {
@@ -240,19 +351,147 @@ public class QuestionServiceImpl implements QuestionService {
         TODO Choose strategy on how we Page.
         TODO All below is temporary until we utilize Pagination correctly.
          */
-        final Page<Question> pageableQuestions =
+        return caches.taggedQuestions().get(tag.getId(), () ->
                 this.questionRepository.findAllByTagsName(tag.getId(),
-                        Pageable.unpaged());
-        return pageableQuestions.getContent();
+                        Pageable.unpaged()).getContent());
     }
 
-    @Override
-    public final void castVote(final Long entryId, final Vote vote) {
+    /**
+     * Update the columns of a {@link Question} in one conditional UPDATE,
+     * without reading it back. The Question is only looked up separately
+     * when nothing was updated, to tell a missing Question from a stale
+     * version.
+     *
+     * @param questionId ID of the Question to update.
+     * @param values     New column values by attribute name.
+     * @param version    Version the Question must be at, or null for any.
+     * @return The version the Question is at now.
+     * @throws QuestionNotFoundException If the Question doesn't exist.
+     * @throws VersionMismatchException  If the Question isn't at version.
+     */
+    private long conditionalUpdate(final Long questionId,
+                                   final Map<String, Object> values,
+                                   final Long version)
+            throws QuestionNotFoundException, VersionMismatchException {
+        if (!conditionalUpdater.update(Question.class, questionId, values,
+                version) && !restoreAndUpdate(questionId, values, version)) {
+            evict(questionId);
+            if (questionRepository.existsById(questionId)) {
+                LOGGER.warn("Question {} is no longer at version {}.",
+                        questionId, version);
+                throw new VersionMismatchException("Question " + questionId
+                        + " is no longer at version " + version + ".");
+            }
+            LOGGER.error("Question {} does not exist. Cannot update.",
+                    questionId);
+            throw new QuestionNotFoundException(questionId
+                    + " does not exist.");
+        }
+        outbox.record(Question.class, questionId, ChangeType.UPDATED);
+        return conditionalUpdater.updatedVersion(Question.class, questionId,
+                version);
+    }
+
+    /**
+     * Update the columns of a {@link Question} with a conditional UPDATE,
+     * then its Tags and Votes, which can only be written through the
+     * entity. The UPDATE checks the version and holds the row locked until
+     * the transaction ends, so the collections are only written if the
+     * version matched, no other write lands between the two, and the one
+     * version bump covers both.
+     *
+     * @param questionId ID of the Question to update.
+     * @param values     New column values by attribute name.
+     * @param version    Version the Question must be at, or null for any.
+     * @param tags       New Tags, null to leave them.
+     * @param votes      New Votes, null to leave them.
+     * @return The Question as updated.
+     * @throws QuestionNotFoundException If the Question doesn't exist.
+     * @throws VersionMismatchException  If the Question isn't at version.
+     */
+    private Question guardedUpdate(final Long questionId,
+                                   final Map<String, Object> values,
+                                   final Long version, final Set<Tag> tags,
+                                   final Set<Vote> votes)
+            throws QuestionNotFoundException, VersionMismatchException {
+        conditionalUpdate(questionId, values, version);
+        final Question output = questionRepository.findById(questionId).get();
+        if (tags != null) {
+            output.setTags(tags);
+        }
+        if (votes != null) {
+            output.setVotes(votes);
+        }
+        questionRepository.flush();
+        return output;
+    }
 
+    /**
+     * Restore an archived {@link Question} and retry a conditional update
+     * on it, an update being what makes it active again.
+     *
+     * @param questionId ID of the Question to update.
+     * @param values     New column values by attribute name.
+     * @param version    Version the Question must be at, or null for any.
+     * @return True if it was archived and has been updated.
+     */
+    private boolean restoreAndUpdate(final Long questionId,
+                                     final Map<String, Object> values,
+                                     final Long version) {
+        return !questionRepository.existsById(questionId)
+                && archive.restore(questionId)
+                && conditionalUpdater.update(Question.class, questionId,
+                values, version);
+    }
+
+    /**
+     * Add a patched column value, unless it was left out of the patch.
+     *
+     * @param values New column values by attribute name.
+     * @param name   Attribute name.
+     * @param value  Patched value, null if left out.
+     */
+    private static void putIfNotNull(final Map<String, Object> values,
+                                     final String name, final Object value) {
+        if (value != null) {
+            values.put(name, value);
+        }
+    }
+
+    /**
+     * Has a {@link Question} restored from a cache snapshot been left
+     * unchanged in the Database since it was cached, by its version, which
+     * every update bumps.
+     *
+     * @param question The restored Question.
+     * @return True if it was not updated since.
+     */
+    private boolean isUnchanged(final Question question) {
+        final Long version =
+                questionRepository.findVersionById(question.getId());
+        return version != null && version == question.getVersion();
+    }
+
+    /**
+     * Drop a {@link Question} from the caches after it has been written,
+     * along with every Tag listing it may appear in.
+     *
+     * @param questionId ID of the Question that changed.
+     */
+    private void evict(final Long questionId) {
+        caches.questions().invalidate(questionId);
+        caches.taggedQuestions().invalidateAll();
     }
 
     @Override
-    public final void deleteVote(final Long entryId, final Vote vote) {
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public void castVote(final Long entryId, final Vote vote) {
+        entryService.castVote(entryId, vote);
+    }
 
+    @Override
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public void deleteVote(final Long entryId, final Vote vote) {
+        entryService.deleteVote(entryId, vote);
     }
 }
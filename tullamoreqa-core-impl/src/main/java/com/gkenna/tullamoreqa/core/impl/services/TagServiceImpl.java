@@ -4,18 +4,28 @@
 
 package com.gkenna.tullamoreqa.core.impl.services;
 
+import com.gkenna.tullamoreqa.core.api.exceptions.InvalidPatchException;
 import com.gkenna.tullamoreqa.core.api.exceptions.TagAlreadyExistsException;
 import com.gkenna.tullamoreqa.core.api.exceptions.TagNotFoundException;
+import com.gkenna.tullamoreqa.core.api.exceptions.VersionMismatchException;
 import com.gkenna.tullamoreqa.core.api.repositories.TagRepository;
 import com.gkenna.tullamoreqa.core.api.services.TagService;
+import com.gkenna.tullamoreqa.core.impl.cache.CacheRegistry;
+import com.gkenna.tullamoreqa.core.impl.events.Outbox;
 import com.gkenna.tullamoreqa.domain.Tag;
+import com.gkenna.tullamoreqa.domain.events.ChangeType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Implementation of {@link TagService}.
@@ -34,6 +44,12 @@ public class TagServiceImpl implements TagService {
     private static final Logger LOGGER =
             LogManager.getLogger(TagServiceImpl.class);
 
+    /**
+     * Fields of a {@link Tag} that a merge patch may change.
+     */
+    private static final MergePatch PATCHABLE = new MergePatch(Tag.class)
+            .field("description", String.class);
+
     /**
      * Tag Repository, that will be AutoWired by Spring in the Constructor.
      * This object is used to interact with the DB.
@@ -41,14 +57,49 @@ public class TagServiceImpl implements TagService {
      */
     private final TagRepository tagRepository;
 
+    /**
+     * Caches that {@link Tag} reads go through.
+     */
+    private final CacheRegistry caches;
+
+    /**
+     * Inserts Tags in batches for {@link #addTags(List)}.
+     */
+    private final BulkInserter bulkInserter;
+
+    /**
+     * Applies updates as a single conditional UPDATE.
+     */
+    private final ConditionalUpdater conditionalUpdater;
+
+    /**
+     * Records a change event for every change to a Tag.
+     */
+    private final Outbox outbox;
+
     /**
      * Constructor that Auto wires the Tag Repository.
      *
-     * @param tagRepository TagRepo object.
+     * @param tagRepository      TagRepo object.
+     * @param caches             Caches that Tag reads go through.
+     * @param bulkInserter       Inserts Tags in batches.
+     * @param conditionalUpdater Applies updates as a conditional UPDATE.
+     * @param outbox             Records change events.
      */
     @Autowired
-    public TagServiceImpl(final TagRepository tagRepository) {
+    public TagServiceImpl(final TagRepository tagRepository,
+                          final CacheRegistry caches,
+                          final BulkInserter bulkInserter,
+                          final ConditionalUpdater conditionalUpdater,
+                          final Outbox outbox) {
         this.tagRepository = tagRepository;
+        this.caches = caches;
+        this.bulkInserter = bulkInserter;
+        this.conditionalUpdater = conditionalUpdater;
+        this.outbox = outbox;
+        this.caches.tags().setLoader(id ->
+                tagRepository.findById(id).orElse(null));
+        this.caches.tagListings().setLoader(key -> tagRepository.findAll());
     }
 
     @Override
@@ -63,10 +114,40 @@ public class TagServiceImpl implements TagService {
                     + " already exists.");
         }
         tagRepository.saveAndFlush(tag);
+        outbox.record(Tag.class, tag.getId(), ChangeType.CREATED);
+        caches.tagListings().invalidateAll();
 
         LOGGER.debug("New Tag {} added successfully.", tag.getName());
     }
 
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public List<String> addTags(final List<Tag> tags)
+            throws TagAlreadyExistsException {
+        LOGGER.debug("Adding {} New Tags", tags.size());
+
+        final Set<String> tagIds = new LinkedHashSet<>(tags.size());
+        for (Tag tag : tags) {
+            if (!tagIds.add(tag.getId())) {
+                LOGGER.error("Tag {} is added twice!", tag.getId());
+                throw new TagAlreadyExistsException(tag.getId()
+                        + " is added twice.");
+            }
+        }
+        final List<Tag> existing = tagRepository.findAllById(tagIds);
+        if (existing != null && !existing.isEmpty()) {
+            LOGGER.error("Tags {} already exist!", existing);
+            throw new TagAlreadyExistsException(existing.get(0).getId()
+                    + " already exists.");
+        }
+        final List<String> output = bulkInserter.insert(tags, Tag::getId);
+        caches.tagListings().invalidateAll();
+
+        LOGGER.debug("{} New Tags added successfully.", output.size());
+        return output;
+    }
+
     @Override
     @Transactional
     @SuppressWarnings("checkstyle:DesignForExtension")
@@ -84,6 +165,8 @@ public class TagServiceImpl implements TagService {
 
         if (this.doesTagExist(tagId)) {
             tagRepository.deleteById(tagId);
+            outbox.record(Tag.class, tagId, ChangeType.DELETED);
+            evict(tagId);
             return;
         }
 
@@ -94,52 +177,47 @@ public class TagServiceImpl implements TagService {
     @Override
     @Transactional
     @SuppressWarnings("checkstyle:DesignForExtension")
-    public Tag updateTag(final String tagId, final Tag input)
-            throws TagNotFoundException {
-
-        LOGGER.debug("Updating {} to {}", tagId, input);
-
-        if (tagRepository.existsById(tagId)) {
-            final Tag output = tagRepository.findById(tagId).get();
+    public Tag updateTag(final String tagId, final Tag input,
+                         final Long version)
+            throws TagNotFoundException, VersionMismatchException {
 
-            LOGGER.debug("Tag before update {}", output);
+        LOGGER.debug("Updating {} at version {} to {}", tagId, version,
+                input);
 
-            output.setDescription(input.getDescription());
-
-            LOGGER.debug("Tag after update {}", output);
-
-            tagRepository.saveAndFlush(output);
-            return output;
-        }
-
-        LOGGER.error("Tag {} does not exist. Cannot update.", tagId);
-        throw new TagNotFoundException(tagId + " does not exist.");
+        conditionalUpdate(tagId, Collections.singletonMap("description",
+                input.getDescription()), version);
+        final Tag output = tagRepository.findById(tagId).get();
+        LOGGER.debug("Tag after update {}", output);
+        return output;
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     @SuppressWarnings("checkstyle:DesignForExtension")
     public boolean doesTagExist(final Tag tag) {
         return this.doesTagExist(tag.getId());
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     @SuppressWarnings("checkstyle:DesignForExtension")
     public boolean doesTagExist(final String tagId) {
         return tagRepository.existsById(tagId);
     }
 
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     @SuppressWarnings("checkstyle:DesignForExtension")
     public Tag getTag(final String tagId) throws TagNotFoundException {
-        LOGGER.info("TagRepo is {}", tagRepository.toString());
         /*
         TODO replace doesExist with Optional<Tag> get
          */
-        if (this.doesTagExist(tagId)) {
-            return tagRepository.findById(tagId).get();
+        final Tag output = caches.tags().get(tagId, () ->
+                this.doesTagExist(tagId)
+                        ? tagRepository.findById(tagId).get()
+                        : null);
+        if (output != null) {
+            return output;
         }
 
         LOGGER.error("Tag {} does not exist. Cannot retrieve.", tagId);
@@ -147,17 +225,71 @@ public class TagServiceImpl implements TagService {
     }
 
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     @SuppressWarnings("checkstyle:DesignForExtension")
     public List<Tag> getAllTags() {
-        List<Tag> tags = tagRepository.findAll();
-        return tags;
+        return caches.tagListings().get(CacheRegistry.ALL_TAGS,
+                tagRepository::findAll);
+    }
+
+    /**
+     * Drop a {@link Tag} from the caches after it has been written,
+     * along with every Tag listing.
+     *
+     * @param tagId ID of the Tag that changed.
+     */
+    private void evict(final String tagId) {
+        caches.tags().invalidate(tagId);
+        caches.tagListings().invalidateAll();
+        caches.taggedQuestions().invalidate(tagId);
     }
 
     @Override
-    public final Tag patchTag(final String tagId, final Tag input)
-            throws TagNotFoundException {
+    @Transactional
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public long patchTag(final String tagId,
+                         final Map<String, Object> patch,
+                         final Long version)
+            throws TagNotFoundException, VersionMismatchException,
+            InvalidPatchException {
+        LOGGER.debug("Merge patching {} at version {} with {}", tagId,
+                version, patch);
+
+        return conditionalUpdate(tagId, PATCHABLE.toColumns(patch), version);
+    }
 
-        return null;
+    /**
+     * Update the columns of a {@link Tag} in one conditional UPDATE,
+     * without reading it back. The Tag is only looked up separately when
+     * nothing was updated, to tell a missing Tag from a stale version.
+     *
+     * @param tagId   ID of the Tag to update.
+     * @param values  New column values by attribute name.
+     * @param version Version the Tag must be at, or null for any.
+     * @return The version the Tag is at now.
+     * @throws TagNotFoundException     If the Tag doesn't exist.
+     * @throws VersionMismatchException If the Tag isn't at version.
+     */
+    private long conditionalUpdate(final String tagId,
+                                   final Map<String, Object> values,
+                                   final Long version)
+            throws TagNotFoundException, VersionMismatchException {
+        final boolean updated =
+                conditionalUpdater.update(Tag.class, tagId, values, version);
+        evict(tagId);
+
+        if (updated) {
+            outbox.record(Tag.class, tagId, ChangeType.UPDATED);
+            return conditionalUpdater.updatedVersion(Tag.class, tagId,
+                    version);
+        }
+        if (tagRepository.existsById(tagId)) {
+            LOGGER.warn("Tag {} is no longer at version {}.", tagId, version);
+            throw new VersionMismatchException("Tag " + tagId
+                    + " is no longer at version " + version + ".");
+        }
+
+        LOGGER.error("Tag {} does not exist. Cannot update.", tagId);
+        throw new TagNotFoundException(tagId + " does not exist.");
     }
 }
@@ -4,16 +4,25 @@
 
 package com.gkenna.tullamoreqa.core.impl.services;
 
+import com.gkenna.tullamoreqa.core.api.exceptions.InvalidPatchException;
 import com.gkenna.tullamoreqa.core.api.exceptions.UserNotFoundException;
+import com.gkenna.tullamoreqa.core.api.repositories.AnswerRepository;
+import com.gkenna.tullamoreqa.core.api.repositories.QuestionRepository;
 import com.gkenna.tullamoreqa.core.api.repositories.UserRepository;
 import com.gkenna.tullamoreqa.core.api.services.UserService;
+import com.gkenna.tullamoreqa.core.impl.cache.CacheRegistry;
+import com.gkenna.tullamoreqa.core.impl.events.Outbox;
+import com.gkenna.tullamoreqa.domain.AuthorSummary;
 import com.gkenna.tullamoreqa.domain.User;
+import com.gkenna.tullamoreqa.domain.events.ChangeType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Implementation of {@link UserService}.
@@ -23,6 +32,7 @@ import java.util.List;
  * @since 0.0.0
  */
 @Service("userService")
+@Transactional
 public class UserServiceImpl implements UserService {
 
     /**
@@ -31,6 +41,17 @@ public class UserServiceImpl implements UserService {
     private static final Logger LOGGER =
             LogManager.getLogger(UserServiceImpl.class);
 
+    /**
+     * Fields of a {@link User} that a merge patch may change. The username,
+     * password, roles and enabled flag are changed through their own flows.
+     */
+    private static final MergePatch PATCHABLE = new MergePatch(User.class)
+            .field("email", String.class)
+            .field("firstName", String.class)
+            .field("secondName", String.class)
+            .field("avatarURL", String.class)
+            .field("description", String.class);
+
     /**
      * User Repository, that will be AutoWired by Spring in the Constructor.
      * This object is used to interact with the DB.
@@ -38,62 +59,154 @@ public class UserServiceImpl implements UserService {
      */
     private final UserRepository userRepository;
 
+    /**
+     * Question Repository, used to count the Questions a User has asked.
+     */
+    private final QuestionRepository questionRepository;
+
+    /**
+     * Answer Repository, used to count the Answers a User has written.
+     */
+    private final AnswerRepository answerRepository;
+
+    /**
+     * Caches that author summaries are read through.
+     */
+    private final CacheRegistry caches;
+
+    /**
+     * Applies patches as a single UPDATE.
+     */
+    private final ConditionalUpdater conditionalUpdater;
+
+    /**
+     * Records a change event for every change to a User.
+     */
+    private final Outbox outbox;
+
     /**
      * Constructor that Auto wires the User Repository.
      *
-     * @param userRepository UserRepo object.
+     * @param userRepository     UserRepo object.
+     * @param questionRepository QuestionRepo object.
+     * @param answerRepository   AnswerRepo object.
+     * @param caches             Caches that author summaries go through.
+     * @param conditionalUpdater Applies patches as a single UPDATE.
+     * @param outbox             Records change events.
      */
     @Autowired
-    public UserServiceImpl(final UserRepository userRepository) {
+    public UserServiceImpl(final UserRepository userRepository,
+                           final QuestionRepository questionRepository,
+                           final AnswerRepository answerRepository,
+                           final CacheRegistry caches,
+                           final ConditionalUpdater conditionalUpdater,
+                           final Outbox outbox) {
         this.userRepository = userRepository;
+        this.questionRepository = questionRepository;
+        this.answerRepository = answerRepository;
+        this.caches = caches;
+        this.conditionalUpdater = conditionalUpdater;
+        this.outbox = outbox;
     }
 
     @Override
-    public final void addUser(final User user) {
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public void addUser(final User user) {
         LOGGER.debug("Adding New User {}", user);
         userRepository.save(user);
+        outbox.record(User.class, user.getUsername(), ChangeType.CREATED);
         LOGGER.debug("New User with ID {} added successfully.",
                 user.getUsername());
     }
 
     @Override
-    public final void deleteUser(final User user) {
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public void deleteUser(final User user) {
     }
 
     @Override
-    public final User deleteUser(final String id) {
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public User deleteUser(final String id) {
         return null;
     }
 
     @Override
-    public final User updateUser(final String username, final User input) {
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public User updateUser(final String username, final User input) {
         return null;
     }
 
     @Override
-    public final boolean doesUserExist(final User user) {
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public boolean doesUserExist(final User user) {
         return false;
     }
 
     @Override
-    public final boolean doesUserExist(final String username) {
+    @Transactional(readOnly = true)
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public boolean doesUserExist(final String username) {
         return this.userRepository.findByUsername(username) != null;
     }
 
     @Override
-    public final User getUser(final String id) {
-        return null;
+    @Transactional(readOnly = true)
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public User getUser(final String id) throws UserNotFoundException {
+        final User output = userRepository.findByUsername(id);
+        if (output == null) {
+            LOGGER.error("User {} does not exist. Cannot retrieve.", id);
+            throw new UserNotFoundException(id + " does not exist.");
+        }
+        return output;
     }
 
     @Override
-    public final List<User> getAllUsers() {
-        return userRepository.findAll();
+    @Transactional(readOnly = true)
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public AuthorSummary getAuthorSummary(final String username)
+            throws UserNotFoundException {
+        final AuthorSummary output = caches.authors().get(username, () -> {
+            final User user = userRepository.findByUsername(username);
+            if (user == null) {
+                return null;
+            }
+            return new AuthorSummary(user,
+                    questionRepository.countByCreatedByUsername(username),
+                    answerRepository.countByCreatedByUsername(username));
+        });
+        if (output == null) {
+            LOGGER.error("User {} does not exist. Cannot summarise.",
+                    username);
+            throw new UserNotFoundException(username + " does not exist.");
+        }
+        return output;
     }
 
     @Override
-    public final User patchUser(final String username, final User input)
-            throws UserNotFoundException {
+    @Transactional(readOnly = true)
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public List<User> getAllUsers() {
+        return userRepository.findAll();
+    }
 
-        return null;
+    @Override
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public void patchUser(final String username,
+                          final Map<String, Object> patch)
+            throws UserNotFoundException, InvalidPatchException {
+        LOGGER.debug("Merge patching {} with {}", username, patch);
+
+        final Map<String, Object> values = PATCHABLE.toColumns(patch);
+        if (values.isEmpty()) {
+            getUser(username);
+            return;
+        }
+        if (!conditionalUpdater.update(User.class, username, values, null)) {
+            LOGGER.error("User {} does not exist. Cannot patch.", username);
+            throw new UserNotFoundException(username + " does not exist.");
+        }
+        outbox.record(User.class, username, ChangeType.UPDATED);
+        caches.authors().invalidate(username);
     }
 }
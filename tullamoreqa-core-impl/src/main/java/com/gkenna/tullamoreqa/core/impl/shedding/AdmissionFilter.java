@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.shedding;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Answers Service Unavailable to requests of a {@link Priority} being
+ * shed, before any work is done on them, and lets the rest through.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    /**
+     * Request attribute holding the priority of a request let through.
+     */
+    public static final String ATTRIBUTE =
+            AdmissionFilter.class.getName() + ".priority";
+
+    /**
+     * Seconds a refused client is asked to wait before retrying.
+     */
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    /**
+     * Classifies requests and decides which to let through.
+     */
+    private final LoadShedder shedder;
+
+    /**
+     * Create an AdmissionFilter.
+     *
+     * @param shedder Classifies requests and decides which to let through.
+     */
+    @Autowired
+    public AdmissionFilter(final LoadShedder shedder) {
+        this.shedder = shedder;
+    }
+
+    @Override
+    protected final void doFilterInternal(final HttpServletRequest request,
+                                          final HttpServletResponse response,
+                                          final FilterChain chain)
+            throws ServletException, IOException {
+        final Priority priority = shedder.classify(request);
+        if (!shedder.admit(priority)) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    "Overloaded, refusing " + priority
+                            + " priority requests.");
+            return;
+        }
+        request.setAttribute(ATTRIBUTE, priority);
+        chain.doFilter(request, response);
+    }
+}
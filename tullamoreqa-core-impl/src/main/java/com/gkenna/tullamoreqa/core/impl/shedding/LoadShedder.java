@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.shedding;
+
+import com.gkenna.tullamoreqa.core.impl.bulkhead.Bulkhead;
+import com.gkenna.tullamoreqa.core.impl.bulkhead.BulkheadRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Classifies requests into {@link Priority}s by the first of the
+ * {@link PriorityRule}s in <tt>tullamoreqa.shedding.rules</tt> they match,
+ * and refuses those of the priorities its {@link QueueDelayMonitor} says
+ * to shed.
+ * <p>
+ * The monitor is told how long every request waits in the queue of its
+ * {@link Bulkhead}, that being where requests wait once there are more
+ * than can be served.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class LoadShedder {
+
+    /**
+     * Prefix of every setting.
+     */
+    private static final String PREFIX = "tullamoreqa.shedding.";
+
+    /**
+     * Default longest wait at the emptiest, in millis.
+     */
+    private static final long DEFAULT_TARGET_MILLIS = 20;
+
+    /**
+     * Default interval over which the shortest wait is taken, in millis.
+     */
+    private static final long DEFAULT_INTERVAL_MILLIS = 100;
+
+    /**
+     * Finds the path of requests within the application.
+     */
+    private static final UrlPathHelper PATHS = new UrlPathHelper();
+
+    /**
+     * Is shedding enabled.
+     */
+    private final boolean enabled;
+
+    /**
+     * Rules classifying requests, first match wins.
+     */
+    private final List<PriorityRule> rules;
+
+    /**
+     * Priority of a request matching no rule.
+     */
+    private final Priority defaultPriority;
+
+    /**
+     * Tells which priorities to shed.
+     */
+    private final QueueDelayMonitor monitor;
+
+    /**
+     * Requests let through, by priority.
+     */
+    private final Map<Priority, AtomicLong> accepted =
+            new EnumMap<>(Priority.class);
+
+    /**
+     * Requests refused, by priority.
+     */
+    private final Map<Priority, AtomicLong> rejected =
+            new EnumMap<>(Priority.class);
+
+    /**
+     * Create a LoadShedder.
+     *
+     * @param environment Settings of this instance.
+     * @param bulkheads   Bulkheads whose queues are watched.
+     */
+    @Autowired
+    public LoadShedder(final Environment environment,
+                       final BulkheadRegistry bulkheads) {
+        this(environment, new QueueDelayMonitor(
+                environment.getProperty(PREFIX + "target-millis",
+                        Long.class, DEFAULT_TARGET_MILLIS),
+                environment.getProperty(PREFIX + "interval-millis",
+                        Long.class, DEFAULT_INTERVAL_MILLIS)));
+        for (Bulkhead bulkhead : bulkheads.all()) {
+            bulkhead.setQueueDelayListener(monitor::record);
+        }
+    }
+
+    /**
+     * Create a LoadShedder.
+     *
+     * @param environment Settings of this instance.
+     * @param monitor     Tells which priorities to shed.
+     */
+    public LoadShedder(final Environment environment,
+                       final QueueDelayMonitor monitor) {
+        this.enabled = environment.getProperty(PREFIX + "enabled",
+                Boolean.class, true);
+        this.defaultPriority = Priority.valueOf(environment.getProperty(
+                PREFIX + "default-priority", "normal").trim()
+                .toUpperCase(Locale.ROOT));
+        final List<PriorityRule> parsed = new ArrayList<>();
+        for (String rule : environment.getProperty(PREFIX + "rules",
+                String[].class, new String[0])) {
+            if (!rule.trim().isEmpty()) {
+                parsed.add(PriorityRule.parse(rule));
+            }
+        }
+        this.rules = Collections.unmodifiableList(parsed);
+        this.monitor = monitor;
+        for (Priority priority : Priority.values()) {
+            accepted.put(priority, new AtomicLong());
+            rejected.put(priority, new AtomicLong());
+        }
+    }
+
+    /**
+     * Is shedding enabled.
+     *
+     * @return True if it is.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Return the priority of a request. It is by a signed in User only if
+     * the container authenticated a principal for it, credentials merely
+     * sent along don't count, as anyone can send them.
+     *
+     * @param request The request.
+     * @return The priority of the first rule it matches, or the default.
+     */
+    public Priority classify(final HttpServletRequest request) {
+        final String method = request.getMethod();
+        final String path = PATHS.getPathWithinApplication(request);
+        final boolean isUser = request.getUserPrincipal() != null;
+        for (PriorityRule rule : rules) {
+            if (rule.matches(method, path, isUser)) {
+                return rule.getPriority();
+            }
+        }
+        return defaultPriority;
+    }
+
+    /**
+     * Decide whether to let a request of a priority through, counting it.
+     *
+     * @param priority Priority of the request.
+     * @return True to let it through, false to refuse it.
+     */
+    public boolean admit(final Priority priority) {
+        if (enabled && monitor.isShed(priority)) {
+            rejected.get(priority).incrementAndGet();
+            return false;
+        }
+        accepted.get(priority).incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Return the rules, the priorities being shed and how many requests
+     * of each priority were let through and refused.
+     *
+     * @return Metrics by name.
+     */
+    public Map<String, Object> toMap() {
+        final Map<String, Object> output = new LinkedHashMap<>();
+        output.put("enabled", enabled);
+        output.putAll(monitor.toMap());
+        final List<String> shed = new ArrayList<>();
+        final Map<String, Object> priorities = new LinkedHashMap<>();
+        for (Priority priority : Priority.values()) {
+            final String name = priority.name().toLowerCase(Locale.ROOT);
+            if (enabled && monitor.isShed(priority)) {
+                shed.add(name);
+            }
+            final Map<String, Object> counts = new LinkedHashMap<>();
+            counts.put("accepted", accepted.get(priority).get());
+            counts.put("rejected", rejected.get(priority).get());
+            priorities.put(name, counts);
+        }
+        output.put("shedding", shed);
+        output.put("priorities", priorities);
+        final List<String> written = new ArrayList<>();
+        for (PriorityRule rule : rules) {
+            written.add(rule.toString());
+        }
+        output.put("rules", written);
+        output.put("defaultPriority",
+                defaultPriority.name().toLowerCase(Locale.ROOT));
+        return output;
+    }
+}
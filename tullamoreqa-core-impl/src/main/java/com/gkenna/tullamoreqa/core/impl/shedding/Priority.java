@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.shedding;
+
+/**
+ * Priority Enum. Specifies how important a request is to keep serving
+ * under load, most important first. The least important are shed first,
+ * and {@link #CRITICAL} never are.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public enum Priority {
+
+    /**
+     * Never shed, i.e. votes, Answers and administration.
+     */
+    CRITICAL,
+
+    /**
+     * Shed last, i.e. other writes and signed in Users viewing Questions.
+     */
+    HIGH,
+
+    /**
+     * Shed once low priority requests are.
+     */
+    NORMAL,
+
+    /**
+     * Shed first, i.e. anonymous listings.
+     */
+    LOW
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.shedding;
+
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * One row of the table classifying requests into {@link Priority}s,
+ * written as <tt>METHODS PATTERN [user|anonymous] = PRIORITY</tt>, i.e.
+ * <tt>GET /question/* user = high</tt>. Methods are separated by
+ * <tt>|</tt> or <tt>*</tt> for any, the pattern is an Ant style path
+ * pattern, and without <tt>user</tt> or <tt>anonymous</tt> the rule
+ * matches both.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public final class PriorityRule {
+
+    /**
+     * Matches request paths against patterns.
+     */
+    private static final PathMatcher MATCHER = new AntPathMatcher();
+
+    /**
+     * Any method, or either kind of User.
+     */
+    private static final String ANY = "*";
+
+    /**
+     * Matches signed in Users only.
+     */
+    private static final String USER = "user";
+
+    /**
+     * Matches anonymous Users only.
+     */
+    private static final String ANONYMOUS = "anonymous";
+
+    /**
+     * Methods matched, empty for any.
+     */
+    private final Set<String> methods;
+
+    /**
+     * Path pattern matched.
+     */
+    private final String pattern;
+
+    /**
+     * Kind of User matched, {@value #ANY} for either.
+     */
+    private final String audience;
+
+    /**
+     * Priority of the requests matched.
+     */
+    private final Priority priority;
+
+    /**
+     * Create a PriorityRule.
+     *
+     * @param methods  Methods matched, empty for any.
+     * @param pattern  Path pattern matched.
+     * @param audience Kind of User matched.
+     * @param priority Priority of the requests matched.
+     */
+    private PriorityRule(final Set<String> methods, final String pattern,
+                         final String audience, final Priority priority) {
+        this.methods = methods;
+        this.pattern = pattern;
+        this.audience = audience;
+        this.priority = priority;
+    }
+
+    /**
+     * Parse a rule.
+     *
+     * @param rule The rule as written.
+     * @return The rule.
+     * @throws IllegalArgumentException If it isn't written as a rule.
+     */
+    public static PriorityRule parse(final String rule) {
+        final int equals = rule.indexOf('=');
+        if (equals < 0) {
+            throw new IllegalArgumentException("No priority in rule '"
+                    + rule + "'.");
+        }
+        final String[] match = rule.substring(0, equals).trim()
+                .split("\\s+");
+        if (match.length < 2 || match.length > 3) {
+            throw new IllegalArgumentException("Rule '" + rule
+                    + "' needs methods, a pattern and maybe a User.");
+        }
+        final String audience = match.length == 3
+                ? match[2].toLowerCase(Locale.ROOT) : ANY;
+        if (!ANY.equals(audience) && !USER.equals(audience)
+                && !ANONYMOUS.equals(audience)) {
+            throw new IllegalArgumentException("Rule '" + rule
+                    + "' can only match a " + USER + " or " + ANONYMOUS
+                    + ".");
+        }
+        final Set<String> methods = ANY.equals(match[0])
+                ? Collections.emptySet()
+                : Collections.unmodifiableSet(new LinkedHashSet<>(
+                        Arrays.asList(match[0].toUpperCase(Locale.ROOT)
+                                .split("\\|"))));
+        return new PriorityRule(methods, match[1], audience,
+                Priority.valueOf(rule.substring(equals + 1).trim()
+                        .toUpperCase(Locale.ROOT)));
+    }
+
+    /**
+     * Does this rule match a request.
+     *
+     * @param method HTTP method of the request.
+     * @param path   Path of the request, within the application.
+     * @param isUser Is the request by a signed in User.
+     * @return True if it does.
+     */
+    public boolean matches(final String method, final String path,
+                           final boolean isUser) {
+        return (methods.isEmpty() || methods.contains(method))
+                && (ANY.equals(audience) || USER.equals(audience) == isUser)
+                && MATCHER.match(pattern, path);
+    }
+
+    /**
+     * Return the priority of the requests this rule matches.
+     *
+     * @return Priority.
+     */
+    public Priority getPriority() {
+        return priority;
+    }
+
+    @Override
+    public String toString() {
+        return (methods.isEmpty() ? ANY : String.join("|", methods)) + " "
+                + pattern + (ANY.equals(audience) ? "" : " " + audience)
+                + " = " + priority.name().toLowerCase(Locale.ROOT);
+    }
+}
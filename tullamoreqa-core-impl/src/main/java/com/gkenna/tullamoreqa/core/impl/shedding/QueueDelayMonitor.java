@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.shedding;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tells how many {@link Priority}s to shed from how long requests wait in
+ * queue, after CoDel.
+ * <p>
+ * What counts is the shortest wait over an interval: a queue that empties
+ * at least once in it is absorbing a burst, while one whose shortest wait
+ * is still above the target is standing, and will only grow. Each
+ * interval ending with a standing queue sheds one more priority, the next
+ * interval being shorter, by the square root of how many in a row there
+ * have been, so shedding tightens until the queue drains. Each interval
+ * without a standing queue, including one without requests, sheds one
+ * fewer.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public class QueueDelayMonitor {
+
+    /**
+     * Most priorities that may be shed, every one but
+     * {@link Priority#CRITICAL}.
+     */
+    private static final int MAX_LEVEL = Priority.values().length - 1;
+
+    /**
+     * Longest a queue may make requests wait at its emptiest, in nanos.
+     */
+    private final long targetNanos;
+
+    /**
+     * Interval over which the shortest wait is taken, in nanos.
+     */
+    private final long intervalNanos;
+
+    /**
+     * Priorities being shed, from the least important.
+     */
+    private int level;
+
+    /**
+     * Intervals in a row ending with a standing queue.
+     */
+    private int standing;
+
+    /**
+     * When the current interval ends, in nanos, 0 before the first.
+     */
+    private long intervalEnd;
+
+    /**
+     * Shortest wait in the current interval, in nanos.
+     */
+    private long shortest = Long.MAX_VALUE;
+
+    /**
+     * Shortest wait in the last interval with requests, in nanos.
+     */
+    private long lastShortest;
+
+    /**
+     * Create a QueueDelayMonitor.
+     *
+     * @param targetMillis   Longest a queue may make requests wait at its
+     *                       emptiest, in millis.
+     * @param intervalMillis Interval over which the shortest wait is
+     *                       taken, in millis.
+     */
+    public QueueDelayMonitor(final long targetMillis,
+                             final long intervalMillis) {
+        if (targetMillis < 0 || intervalMillis < 1) {
+            throw new IllegalArgumentException("Target " + targetMillis
+                    + "ms must be >= 0, interval " + intervalMillis
+                    + "ms > 0.");
+        }
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    }
+
+    /**
+     * Record how long a request waited in queue.
+     *
+     * @param waitNanos How long it waited, in nanos.
+     */
+    public synchronized void record(final long waitNanos) {
+        roll(now());
+        shortest = Math.min(shortest, waitNanos);
+    }
+
+    /**
+     * Return how many priorities to shed, from the least important.
+     *
+     * @return 0 to shed none, up to every priority but
+     * {@link Priority#CRITICAL}.
+     */
+    public synchronized int getLevel() {
+        roll(now());
+        return level;
+    }
+
+    /**
+     * Is a priority to be shed.
+     *
+     * @param priority The priority.
+     * @return True if requests of it are to be refused.
+     */
+    public boolean isShed(final Priority priority) {
+        return priority.ordinal() >= Priority.values().length - getLevel();
+    }
+
+    /**
+     * Return the settings and state of this monitor.
+     *
+     * @return Metrics by name.
+     */
+    public synchronized Map<String, Object> toMap() {
+        roll(now());
+        final Map<String, Object> output = new LinkedHashMap<>();
+        output.put("targetMillis",
+                TimeUnit.NANOSECONDS.toMillis(targetNanos));
+        output.put("intervalMillis",
+                TimeUnit.NANOSECONDS.toMillis(intervalNanos));
+        output.put("level", level);
+        output.put("lastShortestWaitMillis",
+                TimeUnit.NANOSECONDS.toMillis(lastShortest));
+        return output;
+    }
+
+    /**
+     * Return the current time.
+     *
+     * @return A monotonic time, in nanos.
+     */
+    protected long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * End the current interval if it is over, adjusting the level.
+     *
+     * @param now The current time, in nanos.
+     */
+    private void roll(final long now) {
+        if (intervalEnd == 0) {
+            intervalEnd = now + intervalNanos;
+            return;
+        }
+        if (now - intervalEnd < 0) {
+            return;
+        }
+        final boolean hadRequests = shortest != Long.MAX_VALUE;
+        if (hadRequests) {
+            lastShortest = shortest;
+        }
+        shortest = Long.MAX_VALUE;
+        if (hadRequests && lastShortest > targetNanos) {
+            standing++;
+            level = Math.min(MAX_LEVEL, level + 1);
+            intervalEnd = now
+                    + (long) (intervalNanos / Math.sqrt(standing));
+            return;
+        }
+        standing = 0;
+        final long idle = (now - intervalEnd) / intervalNanos;
+        level = (int) Math.max(0, level - 1 - idle);
+        intervalEnd = now + intervalNanos;
+    }
+}
@@ -0,0 +1,9 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+/**
+ * Sheds load when requests queue for too long, refusing the least
+ * important first.
+ */
+package com.gkenna.tullamoreqa.core.impl.shedding;
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.storage;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+/**
+ * Creates and checks the directories files read back on startup are kept
+ * in, such as cache snapshots and import checkpoints. Anyone able to
+ * write to such a directory could plant a file this instance then trusts,
+ * so it must belong to the user this instance runs as and no one else may
+ * write to it.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public final class PrivateDirectory {
+
+    /**
+     * Permissions a directory is created with, owner only.
+     */
+    private static final Set<PosixFilePermission> OWNER_ONLY =
+            PosixFilePermissions.fromString("rwx------");
+
+    /**
+     * Can't be instantiated.
+     */
+    private PrivateDirectory() {
+    }
+
+    /**
+     * Create a directory readable and writable by this user only, along
+     * with its parents, or check the one already there is.
+     *
+     * @param directory The directory.
+     * @return The directory.
+     * @throws IOException If it couldn't be created, or others can write
+     *                     to it.
+     */
+    public static Path create(final Path directory) throws IOException {
+        final boolean posix = FileSystems.getDefault()
+                .supportedFileAttributeViews().contains("posix");
+        if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+            if (posix) {
+                Files.createDirectories(directory,
+                        PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+            } else {
+                Files.createDirectories(directory);
+            }
+        }
+        if (!posix) {
+            return directory;
+        }
+        final String user = System.getProperty("user.name");
+        final String owner = Files.getOwner(directory,
+                LinkOption.NOFOLLOW_LINKS).getName();
+        if (!owner.equals(user)) {
+            throw new IOException(directory + " belongs to " + owner
+                    + ", not " + user + ".");
+        }
+        final Set<PosixFilePermission> permissions =
+                Files.getPosixFilePermissions(directory,
+                        LinkOption.NOFOLLOW_LINKS);
+        if (permissions.contains(PosixFilePermission.GROUP_WRITE)
+                || permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+            throw new IOException(directory + " can be written to by"
+                    + " others.");
+        }
+        return directory;
+    }
+
+    /**
+     * Create the directory a file is kept in, see {@link #create(Path)}.
+     *
+     * @param file The file.
+     * @return The file.
+     * @throws IOException If its directory couldn't be created, or others
+     *                     can write to it.
+     */
+    public static Path createFor(final Path file) throws IOException {
+        final Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            create(parent);
+        }
+        return file;
+    }
+}
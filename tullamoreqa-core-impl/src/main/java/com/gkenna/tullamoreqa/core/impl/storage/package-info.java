@@ -0,0 +1,9 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+/**
+ * Files this instance keeps for itself between runs, in a directory no
+ * other user can write to.
+ */
+package com.gkenna.tullamoreqa.core.impl.storage;
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.tenant;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.boot.jdbc.DatabaseDriver;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One of the Databases tenants are kept on, with a connection pool of its
+ * own so a busy shard can't take connections from the others. Each tenant
+ * has a schema of its own on its shard, and connections are switched to it
+ * as they are given out.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public class Shard {
+
+    /**
+     * Name of the shard.
+     */
+    private final String name;
+
+    /**
+     * Pool of connections to the shard.
+     */
+    private final DataSource dataSource;
+
+    /**
+     * Vendor of the shard's Database.
+     */
+    private final DatabaseDriver driver;
+
+    /**
+     * Schema connections are in when first opened, which the default
+     * tenant uses; null until the first connection is opened.
+     */
+    private volatile String home;
+
+    /**
+     * Create a Shard.
+     *
+     * @param name       Name of the shard.
+     * @param dataSource Pool of connections to the shard.
+     * @param driver     Vendor of the shard's Database.
+     */
+    public Shard(final String name, final DataSource dataSource,
+                 final DatabaseDriver driver) {
+        this.name = name;
+        this.dataSource = dataSource;
+        this.driver = driver;
+    }
+
+    /**
+     * Return the name of the shard.
+     *
+     * @return Shard name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Return the pool of connections to the shard.
+     *
+     * @return Connection pool.
+     */
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Return the vendor of the shard's Database.
+     *
+     * @return Database vendor.
+     */
+    public DatabaseDriver getDriver() {
+        return driver;
+    }
+
+    /**
+     * Get a connection from the pool, switched to a schema.
+     *
+     * @param schema Schema to switch to, null for the one connections are
+     *               in when first opened.
+     * @return Connection.
+     * @throws SQLException If a connection couldn't be had or switched.
+     */
+    public Connection getConnection(final String schema)
+            throws SQLException {
+        return switchTo(dataSource.getConnection(), schema);
+    }
+
+    /**
+     * Get a connection as a user, switched to a schema.
+     *
+     * @param schema   Schema to switch to, null for the one connections
+     *                 are in when first opened.
+     * @param username User to connect as.
+     * @param password Password of the user.
+     * @return Connection.
+     * @throws SQLException If a connection couldn't be had or switched.
+     */
+    public Connection getConnection(final String schema,
+                                    final String username,
+                                    final String password)
+            throws SQLException {
+        return switchTo(dataSource.getConnection(username, password),
+                schema);
+    }
+
+    /**
+     * Switch a new connection to a schema, closing it if that fails.
+     *
+     * @param output The connection.
+     * @param schema Schema to switch to, null for the one connections are
+     *               in when first opened.
+     * @return The connection.
+     * @throws SQLException If it couldn't be switched.
+     */
+    private Connection switchTo(final Connection output, final String schema)
+            throws SQLException {
+        try {
+            if (home == null) {
+                synchronized (this) {
+                    if (home == null) {
+                        home = isCatalogPerSchema() ? output.getCatalog()
+                                : output.getSchema();
+                    }
+                }
+            }
+            final String target = schema == null ? home : schema;
+            if (isCatalogPerSchema()) {
+                output.setCatalog(target);
+            } else {
+                output.setSchema(target);
+            }
+            return output;
+        } catch (SQLException | RuntimeException e) {
+            output.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Return the state of the shard's connection pool.
+     *
+     * @return Metrics by name.
+     */
+    public Map<String, Object> toMap() {
+        final Map<String, Object> output = new LinkedHashMap<>();
+        output.put("vendor", driver.getId());
+        if (dataSource instanceof HikariDataSource) {
+            final HikariDataSource pool = (HikariDataSource) dataSource;
+            output.put("maxConnections", pool.getMaximumPoolSize());
+            final HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+            if (bean != null) {
+                output.put("active", bean.getActiveConnections());
+                output.put("idle", bean.getIdleConnections());
+                output.put("waiting", bean.getThreadsAwaitingConnection());
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Does the shard's Database call a schema a catalog, as MySQL does.
+     *
+     * @return True if schemas are switched by catalog.
+     */
+    private boolean isCatalogPerSchema() {
+        return driver == DatabaseDriver.MYSQL
+                || driver == DatabaseDriver.MARIADB;
+    }
+}
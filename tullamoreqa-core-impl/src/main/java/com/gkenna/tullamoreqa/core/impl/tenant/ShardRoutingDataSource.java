@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.tenant;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gives out connections to the schema of the current request's tenant, on
+ * the shard the {@link TenantDirectory} has it on. Every Repository, and
+ * anything else using the Database, goes through here.
+ * <p>
+ * Connections for a tenant being moved are refused, and those open are
+ * counted so a move can wait for them to close.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public class ShardRoutingDataSource extends AbstractDataSource {
+
+    /**
+     * Shards by name.
+     */
+    private final Map<String, Shard> shards;
+
+    /**
+     * Where each tenant is.
+     */
+    private final TenantDirectory directory;
+
+    /**
+     * Connections open, by tenant.
+     */
+    private final ConcurrentMap<String, AtomicInteger> open =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Create a ShardRoutingDataSource.
+     *
+     * @param shards    Shards by name, including
+     *                  {@link TenantDirectory#PRIMARY}.
+     * @param directory Where each tenant is.
+     */
+    public ShardRoutingDataSource(final Map<String, Shard> shards,
+                                  final TenantDirectory directory) {
+        this.shards = Collections.unmodifiableMap(
+                new LinkedHashMap<>(shards));
+        this.directory = directory;
+    }
+
+    /**
+     * Return the shards by name.
+     *
+     * @return Shards.
+     */
+    public Map<String, Shard> getShards() {
+        return shards;
+    }
+
+    /**
+     * Return the shard of the given name.
+     *
+     * @param name Shard name.
+     * @return Shard.
+     * @throws IllegalArgumentException If there is no such shard.
+     */
+    public Shard getShard(final String name) {
+        final Shard output = shards.get(name);
+        if (output == null) {
+            throw new IllegalArgumentException("No shard " + name + ".");
+        }
+        return output;
+    }
+
+    /**
+     * Return the number of connections open for a tenant.
+     *
+     * @param tenant Tenant name.
+     * @return Connections open.
+     */
+    public int getOpenConnections(final String tenant) {
+        final AtomicInteger output = open.get(tenant);
+        return output == null ? 0 : output.get();
+    }
+
+    @Override
+    public final Connection getConnection() throws SQLException {
+        final String tenant = route();
+        return track(tenant, getShard(directory.shardOf(tenant))
+                .getConnection(schemaOf(tenant)));
+    }
+
+    @Override
+    public final Connection getConnection(final String username,
+                                          final String password)
+            throws SQLException {
+        final String tenant = route();
+        return track(tenant, getShard(directory.shardOf(tenant))
+                .getConnection(schemaOf(tenant), username, password));
+    }
+
+    /**
+     * Return the tenant of the current request, unless it is being moved.
+     *
+     * @return Tenant name.
+     * @throws TenantUnavailableException If it is being moved.
+     */
+    private String route() {
+        final String tenant = Tenants.current();
+        if (directory.isMoving(tenant)) {
+            throw new TenantUnavailableException("Tenant " + tenant
+                    + " is being moved, try again shortly.");
+        }
+        return tenant;
+    }
+
+    /**
+     * Return the schema a tenant's connections are switched to.
+     *
+     * @param tenant Tenant name.
+     * @return Schema name, null for the default tenant.
+     */
+    private static String schemaOf(final String tenant) {
+        return Tenants.DEFAULT.equals(tenant) ? null
+                : Tenants.schemaOf(tenant);
+    }
+
+    /**
+     * Count a connection as open for a tenant until it is closed.
+     *
+     * @param tenant Tenant name.
+     * @param target The connection.
+     * @return The connection, closing which stops it being counted.
+     */
+    private Connection track(final String tenant, final Connection target) {
+        final AtomicInteger count =
+                open.computeIfAbsent(tenant, key -> new AtomicInteger());
+        count.incrementAndGet();
+        final AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                ShardRoutingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "close":
+                            if (closed.compareAndSet(false, true)) {
+                                count.decrementAndGet();
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.tenant;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Knows which shard each tenant is on, which are being moved, and which
+ * users are members of each. It is kept in the tenants and tenant_members
+ * tables of the primary, and in memory in between
+ * {@link #reload()}s so routing a connection costs no Database call; a
+ * change made by another instance is seen here on the next reload.
+ * <p>
+ * The {@link Tenants#DEFAULT} tenant is always on the primary, and never
+ * moves.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public class TenantDirectory {
+
+    /**
+     * Name of the primary shard.
+     */
+    public static final String PRIMARY = "primary";
+
+    /**
+     * Status of a tenant being served.
+     */
+    private static final String ACTIVE = "active";
+
+    /**
+     * Status of a tenant being moved.
+     */
+    private static final String MOVING = "moving";
+
+    /**
+     * Every tenant, its shard and status.
+     */
+    private static final String SELECT =
+            "SELECT name, shard, status FROM tenants";
+
+    /**
+     * Every member of every tenant.
+     */
+    private static final String SELECT_MEMBERS =
+            "SELECT tenant, username FROM tenant_members";
+
+    /**
+     * Adds a member to a tenant, bound to the tenant and username.
+     */
+    private static final String INSERT_MEMBER =
+            "INSERT INTO tenant_members (tenant, username) VALUES (?, ?)";
+
+    /**
+     * Removes a member from a tenant, bound to the tenant and username.
+     */
+    private static final String DELETE_MEMBER =
+            "DELETE FROM tenant_members WHERE tenant = ? AND username = ?";
+
+    /**
+     * Adds a tenant, bound to its name and shard.
+     */
+    private static final String INSERT =
+            "INSERT INTO tenants (name, shard, status) VALUES (?, ?, '"
+                    + ACTIVE + "')";
+
+    /**
+     * Sets the status of a tenant, bound to the status and its name.
+     */
+    private static final String UPDATE_STATUS =
+            "UPDATE tenants SET status = ? WHERE name = ?";
+
+    /**
+     * Puts a tenant on a shard and serves it again, bound to the shard and
+     * its name.
+     */
+    private static final String UPDATE_SHARD = "UPDATE tenants SET shard = ?,"
+            + " status = '" + ACTIVE + "' WHERE name = ?";
+
+    /**
+     * Template over the primary.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Shard of each tenant but the default.
+     */
+    private volatile Map<String, String> shards = Collections.emptyMap();
+
+    /**
+     * Tenants being moved.
+     */
+    private volatile Set<String> moving = Collections.emptySet();
+
+    /**
+     * Usernames of the members of each tenant but the default.
+     */
+    private volatile Map<String, Set<String>> members =
+            Collections.emptyMap();
+
+    /**
+     * Create a TenantDirectory, empty until first reloaded.
+     *
+     * @param primary The primary, not routed by tenant.
+     */
+    public TenantDirectory(final DataSource primary) {
+        this.jdbcTemplate = new JdbcTemplate(primary);
+    }
+
+    /**
+     * Read every tenant's shard, status and members from the primary.
+     */
+    public synchronized void reload() {
+        final Map<String, String> nextShards = new HashMap<>();
+        final Set<String> nextMoving = new HashSet<>();
+        jdbcTemplate.query(SELECT, resultSet -> {
+            final String name = resultSet.getString("name");
+            nextShards.put(name, resultSet.getString("shard"));
+            if (MOVING.equals(resultSet.getString("status"))) {
+                nextMoving.add(name);
+            }
+        });
+        final Map<String, Set<String>> nextMembers = new HashMap<>();
+        jdbcTemplate.query(SELECT_MEMBERS, resultSet -> {
+            nextMembers.computeIfAbsent(resultSet.getString("tenant"),
+                    tenant -> new HashSet<>())
+                    .add(resultSet.getString("username"));
+        });
+        shards = Collections.unmodifiableMap(nextShards);
+        moving = Collections.unmodifiableSet(nextMoving);
+        members = Collections.unmodifiableMap(nextMembers);
+    }
+
+    /**
+     * Return every tenant hosted on this deployment but the default.
+     *
+     * @return Tenant names.
+     */
+    public Set<String> getTenants() {
+        return shards.keySet();
+    }
+
+    /**
+     * Is a user a member of a tenant. Every user is a member of the
+     * default tenant.
+     *
+     * @param tenant   Tenant name.
+     * @param username Username of the user.
+     * @return True if they are.
+     */
+    public boolean isMember(final String tenant, final String username) {
+        if (Tenants.DEFAULT.equals(tenant)) {
+            return true;
+        }
+        final Set<String> usernames = members.get(tenant);
+        return usernames != null && usernames.contains(username);
+    }
+
+    /**
+     * Make a user a member of a tenant.
+     *
+     * @param tenant   Tenant name.
+     * @param username Username of the user.
+     */
+    public synchronized void addMember(final String tenant,
+                                       final String username) {
+        jdbcTemplate.update(INSERT_MEMBER, tenant, username);
+        reload();
+    }
+
+    /**
+     * Stop a user being a member of a tenant.
+     *
+     * @param tenant   Tenant name.
+     * @param username Username of the user.
+     * @return True if they were a member.
+     */
+    public synchronized boolean removeMember(final String tenant,
+                                             final String username) {
+        final boolean output =
+                jdbcTemplate.update(DELETE_MEMBER, tenant, username) > 0;
+        reload();
+        return output;
+    }
+
+    /**
+     * Is a tenant hosted on this deployment.
+     *
+     * @param tenant Tenant name.
+     * @return True if it is.
+     */
+    public boolean isHosted(final String tenant) {
+        return Tenants.DEFAULT.equals(tenant) || shards.containsKey(tenant);
+    }
+
+    /**
+     * Is a tenant being moved.
+     *
+     * @param tenant Tenant name.
+     * @return True if it is.
+     */
+    public boolean isMoving(final String tenant) {
+        return moving.contains(tenant);
+    }
+
+    /**
+     * Return the shard a tenant is on.
+     *
+     * @param tenant Tenant name.
+     * @return Shard name.
+     * @throws UnknownTenantException If the tenant isn't hosted here.
+     */
+    public String shardOf(final String tenant) {
+        if (Tenants.DEFAULT.equals(tenant)) {
+            return PRIMARY;
+        }
+        final String output = shards.get(tenant);
+        if (output == null) {
+            throw new UnknownTenantException("No tenant " + tenant + ".");
+        }
+        return output;
+    }
+
+    /**
+     * Add a tenant on a shard.
+     *
+     * @param tenant Tenant name.
+     * @param shard  Shard name.
+     */
+    public synchronized void add(final String tenant, final String shard) {
+        jdbcTemplate.update(INSERT, tenant, shard);
+        reload();
+    }
+
+    /**
+     * Mark a tenant as being moved, or not.
+     *
+     * @param tenant   Tenant name.
+     * @param isMoving True if it is being moved.
+     */
+    public synchronized void setMoving(final String tenant,
+                                       final boolean isMoving) {
+        jdbcTemplate.update(UPDATE_STATUS, isMoving ? MOVING : ACTIVE,
+                tenant);
+        reload();
+    }
+
+    /**
+     * Put a tenant on a shard, and mark it as no longer being moved.
+     *
+     * @param tenant Tenant name.
+     * @param shard  Shard name.
+     */
+    public synchronized void assign(final String tenant, final String shard) {
+        jdbcTemplate.update(UPDATE_SHARD, shard, tenant);
+        reload();
+    }
+
+    /**
+     * Return every tenant's shard and status.
+     *
+     * @return Shard and status by tenant name.
+     */
+    public Map<String, Map<String, Object>> toMap() {
+        final Map<String, Map<String, Object>> output = new TreeMap<>();
+        final Map<String, String> current = new HashMap<>(shards);
+        current.put(Tenants.DEFAULT, PRIMARY);
+        for (Map.Entry<String, String> entry : current.entrySet()) {
+            final Map<String, Object> tenant = new LinkedHashMap<>();
+            tenant.put("shard", entry.getValue());
+            tenant.put("status",
+                    isMoving(entry.getKey()) ? MOVING : ACTIVE);
+            output.put(entry.getKey(), tenant);
+        }
+        return output;
+    }
+}
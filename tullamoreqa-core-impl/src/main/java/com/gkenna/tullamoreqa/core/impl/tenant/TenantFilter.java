@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.tenant;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.security.Principal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the tenant of each request from the header naming it, for
+ * {@link Tenants}. A request naming no tenant is for the default tenant.
+ * <p>
+ * The header is only trusted along with the principal the request was
+ * authenticated as, by the servlet container or a filter ahead of this
+ * one, which must be a member of the tenant in the
+ * {@link TenantDirectory}. A request naming a tenant without being
+ * authenticated is answered Unauthorized; one naming a tenant not hosted
+ * here, or that its principal isn't a member of, Not Found; and one for a
+ * tenant being moved Service Unavailable.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class TenantFilter extends OncePerRequestFilter {
+
+    /**
+     * Routes connections by tenant.
+     */
+    private final TenantRouter router;
+
+    /**
+     * Header naming the tenant.
+     */
+    private final String header;
+
+    /**
+     * Create a TenantFilter.
+     *
+     * @param router Routes connections by tenant.
+     * @param header Header naming the tenant.
+     */
+    @Autowired
+    public TenantFilter(
+            final TenantRouter router,
+            @Value("${tullamoreqa.tenants.header:X-Tenant}")
+            final String header) {
+        this.router = router;
+        this.header = header;
+    }
+
+    @Override
+    protected final void doFilterInternal(final HttpServletRequest request,
+                                          final HttpServletResponse response,
+                                          final FilterChain chain)
+            throws ServletException, IOException {
+        final String tenant = request.getHeader(header);
+        if (!router.isEnabled() || tenant == null || tenant.isEmpty()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        final TenantDirectory directory = router.getDirectory();
+        final Principal principal = request.getUserPrincipal();
+        if (principal == null && !Tenants.DEFAULT.equals(tenant)) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED,
+                    "Naming a tenant needs an authenticated user.");
+            return;
+        }
+        if (!Tenants.isValidName(tenant) || !directory.isHosted(tenant)
+                || !directory.isMember(tenant, principal == null ? null
+                : principal.getName())) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND,
+                    "No tenant " + tenant + ".");
+            return;
+        }
+        if (directory.isMoving(tenant)) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(
+                    TimeUnit.MILLISECONDS.toSeconds(
+                            router.getReloadMillis()) + 1));
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    "Tenant " + tenant + " is being moved.");
+            return;
+        }
+        request.setAttribute(Tenants.ATTRIBUTE, tenant);
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.tenant;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Adds tenants to shards, and moves them between shards.
+ * <p>
+ * A tenant is moved by marking it as moving, so every instance refuses its
+ * requests once they next reload the {@link TenantDirectory}, and waiting
+ * for its open connections here to close. Its schema on the new shard is
+ * then recreated, its tables copied over in one transaction and it is put
+ * on the new shard. Its schema on the old shard is left as it was, to be
+ * dropped once the move is known to be good.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class TenantMover {
+
+    /**
+     * Tenant Mover Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(TenantMover.class);
+
+    /**
+     * Placeholder for the Database vendor in migration locations.
+     */
+    private static final String VENDOR = "{vendor}";
+
+    /**
+     * Tables that are not copied: migration history, which the new schema
+     * has of its own, and the directory, which is only read on the
+     * primary.
+     */
+    private static final Set<String> SKIPPED = Collections.unmodifiableSet(
+            new LinkedHashSet<>(Arrays.asList("flyway_schema_history",
+                    "tenants")));
+
+    /**
+     * Rows inserted per batch when copying.
+     */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * Time between checks for open connections, in millis.
+     */
+    private static final long DRAIN_POLL_MILLIS = 50;
+
+    /**
+     * Routes connections by tenant.
+     */
+    private final TenantRouter router;
+
+    /**
+     * Locations of the schema migrations.
+     */
+    private final String[] locations;
+
+    /**
+     * Longest to wait for a moving tenant's connections to close, once
+     * every instance has seen it is moving, in millis.
+     */
+    private final long drainMillis;
+
+    /**
+     * Create a TenantMover.
+     *
+     * @param router      Routes connections by tenant.
+     * @param locations   Locations of the schema migrations.
+     * @param drainMillis Longest to wait for a moving tenant's connections
+     *                    to close, once every instance has seen it is
+     *                    moving, in millis.
+     */
+    @Autowired
+    public TenantMover(
+            final TenantRouter router,
+            @Value("${spring.flyway.locations:classpath:db/migration}")
+            final String[] locations,
+            @Value("${tullamoreqa.tenants.drain-millis:30000}")
+            final long drainMillis) {
+        this.router = router;
+        this.locations = locations.clone();
+        this.drainMillis = drainMillis;
+    }
+
+    /**
+     * Add a tenant on a shard, creating its schema there.
+     *
+     * @param tenant Tenant name.
+     * @param shard  Shard name.
+     * @throws IllegalArgumentException If the name isn't one a tenant may
+     *                                  have, or there is no such shard.
+     * @throws IllegalStateException    If the tenant is already hosted.
+     */
+    public synchronized void add(final String tenant, final String shard) {
+        checkName(tenant);
+        final TenantDirectory directory = router.getDirectory();
+        if (directory.isHosted(tenant)) {
+            throw new IllegalStateException("Tenant " + tenant
+                    + " is already hosted.");
+        }
+        migrate(router.getRouting().getShard(shard), tenant, false);
+        directory.add(tenant, shard);
+        LOGGER.info("Added tenant {} on shard {}.", tenant, shard);
+    }
+
+    /**
+     * Move a tenant to another shard. Its requests are refused until the
+     * move completes.
+     *
+     * @param tenant Tenant name.
+     * @param shard  Shard to move it to.
+     * @throws IllegalArgumentException If the name isn't one a tenant may
+     *                                  have, or there is no such shard.
+     * @throws UnknownTenantException   If the tenant isn't hosted.
+     * @throws IllegalStateException    If it is on that shard already, or
+     *                                  its connections didn't close in
+     *                                  time.
+     */
+    public synchronized void move(final String tenant, final String shard) {
+        checkName(tenant);
+        final TenantDirectory directory = router.getDirectory();
+        final ShardRoutingDataSource routing = router.getRouting();
+        final Shard source = routing.getShard(directory.shardOf(tenant));
+        final Shard target = routing.getShard(shard);
+        if (source == target) {
+            throw new IllegalStateException("Tenant " + tenant
+                    + " is on shard " + shard + " already.");
+        }
+
+        final long start = System.currentTimeMillis();
+        directory.setMoving(tenant, true);
+        try {
+            drain(tenant);
+            migrate(target, tenant, true);
+            final int rows = copy(source, target, Tenants.schemaOf(tenant));
+            directory.assign(tenant, shard);
+            LOGGER.info("Moved tenant {} from shard {} to {}, {} rows in {}"
+                            + " ms.", tenant, source.getName(), shard, rows,
+                    System.currentTimeMillis() - start);
+        } catch (SQLException | RuntimeException e) {
+            directory.setMoving(tenant, false);
+            throw new IllegalStateException("Failed to move tenant "
+                    + tenant + " to shard " + shard + ".", e);
+        }
+    }
+
+    /**
+     * Check a tenant may be added or moved.
+     *
+     * @param tenant Tenant name.
+     */
+    private static void checkName(final String tenant) {
+        if (!Tenants.isValidName(tenant)
+                || Tenants.DEFAULT.equals(tenant)) {
+            throw new IllegalArgumentException("Tenant " + tenant
+                    + " can't be added or moved.");
+        }
+    }
+
+    /**
+     * Wait for every instance to see a tenant as moving, and its
+     * connections here to close.
+     *
+     * @param tenant Tenant name.
+     */
+    private void drain(final String tenant) {
+        final long seen = System.currentTimeMillis()
+                + router.getReloadMillis();
+        final long deadline = seen + drainMillis;
+        try {
+            while (System.currentTimeMillis() < seen
+                    || router.getRouting().getOpenConnections(tenant) > 0) {
+                if (System.currentTimeMillis() >= deadline) {
+                    throw new IllegalStateException("Connections of tenant "
+                            + tenant + " didn't close in time.");
+                }
+                Thread.sleep(DRAIN_POLL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting on tenant "
+                    + tenant + ".", e);
+        }
+    }
+
+    /**
+     * Create, or recreate, a tenant's schema on a shard.
+     *
+     * @param shard  The shard.
+     * @param tenant Tenant name.
+     * @param clean  Drop what the schema has first.
+     */
+    private void migrate(final Shard shard, final String tenant,
+                         final boolean clean) {
+        final String[] resolved = new String[locations.length];
+        for (int i = 0; i < locations.length; i++) {
+            resolved[i] = locations[i].replace(VENDOR,
+                    shard.getDriver().getId());
+        }
+        final Flyway flyway = new Flyway();
+        flyway.setDataSource(shard.getDataSource());
+        flyway.setSchemas(Tenants.schemaOf(tenant));
+        flyway.setLocations(resolved);
+        if (clean) {
+            flyway.clean();
+        }
+        flyway.migrate();
+    }
+
+    /**
+     * Copy every table of a schema between shards, in one transaction on
+     * the target.
+     *
+     * @param source Shard to copy from.
+     * @param target Shard to copy to, its schema freshly migrated.
+     * @param schema The schema.
+     * @return Rows copied.
+     * @throws SQLException If reading or writing failed.
+     */
+    private int copy(final Shard source, final Shard target,
+                     final String schema) throws SQLException {
+        int output = 0;
+        try (Connection from = source.getConnection(schema);
+             Connection to = target.getConnection(schema)) {
+            final Map<String, List<String>> tables = tables(from);
+            to.setAutoCommit(false);
+            try {
+                final List<String> order = new ArrayList<>(tables.keySet());
+                Collections.reverse(order);
+                try (Statement statement = to.createStatement()) {
+                    for (String table : order) {
+                        statement.executeUpdate("DELETE FROM " + table);
+                    }
+                }
+                for (Map.Entry<String, List<String>> table
+                        : tables.entrySet()) {
+                    output += copyTable(from, to, table.getKey(),
+                            table.getValue());
+                }
+                to.commit();
+            } catch (SQLException | RuntimeException e) {
+                to.rollback();
+                throw e;
+            } finally {
+                to.setAutoCommit(true);
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Copy the rows of one table, in primary key order.
+     *
+     * @param from       Connection to copy from.
+     * @param to         Connection to copy to.
+     * @param table      Table name.
+     * @param primaryKey Primary key columns, empty if there are none.
+     * @return Rows copied.
+     * @throws SQLException If reading or writing failed.
+     */
+    private static int copyTable(final Connection from,
+                                 final Connection to, final String table,
+                                 final List<String> primaryKey)
+            throws SQLException {
+        final String select = "SELECT * FROM " + table
+                + (primaryKey.isEmpty() ? ""
+                : " ORDER BY " + String.join(", ", primaryKey));
+        int output = 0;
+        try (Statement statement = from.createStatement();
+             ResultSet rows = statement.executeQuery(select)) {
+            final int columns = rows.getMetaData().getColumnCount();
+            final List<String> names = new ArrayList<>();
+            final List<String> marks = new ArrayList<>();
+            for (int i = 1; i <= columns; i++) {
+                names.add(rows.getMetaData().getColumnName(i));
+                marks.add("?");
+            }
+            try (PreparedStatement insert = to.prepareStatement("INSERT INTO "
+                    + table + " (" + String.join(", ", names) + ") VALUES ("
+                    + String.join(", ", marks) + ")")) {
+                while (rows.next()) {
+                    for (int i = 1; i <= columns; i++) {
+                        insert.setObject(i, rows.getObject(i));
+                    }
+                    insert.addBatch();
+                    if (++output % BATCH_SIZE == 0) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Return the tables of the schema a connection is in, each after the
+     * tables it references, with their primary key columns.
+     *
+     * @param connection Connection switched to the schema.
+     * @return Primary key columns by table name, in copying order.
+     * @throws SQLException If the schema couldn't be read.
+     */
+    private static Map<String, List<String>> tables(
+            final Connection connection) throws SQLException {
+        final DatabaseMetaData metaData = connection.getMetaData();
+        final String catalog = connection.getCatalog();
+        final String schema = connection.getSchema();
+
+        final Map<String, Set<String>> references = new TreeMap<>();
+        try (ResultSet tables = metaData.getTables(catalog, schema, "%",
+                new String[]{"TABLE"})) {
+            while (tables.next()) {
+                final String table = tables.getString("TABLE_NAME");
+                if (!SKIPPED.contains(table.toLowerCase())) {
+                    references.put(table, new LinkedHashSet<>());
+                }
+            }
+        }
+        for (Map.Entry<String, Set<String>> table : references.entrySet()) {
+            try (ResultSet keys = metaData.getImportedKeys(catalog, schema,
+                    table.getKey())) {
+                while (keys.next()) {
+                    final String referenced = keys.getString("PKTABLE_NAME");
+                    if (!referenced.equals(table.getKey())) {
+                        table.getValue().add(referenced);
+                    }
+                }
+            }
+        }
+
+        final Map<String, List<String>> output = new LinkedHashMap<>();
+        while (output.size() < references.size()) {
+            boolean progressed = false;
+            for (Map.Entry<String, Set<String>> table
+                    : references.entrySet()) {
+                if (!output.containsKey(table.getKey())
+                        && output.keySet().containsAll(table.getValue())) {
+                    output.put(table.getKey(), primaryKey(metaData, catalog,
+                            schema, table.getKey()));
+                    progressed = true;
+                }
+            }
+            if (!progressed) {
+                throw new IllegalStateException("Tables reference each"
+                        + " other in a cycle, can't order the copy.");
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Return the primary key columns of a table, in key order.
+     *
+     * @param metaData Metadata of the schema's Database.
+     * @param catalog  Catalog of the schema.
+     * @param schema   The schema.
+     * @param table    Table name.
+     * @return Column names.
+     * @throws SQLException If the table couldn't be read.
+     */
+    private static List<String> primaryKey(final DatabaseMetaData metaData,
+                                           final String catalog,
+                                           final String schema,
+                                           final String table)
+            throws SQLException {
+        final Map<Short, String> columns = new TreeMap<>();
+        try (ResultSet keys = metaData.getPrimaryKeys(catalog, schema,
+                table)) {
+            while (keys.next()) {
+                columns.put(keys.getShort("KEY_SEQ"),
+                        keys.getString("COLUMN_NAME"));
+            }
+        }
+        return new ArrayList<>(columns.values());
+    }
+}
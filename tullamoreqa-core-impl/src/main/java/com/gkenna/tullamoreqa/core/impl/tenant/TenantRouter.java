@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.tenant;
+
+import com.gkenna.tullamoreqa.core.impl.jobs.LeaseLostException;
+import com.gkenna.tullamoreqa.domain.id.NodeIdGenerator;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Puts the primary {@link DataSource} behind a
+ * {@link ShardRoutingDataSource} when tenants are enabled, along with a
+ * pool for each further shard, and reloads the {@link TenantDirectory} on
+ * a schedule.
+ * <p>
+ * Shards are listed by name in <tt>tullamoreqa.tenants.shards</tt>, each
+ * configured under <tt>tullamoreqa.tenants.shard.&lt;name&gt;</tt> with a
+ * <tt>url</tt>, <tt>username</tt>, <tt>password</tt> and
+ * <tt>max-connections</tt>. The primary is a shard too, named
+ * {@value TenantDirectory#PRIMARY}.
+ * <p>
+ * IDs must be allocated in memory, as blocks reserved from one tenant's
+ * sequence would otherwise be handed out to others, and tenants would
+ * clash when moved. Read replicas aren't supported alongside tenants.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class TenantRouter implements BeanPostProcessor, DisposableBean {
+
+    /**
+     * Tenant Router Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(TenantRouter.class);
+
+    /**
+     * Prefix of every setting.
+     */
+    private static final String PREFIX = "tullamoreqa.tenants.";
+
+    /**
+     * Prefix of the settings of a shard.
+     */
+    private static final String SHARD_PREFIX = PREFIX + "shard.";
+
+    /**
+     * Default connections per shard.
+     */
+    private static final int DEFAULT_MAX_CONNECTIONS = 10;
+
+    /**
+     * Default time between reloads of the directory, in millis.
+     */
+    private static final long DEFAULT_RELOAD_MILLIS = 10000;
+
+    /**
+     * Setting choosing how IDs are allocated.
+     */
+    private static final String ID_STRATEGY =
+            "spring.jpa.properties." + NodeIdGenerator.STRATEGY_SETTING;
+
+    /**
+     * Settings of this instance.
+     */
+    private final Environment environment;
+
+    /**
+     * Are tenants enabled.
+     */
+    private final boolean enabled;
+
+    /**
+     * Time between reloads of the directory, in millis.
+     */
+    private final long reloadMillis;
+
+    /**
+     * Routes connections, once the primary has been put behind it.
+     */
+    private ShardRoutingDataSource routing;
+
+    /**
+     * Where each tenant is, once the primary has been put behind the
+     * router.
+     */
+    private TenantDirectory directory;
+
+    /**
+     * Reloads the directory, once the primary has been put behind the
+     * router.
+     */
+    private ScheduledExecutorService reloads;
+
+    /**
+     * Create a TenantRouter.
+     *
+     * @param environment Settings of this instance.
+     */
+    @Autowired
+    public TenantRouter(final Environment environment) {
+        this.environment = environment;
+        this.enabled = environment.getProperty(PREFIX + "enabled",
+                Boolean.class, false);
+        this.reloadMillis = environment.getProperty(PREFIX + "reload-millis",
+                Long.class, DEFAULT_RELOAD_MILLIS);
+    }
+
+    /**
+     * Are tenants enabled.
+     *
+     * @return True if they are.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Return the time between reloads of the directory.
+     *
+     * @return Reload interval, in millis.
+     */
+    public long getReloadMillis() {
+        return reloadMillis;
+    }
+
+    /**
+     * Return the data source routing connections.
+     *
+     * @return Routing data source, null if tenants aren't enabled.
+     */
+    public synchronized ShardRoutingDataSource getRouting() {
+        return routing;
+    }
+
+    /**
+     * Return where each tenant is.
+     *
+     * @return Tenant directory, null if tenants aren't enabled.
+     */
+    public synchronized TenantDirectory getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Run work once for each tenant hosted here, the default tenant
+     * first, as {@link Tenants#as(String, Runnable)} that tenant. Tenants
+     * being moved are skipped, and work failing for one tenant is logged
+     * without stopping it for the others, unless the job lease was lost.
+     *
+     * @param work The work, i.e. a background job.
+     */
+    public void forEachTenant(final Runnable work) {
+        Tenants.as(Tenants.DEFAULT, work);
+        final TenantDirectory tenants = getDirectory();
+        if (tenants == null) {
+            return;
+        }
+        for (String tenant : tenants.getTenants()) {
+            if (tenants.isMoving(tenant)) {
+                LOGGER.debug("Skipping tenant {}, it is being moved.",
+                        tenant);
+                continue;
+            }
+            try {
+                Tenants.as(tenant, work);
+            } catch (LeaseLostException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                LOGGER.warn("Work for tenant {} failed.", tenant, e);
+            }
+        }
+    }
+
+    @Override
+    public final synchronized Object postProcessAfterInitialization(
+            final Object bean, final String name) {
+        if (!enabled || !(bean instanceof DataSource)
+                || bean instanceof ShardRoutingDataSource
+                || bean instanceof LazyConnectionDataSourceProxy
+                || routing != null) {
+            return bean;
+        }
+        if (!NodeIdGenerator.TIME_ORDERED.equals(
+                environment.getProperty(ID_STRATEGY))) {
+            throw new IllegalStateException("Tenants need " + ID_STRATEGY
+                    + "=" + NodeIdGenerator.TIME_ORDERED + ".");
+        }
+        if (!environment.getProperty("tullamoreqa.replicas.urls", "")
+                .trim().isEmpty()) {
+            throw new IllegalStateException("Read replicas aren't supported"
+                    + " alongside tenants.");
+        }
+        final DataSource primary = (DataSource) bean;
+        final Map<String, Shard> shards = new LinkedHashMap<>();
+        shards.put(TenantDirectory.PRIMARY, new Shard(TenantDirectory.PRIMARY,
+                primary, DatabaseDriver.fromJdbcUrl(
+                        environment.getProperty("spring.datasource.url"))));
+        for (String shard : environment.getProperty(PREFIX + "shards",
+                String[].class, new String[0])) {
+            shards.put(shard.trim(), createShard(shard.trim(),
+                    bean.getClass().getClassLoader()));
+        }
+        directory = new TenantDirectory(primary);
+        routing = new ShardRoutingDataSource(shards, directory);
+
+        reloads = Executors.newSingleThreadScheduledExecutor(
+                new CustomizableThreadFactory("tenant-reload-"));
+        reloads.scheduleWithFixedDelay(this::reload, 0, reloadMillis,
+                TimeUnit.MILLISECONDS);
+        LOGGER.info("Routing connections by tenant across {} shards.",
+                shards.size());
+        return routing;
+    }
+
+    @Override
+    public final synchronized void destroy() {
+        if (reloads == null) {
+            return;
+        }
+        reloads.shutdownNow();
+        for (Shard shard : routing.getShards().values()) {
+            if (!TenantDirectory.PRIMARY.equals(shard.getName())
+                    && shard.getDataSource() instanceof HikariDataSource) {
+                ((HikariDataSource) shard.getDataSource()).close();
+            }
+        }
+    }
+
+    /**
+     * Reload the directory, keeping what it had if that fails.
+     */
+    private void reload() {
+        try {
+            directory.reload();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to reload the tenant directory.", e);
+        }
+    }
+
+    /**
+     * Create a shard, with a connection pool of its own, from its
+     * settings.
+     *
+     * @param name        Shard name.
+     * @param classLoader Class loader to find its driver with.
+     * @return The shard.
+     */
+    private Shard createShard(final String name,
+                              final ClassLoader classLoader) {
+        final String prefix = SHARD_PREFIX + name + ".";
+        final String url = environment.getRequiredProperty(prefix + "url");
+        final HikariDataSource pool = DataSourceBuilder.create(classLoader)
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(environment.getProperty(prefix + "username"))
+                .password(environment.getProperty(prefix + "password"))
+                .build();
+        pool.setPoolName("shard-" + name);
+        pool.setMaximumPoolSize(environment.getProperty(
+                prefix + "max-connections", Integer.class,
+                DEFAULT_MAX_CONNECTIONS));
+        return new Shard(name, pool, DatabaseDriver.fromJdbcUrl(url));
+    }
+}
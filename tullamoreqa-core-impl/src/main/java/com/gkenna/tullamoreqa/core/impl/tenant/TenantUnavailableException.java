@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.tenant;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a request is for a tenant that is being moved between shards,
+ * until the move completes.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class TenantUnavailableException extends RuntimeException {
+    /**
+     * Constructs a <tt>TenantUnavailableException</tt> with the specified
+     * detail message.
+     *
+     * @param message Additional exception information.
+     */
+    public TenantUnavailableException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.tenant;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+
+/**
+ * Tells which tenant the current HTTP request is for, as resolved by the
+ * {@link TenantFilter}, or which tenant work run with
+ * {@link #as(String, Runnable)} is for, i.e. in scheduled jobs, or that a
+ * request handed off to another thread with
+ * {@link #call(String, Callable)} is for. Otherwise,
+ * and in requests that name no tenant, it is the {@value #DEFAULT} tenant,
+ * whose data is where it was before there were tenants.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public final class Tenants {
+
+    /**
+     * Name of the default tenant.
+     */
+    public static final String DEFAULT = "default";
+
+    /**
+     * Request attribute holding the tenant of the request.
+     */
+    public static final String ATTRIBUTE = Tenants.class.getName() + ".NAME";
+
+    /**
+     * What a tenant name may look like; it becomes part of a schema name.
+     */
+    private static final Pattern NAME =
+            Pattern.compile("[a-z][a-z0-9_]{0,29}");
+
+    /**
+     * Prefix of the schema a tenant's data is kept in.
+     */
+    private static final String SCHEMA_PREFIX = "tenant_";
+
+    /**
+     * Tenant the work running on this thread is for, outside of the
+     * servlet thread of a request.
+     */
+    private static final ThreadLocal<String> RUNNING_AS = new ThreadLocal<>();
+
+    /**
+     * Utility class, never instantiated.
+     */
+    private Tenants() {
+    }
+
+    /**
+     * Return the tenant of the current request.
+     *
+     * @return Tenant name.
+     */
+    public static String current() {
+        final String runningAs = RUNNING_AS.get();
+        if (runningAs != null) {
+            return runningAs;
+        }
+        final RequestAttributes attributes =
+                RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return DEFAULT;
+        }
+        final Object output = attributes.getAttribute(ATTRIBUTE,
+                RequestAttributes.SCOPE_REQUEST);
+        return output == null ? DEFAULT : (String) output;
+    }
+
+    /**
+     * Run work for a tenant, so every connection it gets is to the
+     * tenant's schema.
+     *
+     * @param tenant Tenant name.
+     * @param work   The work.
+     */
+    public static void as(final String tenant, final Runnable work) {
+        final String previous = RUNNING_AS.get();
+        RUNNING_AS.set(tenant);
+        try {
+            work.run();
+        } finally {
+            if (previous == null) {
+                RUNNING_AS.remove();
+            } else {
+                RUNNING_AS.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Run work of a request on a thread other than its servlet thread,
+     * which the request attributes the tenant is read from may not be
+     * bound to, for the tenant of the request.
+     *
+     * @param tenant Tenant name, as read on the servlet thread.
+     * @param work   The work.
+     * @param <T>    Type of its result.
+     * @return Result of the work.
+     * @throws Exception If the work fails.
+     */
+    public static <T> T call(final String tenant, final Callable<T> work)
+            throws Exception {
+        final String previous = RUNNING_AS.get();
+        RUNNING_AS.set(tenant);
+        try {
+            return work.call();
+        } finally {
+            if (previous == null) {
+                RUNNING_AS.remove();
+            } else {
+                RUNNING_AS.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Is the current request for the default tenant.
+     *
+     * @return True if it is, or there is no request.
+     */
+    public static boolean isDefault() {
+        return DEFAULT.equals(current());
+    }
+
+    /**
+     * Is a name one a tenant may have.
+     *
+     * @param name Tenant name.
+     * @return True if it may.
+     */
+    public static boolean isValidName(final String name) {
+        return name != null && NAME.matcher(name).matches();
+    }
+
+    /**
+     * Return the schema a tenant's data is kept in.
+     *
+     * @param name Tenant name, not the default tenant.
+     * @return Schema name.
+     */
+    public static String schemaOf(final String name) {
+        return SCHEMA_PREFIX + name;
+    }
+}
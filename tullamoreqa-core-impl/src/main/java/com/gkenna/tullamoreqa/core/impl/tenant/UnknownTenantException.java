@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.tenant;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a request is for a tenant that isn't hosted on this
+ * deployment.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class UnknownTenantException extends RuntimeException {
+    /**
+     * Constructs a <tt>UnknownTenantException</tt> with the specified detail
+     * message.
+     *
+     * @param message Additional exception information.
+     */
+    public UnknownTenantException(final String message) {
+        super(message);
+    }
+}
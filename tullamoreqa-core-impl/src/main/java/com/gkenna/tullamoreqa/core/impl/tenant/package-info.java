@@ -0,0 +1,9 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+/**
+ * Hosts several communities, or tenants, on one deployment, each in a
+ * schema of its own on one of several Databases, or shards.
+ */
+package com.gkenna.tullamoreqa.core.impl.tenant;
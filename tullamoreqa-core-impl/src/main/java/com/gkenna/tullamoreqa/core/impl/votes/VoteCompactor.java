@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.votes;
+
+import com.gkenna.tullamoreqa.core.impl.jobs.JobScheduler;
+import com.gkenna.tullamoreqa.core.impl.tenant.TenantRouter;
+import com.gkenna.tullamoreqa.domain.VoteType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the votes table down to recent Votes. Votes are partitioned by
+ * when they were cast into {@link VotePartitions windows} of
+ * <tt>tullamoreqa.votes.partition-days</tt>, and every partition that
+ * ended more than <tt>tullamoreqa.votes.retention-days</tt> ago is rolled
+ * up and its Votes deleted:
+ * <ul>
+ * <li>the Upvotes and Downvotes of each Entry are added to its
+ * vote_rollups row, which {@link com.gkenna.tullamoreqa.domain.Entry}
+ * counts towards its score along with the Votes still kept,</li>
+ * <li>the net value each User voted on each Entry is added to their
+ * vote_ballots row, all that is kept to tell whether a User already voted,
+ * see {@link VoteLedger}.</li>
+ * </ul>
+ * Votes linked to no Entry count towards no score and can't be voted
+ * again, so there is nothing to roll them up into. They are deleted with
+ * the rest of their partition, with a warning of how many there were.
+ * A partition is compacted in one transaction that locks its Votes first,
+ * so a partition compacted by two instances at once is only counted once.
+ * Votes cast into a partition after it was compacted are compacted by the
+ * next run. Compacting runs through the {@link JobScheduler}, on one
+ * instance at a time, for each tenant in turn.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class VoteCompactor {
+
+    /**
+     * Vote Compactor Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(VoteCompactor.class);
+
+    /**
+     * Name compacting runs under in the {@link JobScheduler}.
+     */
+    public static final String JOB = "vote-compaction";
+
+    /**
+     * The Entry a Vote was cast on, through either of its links.
+     */
+    private static final String ENTRY = "COALESCE(ev.entry_id, v.entry_id)";
+
+    /**
+     * The Votes of a partition, bound to its start and end.
+     */
+    private static final String PARTITION = " FROM votes v"
+            + " LEFT JOIN entry_votes ev ON ev.votes_id = v.id"
+            + " WHERE v.vote_cast_date >= ? AND v.vote_cast_date < ?";
+
+    /**
+     * Locks the Votes of a partition.
+     */
+    private static final String LOCK = "SELECT id FROM votes"
+            + " WHERE vote_cast_date >= ? AND vote_cast_date < ? FOR UPDATE";
+
+    /**
+     * Start of the oldest partition before a horizon.
+     */
+    private static final String OLDEST = "SELECT MIN(vote_cast_date)"
+            + " FROM votes WHERE vote_cast_date < ?";
+
+    /**
+     * Counts the Votes of a partition linked to no Entry.
+     */
+    private static final String ORPHANS = "SELECT COUNT(*)" + PARTITION
+            + " AND " + ENTRY + " IS NULL";
+
+    /**
+     * Creates the missing rollups of the Entries voted on in a partition.
+     */
+    private static final String INSERT_ROLLUPS = "INSERT INTO vote_rollups"
+            + " (entry_id, upvotes, downvotes) SELECT DISTINCT " + ENTRY
+            + ", 0, 0" + PARTITION + " AND " + ENTRY + " IS NOT NULL"
+            + " AND NOT EXISTS (SELECT 1 FROM vote_rollups r"
+            + " WHERE r.entry_id = " + ENTRY + ")";
+
+    /**
+     * Upvotes and Downvotes of each Entry in a partition.
+     */
+    private static final String TALLIES = "SELECT " + ENTRY
+            + ", SUM(CASE WHEN v.vote_type = " + VoteType.UPVOTE.ordinal()
+            + " THEN 1 ELSE 0 END)"
+            + ", SUM(CASE WHEN v.vote_type = " + VoteType.DOWNVOTE.ordinal()
+            + " THEN 1 ELSE 0 END)" + PARTITION + " GROUP BY " + ENTRY;
+
+    /**
+     * Adds a tally to a rollup.
+     */
+    private static final String UPDATE_ROLLUP = "UPDATE vote_rollups"
+            + " SET upvotes = upvotes + ?, downvotes = downvotes + ?"
+            + " WHERE entry_id = ?";
+
+    /**
+     * Creates the missing ballots of the Users voting in a partition.
+     */
+    private static final String INSERT_BALLOTS = "INSERT INTO vote_ballots"
+            + " (entry_id, cast_by_user_username, vote_value) SELECT DISTINCT "
+            + ENTRY + ", v.cast_by_user_username, 0" + PARTITION + " AND "
+            + ENTRY + " IS NOT NULL AND NOT EXISTS (SELECT 1"
+            + " FROM vote_ballots b WHERE b.entry_id = " + ENTRY
+            + " AND b.cast_by_user_username = v.cast_by_user_username)";
+
+    /**
+     * Net value each User voted on each Entry in a partition.
+     */
+    private static final String BALLOTS = "SELECT " + ENTRY
+            + ", v.cast_by_user_username, SUM(CASE WHEN v.vote_type = "
+            + VoteType.UPVOTE.ordinal() + " THEN "
+            + VoteType.UPVOTE.getVoteValue() + " WHEN v.vote_type = "
+            + VoteType.DOWNVOTE.ordinal() + " THEN "
+            + VoteType.DOWNVOTE.getVoteValue() + " ELSE 0 END)" + PARTITION
+            + " GROUP BY " + ENTRY + ", v.cast_by_user_username";
+
+    /**
+     * Adds a net value to a ballot.
+     */
+    private static final String UPDATE_BALLOT = "UPDATE vote_ballots"
+            + " SET vote_value = vote_value + ?"
+            + " WHERE entry_id = ? AND cast_by_user_username = ?";
+
+    /**
+     * Unlinks the Votes of a partition from their Entries.
+     */
+    private static final String DELETE_LINKS = "DELETE FROM entry_votes"
+            + " WHERE votes_id IN (SELECT id FROM votes"
+            + " WHERE vote_cast_date >= ? AND vote_cast_date < ?)";
+
+    /**
+     * Deletes the Votes of a partition.
+     */
+    private static final String DELETE_VOTES = "DELETE FROM votes"
+            + " WHERE vote_cast_date >= ? AND vote_cast_date < ?";
+
+    /**
+     * Runs the SQL.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Compacts each partition in a transaction of its own.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Runs compacting on one instance at a time.
+     */
+    private final JobScheduler jobs;
+
+    /**
+     * Runs compacting for each tenant.
+     */
+    private final TenantRouter tenants;
+
+    /**
+     * Days of Votes per partition.
+     */
+    @Value("${tullamoreqa.votes.partition-days:7}")
+    private long partitionDays;
+
+    /**
+     * Days Votes are kept individually.
+     */
+    @Value("${tullamoreqa.votes.retention-days:90}")
+    private long retentionDays;
+
+    /**
+     * Rollups and ballots updated per JDBC batch.
+     */
+    @Value("${tullamoreqa.votes.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * Constructor that Auto wires the JDBC Template, Transaction Manager,
+     * Job Scheduler and Tenant Router.
+     *
+     * @param jdbcTemplate       JDBC Template.
+     * @param transactionManager Transaction Manager.
+     * @param jobs               Runs compacting on one instance at a time.
+     * @param tenants            Runs compacting for each tenant.
+     */
+    @Autowired
+    public VoteCompactor(final JdbcTemplate jdbcTemplate,
+                         final PlatformTransactionManager
+                                 transactionManager,
+                         final JobScheduler jobs,
+                         final TenantRouter tenants) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jobs = jobs;
+        this.tenants = tenants;
+    }
+
+    /**
+     * Compact every tenant on a fixed delay, if this instance runs the
+     * jobs.
+     */
+    @Scheduled(fixedDelayString =
+            "${tullamoreqa.votes.compaction-millis:3600000}")
+    public void poll() {
+        jobs.run(JOB, () -> tenants.forEachTenant(
+                () -> compact(Instant.now())));
+    }
+
+    /**
+     * Compact every partition that ended more than the retention period
+     * before a point in time, oldest first.
+     *
+     * @param now The point in time.
+     * @return Votes compacted.
+     */
+    public long compact(final Instant now) {
+        final Duration length = Duration.ofDays(partitionDays);
+        final Timestamp horizon = Timestamp.from(VotePartitions.horizon(now,
+                Duration.ofDays(retentionDays), length));
+        long compacted = 0;
+        Instant previous = null;
+        while (true) {
+            final Timestamp oldest = jdbcTemplate.queryForObject(OLDEST,
+                    Timestamp.class, horizon);
+            if (oldest == null) {
+                break;
+            }
+            final Instant start =
+                    VotePartitions.start(oldest.toInstant(), length);
+            if (previous != null && !start.isAfter(previous)) {
+                LOGGER.warn("Votes cast from {} are left after compacting"
+                        + " them, stopping.", start);
+                break;
+            }
+            compacted += compact(start, start.plus(length));
+            previous = start;
+        }
+        if (compacted > 0) {
+            LOGGER.info("Compacted {} Votes cast before {}.", compacted,
+                    horizon);
+        }
+        return compacted;
+    }
+
+    /**
+     * Roll up and delete the Votes of one partition.
+     *
+     * @param start Start of the partition, inclusive.
+     * @param end   End of the partition, exclusive.
+     * @return Votes compacted.
+     */
+    private long compact(final Instant start, final Instant end) {
+        final Object[] partition =
+                {Timestamp.from(start), Timestamp.from(end)};
+        final Long compacted = transactionTemplate.execute(status -> {
+            jobs.fence();
+            jdbcTemplate.query(LOCK, resultSet -> { }, partition);
+
+            jdbcTemplate.update(INSERT_ROLLUPS, partition);
+            update(UPDATE_ROLLUP, jdbcTemplate.query(TALLIES,
+                    (resultSet, row) -> resultSet.getObject(1) == null
+                            ? null : new Object[]{resultSet.getLong(2),
+                            resultSet.getLong(3), resultSet.getLong(1)},
+                    partition));
+
+            jdbcTemplate.update(INSERT_BALLOTS, partition);
+            update(UPDATE_BALLOT, jdbcTemplate.query(BALLOTS,
+                    (resultSet, row) -> resultSet.getObject(1) == null
+                            ? null : new Object[]{resultSet.getLong(3),
+                            resultSet.getLong(1), resultSet.getString(2)},
+                    partition));
+
+            final Long orphans = jdbcTemplate.queryForObject(ORPHANS,
+                    Long.class, partition);
+            if (orphans != null && orphans > 0) {
+                LOGGER.warn("Deleting {} Votes cast from {} to {} on no"
+                        + " Entry, without rolling them up.", orphans, start,
+                        end);
+            }
+
+            jdbcTemplate.update(DELETE_LINKS, partition);
+            return (long) jdbcTemplate.update(DELETE_VOTES, partition);
+        });
+        LOGGER.debug("Compacted {} Votes cast from {} to {}.", compacted,
+                start, end);
+        return compacted == null ? 0 : compacted;
+    }
+
+    /**
+     * Run an update for each row in batches.
+     *
+     * @param sql  The update.
+     * @param rows Arguments of each update, null for rows of Votes that
+     *             aren't linked to an Entry, which are skipped.
+     */
+    private void update(final String sql, final List<Object[]> rows) {
+        final List<Object[]> batch = new ArrayList<>(batchSize);
+        for (Object[] row : rows) {
+            if (row == null) {
+                continue;
+            }
+            batch.add(row);
+            if (batch.size() >= batchSize) {
+                jdbcTemplate.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, batch);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.votes;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Tells whether a User already voted on an Entry, whether their Vote is
+ * still kept individually or was compacted into a ballot by the
+ * {@link VoteCompactor}, and withdraws their Vote either way.
+ * <p>
+ * Casting and withdrawing lock the row of the User first, so two Votes of
+ * the same User are never checked and cast at once.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class VoteLedger {
+
+    /**
+     * Counts the Votes a User still has on an Entry, through either link.
+     */
+    private static final String VOTES = "SELECT COUNT(*) FROM votes v"
+            + " WHERE v.cast_by_user_username = ? AND (v.entry_id = ?"
+            + " OR EXISTS (SELECT 1 FROM entry_votes ev"
+            + " WHERE ev.votes_id = v.id AND ev.entry_id = ?))";
+
+    /**
+     * Counts the ballots of a User on an Entry.
+     */
+    private static final String BALLOTS = "SELECT COUNT(*) FROM vote_ballots"
+            + " WHERE entry_id = ? AND cast_by_user_username = ?";
+
+    /**
+     * Locks the row of a User.
+     */
+    private static final String LOCK = "SELECT username FROM users"
+            + " WHERE username = ? FOR UPDATE";
+
+    /**
+     * IDs of the Votes a User still has on an Entry, through either link.
+     */
+    private static final String VOTE_IDS = "SELECT v.id FROM votes v"
+            + " WHERE v.cast_by_user_username = ? AND (v.entry_id = ?"
+            + " OR EXISTS (SELECT 1 FROM entry_votes ev"
+            + " WHERE ev.votes_id = v.id AND ev.entry_id = ?))";
+
+    /**
+     * Unlinks a Vote from its Entries.
+     */
+    private static final String DELETE_LINKS = "DELETE FROM entry_votes"
+            + " WHERE votes_id = ?";
+
+    /**
+     * Deletes a Vote.
+     */
+    private static final String DELETE_VOTE = "DELETE FROM votes"
+            + " WHERE id = ?";
+
+    /**
+     * Reads the net value of the ballot of a User on an Entry.
+     */
+    private static final String BALLOT = "SELECT vote_value"
+            + " FROM vote_ballots WHERE entry_id = ?"
+            + " AND cast_by_user_username = ?";
+
+    /**
+     * Takes a withdrawn ballot back out of a rollup.
+     */
+    private static final String UPDATE_ROLLUP = "UPDATE vote_rollups"
+            + " SET upvotes = upvotes - ?, downvotes = downvotes - ?"
+            + " WHERE entry_id = ?";
+
+    /**
+     * Deletes the ballot of a User on an Entry.
+     */
+    private static final String DELETE_BALLOT = "DELETE FROM vote_ballots"
+            + " WHERE entry_id = ? AND cast_by_user_username = ?";
+
+    /**
+     * Runs the SQL.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Constructor that Auto wires the JDBC Template.
+     *
+     * @param jdbcTemplate JDBC Template.
+     */
+    @Autowired
+    public VoteLedger(final JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Return whether a User voted on an Entry.
+     *
+     * @param entryId  ID of the Entry.
+     * @param username Username of the User.
+     * @return True if they have a Vote or a ballot on it.
+     */
+    public boolean hasVoted(final Long entryId, final String username) {
+        final Long votes = jdbcTemplate.queryForObject(VOTES, Long.class,
+                username, entryId, entryId);
+        if (votes != null && votes > 0) {
+            return true;
+        }
+        final Long ballots = jdbcTemplate.queryForObject(BALLOTS, Long.class,
+                entryId, username);
+        return ballots != null && ballots > 0;
+    }
+
+    /**
+     * Lock the row of a User until the transaction ends, so no other
+     * transaction casts or withdraws a Vote of theirs in the meantime.
+     *
+     * @param username Username of the User.
+     * @return True if the User exists.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public boolean lock(final String username) {
+        return !jdbcTemplate.queryForList(LOCK, String.class, username)
+                .isEmpty();
+    }
+
+    /**
+     * Withdraw the Vote of a User on an Entry, deleting it if it is still
+     * kept individually, or deleting their ballot and taking it back out
+     * of the Entry's rollup if it was compacted.
+     *
+     * @param entryId  ID of the Entry.
+     * @param username Username of the User.
+     * @return True if they had voted on it.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @SuppressWarnings("checkstyle:DesignForExtension")
+    public boolean withdraw(final Long entryId, final String username) {
+        boolean output = false;
+        for (Long voteId : jdbcTemplate.queryForList(VOTE_IDS, Long.class,
+                username, entryId, entryId)) {
+            jdbcTemplate.update(DELETE_LINKS, voteId);
+            jdbcTemplate.update(DELETE_VOTE, voteId);
+            output = true;
+        }
+        final List<Long> ballots = jdbcTemplate.queryForList(BALLOT,
+                Long.class, entryId, username);
+        if (!ballots.isEmpty()) {
+            final long value = ballots.get(0);
+            jdbcTemplate.update(UPDATE_ROLLUP, Math.max(value, 0),
+                    Math.max(-value, 0), entryId);
+            jdbcTemplate.update(DELETE_BALLOT, entryId, username);
+            output = true;
+        }
+        return output;
+    }
+}
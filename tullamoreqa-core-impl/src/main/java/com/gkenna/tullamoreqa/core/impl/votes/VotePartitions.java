@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.votes;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Splits Votes into partitions by when they were cast. Partitions are
+ * windows of a fixed length counted from the epoch, so every instance
+ * agrees on where a partition starts and ends without storing it.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+final class VotePartitions {
+
+    /**
+     * Utility class, not to be constructed.
+     */
+    private VotePartitions() {
+    }
+
+    /**
+     * Return the start of the partition a Vote falls in.
+     *
+     * @param castAt When the Vote was cast.
+     * @param length Length of a partition.
+     * @return Start of its partition, inclusive.
+     */
+    static Instant start(final Instant castAt, final Duration length) {
+        final long millis = length.toMillis();
+        if (millis <= 0) {
+            throw new IllegalArgumentException(
+                    "Partitions must be at least a millisecond long.");
+        }
+        return Instant.ofEpochMilli(
+                Math.floorDiv(castAt.toEpochMilli(), millis) * millis);
+    }
+
+    /**
+     * Return the end of the last partition that is entirely older than a
+     * retention period, so partitions starting before it can be compacted.
+     *
+     * @param now       The current time.
+     * @param retention How long Votes are kept individually.
+     * @param length    Length of a partition.
+     * @return End of the last compactable partition, exclusive.
+     */
+    static Instant horizon(final Instant now, final Duration retention,
+                           final Duration length) {
+        return start(now.minus(retention), length);
+    }
+}
@@ -0,0 +1,9 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+/**
+ * Time partitioning of Votes and compaction of old partitions into per
+ * Entry totals and per User ballots.
+ */
+package com.gkenna.tullamoreqa.core.impl.votes;
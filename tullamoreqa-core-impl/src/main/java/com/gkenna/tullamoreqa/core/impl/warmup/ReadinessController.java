@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.warmup;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Readiness probe for load balancers and orchestrators. Returns
+ * 503 Service Unavailable until warm-up has completed, 200 OK afterwards.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@RestController
+@RequestMapping("/ready")
+public class ReadinessController {
+
+    /**
+     * Readiness of this instance.
+     */
+    private final ReadinessState readinessState;
+
+    /**
+     * Constructor that Auto wires the Readiness State.
+     *
+     * @param readinessState Readiness of this instance.
+     */
+    @Autowired
+    public ReadinessController(final ReadinessState readinessState) {
+        this.readinessState = readinessState;
+    }
+
+    /**
+     * HTTP GET Method
+     * <p>
+     * Report if this instance is ready to take traffic.
+     *
+     * @return 200 if ready, 503 if still warming up.
+     */
+    @RequestMapping(method = RequestMethod.GET)
+    public final ResponseEntity<String> isReady() {
+        if (readinessState.isReady()) {
+            return new ResponseEntity<>("READY", HttpStatus.OK);
+        }
+        return new ResponseEntity<>("WARMING_UP",
+                HttpStatus.SERVICE_UNAVAILABLE);
+    }
+}
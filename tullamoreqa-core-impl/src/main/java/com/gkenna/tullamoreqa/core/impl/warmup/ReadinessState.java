@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.warmup;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Holds whether this instance is ready to take traffic. The instance only
+ * becomes ready once the {@link WarmUpRunner} has finished.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class ReadinessState {
+
+    /**
+     * True once warm-up has completed.
+     */
+    private final AtomicBoolean ready = new AtomicBoolean(false);
+
+    /**
+     * Mark this instance as ready to take traffic.
+     */
+    public void markReady() {
+        ready.set(true);
+    }
+
+    /**
+     * Return if this instance is ready to take traffic.
+     *
+     * @return True if ready.
+     */
+    public boolean isReady() {
+        return ready.get();
+    }
+}
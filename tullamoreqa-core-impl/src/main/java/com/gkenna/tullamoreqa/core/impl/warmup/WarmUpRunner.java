@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.warmup;
+
+import com.gkenna.tullamoreqa.core.api.repositories.QuestionRepository;
+import com.gkenna.tullamoreqa.core.api.services.QuestionService;
+import com.gkenna.tullamoreqa.core.api.services.TagService;
+import com.gkenna.tullamoreqa.core.api.services.UserService;
+import com.gkenna.tullamoreqa.core.impl.cache.CacheBypass;
+import com.gkenna.tullamoreqa.core.impl.cache.CacheRegistry;
+import com.gkenna.tullamoreqa.core.impl.cache.CacheSnapshot;
+import com.gkenna.tullamoreqa.domain.Question;
+import com.gkenna.tullamoreqa.domain.Tag;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Warms this instance up before it reports ready. If the caches were
+ * snapshot on the last shutdown they are restored from the
+ * {@link CacheSnapshot}; otherwise the most used Tags, the
+ * most recently active Questions and the summaries of their authors are
+ * preloaded into the {@link CacheRegistry}, then a configurable set of
+ * representative requests is replayed against the Service layer so the
+ * hot code paths are compiled by the JIT before real traffic arrives. The
+ * requests are replayed with the caches bypassed, so they run the same
+ * Database paths a miss does rather than only the cache lookups, and
+ * don't count as reads of hot keys.
+ * <p>
+ * Replayed requests are configured with
+ * <tt>tullamoreqa.warmup.replay</tt>, a comma separated list of
+ * <tt>question:&lt;id&gt;</tt>, <tt>tag:&lt;name&gt;</tt>,
+ * <tt>tagged:&lt;name&gt;</tt>, <tt>author:&lt;username&gt;</tt> and
+ * <tt>tags</tt>.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Component
+public class WarmUpRunner implements CommandLineRunner {
+
+    /**
+     * Warm-up Logger.
+     */
+    private static final Logger LOGGER =
+            LogManager.getLogger(WarmUpRunner.class);
+
+    /**
+     * Separator between a replayed request type and its argument.
+     */
+    private static final String ARGUMENT_SEPARATOR = ":";
+
+    /**
+     * Should warm-up run at all.
+     */
+    @Value("${tullamoreqa.warmup.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Number of most used Tags to preload.
+     */
+    @Value("${tullamoreqa.warmup.top-tags:50}")
+    private int topTags;
+
+    /**
+     * Number of most recently active Questions to preload.
+     */
+    @Value("${tullamoreqa.warmup.hot-questions:200}")
+    private int hotQuestions;
+
+    /**
+     * Representative requests to replay.
+     */
+    @Value("${tullamoreqa.warmup.replay:tags}")
+    private String[] replay;
+
+    /**
+     * How many times the representative requests are replayed.
+     */
+    @Value("${tullamoreqa.warmup.replay-iterations:100}")
+    private int replayIterations;
+
+    /**
+     * Question Repository, used to find the hot Questions and top Tags.
+     */
+    private final QuestionRepository questionRepository;
+
+    /**
+     * Question Service that requests are replayed against.
+     */
+    private final QuestionService questionService;
+
+    /**
+     * Tag Service that requests are replayed against.
+     */
+    private final TagService tagService;
+
+    /**
+     * User Service that requests are replayed against.
+     */
+    private final UserService userService;
+
+    /**
+     * Caches being warmed.
+     */
+    private final CacheRegistry caches;
+
+    /**
+     * Snapshot of the caches taken on the last shutdown.
+     */
+    private final CacheSnapshot cacheSnapshot;
+
+    /**
+     * Readiness of this instance.
+     */
+    private final ReadinessState readinessState;
+
+    /**
+     * Authors of the hot Questions, summarised once Questions are loaded.
+     */
+    private final Set<String> hotAuthors = new LinkedHashSet<>();
+
+    /**
+     * Constructor that Auto wires everything warm-up needs.
+     *
+     * @param questionRepository QuestionRepo object.
+     * @param questionService    Question Service.
+     * @param tagService         Tag Service.
+     * @param userService        User Service.
+     * @param caches             Caches being warmed.
+     * @param cacheSnapshot      Snapshot of the caches from the last
+     *                           shutdown.
+     * @param readinessState     Readiness of this instance.
+     */
+    @Autowired
+    @SuppressWarnings("checkstyle:ParameterNumber")
+    public WarmUpRunner(final QuestionRepository questionRepository,
+                        final QuestionService questionService,
+                        final TagService tagService,
+                        final UserService userService,
+                        final CacheRegistry caches,
+                        final CacheSnapshot cacheSnapshot,
+                        final ReadinessState readinessState) {
+        this.questionRepository = questionRepository;
+        this.questionService = questionService;
+        this.tagService = tagService;
+        this.userService = userService;
+        this.caches = caches;
+        this.cacheSnapshot = cacheSnapshot;
+        this.readinessState = readinessState;
+    }
+
+    @Override
+    public final void run(final String... args) {
+        if (!enabled) {
+            LOGGER.info("Warm-up disabled, instance is ready.");
+            readinessState.markReady();
+            return;
+        }
+
+        final long start = System.nanoTime();
+        if (cacheSnapshot.restore() > 0) {
+            LOGGER.info("Caches restored from snapshot, skipping preload.");
+        } else {
+            timed("top tags", this::preloadTopTags);
+            timed("hot questions", this::preloadHotQuestions);
+            timed("author summaries", this::preloadAuthorSummaries);
+        }
+        timed("request replay", this::replayRequests);
+        hotAuthors.clear();
+
+        readinessState.markReady();
+        LOGGER.info("Warm-up finished in {} ms, instance is ready.",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Run a single warm-up step and log how long it took. A failing step is
+     * logged and skipped, it never stops the instance becoming ready.
+     *
+     * @param name Name of the step.
+     * @param step The step, returning how many items it warmed.
+     */
+    private void timed(final String name, final Supplier<Integer> step) {
+        final long start = System.nanoTime();
+        try {
+            final int warmed = step.get();
+            LOGGER.info("Warm-up step '{}' warmed {} items in {} ms.", name,
+                    warmed, TimeUnit.NANOSECONDS.toMillis(
+                            System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Warm-up step '{}' failed after {} ms.", name,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    e);
+        }
+    }
+
+    /**
+     * Load the most used Tags, the Questions tagged with them and the
+     * listing of all Tags.
+     *
+     * @return Number of Tags warmed.
+     */
+    private int preloadTopTags() {
+        final List<Object[]> rows = questionRepository.countQuestionsPerTag(
+                PageRequest.of(0, topTags));
+        int warmed = 0;
+        for (Object[] row : rows) {
+            final String name = (String) row[0];
+            try {
+                tagService.getTag(name);
+                questionService.findQuestionsByTag(new Tag(name),
+                        Pageable.unpaged());
+                warmed++;
+            } catch (Exception e) {
+                LOGGER.debug("Could not warm Tag {}", name, e);
+            }
+        }
+        tagService.getAllTags();
+        return warmed;
+    }
+
+    /**
+     * Load the most recently active Questions straight into the cache.
+     *
+     * @return Number of Questions warmed.
+     */
+    private int preloadHotQuestions() {
+        final List<Question> questions = questionRepository.findAll(
+                PageRequest.of(0, hotQuestions,
+                        Sort.by(Sort.Direction.DESC, "lastUpdatedAt")))
+                .getContent();
+        for (Question question : questions) {
+            caches.questions().put(question.getId(), question);
+            if (question.getCreatedBy() != null) {
+                hotAuthors.add(question.getCreatedBy().getUsername());
+            }
+        }
+        return questions.size();
+    }
+
+    /**
+     * Summarise the authors of the hot Questions.
+     *
+     * @return Number of author summaries warmed.
+     */
+    private int preloadAuthorSummaries() {
+        int warmed = 0;
+        for (String username : hotAuthors) {
+            try {
+                userService.getAuthorSummary(username);
+                warmed++;
+            } catch (Exception e) {
+                LOGGER.debug("Could not warm author {}", username, e);
+            }
+        }
+        return warmed;
+    }
+
+    /**
+     * Replay the configured representative requests against the Services,
+     * with the caches bypassed.
+     *
+     * @return Number of requests replayed.
+     */
+    private int replayRequests() {
+        CacheBypass.run(() -> {
+            for (int i = 0; i < replayIterations; i++) {
+                for (String request : replay) {
+                    try {
+                        replay(request.trim());
+                    } catch (Exception e) {
+                        LOGGER.debug("Replayed request {} failed", request,
+                                e);
+                    }
+                }
+            }
+        });
+        return replayIterations * replay.length;
+    }
+
+    /**
+     * Replay a single representative request.
+     *
+     * @param request The request, i.e. <tt>question:42</tt>.
+     * @throws Exception Whatever the Service throws.
+     */
+    private void replay(final String request) throws Exception {
+        final String[] parts = request.split(ARGUMENT_SEPARATOR, 2);
+        final String type = parts[0];
+        final String argument = parts.length > 1 ? parts[1] : null;
+
+        switch (type) {
+            case "question":
+                questionService.getQuestion(Long.valueOf(argument));
+                break;
+            case "tag":
+                tagService.getTag(argument);
+                break;
+            case "tagged":
+                questionService.findQuestionsByTag(new Tag(argument),
+                        Pageable.unpaged());
+                break;
+            case "author":
+                userService.getAuthorSummary(argument);
+                break;
+            case "tags":
+                tagService.getAllTags();
+                break;
+            default:
+                LOGGER.warn("Unknown warm-up request {}", request);
+        }
+    }
+}
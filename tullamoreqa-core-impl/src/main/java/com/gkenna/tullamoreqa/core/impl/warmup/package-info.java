@@ -0,0 +1,9 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+/**
+ * Startup warm-up of caches and hot code paths, and the readiness state
+ * that is reported once warm-up completes.
+ */
+package com.gkenna.tullamoreqa.core.impl.warmup;
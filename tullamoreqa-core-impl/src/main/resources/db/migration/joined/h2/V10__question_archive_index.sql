@@ -0,0 +1,28 @@
+--
+-- Copyright (c) 2018. Gavin Kenna
+--
+
+-- What is archived with each archived Question, see QuestionArchive. Each
+-- archived Entry leads to its Question, so asking for an Answer or Comment
+-- restores the Question it is archived with, and the terms Questions are
+-- listed and searched by lead to the archived Questions a listing or
+-- search would have found.
+
+CREATE TABLE question_archive_entries (
+    entry_id bigint NOT NULL,
+    question_id bigint NOT NULL,
+    PRIMARY KEY (entry_id)
+);
+
+CREATE INDEX question_archive_entries_question_idx
+    ON question_archive_entries (question_id);
+
+CREATE TABLE question_archive_terms (
+    kind varchar(16) NOT NULL,
+    term varchar(255) NOT NULL,
+    question_id bigint NOT NULL,
+    PRIMARY KEY (kind, term, question_id)
+);
+
+CREATE INDEX question_archive_terms_question_idx
+    ON question_archive_terms (question_id);
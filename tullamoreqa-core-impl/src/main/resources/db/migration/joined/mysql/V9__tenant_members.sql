@@ -0,0 +1,13 @@
+--
+-- Copyright (c) 2018. Gavin Kenna
+--
+
+-- The users each tenant may be used by, see TenantDirectory. A request
+-- naming a tenant is only served for a member of it. Only read on the
+-- primary.
+
+CREATE TABLE tenant_members (
+    tenant varchar(30) NOT NULL,
+    username varchar(255) NOT NULL,
+    PRIMARY KEY (tenant, username)
+) ENGINE=InnoDB;
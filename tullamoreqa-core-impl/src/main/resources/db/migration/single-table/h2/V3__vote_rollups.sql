@@ -0,0 +1,29 @@
+--
+-- Copyright (c) 2018. Gavin Kenna
+--
+
+-- Votes are compacted a time partition of vote_cast_date at a time into
+-- per Entry totals and per User ballots, see VoteCompactor.
+
+CREATE INDEX votes_cast_date_idx ON votes (vote_cast_date);
+
+CREATE TABLE vote_rollups (
+    entry_id bigint NOT NULL,
+    upvotes bigint DEFAULT 0 NOT NULL,
+    downvotes bigint DEFAULT 0 NOT NULL,
+    PRIMARY KEY (entry_id)
+);
+
+CREATE TABLE vote_ballots (
+    entry_id bigint NOT NULL,
+    cast_by_user_username varchar(255) NOT NULL,
+    vote_value smallint NOT NULL,
+    PRIMARY KEY (entry_id, cast_by_user_username)
+);
+
+ALTER TABLE vote_ballots ADD CONSTRAINT vote_ballots_cast_by_fk
+    FOREIGN KEY (cast_by_user_username) REFERENCES users (username);
+ALTER TABLE vote_rollups ADD CONSTRAINT vote_rollups_entry_fk
+    FOREIGN KEY (entry_id) REFERENCES entry (id) ON DELETE CASCADE;
+ALTER TABLE vote_ballots ADD CONSTRAINT vote_ballots_entry_fk
+    FOREIGN KEY (entry_id) REFERENCES entry (id) ON DELETE CASCADE;
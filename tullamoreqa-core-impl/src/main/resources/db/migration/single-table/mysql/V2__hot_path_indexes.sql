@@ -0,0 +1,18 @@
+--
+-- Copyright (c) 2018. Gavin Kenna
+--
+
+-- Indexes backing the lookups and joins of the Repositories, checked on
+-- startup by IndexCoverageCheck.
+
+CREATE INDEX entry_type_idx ON entry (entry_type);
+CREATE INDEX entry_created_by_idx ON entry (created_by_username);
+CREATE INDEX entry_created_at_idx ON entry (created_at);
+CREATE INDEX entry_title_idx ON entry (title);
+CREATE INDEX entry_question_idx ON entry (question_id);
+CREATE INDEX entry_chosen_idx ON entry (chosen_answer, question_id);
+CREATE INDEX entry_parent_idx ON entry (parent_type, entry_id);
+CREATE INDEX questions_tags_tag_idx ON questions_tags (tags_name);
+CREATE INDEX votes_entry_idx ON votes (entry_id);
+CREATE INDEX votes_cast_by_idx ON votes (cast_by_user_username);
+CREATE INDEX tags_description_idx ON tags (description);
@@ -0,0 +1,129 @@
+--
+-- Copyright (c) 2018. Gavin Kenna
+--
+
+-- Schema of every Entity, the Entry hierarchy laid out single table.
+
+-- ID sequences, reserving 50 IDs at a time.
+CREATE SEQUENCE entry_ids START 1 INCREMENT 50;
+CREATE SEQUENCE vote_ids START 1 INCREMENT 50;
+CREATE SEQUENCE outbox_ids START 1 INCREMENT 50;
+
+CREATE TABLE users (
+    username varchar(255) NOT NULL,
+    avatar_url varchar(255) NOT NULL,
+    description varchar(255) NOT NULL,
+    email varchar(255) NOT NULL,
+    first_name varchar(255) NOT NULL,
+    is_enabled boolean NOT NULL,
+    password varchar(255) NOT NULL,
+    second_name varchar(255) NOT NULL,
+    PRIMARY KEY (username)
+);
+
+CREATE TABLE authorities (
+    authority_name varchar(255) NOT NULL,
+    description varchar(255) NOT NULL,
+    PRIMARY KEY (authority_name)
+);
+
+CREATE TABLE roles (
+    role_name varchar(255) NOT NULL,
+    PRIMARY KEY (role_name)
+);
+
+CREATE TABLE users_roles (
+    user_username varchar(255) NOT NULL,
+    roles_role_name varchar(255) NOT NULL,
+    PRIMARY KEY (user_username, roles_role_name)
+);
+
+CREATE TABLE roles_authorities (
+    role_role_name varchar(255) NOT NULL,
+    authorities_authority_name varchar(255) NOT NULL,
+    PRIMARY KEY (role_role_name, authorities_authority_name)
+);
+
+CREATE TABLE tags (
+    name varchar(255) NOT NULL,
+    description varchar(255),
+    version int8 DEFAULT 0 NOT NULL,
+    PRIMARY KEY (name)
+);
+
+CREATE TABLE entry (
+    entry_type varchar(31) NOT NULL,
+    id int8 NOT NULL,
+    body varchar(255),
+    created_at timestamp NOT NULL,
+    last_updated_at timestamp NOT NULL,
+    version int8 DEFAULT 0 NOT NULL,
+    created_by_username varchar(255),
+    mod_user_username varchar(255),
+    title varchar(255),
+    chosen_answer boolean,
+    question_id int8,
+    parent_type varchar(8),
+    entry_id int8,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE questions_tags (
+    question_id int8 NOT NULL,
+    tags_name varchar(255) NOT NULL,
+    PRIMARY KEY (question_id, tags_name)
+);
+
+CREATE TABLE votes (
+    id int8 NOT NULL,
+    vote_type int4,
+    vote_cast_date timestamp NOT NULL,
+    cast_by_user_username varchar(255) NOT NULL,
+    entry_id int8,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE entry_votes (
+    entry_id int8 NOT NULL,
+    votes_id int8 NOT NULL,
+    PRIMARY KEY (entry_id, votes_id)
+);
+
+CREATE TABLE outbox (
+    id int8 NOT NULL,
+    aggregate_id varchar(255) NOT NULL,
+    aggregate_type varchar(255) NOT NULL,
+    change_type varchar(255) NOT NULL,
+    occurred_at timestamp NOT NULL,
+    PRIMARY KEY (id)
+);
+
+ALTER TABLE entry_votes ADD CONSTRAINT entry_votes_votes_uk UNIQUE (votes_id);
+ALTER TABLE users_roles ADD CONSTRAINT users_roles_user_fk
+    FOREIGN KEY (user_username) REFERENCES users (username);
+ALTER TABLE users_roles ADD CONSTRAINT users_roles_role_fk
+    FOREIGN KEY (roles_role_name) REFERENCES roles (role_name);
+ALTER TABLE roles_authorities ADD CONSTRAINT roles_authorities_role_fk
+    FOREIGN KEY (role_role_name) REFERENCES roles (role_name);
+ALTER TABLE roles_authorities ADD CONSTRAINT roles_authorities_authority_fk
+    FOREIGN KEY (authorities_authority_name) REFERENCES authorities (authority_name);
+ALTER TABLE entry ADD CONSTRAINT entry_created_by_fk
+    FOREIGN KEY (created_by_username) REFERENCES users (username);
+ALTER TABLE entry ADD CONSTRAINT entry_mod_user_fk
+    FOREIGN KEY (mod_user_username) REFERENCES users (username);
+ALTER TABLE entry ADD CONSTRAINT entry_question_fk
+    FOREIGN KEY (question_id) REFERENCES entry (id) ON DELETE CASCADE;
+ALTER TABLE entry ADD CONSTRAINT entry_parent_fk
+    FOREIGN KEY (entry_id) REFERENCES entry (id) ON DELETE CASCADE;
+ALTER TABLE questions_tags ADD CONSTRAINT questions_tags_question_fk
+    FOREIGN KEY (question_id) REFERENCES entry (id);
+ALTER TABLE questions_tags ADD CONSTRAINT questions_tags_tag_fk
+    FOREIGN KEY (tags_name) REFERENCES tags (name);
+ALTER TABLE votes ADD CONSTRAINT votes_cast_by_fk
+    FOREIGN KEY (cast_by_user_username) REFERENCES users (username);
+ALTER TABLE entry_votes ADD CONSTRAINT entry_votes_vote_fk
+    FOREIGN KEY (votes_id) REFERENCES votes (id);
+ALTER TABLE votes ADD CONSTRAINT votes_entry_fk
+    FOREIGN KEY (entry_id) REFERENCES entry (id);
+ALTER TABLE entry_votes ADD CONSTRAINT entry_votes_entry_fk
+    FOREIGN KEY (entry_id) REFERENCES entry (id);
@@ -0,0 +1,21 @@
+--
+-- Copyright (c) 2018. Gavin Kenna
+--
+
+-- Indexes backing the lookups and joins of the Repositories, checked on
+-- startup by IndexCoverageCheck.
+
+CREATE INDEX questions_created_by_idx ON questions (created_by_username);
+CREATE INDEX questions_created_at_idx ON questions (created_at);
+CREATE INDEX answers_created_by_idx ON answers (created_by_username);
+CREATE INDEX answers_created_at_idx ON answers (created_at);
+CREATE INDEX comments_created_by_idx ON comments (created_by_username);
+CREATE INDEX comments_created_at_idx ON comments (created_at);
+CREATE INDEX questions_title_idx ON questions (title);
+CREATE INDEX answers_question_idx ON answers (question_id);
+CREATE INDEX answers_chosen_idx ON answers (chosen_answer, question_id);
+CREATE INDEX comments_parent_idx ON comments (parent_type, entry_id);
+CREATE INDEX questions_tags_tag_idx ON questions_tags (tags_name);
+CREATE INDEX votes_entry_idx ON votes (entry_id);
+CREATE INDEX votes_cast_by_idx ON votes (cast_by_user_username);
+CREATE INDEX tags_description_idx ON tags (description);
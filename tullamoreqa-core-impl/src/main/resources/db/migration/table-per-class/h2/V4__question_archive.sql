@@ -0,0 +1,13 @@
+--
+-- Copyright (c) 2018. Gavin Kenna
+--
+
+-- Questions that have gone cold are moved here with their Answers, Comments
+-- and Votes as one compressed payload each, see QuestionArchive.
+
+CREATE TABLE question_archive (
+    question_id bigint NOT NULL,
+    archived_at timestamp NOT NULL,
+    payload blob NOT NULL,
+    PRIMARY KEY (question_id)
+);
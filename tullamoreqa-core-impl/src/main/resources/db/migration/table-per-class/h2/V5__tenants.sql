@@ -0,0 +1,13 @@
+--
+-- Copyright (c) 2018. Gavin Kenna
+--
+
+-- Which shard each tenant is on, and whether it is being moved, see
+-- TenantDirectory. Only read on the primary.
+
+CREATE TABLE tenants (
+    name varchar(30) NOT NULL,
+    shard varchar(64) NOT NULL,
+    status varchar(16) NOT NULL,
+    PRIMARY KEY (name)
+);
@@ -0,0 +1,9 @@
+--
+-- Copyright (c) 2018. Gavin Kenna
+--
+
+-- What each request bearing an Idempotency-Key asked for, a SHA-256 of its
+-- method, path and body, see Idempotency. A repeat asking for something
+-- else is refused. Null for keys claimed before it was kept.
+
+ALTER TABLE idempotency_keys ADD COLUMN request_hash varchar(64);
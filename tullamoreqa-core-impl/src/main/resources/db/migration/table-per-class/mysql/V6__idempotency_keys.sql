@@ -0,0 +1,15 @@
+--
+-- Copyright (c) 2018. Gavin Kenna
+--
+
+-- The response to each request bearing an Idempotency-Key, replayed to
+-- repeats of it, see JdbcIdempotencyStore. A row without a status is still
+-- being answered.
+
+CREATE TABLE idempotency_keys (
+    idempotency_key varchar(255) NOT NULL,
+    status int,
+    location varchar(2048),
+    claimed_at bigint NOT NULL,
+    PRIMARY KEY (idempotency_key)
+) ENGINE=InnoDB;
@@ -0,0 +1,28 @@
+--
+-- Copyright (c) 2018. Gavin Kenna
+--
+
+-- The lease background jobs run under, held by one instance at a time,
+-- and the history of their runs, see LeaseLock and JobScheduler. The
+-- token goes up by one each time the lease changes hands.
+
+CREATE TABLE job_leases (
+    name varchar(64) NOT NULL,
+    owner varchar(128) NOT NULL,
+    token bigint NOT NULL,
+    expires_at bigint NOT NULL,
+    PRIMARY KEY (name)
+) ENGINE=InnoDB;
+
+CREATE TABLE job_runs (
+    job varchar(64) NOT NULL,
+    started_at bigint NOT NULL,
+    owner varchar(128) NOT NULL,
+    token bigint NOT NULL,
+    duration_millis bigint NOT NULL,
+    status varchar(16) NOT NULL,
+    error varchar(1024),
+    PRIMARY KEY (job, started_at, owner)
+) ENGINE=InnoDB;
+
+CREATE INDEX job_runs_started_at_idx ON job_runs (started_at);
@@ -0,0 +1,9 @@
+--
+-- Copyright (c) 2018. Gavin Kenna
+--
+
+-- Listings and searches no longer restore the archived Questions they
+-- would have found, see QuestionArchive, so nothing reads the terms of
+-- archived Questions any more.
+
+DROP TABLE question_archive_terms;
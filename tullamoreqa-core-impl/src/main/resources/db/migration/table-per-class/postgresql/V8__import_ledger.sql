@@ -0,0 +1,23 @@
+--
+-- Copyright (c) 2018. Gavin Kenna
+--
+
+-- The lines of a dump each committed batch of an import covered, and the
+-- Users, Tags and Entries it created, see ImportLedger. Both are written
+-- in the transaction of the batch, so a resumed import never writes a
+-- line twice, and deleted once the import completes.
+
+CREATE TABLE import_batches (
+    dump varchar(64) NOT NULL,
+    first_line int8 NOT NULL,
+    last_line int8 NOT NULL,
+    PRIMARY KEY (dump, first_line)
+);
+
+CREATE TABLE import_refs (
+    dump varchar(64) NOT NULL,
+    kind varchar(16) NOT NULL,
+    dump_key varchar(255) NOT NULL,
+    new_id int8,
+    PRIMARY KEY (dump, kind, dump_key)
+);
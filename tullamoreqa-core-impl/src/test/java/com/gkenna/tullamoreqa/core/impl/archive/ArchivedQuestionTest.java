@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.archive;
+
+import com.gkenna.tullamoreqa.core.impl.layout.EntryType;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashSet;
+
+public class ArchivedQuestionTest {
+
+    private static final Date ASKED = new Date(1500000000000L);
+
+    private static final Date ANSWERED = new Date(1500000500000L);
+
+    private static final Date VOTED = new Date(1500000900000L);
+
+    private ArchivedQuestion archive() {
+        final ArchivedQuestion archive = new ArchivedQuestion();
+        archive.add(EntryType.QUESTION.getTable(), new Object[]{1L, 0L,
+                "Body", ASKED, ASKED, "asker", null, "Title"});
+        archive.add(EntryType.ANSWER.getTable(), new Object[]{51L, 2L,
+                "Answer", ANSWERED, ANSWERED, "answerer", "asker", 1L, true});
+        archive.add(EntryType.COMMENT.getTable(), new Object[]{101L, 0L,
+                "Comment", ASKED, ASKED, "asker", null, 51L, "Answer"});
+        archive.add(ArchivedQuestion.QUESTIONS_TAGS,
+                new Object[]{1L, "java"});
+        archive.add(ArchivedQuestion.VOTES,
+                new Object[]{7L, 0L, VOTED, "answerer", null});
+        archive.add(ArchivedQuestion.ENTRY_VOTES, new Object[]{1L, 7L});
+        archive.add(ArchivedQuestion.VOTE_ROLLUPS, new Object[]{51L, 3L, 1L});
+        return archive;
+    }
+
+    @Test
+    public void shouldReadBackRowsAsWritten() throws IOException {
+        final ArchivedQuestion archive = archive();
+
+        final ArchivedQuestion read =
+                ArchivedQuestion.fromBytes(archive.toBytes());
+
+        for (String table : ArchivedQuestion.getTables()) {
+            assert read.getRows(table).size()
+                    == archive.getRows(table).size();
+            for (int i = 0; i < read.getRows(table).size(); i++) {
+                assert Arrays.equals(read.getRows(table).get(i),
+                        archive.getRows(table).get(i));
+            }
+        }
+    }
+
+    @Test
+    public void shouldListEntriesQuestionFirst() {
+        assert archive().getEntryIds().equals(
+                new LinkedHashSet<>(Arrays.asList(1L, 51L, 101L)));
+    }
+
+    @Test
+    public void shouldTakeLastActivityFromEntriesAndVotes() {
+        assert archive().getLastActivity().equals(VOTED);
+        assert new ArchivedQuestion().getLastActivity() == null;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectRowOfWrongWidth() {
+        new ArchivedQuestion().add(ArchivedQuestion.ENTRY_VOTES,
+                new Object[]{1L});
+    }
+}
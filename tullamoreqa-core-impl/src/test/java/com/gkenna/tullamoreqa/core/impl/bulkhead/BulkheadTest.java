@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.bulkhead;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.io.IOException;
+
+public class BulkheadTest {
+
+    @Test
+    public void shouldRefuseRequestsOnceThreadsAndQueueAreTaken() {
+        final Bulkhead bulkhead = new Bulkhead("tags", 1, 1, 1000L);
+        bulkhead.call(() -> "first");
+        bulkhead.call(() -> "second");
+
+        try {
+            bulkhead.call(() -> "third");
+            assert false;
+        } catch (BulkheadFullException e) {
+            assert bulkhead.toMap().get("accepted").equals(2L);
+            assert bulkhead.toMap().get("rejected").equals(1L);
+        } finally {
+            bulkhead.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldCountCompletedAndFailedRequests() throws Exception {
+        final Bulkhead bulkhead = new Bulkhead("users", 2, 0, 1000L);
+        final WebAsyncTask<String> ok = bulkhead.call(() -> "ok");
+        final WebAsyncTask<String> failing = bulkhead.call(() -> {
+            throw new IOException("Mocked Exception");
+        });
+
+        assert ok.getCallable().call().equals("ok");
+        assert ok.getTimeout() == 1000L;
+        try {
+            failing.getCallable().call();
+            assert false;
+        } catch (IOException e) {
+            assert bulkhead.toMap().get("completed").equals(1L);
+            assert bulkhead.toMap().get("failed").equals(1L);
+        } finally {
+            bulkhead.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldBindRequestToBulkheadThread() throws Exception {
+        final Bulkhead bulkhead = new Bulkhead("tags", 1, 0, 1000L);
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRequestURI("/tag");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        try {
+            final WebAsyncTask<String> task = bulkhead.call(() -> ((ServletRequestAttributes)
+                    RequestContextHolder.currentRequestAttributes()).getRequest().getRequestURI());
+            RequestContextHolder.resetRequestAttributes();
+
+            assert task.getExecutor().submit(task.getCallable()).get().equals("/tag");
+            assert task.getExecutor().submit(RequestContextHolder::getRequestAttributes).get() == null;
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+            bulkhead.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectBulkheadWithoutThreads() {
+        new Bulkhead("questions", 0, 10, 1000L);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.cache;
+
+import com.gkenna.tullamoreqa.domain.Tag;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CacheSnapshotTest {
+
+    private static File snapshotFile() throws Exception {
+        return Files.createTempDirectory("tullamoreqa").resolve("cache.snapshot").toFile();
+    }
+
+    @Test
+    public void shouldRestoreWhatWasSaved() throws Exception {
+        final File file = snapshotFile();
+        final CacheRegistry before = new CacheRegistry();
+        before.tags().put("java", new Tag("java"));
+        new CacheSnapshot(before, true, file.getPath(), 60).save();
+
+        final CacheRegistry after = new CacheRegistry();
+        final int restored =
+                new CacheSnapshot(after, true, file.getPath(), 60).restore();
+
+        assert restored == 1;
+        assert new Tag("java").equals(after.tags().getIfPresent("java"));
+        assert !file.exists();
+    }
+
+    @Test
+    public void shouldIgnoreMissingSnapshot() throws Exception {
+        final File file = snapshotFile();
+
+        assert new CacheSnapshot(new CacheRegistry(), true, file.getPath(), 60)
+                .restore() == 0;
+    }
+
+    @Test
+    public void shouldIgnoreCorruptSnapshot() throws Exception {
+        final File file = snapshotFile();
+        Files.write(file.toPath(), new byte[]{1, 2, 3});
+
+        assert new CacheSnapshot(new CacheRegistry(), true, file.getPath(), 60)
+                .restore() == 0;
+        assert !file.exists();
+    }
+
+    @Test
+    public void shouldRefuseClassesNotAllowedInSnapshot() throws Exception {
+        final File file = snapshotFile();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeInt(0x54514143);
+            out.writeInt(1);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(1);
+            out.writeUTF("tags");
+            out.writeInt(1);
+            out.writeObject("java");
+            out.writeObject(new AtomicLong());
+            out.writeLong(System.currentTimeMillis());
+        }
+        Files.write(file.toPath(), bytes.toByteArray());
+
+        final CacheRegistry after = new CacheRegistry();
+        assert new CacheSnapshot(after, true, file.getPath(), 60).restore() == 0;
+        assert after.tags().getIfPresent("java") == null;
+    }
+
+    @Test
+    public void shouldNotRestoreFromDirectoryOthersCanWrite() throws Exception {
+        final Path directory = Files.createTempDirectory("tullamoreqa");
+        final File file = directory.resolve("cache.snapshot").toFile();
+        final CacheRegistry before = new CacheRegistry();
+        before.tags().put("java", new Tag("java"));
+        new CacheSnapshot(before, true, file.getPath(), 60).save();
+        Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwxrwxrwx"));
+
+        final CacheRegistry after = new CacheRegistry();
+        assert new CacheSnapshot(after, true, file.getPath(), 60).restore() == 0;
+        assert after.tags().getIfPresent("java") == null;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.cache;
+
+import com.gkenna.tullamoreqa.core.impl.limiter.LimitExceededException;
+import org.junit.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+public class CircuitBreakerTest {
+
+    private long now = 1000L;
+
+    private CircuitBreaker newBreaker(final int threshold, final long open) {
+        return new CircuitBreaker(threshold, open) {
+            @Override
+            protected long now() {
+                return now;
+            }
+        };
+    }
+
+    @Test
+    public void shouldOpenAfterConsecutiveFailures() {
+        final CircuitBreaker breaker = newBreaker(2, 100L);
+        breaker.recordFailure();
+        assert breaker.allowRequest();
+
+        breaker.recordFailure();
+        assert breaker.getState() == CircuitBreaker.State.OPEN;
+        assert !breaker.allowRequest();
+    }
+
+    @Test
+    public void shouldLetOneTrialThroughOnceOpenPeriodHasPassed() {
+        final CircuitBreaker breaker = newBreaker(1, 100L);
+        breaker.recordFailure();
+        now += 100L;
+
+        assert breaker.getState() == CircuitBreaker.State.HALF_OPEN;
+        assert breaker.allowRequest();
+        assert !breaker.allowRequest();
+
+        breaker.recordSuccess();
+        assert breaker.getState() == CircuitBreaker.State.CLOSED;
+        assert breaker.allowRequest();
+    }
+
+    @Test
+    public void shouldReopenWhenTrialFails() {
+        final CircuitBreaker breaker = newBreaker(1, 100L);
+        breaker.recordFailure();
+        now += 100L;
+        assert breaker.allowRequest();
+
+        breaker.recordFailure();
+        assert breaker.getState() == CircuitBreaker.State.OPEN;
+    }
+
+    @Test
+    public void shouldOnlyCountDatabaseFailures() {
+        assert CircuitBreaker.isDatabaseFailure(
+                new QueryTimeoutException("timed out"));
+        assert CircuitBreaker.isDatabaseFailure(
+                new LimitExceededException("limit reached"));
+        assert !CircuitBreaker.isDatabaseFailure(
+                new IllegalArgumentException());
+    }
+}
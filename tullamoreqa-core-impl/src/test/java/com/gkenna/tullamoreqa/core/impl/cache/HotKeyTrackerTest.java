@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.cache;
+
+import org.junit.Test;
+
+public class HotKeyTrackerTest {
+
+    @Test
+    public void shouldDetectKeyAboveThreshold() {
+        final HotKeyTracker<Long> tracker = new HotKeyTracker<>(3, 10, 5);
+        for (int i = 0; i < 10; i++) {
+            tracker.record(1L);
+        }
+        tracker.record(2L);
+
+        assert tracker.hotKeys().containsKey(1L);
+        assert !tracker.hotKeys().containsKey(2L);
+        assert tracker.estimate(1L) >= 10;
+    }
+
+    @Test
+    public void shouldCoolDownOnceWindowHasPassed() {
+        final HotKeyTracker<Long> tracker = new HotKeyTracker<>(3, 10, 5);
+        for (int i = 0; i < 10; i++) {
+            tracker.record(1L);
+        }
+        tracker.rotate();
+        assert tracker.hotKeys().containsKey(1L);
+
+        tracker.rotate();
+        tracker.rotate();
+        assert !tracker.hotKeys().containsKey(1L);
+    }
+
+    @Test
+    public void shouldLimitNumberOfHotKeys() {
+        final HotKeyTracker<Long> tracker = new HotKeyTracker<>(3, 1, 2);
+        tracker.record(1L);
+        tracker.record(2L);
+        tracker.record(3L);
+
+        assert tracker.hotKeys().size() == 2;
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.cache;
+
+import com.gkenna.tullamoreqa.core.impl.tenant.Tenants;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+public class LocalCacheTest {
+
+    private long now = 1000L;
+
+    private LocalCache<Long, String> newCache(final long ttl, final int maxSize) {
+        return new LocalCache<Long, String>("test", ttl, maxSize) {
+            @Override
+            protected long now() {
+                return now;
+            }
+        };
+    }
+
+    @Test
+    public void shouldReturnCachedValue() {
+        final LocalCache<Long, String> cache = newCache(100L, 10);
+        cache.put(1L, "one");
+
+        assert "one".equals(cache.getIfPresent(1L));
+        assert cache.getHits() == 1;
+    }
+
+    @Test
+    public void shouldMissOnExpiredValue() {
+        final LocalCache<Long, String> cache = newCache(100L, 10);
+        cache.put(1L, "one");
+        now += 100L;
+
+        assert cache.getIfPresent(1L) == null;
+        assert cache.getMisses() == 1;
+    }
+
+    @Test
+    public void shouldIgnoreNullKeys() {
+        final LocalCache<Long, String> cache = newCache(100L, 10);
+        cache.put(null, "one");
+
+        assert cache.getIfPresent(null) == null;
+        assert cache.size() == 0;
+    }
+
+    @Test
+    public void shouldNotCacheLoadOvertakenByInvalidation() {
+        final LocalCache<Long, String> cache = newCache(100L, 10);
+
+        final String loaded = cache.get(1L, () -> {
+            cache.invalidate(1L);
+            return "old";
+        });
+
+        assert "old".equals(loaded);
+        assert cache.getIfPresent(1L) == null;
+        assert "new".equals(cache.get(1L, () -> "new"));
+        assert "new".equals(cache.getIfPresent(1L));
+    }
+
+    @Test
+    public void shouldEvictOldestWhenFull() {
+        final LocalCache<Long, String> cache = newCache(100L, 2);
+        cache.put(1L, "one");
+        now++;
+        cache.put(2L, "two");
+        now++;
+        cache.put(3L, "three");
+
+        assert cache.size() == 2;
+        assert cache.getIfPresent(1L) == null;
+        assert "two".equals(cache.getIfPresent(2L));
+        assert "three".equals(cache.getIfPresent(3L));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedWhenFull() {
+        final LocalCache<Long, String> cache = newCache(100L, 2);
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        cache.getIfPresent(1L);
+        cache.put(3L, "three");
+
+        assert "one".equals(cache.getIfPresent(1L));
+        assert cache.getIfPresent(2L) == null;
+    }
+
+    @Test
+    public void shouldNeverEvictPinnedKeysToMakeRoom() {
+        final LocalCache<Long, String> cache = newCache(100L, 2);
+        cache.put(1L, "one");
+        cache.pin(1L);
+        cache.put(2L, "two");
+        cache.put(3L, "three");
+
+        assert "one".equals(cache.getIfPresent(1L));
+        assert cache.getIfPresent(2L) == null;
+    }
+
+    @Test
+    public void shouldCacheLoadWhenOnlyAnotherKeyIsInvalidated() {
+        final LocalCache<Long, String> cache = newCache(100L, 10);
+
+        cache.get(1L, () -> {
+            cache.invalidate(2L);
+            return "one";
+        });
+
+        assert "one".equals(cache.getIfPresent(1L));
+    }
+
+    @Test
+    public void shouldNeitherReadNorFillWhenBypassed() {
+        final LocalCache<Long, String> cache = newCache(100L, 10);
+        cache.put(1L, "one");
+
+        CacheBypass.run(() -> {
+            assert "loaded".equals(cache.get(1L, () -> "loaded"));
+            assert "two".equals(cache.get(2L, () -> "two"));
+        });
+
+        assert "one".equals(cache.getIfPresent(1L));
+        assert cache.getIfPresent(2L) == null;
+        assert cache.getHits() == 1;
+        assert cache.getMisses() == 1;
+    }
+
+    @Test
+    public void shouldInvalidate() {
+        final LocalCache<Long, String> cache = newCache(100L, 10);
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        cache.invalidate(1L);
+
+        assert cache.getIfPresent(1L) == null;
+
+        cache.invalidateAll();
+
+        assert cache.size() == 0;
+    }
+
+    @Test
+    public void shouldNeverExpirePinnedKeys() {
+        final LocalCache<Long, String> cache = newCache(100L, 10);
+        cache.put(1L, "one");
+        cache.pin(1L);
+        now += 1000L;
+
+        assert "one".equals(cache.getIfPresent(1L));
+
+        cache.unpin(1L);
+
+        assert cache.getIfPresent(1L) == null;
+    }
+
+    @Test
+    public void shouldRefreshThroughLoader() {
+        final LocalCache<Long, String> cache = newCache(100L, 10);
+        cache.setLoader(key -> key == 1L ? "reloaded" : null);
+
+        assert cache.refresh(1L);
+        assert "reloaded".equals(cache.getIfPresent(1L));
+        assert !cache.refresh(2L);
+    }
+
+    @Test
+    public void shouldServeStaleValueWhenDatabaseFails() {
+        final LocalCache<Long, String> cache = newCache(100L, 10);
+        cache.serveStaleOnError(new CircuitBreaker(5, 1000L), 50L);
+        cache.put(1L, "one");
+        now += 120L;
+
+        final String output = cache.get(1L, () -> {
+            throw new QueryTimeoutException("timed out");
+        });
+
+        assert "one".equals(output);
+        assert cache.getStaleServed() == 1;
+    }
+
+    @Test
+    public void shouldServeStaleValueWhenTimedLoadTimesOut() {
+        final PlatformTransactionManager transactionManager =
+                Mockito.mock(PlatformTransactionManager.class);
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setTimeout(2);
+        final LocalCache<Long, String> cache = newCache(100L, 10);
+        cache.serveStaleOnError(new CircuitBreaker(1, 1000L), 50L);
+        cache.timeLoads(transaction);
+        cache.put(1L, "one");
+        now += 120L;
+
+        final String output = cache.get(1L, () -> {
+            throw new TransactionTimedOutException("timed out");
+        });
+
+        assert "one".equals(output);
+        assert cache.getCircuitBreaker().getState() == CircuitBreaker.State.OPEN;
+        Mockito.verify(transactionManager).getTransaction(transaction);
+        Mockito.verify(transactionManager).rollback(Matchers.any());
+    }
+
+    @Test(expected = QueryTimeoutException.class)
+    public void shouldFailWhenValueIsTooStale() {
+        final LocalCache<Long, String> cache = newCache(100L, 10);
+        cache.serveStaleOnError(new CircuitBreaker(5, 1000L), 50L);
+        cache.put(1L, "one");
+        now += 150L;
+
+        cache.get(1L, () -> {
+            throw new QueryTimeoutException("timed out");
+        });
+    }
+
+    @Test
+    public void shouldServeStaleValueWithoutLoadingWhenBreakerIsOpen() {
+        final LocalCache<Long, String> cache = newCache(100L, 10);
+        final CircuitBreaker breaker = new CircuitBreaker(1, 1000L);
+        cache.serveStaleOnError(breaker, 50L);
+        cache.put(1L, "one");
+        breaker.recordFailure();
+        now += 120L;
+
+        final String output = cache.get(1L, () -> "loaded");
+
+        assert "one".equals(output);
+        assert cache.getLoads() == 0;
+    }
+
+    @Test
+    public void shouldServeRevalidatedRestoredValueAsFresh() {
+        final LocalCache<Long, String> cache = newCache(100L, 10);
+        cache.setRevalidator(value -> "one".equals(value));
+        cache.restore(1L, "one", 0L);
+        cache.restore(2L, "two", 0L);
+
+        assert "one".equals(cache.getIfPresent(1L));
+        assert cache.getIfPresent(2L) == null;
+        assert cache.size() == 1;
+    }
+
+    @Test
+    public void shouldTrustRestoredValueUntilExpiredWithoutRevalidator() {
+        final LocalCache<Long, String> cache = newCache(100L, 10);
+        cache.restore(1L, "one", now - 50L);
+
+        assert "one".equals(cache.getIfPresent(1L));
+        now += 50L;
+        assert cache.getIfPresent(1L) == null;
+    }
+
+    @Test
+    public void shouldOnlyCacheDefaultTenant() {
+        final LocalCache<Long, String> cache = newCache(100L, 10);
+        cache.put(1L, "default");
+
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(Tenants.ATTRIBUTE, "other");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        try {
+            assert cache.getIfPresent(1L) == null;
+            assert "other".equals(cache.get(1L, () -> "other"));
+            cache.put(2L, "other");
+            assert cache.size() == 1;
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+        assert "default".equals(cache.getIfPresent(1L));
+    }
+}
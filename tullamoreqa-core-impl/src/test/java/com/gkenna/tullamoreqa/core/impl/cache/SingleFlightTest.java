@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.cache;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTest {
+
+    @Test
+    public void shouldShareOneLoadBetweenConcurrentCallers() throws Exception {
+        final SingleFlight<Long, String> flight = new SingleFlight<>(5000);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        final Future<String> leader = executor.submit(() ->
+                flight.load(1L, () -> {
+                    calls.incrementAndGet();
+                    await(release);
+                    return "value";
+                }));
+        while (flight.getLoads() == 0) {
+            Thread.sleep(1);
+        }
+        final Future<String> first = executor.submit(() ->
+                flight.load(1L, () -> "other"));
+        final Future<String> second = executor.submit(() ->
+                flight.load(1L, () -> "other"));
+        while (flight.getCoalesced() < 2) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        assert "value".equals(leader.get());
+        assert "value".equals(first.get());
+        assert "value".equals(second.get());
+        assert calls.get() == 1;
+        assert flight.getLoads() == 1;
+        executor.shutdown();
+    }
+
+    @Test
+    public void shouldShareFailureWithWaitingCallers() throws Exception {
+        final SingleFlight<Long, String> flight = new SingleFlight<>(5000);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        final Future<String> leader = executor.submit(() ->
+                flight.load(1L, () -> {
+                    await(release);
+                    throw new IllegalStateException("DB down");
+                }));
+        while (flight.getLoads() == 0) {
+            Thread.sleep(1);
+        }
+        final Future<String> follower = executor.submit(() ->
+                flight.load(1L, () -> "other"));
+        while (flight.getCoalesced() == 0) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        assert failedWith(leader, IllegalStateException.class);
+        assert failedWith(follower, IllegalStateException.class);
+        executor.shutdown();
+    }
+
+    @Test
+    public void shouldTimeOutWaitingCaller() throws Exception {
+        final SingleFlight<Long, String> flight = new SingleFlight<>(10);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(1);
+
+        executor.submit(() -> flight.load(1L, () -> {
+            await(release);
+            return "value";
+        }));
+        while (flight.getLoads() == 0) {
+            Thread.sleep(1);
+        }
+
+        try {
+            flight.load(1L, () -> "other");
+            assert false;
+        } catch (LoadTimeoutException e) {
+            assert flight.getTimeouts() == 1;
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldLoadAgainOnceFinished() {
+        final SingleFlight<Long, String> flight = new SingleFlight<>(5000);
+        flight.load(1L, () -> "first");
+
+        assert "second".equals(flight.load(1L, () -> "second"));
+        assert flight.getLoads() == 2;
+        assert flight.getCoalesced() == 0;
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean failedWith(final Future<String> future,
+                                      final Class<?> type) throws Exception {
+        try {
+            future.get();
+            return false;
+        } catch (ExecutionException e) {
+            return type.isInstance(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.coherence;
+
+import com.gkenna.tullamoreqa.core.impl.cache.CacheRegistry;
+import com.gkenna.tullamoreqa.domain.Question;
+import com.gkenna.tullamoreqa.domain.Tag;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class CacheCoherenceTest {
+
+    private LoopbackInvalidationTransport transport;
+
+    private CacheRegistry firstCaches;
+
+    private CacheRegistry secondCaches;
+
+    private CacheCoherence first;
+
+    private CacheCoherence second;
+
+    @Before
+    public void setUp() {
+        transport = new LoopbackInvalidationTransport();
+        firstCaches = new CacheRegistry();
+        secondCaches = new CacheRegistry();
+        first = new CacheCoherence(firstCaches, transport, true, 2);
+        second = new CacheCoherence(secondCaches, transport, true, 2);
+        for (CacheRegistry caches : new CacheRegistry[]{firstCaches, secondCaches}) {
+            caches.questions().put(1L, new Question());
+            caches.questions().put(2L, new Question());
+            caches.tags().put("java", new Tag());
+        }
+    }
+
+    private static Set<String> keys(final String... keys) {
+        final Set<String> output = new LinkedHashSet<>();
+        Collections.addAll(output, keys);
+        return output;
+    }
+
+    private static byte[] batch(final String origin, final long sequence,
+                                final String cache, final String... keys) {
+        final Map<String, Set<String>> byCache =
+                Collections.singletonMap(cache, keys(keys));
+        return new InvalidationBatch(origin, sequence,
+                Collections.<String>emptySet(), byCache).encode();
+    }
+
+    @Test
+    public void shouldPassInvalidationsOnInBatches() {
+        firstCaches.questions().invalidate(1L);
+        firstCaches.tags().invalidate("java");
+
+        assert secondCaches.questions().getIfPresent(1L) != null;
+        first.flush();
+
+        assert secondCaches.questions().getIfPresent(1L) == null;
+        assert secondCaches.questions().getIfPresent(2L) != null;
+        assert secondCaches.tags().getIfPresent("java") == null;
+    }
+
+    @Test
+    public void shouldNotEchoAppliedInvalidations() {
+        firstCaches.questions().invalidate(1L);
+        first.flush();
+        second.flush();
+
+        assert (Long) second.toMap().get("sent") == 0L;
+        assert firstCaches.questions().getIfPresent(2L) != null;
+    }
+
+    @Test
+    public void shouldSendFlushForInvalidateAll() {
+        firstCaches.questions().invalidate(1L);
+        firstCaches.questions().invalidateAll();
+        first.flush();
+
+        assert secondCaches.questions().size() == 0;
+        assert secondCaches.tags().getIfPresent("java") != null;
+    }
+
+    @Test
+    public void shouldSendFlushBeyondMaxKeys() {
+        firstCaches.tags().invalidate("a");
+        firstCaches.tags().invalidate("b");
+        firstCaches.tags().invalidate("c");
+        first.flush();
+
+        assert secondCaches.tags().size() == 0;
+        assert secondCaches.questions().getIfPresent(1L) != null;
+    }
+
+    @Test
+    public void shouldIgnoreRepeatedBatch() {
+        second.receive(batch("other", 1, "questions", "1"));
+        secondCaches.questions().put(1L, new Question());
+        second.receive(batch("other", 1, "questions", "1"));
+
+        assert secondCaches.questions().getIfPresent(1L) != null;
+        assert (Long) second.toMap().get("duplicates") == 1L;
+    }
+
+    @Test
+    public void shouldFlushEveryCacheOnGap() {
+        second.receive(batch("other", 1, "questions", "1"));
+        second.receive(batch("other", 3, "questions", "1"));
+
+        assert secondCaches.questions().size() == 0;
+        assert secondCaches.tags().size() == 0;
+        assert (Long) second.toMap().get("gaps") == 1L;
+    }
+
+    @Test
+    public void shouldFlushOnFirstContactMidSequence() {
+        second.receive(batch("other", 7, "questions", "1"));
+
+        assert secondCaches.tags().size() == 0;
+    }
+
+    @Test
+    public void shouldFlushEveryCacheWhenHeartbeatIsAhead() {
+        second.receive(batch("other", 1, "questions", "1"));
+        second.receive(new InvalidationBatch("other", 2, Collections.<String>emptySet(),
+                Collections.<String, Set<String>>emptyMap()).encode());
+
+        assert secondCaches.tags().size() == 0;
+        assert (Long) second.toMap().get("gaps") == 1L;
+    }
+
+    @Test
+    public void shouldNotFlushOnHeartbeatOfLastBatchApplied() {
+        firstCaches.questions().invalidate(1L);
+        first.flush();
+        first.heartbeat();
+
+        assert secondCaches.tags().getIfPresent("java") != null;
+        assert (Long) second.toMap().get("gaps") == 0L;
+    }
+
+    @Test
+    public void shouldOnlySendInvalidationsOnceCommitted() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            firstCaches.questions().invalidate(1L);
+            first.flush();
+            assert secondCaches.questions().getIfPresent(1L) != null;
+
+            TransactionSynchronizationUtils.invokeAfterCommit(
+                    TransactionSynchronizationManager.getSynchronizations());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        first.flush();
+
+        assert secondCaches.questions().getIfPresent(1L) == null;
+    }
+
+    @Test
+    public void shouldApplyBatchesInOrder() {
+        second.receive(batch("other", 1, "questions", "1"));
+        second.receive(batch("other", 2, "questions", "2"));
+
+        assert secondCaches.questions().size() == 0;
+        assert secondCaches.tags().getIfPresent("java") != null;
+        assert (Long) second.toMap().get("gaps") == 0L;
+    }
+
+    @Test
+    public void shouldRoundTripBatch() {
+        final InvalidationBatch decoded = InvalidationBatch.decode(
+                new InvalidationBatch("origin", 42, keys("tags"),
+                        Collections.singletonMap("questions", keys("1", "2")))
+                        .encode());
+
+        assert "origin".equals(decoded.getOrigin());
+        assert decoded.getSequence() == 42;
+        assert decoded.getFlushed().equals(keys("tags"));
+        assert decoded.getKeys().get("questions").equals(keys("1", "2"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRefuseMalformedBatch() {
+        InvalidationBatch.decode(new byte[]{9, 9});
+    }
+}
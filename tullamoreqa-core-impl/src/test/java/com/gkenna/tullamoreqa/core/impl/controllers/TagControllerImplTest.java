@@ -6,7 +6,9 @@ package com.gkenna.tullamoreqa.core.impl.controllers;
 
 import com.gkenna.tullamoreqa.core.api.exceptions.TagAlreadyExistsException;
 import com.gkenna.tullamoreqa.core.api.exceptions.TagNotFoundException;
+import com.gkenna.tullamoreqa.core.api.exceptions.VersionMismatchException;
 import com.gkenna.tullamoreqa.core.api.services.TagService;
+import com.gkenna.tullamoreqa.core.impl.bulkhead.BulkheadRegistry;
 import com.gkenna.tullamoreqa.domain.Tag;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -19,6 +21,7 @@ import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
 import java.util.Objects;
 
@@ -42,18 +45,23 @@ public class TagControllerImplTest {
 
     public TagControllerImplTest() {
         MockitoAnnotations.initMocks(this);
-        tagController = new TagControllerImpl(mockedTagService);
+        tagController = new TagControllerImpl(mockedTagService,
+                new BulkheadRegistry());
         MockHttpServletRequest request = new MockHttpServletRequest();
         request.setRequestURI("/tag");
         RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
     }
 
+    private static <T> T call(final WebAsyncTask<T> task) throws Exception {
+        return task.getCallable().call();
+    }
+
     @Test
-    public void shouldAddValidTagWithDescription() throws TagAlreadyExistsException {
+    public void shouldAddValidTagWithDescription() throws Exception {
         final Tag tag = new Tag("Java");
         tag.setDescription("Description for Java Tag.");
 
-        ResponseEntity responseEntity = tagController.addTag(tag);
+        ResponseEntity responseEntity = call(tagController.addTag(tag));
 
         verify(mockedTagService).addTag(tag);
 
@@ -64,7 +72,22 @@ public class TagControllerImplTest {
     }
 
     @Test
-    public void shouldThrowTagAlreadyExistsWhenAdding() throws TagAlreadyExistsException {
+    public void shouldAddTagOnBulkheadThread() throws Exception {
+        final Tag tag = new Tag("Java");
+        tag.setDescription("Description for Java Tag.");
+
+        final WebAsyncTask<ResponseEntity<?>> task = tagController.addTag(tag);
+        ResponseEntity responseEntity = task.getExecutor().submit(task.getCallable()).get();
+
+        verify(mockedTagService).addTag(tag);
+
+        assert responseEntity.getStatusCode().value() == 201; //CREATED
+
+        assert Objects.requireNonNull(responseEntity.getHeaders().getLocation()).toString().equals("http://localhost/tag/Java");
+    }
+
+    @Test
+    public void shouldThrowTagAlreadyExistsWhenAdding() throws Exception {
         final Tag tag = new Tag("Java");
         tag.setDescription("Description for Java Tag.");
 
@@ -73,7 +96,7 @@ public class TagControllerImplTest {
          */
         doThrow(new TagAlreadyExistsException("Mocked Exception")).when(mockedTagService).addTag(tag);
 
-        ResponseEntity responseEntity = tagController.addTag(tag);
+        ResponseEntity responseEntity = call(tagController.addTag(tag));
 
         verify(mockedTagService).addTag(tag);
 
@@ -84,13 +107,13 @@ public class TagControllerImplTest {
     }
 
     @Test
-    public void shouldGetTagSuccessfully() throws TagNotFoundException {
+    public void shouldGetTagSuccessfully() throws Exception {
         final Tag tag = new Tag("Java");
         tag.setDescription("Description for Java Tag.");
 
         when(mockedTagService.getTag("Java")).thenReturn(tag);
 
-        ResponseEntity responseEntity = tagController.getTag("Java");
+        ResponseEntity responseEntity = call(tagController.getTag("Java"));
 
         verify(mockedTagService).getTag("Java");
 
@@ -101,11 +124,11 @@ public class TagControllerImplTest {
     }
 
     @Test
-    public void shouldGetNoContentWhenGetTagDoesNotExist() throws TagNotFoundException {
+    public void shouldGetNoContentWhenGetTagDoesNotExist() throws Exception {
 
         doThrow(new TagNotFoundException("Mocked Exception")).when(mockedTagService).getTag("Java");
 
-        ResponseEntity responseEntity = tagController.getTag("Java");
+        ResponseEntity responseEntity = call(tagController.getTag("Java"));
 
         verify(mockedTagService).getTag("Java");
 
@@ -114,43 +137,67 @@ public class TagControllerImplTest {
     }
 
     @Test
-    public void shouldUpdateTagSuccessfully() throws TagNotFoundException {
+    public void shouldUpdateTagSuccessfully() throws Exception {
         final Tag tag = new Tag("Java");
         tag.setDescription("New description for Java Tag.");
 
-        when(mockedTagService.updateTag("Java", tag)).thenReturn(tag);
+        when(mockedTagService.updateTag("Java", tag, null)).thenReturn(tag);
 
-        ResponseEntity responseEntity = tagController.updateTag("Java", tag);
+        ResponseEntity responseEntity = call(tagController.updateTag("Java", tag, null));
 
-        verify(mockedTagService).updateTag("Java", tag);
+        verify(mockedTagService).updateTag("Java", tag, null);
 
         assert responseEntity.getStatusCode().is2xxSuccessful();
         assert responseEntity.getStatusCode().value() == 200; // OK
 
         assert responseEntity.getBody().equals(tag);
+        assert responseEntity.getHeaders().getETag().equals("\"0\"");
+    }
+
+    @Test
+    public void shouldPassIfMatchVersionWhenUpdatingTag() throws Exception {
+        final Tag tag = new Tag("Java");
+
+        when(mockedTagService.updateTag("Java", tag, 3L)).thenReturn(tag);
+
+        ResponseEntity responseEntity = call(tagController.updateTag("Java", tag, "W/\"3\""));
+
+        verify(mockedTagService).updateTag("Java", tag, 3L);
+        assert responseEntity.getStatusCode().value() == 200; // OK
+    }
+
+    @Test
+    public void shouldGetPreconditionFailedWhenUpdateTagVersionMismatches() throws Exception {
+        final Tag tag = new Tag("Java");
+
+        doThrow(new VersionMismatchException("Mocked Exception")).when(mockedTagService).updateTag("Java", tag, 3L);
+
+        ResponseEntity responseEntity = call(tagController.updateTag("Java", tag, "\"3\""));
+
+        assert responseEntity.getStatusCode().value() == 412; // PRECONDITION_FAILED
     }
 
     @Test
-    public void shouldGetNoContentWhenUpdateTagDoesNotExist() throws TagNotFoundException {
+    public void shouldGetNoContentWhenUpdateTagDoesNotExist() throws Exception {
         final Tag tag = new Tag("Java");
         tag.setDescription("New description for Java Tag.");
 
-        doThrow(new TagNotFoundException("Mocked Exception")).when(mockedTagService).updateTag("Java", tag);
+        doThrow(new TagNotFoundException("Mocked Exception")).when(mockedTagService).updateTag("Java", tag, null);
 
-        ResponseEntity responseEntity = tagController.updateTag("Java", tag);
+        ResponseEntity responseEntity = call(tagController.updateTag("Java", tag, null));
 
-        verify(mockedTagService).updateTag("Java", tag);
+        verify(mockedTagService).updateTag("Java", tag, null);
 
         assert responseEntity.getStatusCode().is4xxClientError();
         assert responseEntity.getStatusCode().value() == 404; // NOT_FOUND
     }
 
     @Test
-    public void shouldDeleteTagSuccessfully() throws TagNotFoundException {
+    public void shouldDeleteTagSuccessfully() throws Exception {
         final Tag tag = new Tag("Java");
         tag.setDescription("Description for Java Tag.");
 
-        ResponseEntity responseEntity = tagController.deleteTag("Java");
+        ResponseEntity responseEntity = call(tagController.deleteTag("Java"));
 
         verify(mockedTagService).deleteTag("Java");
 
@@ -159,13 +206,13 @@ public class TagControllerImplTest {
     }
 
     @Test
-    public void shouldGetNoContentWhenDeleteTagDoesNotExist() throws TagNotFoundException {
+    public void shouldGetNoContentWhenDeleteTagDoesNotExist() throws Exception {
         final Tag tag = new Tag("Java");
         tag.setDescription("Description for Java Tag.");
 
         doThrow(new TagNotFoundException("Mocked Exception")).when(mockedTagService).deleteTag("Java");
 
-        ResponseEntity responseEntity = tagController.deleteTag("Java");
+        ResponseEntity responseEntity = call(tagController.deleteTag("Java"));
 
         verify(mockedTagService).deleteTag("Java");
 
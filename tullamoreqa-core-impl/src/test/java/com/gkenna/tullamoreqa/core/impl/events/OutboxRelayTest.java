@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.events;
+
+import com.gkenna.tullamoreqa.core.api.repositories.ChangeEventRepository;
+import com.gkenna.tullamoreqa.core.impl.jobs.JobScheduler;
+import com.gkenna.tullamoreqa.core.impl.jobs.LeaseLostException;
+import com.gkenna.tullamoreqa.core.impl.tenant.TenantRouter;
+import com.gkenna.tullamoreqa.domain.Question;
+import com.gkenna.tullamoreqa.domain.events.ChangeEvent;
+import com.gkenna.tullamoreqa.domain.events.ChangeType;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OutboxRelayTest {
+
+    @Mock
+    private ChangeEventRepository mockedChangeEventRepository;
+
+    @Mock
+    private PlatformTransactionManager mockedTransactionManager;
+
+    @Mock
+    private JobScheduler mockedJobScheduler;
+
+    @Mock
+    private TenantRouter mockedTenantRouter;
+
+    private final InMemoryChangeEventBus bus = new InMemoryChangeEventBus();
+
+    private final OutboxRelay relay;
+
+    private final List<ChangeEvent> first = Arrays.asList(
+            new ChangeEvent(Question.class, 1L, ChangeType.CREATED),
+            new ChangeEvent(Question.class, 1L, ChangeType.UPDATED));
+
+    private final List<ChangeEvent> second = Collections.singletonList(
+            new ChangeEvent(Question.class, 1L, ChangeType.DELETED));
+
+    public OutboxRelayTest() {
+        MockitoAnnotations.initMocks(this);
+        relay = new OutboxRelay(mockedChangeEventRepository, bus,
+                mockedTransactionManager, mockedJobScheduler, mockedTenantRouter, 2);
+    }
+
+    @Test
+    public void shouldPublishThenDeleteEveryBatch() {
+        final List<ChangeEvent> received = new ArrayList<>();
+        bus.subscribe(received::addAll);
+        when(mockedChangeEventRepository.findAllByOrderByIdAsc(any(Pageable.class)))
+                .thenReturn(first, second);
+
+        assert relay.relay() == 3;
+
+        assert received.size() == 3;
+        assert received.get(2).getChangeType() == ChangeType.DELETED;
+        verify(mockedChangeEventRepository).deleteInBatch(first);
+        verify(mockedChangeEventRepository).deleteInBatch(second);
+    }
+
+    @Test
+    public void shouldKeepBatchWhenSubscriberFails() {
+        final List<ChangeEvent> received = new ArrayList<>();
+        bus.subscribe(events -> {
+            throw new IllegalStateException("Index unavailable");
+        });
+        bus.subscribe(received::addAll);
+        when(mockedChangeEventRepository.findAllByOrderByIdAsc(any(Pageable.class)))
+                .thenReturn(first);
+
+        assert relay.relay() == 0;
+
+        assert received.size() == 2;
+        verify(mockedChangeEventRepository, never()).deleteInBatch(any());
+    }
+
+    @Test
+    public void shouldDoNothingWhenOutboxIsEmpty() {
+        when(mockedChangeEventRepository.findAllByOrderByIdAsc(any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
+
+        assert relay.relay() == 0;
+
+        verify(mockedChangeEventRepository, never()).deleteInBatch(any());
+    }
+
+    @Test(expected = LeaseLostException.class)
+    public void shouldNotPublishOnceTheLeaseIsLost() {
+        final List<ChangeEvent> received = new ArrayList<>();
+        bus.subscribe(received::addAll);
+        doThrow(new LeaseLostException("lost")).when(mockedJobScheduler).fence();
+
+        try {
+            relay.relay();
+        } finally {
+            assert received.isEmpty();
+            verify(mockedChangeEventRepository, never()).findAllByOrderByIdAsc(any(Pageable.class));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldCountRelayedChanges() {
+        final ChangeCounters counters = new ChangeCounters(bus);
+        when(mockedChangeEventRepository.findAllByOrderByIdAsc(any(Pageable.class)))
+                .thenReturn(first, second);
+
+        relay.relay();
+
+        final Map<String, Object> map = counters.toMap();
+        final Map<String, Map<String, Long>> changes = (Map<String, Map<String, Long>>) map.get("changes");
+        assert changes.get("Question").get("CREATED") == 1;
+        assert changes.get("Question").get("DELETED") == 1;
+        assert ((Map<String, Object>) map.get("latest")).get("changeType").equals("DELETED");
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.exporter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class ColumnarWriterTest {
+
+    private static final String[] NAMES = {"id", "body", "user", "chosen",
+            "created_at"};
+
+    private static final ColumnType[] TYPES = {ColumnType.LONG,
+            ColumnType.STRING, ColumnType.DICTIONARY, ColumnType.BOOLEAN,
+            ColumnType.TIMESTAMP};
+
+    @Test
+    public void shouldReadBackRowsAsWritten() throws IOException {
+        final List<Object[]> rows = new ArrayList<>();
+        for (long i = 0; i < 10; i++) {
+            rows.add(new Object[]{i * 3, "Body " + i,
+                    i % 2 == 0 ? "Username" : null, i % 3 == 0,
+                    new Date(1500000000000L + i)});
+        }
+        rows.add(new Object[]{-5L, null, "Other", null, null});
+
+        final byte[] file = write(3, rows);
+
+        final List<Object[]> read = new ArrayList<>();
+        final Map<String, Long> counts = ColumnarReader.read(
+                new ByteArrayInputStream(file), (table, row) -> {
+                    assert table.equals("answers");
+                    read.add(row);
+                });
+
+        assert counts.get("answers") == rows.size();
+        assert counts.get("empty") == 0;
+        assert read.size() == rows.size();
+        for (int i = 0; i < rows.size(); i++) {
+            assert Arrays.equals(rows.get(i), read.get(i));
+        }
+    }
+
+    @Test
+    public void shouldReadBackChunkChecksumsAsWritten() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final Map<String, Long> written;
+        try (ColumnarWriter writer = new ColumnarWriter(out, 2)) {
+            writer.startTable("answers", NAMES, TYPES);
+            for (long i = 0; i < 5; i++) {
+                writer.addRow(new Object[]{i, "Body " + i, "Username", true, new Date()});
+            }
+            writer.endTable();
+            writer.startTable("empty", NAMES, TYPES);
+            writer.endTable();
+            written = writer.getChecksums();
+        }
+
+        final Map<String, Long> read = new HashMap<>();
+        ColumnarReader.read(new ByteArrayInputStream(out.toByteArray()), null, read);
+
+        assert read.equals(written);
+        assert read.get("answers") != read.get("empty").longValue();
+    }
+
+    @Test
+    public void shouldReadBackBytesAsWritten() throws IOException {
+        final byte[] payload = "Archived Question".getBytes(StandardCharsets.UTF_8);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ColumnarWriter writer = new ColumnarWriter(out, 2)) {
+            writer.startTable("question_archive", new String[]{"question_id", "payload"},
+                    new ColumnType[]{ColumnType.LONG, ColumnType.BYTES});
+            writer.addRow(new Object[]{1L, payload});
+            writer.addRow(new Object[]{2L, null});
+            writer.addRow(new Object[]{3L, new byte[0]});
+            writer.endTable();
+        }
+
+        final List<Object[]> read = new ArrayList<>();
+        ColumnarReader.read(new ByteArrayInputStream(out.toByteArray()), (table, row) -> read.add(row));
+
+        assert read.size() == 3;
+        assert Arrays.equals((byte[]) read.get(0)[1], payload);
+        assert read.get(1)[1] == null;
+        assert ((byte[]) read.get(2)[1]).length == 0;
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldDetectCorruptChunk() throws IOException {
+        final List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1L, "needle", "Username", true, new Date()});
+        final byte[] raw = gunzip(write(10, rows));
+
+        final byte[] needle = "needle".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i + needle.length <= raw.length; i++) {
+            if (Arrays.equals(needle,
+                    Arrays.copyOfRange(raw, i, i + needle.length))) {
+                raw[i] = 'N';
+            }
+        }
+
+        ColumnarReader.read(new ByteArrayInputStream(gzip(raw)), null);
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectOtherFiles() throws IOException {
+        ColumnarReader.read(new ByteArrayInputStream(
+                gzip("Not an export".getBytes(StandardCharsets.UTF_8))),
+                null);
+    }
+
+    private static byte[] write(final int rowGroupSize,
+                                final List<Object[]> rows)
+            throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ColumnarWriter writer = new ColumnarWriter(out, rowGroupSize)) {
+            writer.startTable("answers", NAMES, TYPES);
+            for (Object[] row : rows) {
+                writer.addRow(row);
+            }
+            writer.endTable();
+            writer.startTable("empty", NAMES, TYPES);
+            writer.endTable();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(final byte[] file) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(file))) {
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gzip(final byte[] raw) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(raw);
+        }
+        return out.toByteArray();
+    }
+}
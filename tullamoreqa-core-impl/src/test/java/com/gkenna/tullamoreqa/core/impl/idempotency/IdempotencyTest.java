@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IdempotencyTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private ResponseEntity<?> created() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setLocation(URI.create("/question/" + calls.incrementAndGet()));
+        return new ResponseEntity<String>(headers, HttpStatus.CREATED);
+    }
+
+    @Test
+    public void shouldReplayFirstResponseToRepeats() throws Exception {
+        final Idempotency idempotency = new Idempotency(
+                new InMemoryIdempotencyStore(10, 60000), 1000, new ObjectMapper());
+        final String key = idempotency.keyOf("question", "abc");
+
+        final ResponseEntity<?> first = idempotency.execute(key, "f", this::created);
+        final ResponseEntity<?> repeat = idempotency.execute(key, "f", this::created);
+
+        assert calls.get() == 1;
+        assert repeat.getStatusCode() == HttpStatus.CREATED;
+        assert first.getHeaders().getLocation()
+                .equals(repeat.getHeaders().getLocation());
+        assert "true".equals(repeat.getHeaders()
+                .getFirst(StoredResponse.REPLAYED_HEADER));
+    }
+
+    @Test
+    public void shouldAnswerEveryRequestWithoutKey() throws Exception {
+        final Idempotency idempotency = new Idempotency(
+                new InMemoryIdempotencyStore(10, 60000), 1000, new ObjectMapper());
+
+        idempotency.execute(idempotency.keyOf("question", null), "f", this::created);
+        idempotency.execute(idempotency.keyOf("question", null), "f", this::created);
+
+        assert calls.get() == 2;
+    }
+
+    @Test
+    public void shouldKeepKeysPerEndpoint() throws Exception {
+        final Idempotency idempotency = new Idempotency(
+                new InMemoryIdempotencyStore(10, 60000), 1000, new ObjectMapper());
+
+        idempotency.execute(idempotency.keyOf("question", "abc"), "f", this::created);
+        idempotency.execute(idempotency.keyOf("answer", "abc"), "f", this::created);
+
+        assert calls.get() == 2;
+    }
+
+    @Test
+    public void shouldReleaseKeyWhenRequestFails() throws Exception {
+        final Idempotency idempotency = new Idempotency(
+                new InMemoryIdempotencyStore(10, 60000), 1000, new ObjectMapper());
+        final String key = idempotency.keyOf("question", "abc");
+
+        try {
+            idempotency.execute(key, "f", () -> {
+                throw new IllegalStateException("DB down");
+            });
+            assert false;
+        } catch (IllegalStateException e) {
+            // Expected.
+        }
+        idempotency.execute(key, "f", this::created);
+
+        assert calls.get() == 1;
+    }
+
+    @Test
+    public void shouldNotKeepServerErrors() throws Exception {
+        final Idempotency idempotency = new Idempotency(
+                new InMemoryIdempotencyStore(10, 60000), 1000, new ObjectMapper());
+        final String key = idempotency.keyOf("question", "abc");
+
+        idempotency.execute(key, "f",
+                () -> new ResponseEntity<String>(HttpStatus.SERVICE_UNAVAILABLE));
+        final ResponseEntity<?> retry = idempotency.execute(key, "f", this::created);
+
+        assert retry.getStatusCode() == HttpStatus.CREATED;
+        assert calls.get() == 1;
+    }
+
+    @Test
+    public void shouldMakeConcurrentRepeatWaitForFirst() throws Exception {
+        final Idempotency idempotency = new Idempotency(
+                new InMemoryIdempotencyStore(10, 60000), 5000, new ObjectMapper());
+        final String key = idempotency.keyOf("question", "abc");
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        final Future<ResponseEntity<?>> first = executor.submit(() ->
+                idempotency.execute(key, "f", () -> {
+                    started.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return created();
+                }));
+        started.await(5, TimeUnit.SECONDS);
+        final Future<ResponseEntity<?>> repeat = executor.submit(() ->
+                idempotency.execute(key, "f", this::created));
+        Thread.sleep(50);
+        assert !repeat.isDone();
+        release.countDown();
+
+        assert repeat.get().getHeaders().getLocation()
+                .equals(first.get().getHeaders().getLocation());
+        assert calls.get() == 1;
+        executor.shutdown();
+    }
+
+    @Test(expected = IdempotencyMismatchException.class)
+    public void shouldRefuseKeyReusedForAnotherBody() throws Exception {
+        final Idempotency idempotency = new Idempotency(
+                new InMemoryIdempotencyStore(10, 60000), 1000, new ObjectMapper());
+        final String key = idempotency.keyOf("question", "abc");
+
+        idempotency.execute(key, idempotency.fingerprintOf(key, "first"), this::created);
+        idempotency.execute(key, idempotency.fingerprintOf(key, "second"), this::created);
+    }
+
+    @Test(expected = IdempotencyConflictException.class)
+    public void shouldGiveUpWaitingForSlowFirst() throws Exception {
+        final InMemoryIdempotencyStore store =
+                new InMemoryIdempotencyStore(10, 60000);
+        assert store.claim("abc", "f", 0) == null;
+
+        store.claim("abc", "f", 10);
+    }
+
+    @Test(expected = InvalidIdempotencyKeyException.class)
+    public void shouldRefuseOverlongKey() {
+        new Idempotency(new InMemoryIdempotencyStore(10, 60000), 1000, new ObjectMapper())
+                .keyOf("question", new String(
+                        new char[Idempotency.MAX_KEY_LENGTH + 1]).replace('\0', 'a'));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.idempotency;
+
+import org.junit.Test;
+
+public class InMemoryIdempotencyStoreTest {
+
+    private long now = 1000L;
+
+    private InMemoryIdempotencyStore newStore(final int maxKeys, final long ttl) {
+        return new InMemoryIdempotencyStore(maxKeys, ttl) {
+            @Override
+            protected long now() {
+                return now;
+            }
+        };
+    }
+
+    @Test
+    public void shouldReturnKeptResponse() throws Exception {
+        final InMemoryIdempotencyStore store = newStore(10, 100L);
+        assert store.claim("a", "f", 0) == null;
+        store.complete("a", new StoredResponse(201, "/question/1"));
+
+        final StoredResponse kept = store.claim("a", "f", 0);
+
+        assert kept.getStatus() == 201;
+        assert "/question/1".equals(kept.getLocation());
+    }
+
+    @Test(expected = IdempotencyMismatchException.class)
+    public void shouldRefuseClaimForAnotherRequest() throws Exception {
+        final InMemoryIdempotencyStore store = newStore(10, 100L);
+        store.claim("a", "f", 0);
+
+        store.claim("a", "g", 0);
+    }
+
+    @Test
+    public void shouldLetKeyBeClaimedAgainOnceExpired() throws Exception {
+        final InMemoryIdempotencyStore store = newStore(10, 100L);
+        store.claim("a", "f", 0);
+        store.complete("a", new StoredResponse(201, "/question/1"));
+        now += 100L;
+
+        assert store.claim("a", "f", 0) == null;
+    }
+
+    @Test
+    public void shouldForgetOldestWhenFull() throws Exception {
+        final InMemoryIdempotencyStore store = newStore(2, 100L);
+        for (String key : new String[]{"a", "b", "c"}) {
+            store.claim(key, "f", 0);
+            store.complete(key, new StoredResponse(201, "/" + key));
+        }
+
+        assert store.claim("a", "f", 0) == null;
+        assert store.claim("c", "f", 0) != null;
+    }
+
+    @Test
+    public void shouldLetReleasedKeyBeClaimed() throws Exception {
+        final InMemoryIdempotencyStore store = newStore(10, 100L);
+        store.claim("a", "f", 0);
+        store.release("a");
+
+        assert store.claim("a", "f", 0) == null;
+    }
+
+    @Test
+    public void shouldPurgeExpiredResponses() throws Exception {
+        final InMemoryIdempotencyStore store = newStore(10, 100L);
+        store.claim("a", "f", 0);
+        store.complete("a", new StoredResponse(201, "/a"));
+        now += 50L;
+        store.claim("b", "f", 0);
+        store.complete("b", new StoredResponse(201, "/b"));
+        now += 50L;
+
+        assert store.purge() == 1;
+        assert store.claim("b", "f", 0) != null;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.importer;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+public class ImportCheckpointTest {
+
+    private static Path checkpointFile() throws IOException {
+        return Files.createTempDirectory("tullamoreqa").resolve("import.checkpoint");
+    }
+
+    @Test
+    public void shouldOnlyMoveLinePastContiguousBatches() {
+        final ImportCheckpoint checkpoint = new ImportCheckpoint("dump", 10);
+
+        checkpoint.written(11, 20);
+        assert checkpoint.getLine() == 0;
+        assert checkpoint.isWritten(11);
+        assert !checkpoint.isWritten(1);
+
+        checkpoint.written(1, 10);
+        assert checkpoint.getLine() == 20;
+
+        checkpoint.written(21, 30);
+        assert checkpoint.getLine() == 30;
+    }
+
+    @Test
+    public void shouldResumeSavedCheckpointOfSameDump() throws IOException {
+        final Path path = checkpointFile();
+        final ImportCheckpoint checkpoint = new ImportCheckpoint("dump", 10);
+        checkpoint.written(1, 5);
+        checkpoint.written(11, 15);
+        checkpoint.getUsernames().add("Username");
+        checkpoint.save(path);
+
+        final ImportCheckpoint resumed = ImportCheckpoint.resume(path, "dump", 10);
+
+        assert resumed.getLine() == 5;
+        assert resumed.isWritten(11);
+        assert resumed.isWritten(15);
+        assert !resumed.isWritten(16);
+        assert resumed.getUsernames().isEmpty();
+        assert resumed.getDump().equals(checkpoint.getDump());
+    }
+
+    @Test
+    public void shouldIgnoreCheckpointInDirectoryOthersCanWrite() throws IOException {
+        final Path path = checkpointFile();
+        final ImportCheckpoint checkpoint = new ImportCheckpoint("dump", 10);
+        checkpoint.written(1, 5);
+        checkpoint.save(path);
+        Files.setPosixFilePermissions(path.getParent(), PosixFilePermissions.fromString("rwxrwxrwx"));
+
+        assert ImportCheckpoint.resume(path, "dump", 10).getLine() == 0;
+    }
+
+    @Test
+    public void shouldIdentifyDumpByPathAndSize() {
+        assert new ImportCheckpoint("dump", 10).getDump().equals(new ImportCheckpoint("dump", 10).getDump());
+        assert !new ImportCheckpoint("dump", 10).getDump().equals(new ImportCheckpoint("dump", 11).getDump());
+        assert new ImportCheckpoint("dump", 10).getDump().length() == 64;
+    }
+
+    @Test
+    public void shouldStartOverForAnotherDump() throws IOException {
+        final Path path = checkpointFile();
+        final ImportCheckpoint checkpoint = new ImportCheckpoint("dump", 10);
+        checkpoint.written(1, 5);
+        checkpoint.save(path);
+
+        assert ImportCheckpoint.resume(path, "dump", 11).getLine() == 0;
+        assert ImportCheckpoint.resume(path, "other", 10).getLine() == 0;
+    }
+
+    @Test
+    public void shouldStartOverWithoutCheckpoint() {
+        final ImportCheckpoint checkpoint = ImportCheckpoint.resume(
+                java.nio.file.Paths.get("does-not-exist.checkpoint"), "dump", 10);
+
+        assert checkpoint.getLine() == 0;
+        assert checkpoint.getEntryIds(RecordType.ANSWER).isEmpty();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.jobs;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class JobSchedulerTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    private LeaseLock lease;
+
+    private JobScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        lease = Mockito.mock(LeaseLock.class);
+        Mockito.when(lease.getOwner()).thenReturn("first");
+        Mockito.when(lease.getToken()).thenReturn(3L);
+        scheduler = new JobScheduler(jdbcTemplate, lease, true, 10000, 1000);
+    }
+
+    private void verifyRecorded(final JobStatus status) {
+        Mockito.verify(jdbcTemplate).update(Matchers.startsWith("INSERT INTO job_runs"),
+                Matchers.eq("archive"), Matchers.anyLong(), Matchers.eq("first"),
+                Matchers.eq(3L), Matchers.anyLong(), Matchers.eq(status.name()),
+                Matchers.any());
+    }
+
+    @Test
+    public void shouldNotRunWithoutTheLease() {
+        final AtomicInteger runs = new AtomicInteger();
+        Mockito.when(lease.isHeld()).thenReturn(false);
+        assert !scheduler.run("archive", runs::incrementAndGet);
+        assert runs.get() == 0;
+        Mockito.verifyZeroInteractions(jdbcTemplate);
+    }
+
+    @Test
+    public void shouldRunAndRecordWithTheLease() {
+        final AtomicInteger runs = new AtomicInteger();
+        Mockito.when(lease.isHeld()).thenReturn(true);
+        assert scheduler.run("archive", runs::incrementAndGet);
+        assert runs.get() == 1;
+        verifyRecorded(JobStatus.SUCCEEDED);
+    }
+
+    @Test
+    public void shouldRecordFailedRuns() {
+        Mockito.when(lease.isHeld()).thenReturn(true);
+        assert !scheduler.run("archive", () -> {
+            throw new IllegalStateException("Broken.");
+        });
+        verifyRecorded(JobStatus.FAILED);
+    }
+
+    @Test
+    public void shouldStopRunOnceTheLeaseIsLost() {
+        final AtomicInteger batches = new AtomicInteger();
+        Mockito.when(lease.isHeld()).thenReturn(true);
+        Mockito.when(lease.isCurrent(3L)).thenReturn(true, true, false);
+        assert !scheduler.run("archive", () -> {
+            while (true) {
+                scheduler.fence();
+                batches.incrementAndGet();
+            }
+        });
+        assert batches.get() == 2;
+        verifyRecorded(JobStatus.FENCED);
+    }
+
+    @Test
+    public void shouldNotFenceOutsideAJob() {
+        Mockito.when(lease.isCurrent(Matchers.anyLong())).thenReturn(false);
+        scheduler.fence();
+    }
+
+    @Test
+    public void shouldRunEverywhereWithoutLeaderElection() {
+        final AtomicInteger runs = new AtomicInteger();
+        scheduler = new JobScheduler(jdbcTemplate, lease, false, 10000, 1000);
+        Mockito.when(lease.isHeld()).thenReturn(false);
+        assert scheduler.run("archive", runs::incrementAndGet);
+        assert runs.get() == 1;
+    }
+}
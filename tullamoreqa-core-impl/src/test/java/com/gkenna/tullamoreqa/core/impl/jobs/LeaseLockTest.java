@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.jobs;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+public class LeaseLockTest {
+
+    private static final long TTL = 1000;
+
+    private LeaseTable table;
+
+    private long now;
+
+    private LeaseLock first;
+
+    private LeaseLock second;
+
+    @Before
+    public void setUp() {
+        table = new LeaseTable();
+        now = 10000;
+        first = lease("first");
+        second = lease("second");
+    }
+
+    private LeaseLock lease(final String owner) {
+        return new LeaseLock(table, "jobs", owner, TTL) {
+            @Override
+            protected long now() {
+                return now;
+            }
+        };
+    }
+
+    @Test
+    public void shouldBeHeldByOneInstanceAtATime() {
+        assert first.heartbeat();
+        assert !second.heartbeat();
+        assert first.isHeld();
+        assert !second.isHeld();
+        assert first.getToken() == 1;
+        assert first.isCurrent(1);
+    }
+
+    @Test
+    public void shouldRenewWithTheSameToken() {
+        first.heartbeat();
+        now += TTL / 2;
+        assert first.heartbeat();
+        now += TTL / 2;
+        assert first.heartbeat();
+        assert !second.heartbeat();
+        assert first.getToken() == 1;
+        assert table.expiresAt == now + TTL;
+    }
+
+    @Test
+    public void shouldHandOverOnceExpired() {
+        first.heartbeat();
+        now += TTL + 1;
+        assert !first.isHeld();
+        assert second.heartbeat();
+        assert second.getToken() == 2;
+        assert !first.isCurrent(1);
+    }
+
+    @Test
+    public void shouldNoticeLosingTheLease() {
+        first.heartbeat();
+        now += TTL + 1;
+        second.heartbeat();
+        assert !first.heartbeat();
+        assert first.getToken() == 0;
+        assert "second".equals(table.owner);
+    }
+
+    @Test
+    public void shouldHandOverAtOnceWhenReleased() {
+        first.heartbeat();
+        first.release();
+        assert !first.isHeld();
+        assert second.heartbeat();
+        assert second.getToken() == 2;
+    }
+
+    @Test
+    public void shouldLockTheLeaseWhenFencing() {
+        first.heartbeat();
+        assert first.isCurrent(1);
+        assert table.lastQuery.endsWith("FOR UPDATE");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRefuseLeaseWithoutTimeToLive() {
+        new LeaseLock(table, "jobs", "first", 0);
+    }
+
+    /**
+     * The job_leases row of one lease, run through its SQL.
+     */
+    private static final class LeaseTable extends JdbcTemplate {
+
+        private String owner;
+
+        private long token;
+
+        private long expiresAt;
+
+        private String lastQuery;
+
+        @Override
+        public int update(final String sql, final Object... args) {
+            if (sql.startsWith("INSERT")) {
+                if (owner != null) {
+                    throw new DuplicateKeyException(sql);
+                }
+                owner = (String) args[1];
+                token = 1;
+                expiresAt = (Long) args[2];
+                return 1;
+            }
+            if (sql.contains("token = token + 1")) {
+                if (expiresAt >= (Long) args[3]) {
+                    return 0;
+                }
+                owner = (String) args[0];
+                token++;
+                expiresAt = (Long) args[1];
+                return 1;
+            }
+            final boolean release = sql.contains("expires_at = 0");
+            final int offset = release ? 0 : 1;
+            if (!args[offset + 1].equals(owner)
+                    || (Long) args[offset + 2] != token) {
+                return 0;
+            }
+            expiresAt = release ? 0 : (Long) args[0];
+            return 1;
+        }
+
+        @Override
+        public SqlRowSet queryForRowSet(final String sql,
+                                        final Object... args) {
+            lastQuery = sql;
+            final SqlRowSet row = Mockito.mock(SqlRowSet.class);
+            Mockito.when(row.next()).thenReturn(owner != null, false);
+            Mockito.when(row.getString("owner")).thenReturn(owner);
+            Mockito.when(row.getLong("token")).thenReturn(token);
+            Mockito.when(row.getLong("expires_at")).thenReturn(expiresAt);
+            return row;
+        }
+    }
+}
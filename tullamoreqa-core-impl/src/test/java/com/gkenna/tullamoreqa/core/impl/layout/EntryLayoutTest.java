@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.layout;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+public class EntryLayoutTest {
+
+    @Test
+    public void shouldSelectEveryColumnFromEachLayout() {
+        assert EntryLayout.TABLE_PER_CLASS.select(EntryType.QUESTION).equals(
+                "SELECT id, version, body, created_at, last_updated_at,"
+                        + " created_by_username, mod_user_username, title"
+                        + " FROM questions ORDER BY id");
+        assert EntryLayout.JOINED.select(EntryType.ANSWER).equals(
+                "SELECT e.id, e.version, e.body, e.created_at,"
+                        + " e.last_updated_at, e.created_by_username,"
+                        + " e.mod_user_username, t.question_id,"
+                        + " t.chosen_answer FROM entry e JOIN answers t"
+                        + " ON t.id = e.id ORDER BY e.id");
+        assert EntryLayout.SINGLE_TABLE.select(EntryType.COMMENT).equals(
+                "SELECT id, version, body, created_at, last_updated_at,"
+                        + " created_by_username, mod_user_username, entry_id,"
+                        + " parent_type FROM entry"
+                        + " WHERE entry_type = 'Comment'"
+                        + " ORDER BY id");
+    }
+
+    @Test
+    public void shouldFilterSelectOnColumnOfItsTable() {
+        assert EntryLayout.TABLE_PER_CLASS.select(EntryType.ANSWER,
+                "question_id", 2).endsWith(
+                " FROM answers WHERE question_id IN (?, ?) ORDER BY id");
+        assert EntryLayout.JOINED.select(EntryType.COMMENT, "entry_id", 1)
+                .endsWith(" ON t.id = e.id WHERE t.entry_id IN (?)"
+                        + " ORDER BY e.id");
+        assert EntryLayout.JOINED.select(EntryType.QUESTION, "id", 1)
+                .endsWith(" WHERE e.id IN (?) ORDER BY e.id");
+        assert EntryLayout.SINGLE_TABLE.select(EntryType.QUESTION, "id", 3)
+                .endsWith(" WHERE entry_type = 'Question'"
+                        + " AND id IN (?, ?, ?) ORDER BY id");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectFilterWithoutValues() {
+        EntryLayout.JOINED.select(EntryType.ANSWER, "question_id", 0);
+    }
+
+    @Test
+    public void shouldInsertRootBeforeTypeWhenJoined() {
+        final Map<String, List<String>> inserts =
+                EntryLayout.JOINED.inserts(EntryType.QUESTION);
+
+        assert inserts.keySet().equals(new LinkedHashSet<>(
+                Arrays.asList("entry", "questions")));
+        assert inserts.get("entry").equals(EntryLayout.ROOT_COLUMNS);
+        assert inserts.get("questions").equals(Arrays.asList("id", "title"));
+    }
+
+    @Test
+    public void shouldInsertDiscriminatorIntoSingleTable() {
+        final Map<String, List<String>> inserts =
+                EntryLayout.SINGLE_TABLE.inserts(EntryType.ANSWER);
+
+        assert inserts.size() == 1;
+        assert inserts.get("entry").get(0).equals(EntryLayout.DISCRIMINATOR);
+        assert inserts.get("entry").containsAll(EntryLayout.ROOT_COLUMNS);
+        assert inserts.get("entry").contains("chosen_answer");
+    }
+
+    @Test
+    public void shouldListTablesOfEachLayout() {
+        assert EntryLayout.TABLE_PER_CLASS.getTables().equals(
+                Arrays.asList("questions", "answers", "comments"));
+        assert EntryLayout.JOINED.getTables().equals(
+                Arrays.asList("entry", "questions", "answers", "comments"));
+        assert EntryLayout.SINGLE_TABLE.getTables().equals(
+                Arrays.asList("entry"));
+        assert EntryLayout.of("joined") == EntryLayout.JOINED;
+    }
+
+    @Test
+    public void shouldBuildInsertWithParameterPerColumn() {
+        assert EntryLayoutMigrator.insertSql("tags",
+                Arrays.asList("name", "description")).equals(
+                "INSERT INTO tags (name, description) VALUES (?, ?)");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownLayout() {
+        EntryLayout.of("unknown");
+    }
+}
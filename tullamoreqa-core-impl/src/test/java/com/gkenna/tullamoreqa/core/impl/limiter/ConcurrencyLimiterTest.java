@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.limiter;
+
+import org.junit.Test;
+
+public class ConcurrencyLimiterTest {
+
+    private static final long FAST = 1000000L;
+
+    private static final long SLOW = 10000000L;
+
+    @Test
+    public void shouldRefuseReadsBeforeWrites() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 2, 50,
+                0.5);
+        for (int i = 0; i < 5; i++) {
+            assert limiter.tryAcquire(false);
+        }
+        assert !limiter.tryAcquire(false);
+        for (int i = 0; i < 5; i++) {
+            assert limiter.tryAcquire(true);
+        }
+        assert !limiter.tryAcquire(true);
+
+        assert limiter.getInFlight() == 10;
+        assert limiter.toMap().get("readsRejected").equals(1L);
+        assert limiter.toMap().get("writesRejected").equals(1L);
+    }
+
+    @Test
+    public void shouldRaiseLimitWhileLatencyHolds() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 2, 50,
+                0.8);
+        for (int i = 0; i < 100; i++) {
+            assert limiter.tryAcquire(true);
+            limiter.release(FAST, limiter.getLimit(), false);
+        }
+        assert limiter.getLimit() == 50;
+        assert limiter.getInFlight() == 0;
+    }
+
+    @Test
+    public void shouldLowerLimitWhenLatencyRises() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 2, 50,
+                0.8);
+        limiter.tryAcquire(true);
+        limiter.release(FAST, 20, false);
+        final int before = limiter.getLimit();
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire(true);
+            limiter.release(SLOW, limiter.getLimit(), false);
+        }
+        assert limiter.getLimit() < before;
+    }
+
+    @Test
+    public void shouldLeaveLimitWhenMostlyUnused() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 2, 50,
+                0.8);
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire(true);
+            limiter.release(i % 2 == 0 ? FAST : SLOW, 1, false);
+        }
+        assert limiter.getLimit() == 20;
+    }
+
+    @Test
+    public void shouldBackOffOnFailuresDownToMinimum() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 2, 50,
+                0.8);
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire(false);
+            limiter.release(FAST, 1, true);
+        }
+        assert limiter.getLimit() == 2;
+        assert limiter.toMap().get("dropped").equals(100L);
+    }
+
+    @Test
+    public void shouldTellReadsFromWrites() {
+        assert RepositoryLimiter.isRead("findById");
+        assert RepositoryLimiter.isRead("countByCreatedByUsername");
+        assert RepositoryLimiter.isRead("existsById");
+        assert !RepositoryLimiter.isRead("save");
+        assert !RepositoryLimiter.isRead("deleteInBatch");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectMaximumBelowMinimum() {
+        new ConcurrencyLimiter(10, 5, 4, 0.8);
+    }
+}
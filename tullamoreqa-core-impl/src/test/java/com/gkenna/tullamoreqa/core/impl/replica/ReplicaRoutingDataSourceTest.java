@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.replica;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support
+        .TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.Cookie;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private MockHttpServletRequest request;
+
+    private MockHttpServletResponse response;
+
+    @Before
+    public void setup() {
+        request = new MockHttpServletRequest();
+        response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(
+                new ServletRequestAttributes(request, response));
+    }
+
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    public void shouldSendReadsToHealthyReplica() throws SQLException {
+        final ReplicaRoutingDataSource routing = routing(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assert routing.determineCurrentLookupKey().equals("primary");
+        routing.checkHealth();
+        assert routing.getHealthy().equals(
+                Collections.singletonList("replica-0"));
+        assert routing.determineCurrentLookupKey().equals("replica-0");
+        assert routing.getRouted().get("replica-0") == 1L;
+    }
+
+    @Test
+    public void shouldSendReadsToPrimaryWhenReplicaUnhealthy()
+            throws SQLException {
+        final ReplicaRoutingDataSource routing = routing(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        routing.checkHealth();
+        assert routing.getHealthy().isEmpty();
+        assert routing.determineCurrentLookupKey().equals("primary");
+    }
+
+    @Test
+    public void shouldSendReadsToPrimaryWhilePinned() throws SQLException {
+        final ReplicaRoutingDataSource routing = routing(true);
+        routing.checkHealth();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        request.setCookies(new Cookie(ReadYourWrites.COOKIE,
+                String.valueOf(System.currentTimeMillis() + 60000L)));
+
+        assert routing.determineCurrentLookupKey().equals("primary");
+
+        request.setCookies(new Cookie(ReadYourWrites.COOKIE,
+                String.valueOf(System.currentTimeMillis() - 1L)));
+        assert routing.determineCurrentLookupKey().equals("replica-0");
+    }
+
+    @Test
+    public void shouldPinClientAfterWrite() throws SQLException {
+        final ReplicaRoutingDataSource routing = routing(true);
+        routing.checkHealth();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        assert routing.determineCurrentLookupKey().equals("primary");
+        assert response.getCookie(ReadYourWrites.COOKIE) != null;
+        assert ReadYourWrites.isPinned();
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assert routing.determineCurrentLookupKey().equals("primary");
+    }
+
+    private ReplicaRoutingDataSource routing(final boolean replicaHealthy)
+            throws SQLException {
+        final Connection connection = Mockito.mock(Connection.class);
+        Mockito.when(connection.isValid(Mockito.anyInt()))
+                .thenReturn(replicaHealthy);
+        final DataSource replica = Mockito.mock(DataSource.class);
+        Mockito.when(replica.getConnection()).thenReturn(connection);
+        return new ReplicaRoutingDataSource(Mockito.mock(DataSource.class),
+                Collections.singletonMap("replica-0", replica), 5000L, 1);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.schema;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+
+public class QueryFiltersTest {
+
+    @Test
+    public void shouldFollowJoinsBackToTheirEntity() {
+        final QueryFilters filters = QueryFilters.parse("SELECT DISTINCT a "
+                + "FROM Answer a INNER JOIN a.createdBy u "
+                + "WHERE u.username = ?1");
+
+        assert filters.getAliases().equals(Collections.singleton("a"));
+        assert filters.getEntity("a").equals("Answer");
+        assert filters.getPaths("a").equals(
+                Collections.singleton("createdBy.username"));
+    }
+
+    @Test
+    public void shouldFindFiltersOfSubqueries() {
+        final QueryFilters filters = QueryFilters.parse("SELECT c FROM "
+                + "Comment c WHERE ((c.parentType = "
+                + "com.gkenna.tullamoreqa.domain.ParentType.QUESTION "
+                + "AND c.parentId = ?1) OR c.parentId IN (SELECT a.id "
+                + "FROM Answer a WHERE a.question.id = ?1)) "
+                + "AND (SELECT COUNT(o) FROM Comment o "
+                + "WHERE o.parentId = c.parentId "
+                + "AND o.createdAt < c.createdAt) < ?2 "
+                + "ORDER BY c.parentId");
+
+        assert filters.getAliases().equals(new LinkedHashSet<>(
+                Arrays.asList("c", "a", "o")));
+        assert filters.getPaths("c").equals(new HashSet<>(
+                Arrays.asList("parentType", "parentId")));
+        assert filters.getPaths("a").equals(
+                Collections.singleton("question.id"));
+        assert filters.getPaths("o").equals(new HashSet<>(
+                Arrays.asList("parentId", "createdAt")));
+    }
+
+    @Test
+    public void shouldIgnoreUnfilteredJoinsAndMissingAliases() {
+        final QueryFilters filters = QueryFilters.parse("SELECT t.name, "
+                + "COUNT(q) FROM Question q JOIN q.tags t "
+                + "GROUP BY t.name ORDER BY COUNT(q) DESC");
+
+        assert filters.getPaths("q").isEmpty();
+        assert QueryFilters.parse("SELECT q FROM Question WHERE q.id = 1")
+                .getAliases().isEmpty();
+    }
+
+    @Test
+    public void shouldCoverTableWhenAnyFilteredColumnLeadsAnIndex() {
+        final HashSet<String> leading = new HashSet<>(
+                Arrays.asList("id", "parent_type"));
+
+        assert IndexCoverageCheck.covered(new HashSet<>(
+                Arrays.asList("entry_id", "parent_type")), leading);
+        assert !IndexCoverageCheck.covered(
+                Collections.singleton("entry_id"), leading);
+    }
+}
@@ -5,7 +5,12 @@
 package com.gkenna.tullamoreqa.core.impl.services;
 
 import com.gkenna.tullamoreqa.core.api.exceptions.AnswerNotFoundException;
+import com.gkenna.tullamoreqa.core.api.exceptions.VersionMismatchException;
 import com.gkenna.tullamoreqa.core.api.repositories.AnswerRepository;
+import com.gkenna.tullamoreqa.core.api.services.EntryService;
+import com.gkenna.tullamoreqa.core.impl.archive.QuestionArchive;
+import com.gkenna.tullamoreqa.core.impl.cache.CacheRegistry;
+import com.gkenna.tullamoreqa.core.impl.events.Outbox;
 import com.gkenna.tullamoreqa.domain.Answer;
 import com.gkenna.tullamoreqa.domain.Question;
 import com.gkenna.tullamoreqa.domain.User;
@@ -19,8 +24,13 @@ import org.mockito.MockitoAnnotations;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -35,10 +45,22 @@ public class AnswerServiceImplTest {
     private final Long answerId = new Long(String.valueOf(0));
     @Mock
     private AnswerRepository mockedAnswerRepo;
+    @Mock
+    private BulkInserter mockedBulkInserter;
+    @Mock
+    private ConditionalUpdater mockedConditionalUpdater;
+    @Mock
+    private Outbox mockedOutbox;
+    @Mock
+    private QuestionArchive mockedArchive;
+    @Mock
+    private EntryService mockedEntryService;
 
     public AnswerServiceImplTest() {
         MockitoAnnotations.initMocks(this);
-        answerService = new AnswerServiceImpl(mockedAnswerRepo);
+        answerService = new AnswerServiceImpl(mockedAnswerRepo,
+                mockedBulkInserter, mockedConditionalUpdater, mockedOutbox,
+                mockedArchive, new CacheRegistry(), mockedEntryService);
         answer = new Answer(null, null, null);
     }
 
@@ -71,7 +93,7 @@ public class AnswerServiceImplTest {
     }
 
     @Test
-    public void updateAnswer() throws AnswerNotFoundException {
+    public void updateAnswer() throws AnswerNotFoundException, VersionMismatchException {
         Question q = new Question();
         q.setTitle("Am I Updated?");
         q.setBody("Let's find out");
@@ -81,21 +103,32 @@ public class AnswerServiceImplTest {
 
         Answer updateAnswerToThis = new Answer(q, u, body);
 
-        when(mockedAnswerRepo.existsById(answerId)).thenReturn(true);
-        when(mockedAnswerRepo.getOne(answerId)).thenReturn(answer);
-        answerService.updateAnswer(answerId, updateAnswerToThis);
+        when(mockedConditionalUpdater.update(eq(Answer.class), eq(answerId), any(Map.class), isNull(Long.class))).thenReturn(true);
+        when(mockedAnswerRepo.findById(answerId)).thenReturn(Optional.of(updateAnswerToThis));
+        Answer updated = answerService.updateAnswer(answerId, updateAnswerToThis, null);
 
-        verify(mockedAnswerRepo).save(answer);
+        final Map<String, Object> values = new java.util.LinkedHashMap<>();
+        values.put("body", body);
+        values.put("question", q);
+        values.put("createdBy", u);
+        values.put("chosenAnswer", false);
+        verify(mockedConditionalUpdater).update(Answer.class, answerId, values, null);
 
-        assert answer.getQuestion().equals(q);
-        assert answer.getBody().equals(body);
-        assert answer.getCreatedBy().equals(u);
+        assert updated.getQuestion().equals(q);
+        assert updated.getBody().equals(body);
+        assert updated.getCreatedBy().equals(u);
     }
 
     @Test(expected = AnswerNotFoundException.class)
-    public void updateAnswerInvalidIdTest() throws AnswerNotFoundException {
+    public void updateAnswerInvalidIdTest() throws AnswerNotFoundException, VersionMismatchException {
         when(mockedAnswerRepo.existsById(answerId)).thenReturn(false);
-        answerService.updateAnswer(answerId, answer);
+        answerService.updateAnswer(answerId, answer, null);
+    }
+
+    @Test(expected = VersionMismatchException.class)
+    public void updateAnswerStaleVersionTest() throws AnswerNotFoundException, VersionMismatchException {
+        when(mockedAnswerRepo.existsById(answerId)).thenReturn(true);
+        answerService.updateAnswer(answerId, answer, 7L);
     }
 
     @Test
@@ -133,6 +166,14 @@ public class AnswerServiceImplTest {
         Answer a = answerService.getAnswer(answerId);
     }
 
+    @Test
+    public void getAnswerOfArchivedQuestion() throws AnswerNotFoundException {
+        when(mockedAnswerRepo.findById(answerId)).thenReturn(Optional.empty());
+        when(mockedArchive.restoreEntry(eq(answerId), any(Supplier.class))).thenReturn(answer);
+
+        assert answer.equals(answerService.getAnswer(answerId));
+    }
+
     @Test
     public void getAllAnswers() {
         List<Answer> listOfAnswers = new ArrayList<>();
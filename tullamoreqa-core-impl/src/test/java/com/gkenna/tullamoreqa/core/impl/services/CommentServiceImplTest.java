@@ -4,10 +4,57 @@
 
 package com.gkenna.tullamoreqa.core.impl.services;
 
+import com.gkenna.tullamoreqa.core.api.repositories.CommentRepository;
+import com.gkenna.tullamoreqa.core.api.services.EntryService;
+import com.gkenna.tullamoreqa.core.impl.archive.QuestionArchive;
+import com.gkenna.tullamoreqa.core.impl.cache.CacheRegistry;
+import com.gkenna.tullamoreqa.domain.Answer;
+import com.gkenna.tullamoreqa.domain.Comment;
+import com.gkenna.tullamoreqa.domain.Entry;
+import com.gkenna.tullamoreqa.domain.ParentType;
+import com.gkenna.tullamoreqa.domain.Question;
+import com.gkenna.tullamoreqa.domain.User;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.LazyInitializer;
 import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
 
 public class CommentServiceImplTest {
 
+    private final CommentServiceImpl commentService;
+
+    @Mock
+    private CommentRepository mockedCommentRepository;
+
+    @Mock
+    private ConditionalUpdater mockedConditionalUpdater;
+
+    @Mock
+    private QuestionArchive mockedArchive;
+
+    @Mock
+    private EntryService mockedEntryService;
+
+    public CommentServiceImplTest() {
+        MockitoAnnotations.initMocks(this);
+        commentService = new CommentServiceImpl(mockedCommentRepository,
+                mockedConditionalUpdater, mockedArchive, new CacheRegistry(), mockedEntryService);
+    }
+
     @Test
     public void addComment() {
     }
@@ -43,4 +90,71 @@ public class CommentServiceImplTest {
     @Test
     public void findCommentsByUser() {
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldGroupCommentThreadsQuestionFirst() {
+        final Comment onFirstAnswer = commentOn(Answer.class, 5L);
+        final Comment alsoOnFirstAnswer = commentOn(Answer.class, 5L);
+        final Comment onSecondAnswer = commentOn(Answer.class, 7L);
+        final Comment onQuestion = commentOn(Question.class, 9L);
+        when(mockedCommentRepository.findThreadsByQuestionId(9L, 2L))
+                .thenReturn(Arrays.asList(onFirstAnswer, alsoOnFirstAnswer,
+                        onSecondAnswer, onQuestion));
+
+        final Map<Long, List<Comment>> threads =
+                commentService.getCommentThreads(9L, 2);
+
+        assert onQuestion.getParentType() == ParentType.QUESTION;
+        assert threads.keySet().equals(new LinkedHashSet<>(
+                Arrays.asList(9L, 5L, 7L)));
+        assert threads.keySet().iterator().next() == 9L;
+        assert threads.get(9L).equals(Arrays.asList(onQuestion));
+        assert threads.get(5L).equals(
+                Arrays.asList(onFirstAnswer, alsoOnFirstAnswer));
+        assert threads.get(7L).equals(Arrays.asList(onSecondAnswer));
+    }
+
+    @Test
+    public void shouldLeaveOutQuestionWithoutComments() {
+        final Comment onAnswer = commentOn(Answer.class, 5L);
+        when(mockedCommentRepository.findThreadsByQuestionId(9L, 3L))
+                .thenReturn(Arrays.asList(onAnswer));
+
+        final Map<Long, List<Comment>> threads =
+                commentService.getCommentThreads(9L, 3);
+
+        assert threads.size() == 1;
+        assert threads.get(5L).equals(Arrays.asList(onAnswer));
+    }
+
+    @Test
+    public void shouldRestoreThreadsOfArchivedQuestion() {
+        final Comment onQuestion = commentOn(Question.class, 9L);
+        when(mockedCommentRepository.findThreadsByQuestionId(9L, 2L))
+                .thenReturn(Collections.emptyList());
+        when(mockedArchive.restoreEntry(eq(9L), any(Supplier.class)))
+                .thenReturn(Arrays.asList(onQuestion));
+
+        final Map<Long, List<Comment>> threads =
+                commentService.getCommentThreads(9L, 2);
+
+        assert threads.get(9L).equals(Arrays.asList(onQuestion));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectThreadsWithoutComments() {
+        commentService.getCommentThreads(9L, 0);
+    }
+
+    private static Comment commentOn(final Class<? extends Entry> type,
+                                     final long parentId) {
+        final Entry parent = mock(type,
+                withSettings().extraInterfaces(HibernateProxy.class));
+        final LazyInitializer initializer = mock(LazyInitializer.class);
+        when(initializer.getIdentifier()).thenReturn(parentId);
+        when(initializer.getImplementation()).thenReturn(mock(type));
+        when(((HibernateProxy) parent).getHibernateLazyInitializer())
+                .thenReturn(initializer);
+        return new Comment(parent, new User("Username"), "Body");
+    }
+}
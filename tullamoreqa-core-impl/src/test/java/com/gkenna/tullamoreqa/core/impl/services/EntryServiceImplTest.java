@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.services;
+
+import com.gkenna.tullamoreqa.core.api.repositories.EntryRepository;
+import com.gkenna.tullamoreqa.core.api.repositories.UserRepository;
+import com.gkenna.tullamoreqa.core.impl.archive.QuestionArchive;
+import com.gkenna.tullamoreqa.core.impl.cache.CacheRegistry;
+import com.gkenna.tullamoreqa.core.impl.votes.VoteLedger;
+import com.gkenna.tullamoreqa.domain.Entry;
+import com.gkenna.tullamoreqa.domain.Question;
+import com.gkenna.tullamoreqa.domain.User;
+import com.gkenna.tullamoreqa.domain.Vote;
+import com.gkenna.tullamoreqa.domain.VoteType;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+
+import java.util.Optional;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EntryServiceImplTest {
+
+    @InjectMocks
+    private EntryServiceImpl entryService;
+    @Mock
+    private EntryRepository mockedEntryRepository;
+    @Mock
+    private UserRepository mockedUserRepository;
+    @Mock
+    private VoteLedger mockedVoteLedger;
+    @Mock
+    private QuestionArchive mockedArchive;
+    @Spy
+    private CacheRegistry caches = new CacheRegistry();
+    @Mock
+    private ConditionalUpdater mockedConditionalUpdater;
+
+    private final User user = new User("voter");
+    private final Question question = new Question();
+
+    public EntryServiceImplTest() {
+        MockitoAnnotations.initMocks(this);
+        when(mockedVoteLedger.lock("voter")).thenReturn(true);
+        when(mockedUserRepository.findByUsername("voter")).thenReturn(user);
+        when(mockedEntryRepository.findById(1L)).thenReturn(Optional.of(question));
+    }
+
+    @Test
+    public void shouldCastFirstVote() {
+        final Vote vote = new Vote(user, VoteType.UPVOTE);
+
+        entryService.castVote(1L, vote);
+
+        assert question.getVotes().contains(vote);
+        verify(mockedEntryRepository).saveAndFlush(question);
+        verify(mockedConditionalUpdater).touch(Entry.class, 1L);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRefuseSecondVote() {
+        when(mockedVoteLedger.hasVoted(1L, "voter")).thenReturn(true);
+
+        try {
+            entryService.castVote(1L, new Vote(user, VoteType.UPVOTE));
+        } finally {
+            verify(mockedEntryRepository, never()).saveAndFlush(any());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRefuseVoteOfUnknownUser() {
+        entryService.castVote(1L, new Vote(new User("stranger"), VoteType.UPVOTE));
+    }
+
+    @Test
+    public void shouldWithdrawVote() {
+        entryService.deleteVote(1L, new Vote(user, VoteType.UPVOTE));
+
+        verify(mockedVoteLedger).withdraw(1L, "voter");
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.services;
+
+import com.gkenna.tullamoreqa.core.api.exceptions.InvalidPatchException;
+import org.junit.Test;
+
+import javax.persistence.Column;
+import javax.validation.constraints.NotBlank;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class MergePatchTest {
+
+    private final MergePatch mergePatch = new MergePatch(Patched.class)
+            .field("title", String.class)
+            .field("chosenAnswer", Boolean.class)
+            .field("summary", String.class)
+            .field("description", String.class);
+
+    @Test
+    public void shouldOnlyReturnPatchedColumns() throws InvalidPatchException {
+        final Map<String, Object> columns = mergePatch.toColumns(
+                Collections.singletonMap("title", "Fixed Title"));
+
+        assert columns.size() == 1;
+        assert columns.get("title").equals("Fixed Title");
+    }
+
+    @Test
+    public void shouldKeepPatchOrder() throws InvalidPatchException {
+        final Map<String, Object> patch = new LinkedHashMap<>();
+        patch.put("chosenAnswer", true);
+        patch.put("title", "Fixed Title");
+
+        final Map<String, Object> columns = mergePatch.toColumns(patch);
+
+        assert columns.keySet().iterator().next().equals("chosenAnswer");
+    }
+
+    @Test
+    public void shouldAcceptEmptyPatch() throws InvalidPatchException {
+        assert mergePatch.toColumns(new HashMap<>()).isEmpty();
+        assert mergePatch.toColumns(null).isEmpty();
+    }
+
+    @Test(expected = InvalidPatchException.class)
+    public void shouldRejectFieldNotWhitelisted() throws InvalidPatchException {
+        mergePatch.toColumns(Collections.singletonMap("createdAt", "2018"));
+    }
+
+    @Test(expected = InvalidPatchException.class)
+    public void shouldRejectClearingField() throws InvalidPatchException {
+        mergePatch.toColumns(Collections.singletonMap("title", null));
+    }
+
+    @Test(expected = InvalidPatchException.class)
+    public void shouldRejectClearingPrimitiveField() throws InvalidPatchException {
+        mergePatch.toColumns(Collections.singletonMap("chosenAnswer", null));
+    }
+
+    @Test(expected = InvalidPatchException.class)
+    public void shouldRejectClearingNonNullableColumn() throws InvalidPatchException {
+        mergePatch.toColumns(Collections.singletonMap("summary", null));
+    }
+
+    @Test
+    public void shouldClearNullableField() throws InvalidPatchException {
+        final Map<String, Object> columns = mergePatch.toColumns(
+                Collections.singletonMap("description", null));
+
+        assert columns.containsKey("description");
+        assert columns.get("description") == null;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRefuseToWhitelistUnknownField() {
+        new MergePatch(Patched.class).field("missing", String.class);
+    }
+
+    @Test(expected = InvalidPatchException.class)
+    public void shouldRejectBlankString() throws InvalidPatchException {
+        mergePatch.toColumns(Collections.singletonMap("title", "  "));
+    }
+
+    @Test(expected = InvalidPatchException.class)
+    public void shouldRejectWrongType() throws InvalidPatchException {
+        mergePatch.toColumns(Collections.singletonMap("chosenAnswer", "yes"));
+    }
+
+    private static class Patched {
+        @NotBlank
+        private String title;
+        private boolean chosenAnswer;
+        @Column(nullable = false)
+        private String summary;
+        private String description;
+    }
+}
@@ -7,25 +7,42 @@ package com.gkenna.tullamoreqa.core.impl.services;
 //import com.gkenna.tullamoreqa.core.api.exceptions.QuestionAlreadyExistsException;
 
 import com.gkenna.tullamoreqa.core.api.exceptions.QuestionNotFoundException;
+import com.gkenna.tullamoreqa.core.api.exceptions.VersionMismatchException;
 import com.gkenna.tullamoreqa.core.api.repositories.QuestionRepository;
+import com.gkenna.tullamoreqa.core.api.services.EntryService;
+import com.gkenna.tullamoreqa.core.impl.archive.QuestionArchive;
+import com.gkenna.tullamoreqa.core.impl.cache.CacheRegistry;
+import com.gkenna.tullamoreqa.core.impl.events.Outbox;
 import com.gkenna.tullamoreqa.domain.Question;
 import com.gkenna.tullamoreqa.domain.Tag;
 import com.gkenna.tullamoreqa.domain.User;
+import com.gkenna.tullamoreqa.domain.Vote;
+import com.gkenna.tullamoreqa.domain.VoteType;
+import com.gkenna.tullamoreqa.domain.events.ChangeType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Supplier;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 public class QuestionServiceImplTest {
@@ -39,6 +56,16 @@ public class QuestionServiceImplTest {
     @Mock
     private QuestionRepository mockedQuestionRepository;
     @Mock
+    private BulkInserter mockedBulkInserter;
+    @Mock
+    private ConditionalUpdater mockedConditionalUpdater;
+    @Mock
+    private Outbox mockedOutbox;
+    @Mock
+    private QuestionArchive mockedArchive;
+    @Mock
+    private EntryService mockedEntryService;
+    @Mock
     private Set<Tag> tags;
     @Mock
     private User user;
@@ -47,7 +74,9 @@ public class QuestionServiceImplTest {
 
     public QuestionServiceImplTest() {
         MockitoAnnotations.initMocks(this);
-        questionService = new QuestionServiceImpl(mockedQuestionRepository);
+        questionService = new QuestionServiceImpl(mockedQuestionRepository,
+                new CacheRegistry(), mockedBulkInserter,
+                mockedConditionalUpdater, mockedOutbox, mockedArchive, mockedEntryService);
     }
 
     @Test
@@ -59,6 +88,65 @@ public class QuestionServiceImplTest {
         questionService.addQuestion(question);
 
         verify(mockedQuestionRepository).saveAndFlush(question);
+        verify(mockedOutbox).record(Question.class, question.getId(), ChangeType.CREATED);
+    }
+
+    @Test
+    public void shouldDropRestoredQuestionAtAnotherVersion() throws QuestionNotFoundException {
+        final CacheRegistry caches = new CacheRegistry();
+        final QuestionServiceImpl service = new QuestionServiceImpl(mockedQuestionRepository,
+                caches, mockedBulkInserter, mockedConditionalUpdater, mockedOutbox, mockedArchive,
+                mockedEntryService);
+        final Question restored = new Question();
+        final Question current = new Question();
+        caches.questions().restore(1L, restored, System.currentTimeMillis());
+
+        when(mockedQuestionRepository.findVersionById(restored.getId())).thenReturn(1L);
+        when(mockedQuestionRepository.existsById(1L)).thenReturn(true);
+        when(mockedQuestionRepository.findById(1L)).thenReturn(Optional.of(current));
+
+        assert service.getQuestion(1L) == current;
+    }
+
+    @Test
+    public void shouldKeepRestoredQuestionAtSameVersion() throws QuestionNotFoundException {
+        final CacheRegistry caches = new CacheRegistry();
+        final QuestionServiceImpl service = new QuestionServiceImpl(mockedQuestionRepository,
+                caches, mockedBulkInserter, mockedConditionalUpdater, mockedOutbox, mockedArchive,
+                mockedEntryService);
+        final Question restored = new Question();
+        caches.questions().restore(1L, restored, System.currentTimeMillis());
+
+        when(mockedQuestionRepository.findVersionById(restored.getId())).thenReturn(0L);
+
+        assert service.getQuestion(1L) == restored;
+        verify(mockedQuestionRepository, never()).findById(1L);
+    }
+
+    @Test
+    public void shouldNotRecordChangeOfStaleVersion() throws QuestionNotFoundException {
+        final Question question = new Question();
+
+        when(mockedConditionalUpdater.update(eq(Question.class), eq(question.getId()), any(Map.class), eq(2L))).thenReturn(false);
+        when(mockedQuestionRepository.existsById(question.getId())).thenReturn(true);
+
+        try {
+            questionService.updateQuestion(question.getId(), question, 2L);
+            assert false;
+        } catch (VersionMismatchException e) {
+            verify(mockedOutbox, never()).record(any(), any(), any());
+        }
+    }
+
+    @Test
+    public void shouldAddQuestionsInBulk() {
+        final List<Question> questions = new ArrayList<>();
+        questions.add(new Question());
+        questions.add(new Question());
+
+        questionService.addQuestions(questions);
+
+        verify(mockedBulkInserter).insert(eq(questions), any());
     }
 
     @Test
@@ -123,34 +211,59 @@ public class QuestionServiceImplTest {
     }
 
     @Test
-    public void shouldUpdateValidQuestionSuccessfully() throws QuestionNotFoundException {
+    public void shouldUpdateValidQuestionSuccessfully() throws QuestionNotFoundException, VersionMismatchException {
         final Question question = new Question();
+        question.setTitle("Updated Title");
 
-        when(mockedQuestionRepository.existsById(question.getId())).thenReturn(true);
+        when(mockedConditionalUpdater.update(eq(Question.class), eq(question.getId()), any(Map.class), isNull(Long.class))).thenReturn(true);
 
         when(mockedQuestionRepository.findById(question.getId())).thenReturn(java.util.Optional.ofNullable(question));
 
         final Question updated =
-                questionService.updateQuestion(question.getId(), question);
-
-        verify(mockedQuestionRepository).existsById(question.getId());
-        verify(mockedQuestionRepository).saveAndFlush(question);
+                questionService.updateQuestion(question.getId(), question, null);
 
+        verify(mockedQuestionRepository, never()).existsById(question.getId());
+        verify(mockedQuestionRepository).flush();
+        assert updated.equals(question);
     }
 
     @Test(expected = QuestionNotFoundException.class)
-    public void shouldThrowExceptionWhenUpdating() throws QuestionNotFoundException {
+    public void shouldThrowExceptionWhenUpdating() throws QuestionNotFoundException, VersionMismatchException {
         final Question question = new Question();
 
+        when(mockedConditionalUpdater.update(eq(Question.class), eq(question.getId()), any(Map.class), isNull(Long.class))).thenReturn(false);
         when(mockedQuestionRepository.existsById(question.getId())).thenReturn(false);
 
+        questionService.updateQuestion(question.getId(), question, null);
+    }
+
+    @Test(expected = VersionMismatchException.class)
+    public void shouldThrowExceptionWhenUpdatingStaleVersion() throws QuestionNotFoundException, VersionMismatchException {
+        final Question question = new Question();
+
+        when(mockedConditionalUpdater.update(eq(Question.class), eq(question.getId()), any(Map.class), eq(2L))).thenReturn(false);
+        when(mockedQuestionRepository.existsById(question.getId())).thenReturn(true);
+
+        questionService.updateQuestion(question.getId(), question, 2L);
+    }
+
+    @Test
+    public void shouldOnlyPatchGivenColumns() throws QuestionNotFoundException, VersionMismatchException {
+        final Question question = new Question();
+        final Question input = new Question();
+        input.setTitle("Patched Title");
+        input.setTags(null);
+        input.setVotes(null);
+
+        when(mockedConditionalUpdater.update(eq(Question.class), eq(question.getId()), any(Map.class), eq(1L))).thenReturn(true);
         when(mockedQuestionRepository.findById(question.getId())).thenReturn(java.util.Optional.ofNullable(question));
 
-        final Question updated =
-                questionService.updateQuestion(question.getId(), question);
+        questionService.patchQuestion(question.getId(), input, 1L);
 
-        verify(mockedQuestionRepository).existsById(question.getId());
-        verify(mockedQuestionRepository).saveAndFlush(question);
+        final Map<String, Object> values = new java.util.HashMap<>();
+        values.put("title", "Patched Title");
+        verify(mockedConditionalUpdater).update(Question.class, question.getId(), values, 1L);
+        verify(mockedQuestionRepository, never()).saveAndFlush(question);
     }
 
     @Test
@@ -173,6 +286,50 @@ public class QuestionServiceImplTest {
         questionService.getQuestion(question.getId());
     }
 
+    @Test
+    public void shouldRestoreArchivedQuestionWhenGettingIt() throws QuestionNotFoundException {
+        final Question question = new Question();
+        when(mockedQuestionRepository.existsById(question.getId())).thenReturn(false);
+        when(mockedArchive.restore(eq(question.getId()), any(Supplier.class))).thenAnswer(invocation -> ((Supplier<?>) invocation.getArguments()[1]).get());
+        when(mockedQuestionRepository.findById(question.getId())).thenReturn(java.util.Optional.ofNullable(question));
+
+        assert questionService.getQuestion(question.getId()).equals(question);
+
+        verify(mockedArchive).restore(eq(question.getId()), any(Supplier.class));
+    }
+
+    @Test
+    public void shouldCastAndWithdrawVotesThroughEntryService() {
+        final Vote vote = new Vote(user, VoteType.UPVOTE);
+
+        questionService.castVote(1L, vote);
+        questionService.deleteVote(1L, vote);
+
+        verify(mockedEntryService).castVote(1L, vote);
+        verify(mockedEntryService).deleteVote(1L, vote);
+    }
+
+    @Test
+    public void shouldNotRestoreArchivedQuestionsWhenSearching() {
+        when(mockedQuestionRepository.findByTitle("title", Pageable.unpaged())).thenReturn(new PageImpl<>(new ArrayList<>()));
+
+        questionService.findQuestionsByTitle("title", Pageable.unpaged());
+
+        verifyZeroInteractions(mockedArchive);
+    }
+
+    @Test
+    public void shouldDeleteArchivedQuestion() throws QuestionNotFoundException {
+        final Question question = new Question();
+        when(mockedQuestionRepository.existsById(question.getId())).thenReturn(false);
+        when(mockedArchive.delete(question.getId())).thenReturn(true);
+
+        questionService.deleteQuestion(question.getId());
+
+        verify(mockedQuestionRepository, never()).deleteById(question.getId());
+        verify(mockedOutbox).record(Question.class, question.getId(), ChangeType.DELETED);
+    }
+
     @Test
     public void shouldGetAllQuestionsSuccessfully() {
         final Question question = new Question();
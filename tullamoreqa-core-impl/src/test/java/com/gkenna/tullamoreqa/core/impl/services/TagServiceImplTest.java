@@ -4,9 +4,13 @@
 
 package com.gkenna.tullamoreqa.core.impl.services;
 
+import com.gkenna.tullamoreqa.core.api.exceptions.InvalidPatchException;
 import com.gkenna.tullamoreqa.core.api.exceptions.TagAlreadyExistsException;
 import com.gkenna.tullamoreqa.core.api.exceptions.TagNotFoundException;
+import com.gkenna.tullamoreqa.core.api.exceptions.VersionMismatchException;
 import com.gkenna.tullamoreqa.core.api.repositories.TagRepository;
+import com.gkenna.tullamoreqa.core.impl.cache.CacheRegistry;
+import com.gkenna.tullamoreqa.core.impl.events.Outbox;
 import com.gkenna.tullamoreqa.domain.Tag;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -16,8 +20,12 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -32,9 +40,18 @@ public class TagServiceImplTest {
     @Mock
     private TagRepository mockedTagRepository;
 
+    @Mock
+    private BulkInserter mockedBulkInserter;
+
+    @Mock
+    private ConditionalUpdater mockedConditionalUpdater;
+    @Mock
+    private Outbox mockedOutbox;
+
     public TagServiceImplTest() {
         MockitoAnnotations.initMocks(this);
-        tagService = new TagServiceImpl(mockedTagRepository);
+        tagService = new TagServiceImpl(mockedTagRepository, new CacheRegistry(),
+                mockedBulkInserter, mockedConditionalUpdater, mockedOutbox);
     }
 
     @Test
@@ -48,6 +65,46 @@ public class TagServiceImplTest {
         verify(mockedTagRepository).saveAndFlush(tag);
     }
 
+    @Test
+    public void shouldAddTagsInBulk() throws TagAlreadyExistsException {
+        final List<Tag> tags = new ArrayList<>();
+        tags.add(new Tag("Java"));
+        tags.add(new Tag("C++"));
+        when(mockedTagRepository.findAllById(any())).thenReturn(
+                new ArrayList<>());
+
+        tagService.addTags(tags);
+
+        verify(mockedBulkInserter).insert(eq(tags), any());
+    }
+
+    @Test(expected = TagAlreadyExistsException.class)
+    public void shouldNotAddAnyTagsInBulkIfOneExists()
+            throws TagAlreadyExistsException {
+        final List<Tag> tags = new ArrayList<>();
+        tags.add(new Tag("Java"));
+        tags.add(new Tag("Exists"));
+        final List<Tag> existing = new ArrayList<>();
+        existing.add(new Tag("Exists"));
+        when(mockedTagRepository.findAllById(any())).thenReturn(existing);
+
+        tagService.addTags(tags);
+    }
+
+    @Test(expected = TagAlreadyExistsException.class)
+    public void shouldNotAddAnyTagsInBulkIfOneIsGivenTwice()
+            throws TagAlreadyExistsException {
+        final List<Tag> tags = new ArrayList<>();
+        tags.add(new Tag("Java"));
+        tags.add(new Tag("Java"));
+
+        try {
+            tagService.addTags(tags);
+        } finally {
+            verify(mockedBulkInserter, never()).insert(any(), any());
+        }
+    }
+
     @Test
     public void shouldAddValidTagWithoutDescription() throws TagAlreadyExistsException {
         final Tag tag = new Tag("Java");
@@ -138,40 +195,74 @@ public class TagServiceImplTest {
     }
 
     @Test
-    public void shouldUpdateValidTagSuccessfully() throws TagNotFoundException {
-        when(mockedTagRepository.existsById("OriginalTag")).thenReturn(true);
-
-        final Tag originalTag = new Tag("OriginalTag");
-        originalTag.setDescription("Original Description");
+    public void shouldUpdateValidTagSuccessfully() throws TagNotFoundException, VersionMismatchException {
+        final Tag updatedTag = new Tag("OriginalTag");
+        updatedTag.setDescription("New Description");
 
-        when(mockedTagRepository.findById("OriginalTag")).thenReturn(java.util.Optional.ofNullable(originalTag));
+        when(mockedConditionalUpdater.update(Tag.class, "OriginalTag",
+                Collections.singletonMap("description", "New Description"), 4L)).thenReturn(true);
+        when(mockedTagRepository.findById("OriginalTag")).thenReturn(java.util.Optional.ofNullable(updatedTag));
 
         final Tag input = new Tag("OriginalTag");
         input.setDescription("New Description");
 
-        final Tag updated = tagService.updateTag("OriginalTag", input);
+        final Tag updated = tagService.updateTag("OriginalTag", input, 4L);
 
-        verify(mockedTagRepository).existsById("OriginalTag");
-        verify(mockedTagRepository).saveAndFlush(originalTag);
+        verify(mockedTagRepository, never()).existsById("OriginalTag");
 
         assert (updated.equals(input));
         assert (updated.getDescription().equals(input.getDescription()));
     }
 
     @Test(expected = TagNotFoundException.class)
-    public void shouldThrowExceptionWhenUpdating() throws TagNotFoundException {
+    public void shouldThrowExceptionWhenUpdating() throws TagNotFoundException, VersionMismatchException {
         when(mockedTagRepository.existsById("OriginalTag")).thenReturn(false);
 
-        final Tag originalTag = new Tag("OriginalTag");
-        originalTag.setDescription("Original Description");
+        final Tag input = new Tag("OriginalTag");
+        input.setDescription("New Description");
+
+        tagService.updateTag("OriginalTag", input, null);
+    }
+
+    @Test(expected = VersionMismatchException.class)
+    public void shouldThrowExceptionWhenUpdatingStaleVersion() throws TagNotFoundException, VersionMismatchException {
+        when(mockedTagRepository.existsById("OriginalTag")).thenReturn(true);
 
         final Tag input = new Tag("OriginalTag");
         input.setDescription("New Description");
 
-        final Tag updated = tagService.updateTag("OriginalTag", input);
+        tagService.updateTag("OriginalTag", input, 1L);
+    }
+
+    @Test
+    public void shouldMergePatchTagDescription() throws TagNotFoundException, VersionMismatchException, InvalidPatchException {
+        when(mockedConditionalUpdater.update(Tag.class, "OriginalTag",
+                Collections.singletonMap("description", "Patched Description"), 1L)).thenReturn(true);
+        when(mockedConditionalUpdater.updatedVersion(Tag.class, "OriginalTag", 1L)).thenReturn(2L);
+
+        final long version = tagService.patchTag("OriginalTag",
+                Collections.singletonMap("description", "Patched Description"), 1L);
+
+        verify(mockedTagRepository, never()).saveAndFlush(any(Tag.class));
+        verify(mockedTagRepository, never()).findById("OriginalTag");
+        assert version == 2L;
+    }
+
+    @Test
+    public void shouldClearTagDescription() throws TagNotFoundException, VersionMismatchException, InvalidPatchException {
+        when(mockedConditionalUpdater.update(Tag.class, "OriginalTag",
+                Collections.singletonMap("description", null), null)).thenReturn(true);
+
+        tagService.patchTag("OriginalTag", Collections.singletonMap("description", null), null);
+
+        verify(mockedConditionalUpdater).update(Tag.class, "OriginalTag",
+                Collections.singletonMap("description", null), null);
+    }
 
-        verify(mockedTagRepository).existsById("OriginalTag");
-        verify(mockedTagRepository).saveAndFlush(originalTag);
+    @Test(expected = InvalidPatchException.class)
+    public void shouldRejectPatchOfTagName() throws TagNotFoundException, VersionMismatchException, InvalidPatchException {
+        tagService.patchTag("OriginalTag",
+                Collections.singletonMap("name", "RenamedTag"), null);
     }
 
     @Test
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.shedding;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Map;
+
+public class LoadShedderTest {
+
+    private QueueDelayMonitor monitor;
+
+    private LoadShedder shedder;
+
+    @Before
+    public void setUp() {
+        final MockEnvironment environment = new MockEnvironment()
+                .withProperty("tullamoreqa.shedding.rules",
+                        "* /admin/** = critical, "
+                                + "POST|PUT /** = high, "
+                                + "GET /question/* user = high, "
+                                + "GET /** anonymous = low")
+                .withProperty("tullamoreqa.shedding.default-priority",
+                        "normal");
+        monitor = Mockito.mock(QueueDelayMonitor.class);
+        shedder = new LoadShedder(environment, monitor);
+    }
+
+    private MockHttpServletRequest request(final String method,
+                                           final String path) {
+        final MockHttpServletRequest request =
+                new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        return request;
+    }
+
+    @Test
+    public void shouldClassifyByFirstMatchingRule() {
+        assert shedder.classify(request("GET", "/admin/cache"))
+                == Priority.CRITICAL;
+        assert shedder.classify(request("POST", "/question"))
+                == Priority.HIGH;
+        assert shedder.classify(request("GET", "/question/1"))
+                == Priority.LOW;
+    }
+
+    @Test
+    public void shouldClassifyUsersApart() {
+        final MockHttpServletRequest request = request("GET", "/question/1");
+        request.setUserPrincipal(() -> "foo");
+
+        assert shedder.classify(request) == Priority.HIGH;
+    }
+
+    @Test
+    public void shouldNotTakeUnvalidatedCredentialsForUser() {
+        final MockHttpServletRequest request = request("GET", "/question/1");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Basic Zm9vOmJhcg==");
+
+        assert shedder.classify(request) == Priority.LOW;
+    }
+
+    @Test
+    public void shouldFallBackToDefaultPriority() {
+        final MockHttpServletRequest request = request("GET", "/tag/java");
+        request.setUserPrincipal(() -> "foo");
+
+        assert shedder.classify(request) == Priority.NORMAL;
+    }
+
+    @Test
+    public void shouldRefuseShedPrioritiesOnly() {
+        Mockito.when(monitor.isShed(Priority.LOW)).thenReturn(true);
+
+        assert !shedder.admit(Priority.LOW);
+        assert shedder.admit(Priority.NORMAL);
+        assert shedder.admit(Priority.CRITICAL);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldCountByPriority() {
+        Mockito.when(monitor.isShed(Priority.LOW)).thenReturn(true);
+        shedder.admit(Priority.LOW);
+        shedder.admit(Priority.HIGH);
+
+        final Map<String, Object> priorities =
+                (Map<String, Object>) shedder.toMap().get("priorities");
+        final Map<String, Object> low =
+                (Map<String, Object>) priorities.get("low");
+        final Map<String, Object> high =
+                (Map<String, Object>) priorities.get("high");
+        assert (Long) low.get("rejected") == 1L;
+        assert (Long) high.get("accepted") == 1L;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRefuseMalformedRule() {
+        new LoadShedder(new MockEnvironment()
+                .withProperty("tullamoreqa.shedding.rules", "GET = low"),
+                monitor);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.shedding;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class QueueDelayMonitorTest {
+
+    private static final long TARGET = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private long now = 1L;
+
+    private QueueDelayMonitor monitor;
+
+    @Before
+    public void setUp() {
+        monitor = new QueueDelayMonitor(20, 100) {
+            @Override
+            protected long now() {
+                return now;
+            }
+        };
+        monitor.getLevel();
+    }
+
+    @Test
+    public void shouldShedNothingWhileQueueDrains() {
+        monitor.record(TARGET * 10);
+        monitor.record(0);
+        now += INTERVAL;
+
+        assert monitor.getLevel() == 0;
+        assert !monitor.isShed(Priority.LOW);
+    }
+
+    @Test
+    public void shouldShedLowestPriorityFirstWhenQueueStands() {
+        monitor.record(TARGET * 2);
+        now += INTERVAL;
+
+        assert monitor.getLevel() == 1;
+        assert monitor.isShed(Priority.LOW);
+        assert !monitor.isShed(Priority.NORMAL);
+    }
+
+    @Test
+    public void shouldShedMoreSoonerWhileQueueKeepsStanding() {
+        monitor.record(TARGET * 2);
+        now += INTERVAL;
+        monitor.record(TARGET * 2);
+        now += INTERVAL;
+        assert monitor.getLevel() == 2;
+
+        monitor.record(TARGET * 2);
+        now += (long) (INTERVAL / Math.sqrt(2));
+
+        assert monitor.getLevel() == 3;
+        assert monitor.isShed(Priority.HIGH);
+        assert !monitor.isShed(Priority.CRITICAL);
+    }
+
+    @Test
+    public void shouldNeverShedCritical() {
+        for (int i = 0; i < 10; i++) {
+            monitor.record(TARGET * 2);
+            now += INTERVAL;
+        }
+
+        assert monitor.getLevel() == Priority.values().length - 1;
+        assert monitor.isShed(Priority.HIGH);
+        assert !monitor.isShed(Priority.CRITICAL);
+    }
+
+    @Test
+    public void shouldRelaxOnceQueueDrains() {
+        monitor.record(TARGET * 2);
+        now += INTERVAL;
+        monitor.record(TARGET * 2);
+        now += INTERVAL;
+        assert monitor.getLevel() == 2;
+
+        monitor.record(0);
+        now += INTERVAL;
+
+        assert monitor.getLevel() == 1;
+    }
+
+    @Test
+    public void shouldRelaxOneLevelPerIdleInterval() {
+        monitor.record(TARGET * 2);
+        now += INTERVAL;
+        monitor.record(TARGET * 2);
+        now += INTERVAL;
+        assert monitor.getLevel() == 2;
+
+        now += INTERVAL * 2;
+
+        assert monitor.getLevel() == 0;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRefuseEmptyInterval() {
+        new QueueDelayMonitor(20, 0);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.tenant;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ShardRoutingDataSourceTest {
+
+    private Shard primary;
+
+    private Shard other;
+
+    private TenantDirectory directory;
+
+    private ShardRoutingDataSource routing;
+
+    @Before
+    public void setup() throws SQLException {
+        primary = Mockito.mock(Shard.class);
+        other = Mockito.mock(Shard.class);
+        Mockito.when(primary.getConnection(null))
+                .thenReturn(Mockito.mock(Connection.class));
+        Mockito.when(other.getConnection(Mockito.anyString()))
+                .thenReturn(Mockito.mock(Connection.class));
+
+        directory = Mockito.mock(TenantDirectory.class);
+        Mockito.when(directory.shardOf(Tenants.DEFAULT))
+                .thenReturn(TenantDirectory.PRIMARY);
+        Mockito.when(directory.shardOf("acme")).thenReturn("other");
+        Mockito.when(directory.shardOf("nobody"))
+                .thenThrow(new UnknownTenantException("No tenant nobody."));
+
+        final Map<String, Shard> shards = new LinkedHashMap<>();
+        shards.put(TenantDirectory.PRIMARY, primary);
+        shards.put("other", other);
+        routing = new ShardRoutingDataSource(shards, directory);
+    }
+
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void shouldRouteDefaultTenantToPrimary() throws SQLException {
+        routing.getConnection();
+
+        Mockito.verify(primary).getConnection(null);
+        Mockito.verifyZeroInteractions(other);
+    }
+
+    @Test
+    public void shouldRouteTenantToItsSchemaOnItsShard() throws SQLException {
+        bind("acme");
+
+        routing.getConnection();
+
+        Mockito.verify(other).getConnection("tenant_acme");
+        Mockito.verifyZeroInteractions(primary);
+    }
+
+    @Test(expected = UnknownTenantException.class)
+    public void shouldRefuseUnknownTenant() throws SQLException {
+        bind("nobody");
+
+        routing.getConnection();
+    }
+
+    @Test(expected = TenantUnavailableException.class)
+    public void shouldRefuseMovingTenant() throws SQLException {
+        bind("acme");
+        Mockito.when(directory.isMoving("acme")).thenReturn(true);
+
+        routing.getConnection();
+    }
+
+    @Test
+    public void shouldCountOpenConnections() throws SQLException {
+        bind("acme");
+
+        final Connection first = routing.getConnection();
+        final Connection second = routing.getConnection();
+        assert routing.getOpenConnections("acme") == 2;
+        assert routing.getOpenConnections(Tenants.DEFAULT) == 0;
+
+        first.close();
+        first.close();
+        assert routing.getOpenConnections("acme") == 1;
+        second.close();
+        assert routing.getOpenConnections("acme") == 0;
+    }
+
+    @Test
+    public void shouldRouteConnectionAsUserToTenantShard() throws SQLException {
+        Mockito.when(other.getConnection("tenant_acme", "user", "secret"))
+                .thenReturn(Mockito.mock(Connection.class));
+        bind("acme");
+
+        routing.getConnection("user", "secret");
+
+        Mockito.verify(other).getConnection("tenant_acme", "user", "secret");
+        assert routing.getOpenConnections("acme") == 1;
+    }
+
+    @Test
+    public void shouldRouteWorkRunAsTenant() throws SQLException {
+        Tenants.as("acme", () -> {
+            try {
+                routing.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        routing.getConnection();
+
+        Mockito.verify(other).getConnection("tenant_acme");
+        Mockito.verify(primary).getConnection(null);
+    }
+
+    private void bind(final String tenant) {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(Tenants.ATTRIBUTE, tenant);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+}
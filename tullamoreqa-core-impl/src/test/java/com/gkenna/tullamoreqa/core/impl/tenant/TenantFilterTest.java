@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.tenant;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServletResponse;
+
+public class TenantFilterTest {
+
+    private TenantDirectory directory;
+
+    private TenantFilter filter;
+
+    @Before
+    public void setUp() {
+        directory = Mockito.mock(TenantDirectory.class);
+        Mockito.when(directory.isHosted("acme")).thenReturn(true);
+        Mockito.when(directory.isMember("acme", "alice")).thenReturn(true);
+        final TenantRouter router = Mockito.mock(TenantRouter.class);
+        Mockito.when(router.isEnabled()).thenReturn(true);
+        Mockito.when(router.getDirectory()).thenReturn(directory);
+        filter = new TenantFilter(router, "X-Tenant");
+    }
+
+    private MockHttpServletResponse filter(final MockHttpServletRequest request) throws Exception {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private MockHttpServletRequest request(final String tenant, final String username) {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-Tenant", tenant);
+        if (username != null) {
+            request.setUserPrincipal(() -> username);
+        }
+        return request;
+    }
+
+    @Test
+    public void shouldServeMemberOfTenant() throws Exception {
+        final MockHttpServletRequest request = request("acme", "alice");
+
+        assert filter(request).getStatus() == HttpServletResponse.SC_OK;
+        assert "acme".equals(request.getAttribute(Tenants.ATTRIBUTE));
+    }
+
+    @Test
+    public void shouldRefuseTenantWithoutAuthenticatedUser() throws Exception {
+        final MockHttpServletRequest request = request("acme", null);
+
+        assert filter(request).getStatus() == HttpServletResponse.SC_UNAUTHORIZED;
+        assert request.getAttribute(Tenants.ATTRIBUTE) == null;
+    }
+
+    @Test
+    public void shouldNotRevealTenantToOthers() throws Exception {
+        final MockHttpServletRequest request = request("acme", "mallory");
+
+        assert filter(request).getStatus() == HttpServletResponse.SC_NOT_FOUND;
+        assert request.getAttribute(Tenants.ATTRIBUTE) == null;
+    }
+
+    @Test
+    public void shouldServeDefaultTenantWithoutHeader() throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+
+        assert filter(request).getStatus() == HttpServletResponse.SC_OK;
+        assert request.getAttribute(Tenants.ATTRIBUTE) == null;
+    }
+}
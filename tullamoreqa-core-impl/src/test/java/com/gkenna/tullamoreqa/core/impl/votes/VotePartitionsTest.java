@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.core.impl.votes;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+public class VotePartitionsTest {
+
+    private static final Duration WEEK = Duration.ofDays(7);
+
+    @Test
+    public void shouldAlignPartitionsToTheEpoch() {
+        final Instant start = Instant.EPOCH.plus(WEEK.multipliedBy(2500));
+
+        assert VotePartitions.start(start, WEEK).equals(start);
+        assert VotePartitions.start(start.plusMillis(1), WEEK).equals(start);
+        assert VotePartitions.start(start.plus(WEEK).minusMillis(1), WEEK)
+                .equals(start);
+        assert VotePartitions.start(start.minusMillis(1), WEEK)
+                .equals(start.minus(WEEK));
+    }
+
+    @Test
+    public void shouldAlignVotesBeforeTheEpoch() {
+        assert VotePartitions.start(Instant.EPOCH.minusMillis(1), WEEK)
+                .equals(Instant.EPOCH.minus(WEEK));
+    }
+
+    @Test
+    public void shouldOnlyCompactPartitionsEndedBeforeRetention() {
+        final Instant start = Instant.EPOCH.plus(WEEK.multipliedBy(2500));
+        final Instant now = start.plus(Duration.ofDays(93));
+
+        assert VotePartitions.horizon(now, Duration.ofDays(90), WEEK)
+                .equals(start);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRefuseEmptyPartitions() {
+        VotePartitions.start(Instant.EPOCH, Duration.ZERO);
+    }
+}
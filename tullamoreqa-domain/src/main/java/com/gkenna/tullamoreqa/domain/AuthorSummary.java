@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.domain;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A lightweight summary of a {@link User} as an author, shown alongside
+ * the {@link Question}s and {@link Answer}s they have written. This is not
+ * an entity, it is built from the {@link User} and their activity counts.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public class AuthorSummary implements Serializable {
+
+    /**
+     * Username of the author.
+     */
+    private String username;
+
+    /**
+     * Display name of the author, i.e. first and second name.
+     */
+    private String displayName;
+
+    /**
+     * URL of the authors profile picture.
+     */
+    private String avatarURL;
+
+    /**
+     * Number of {@link Question}s the author has asked.
+     */
+    private long questionCount;
+
+    /**
+     * Number of {@link Answer}s the author has written.
+     */
+    private long answerCount;
+
+    /**
+     * Create a new AuthorSummary.
+     *
+     * @param user          The {@link User} being summarised.
+     * @param questionCount Number of Questions the User has asked.
+     * @param answerCount   Number of Answers the User has written.
+     */
+    public AuthorSummary(final User user, final long questionCount,
+                         final long answerCount) {
+        this.username = user.getUsername();
+        this.displayName = user.getFirstName() + " " + user.getSecondName();
+        this.avatarURL = user.getAvatarURL();
+        this.questionCount = questionCount;
+        this.answerCount = answerCount;
+    }
+
+    /**
+     * Default Constructor, used when deserializing.
+     */
+    protected AuthorSummary() {
+    }
+
+    /**
+     * Return the username of the author.
+     *
+     * @return Username of the author.
+     */
+    public final String getUsername() {
+        return username;
+    }
+
+    /**
+     * Return the display name of the author.
+     *
+     * @return Display name of the author.
+     */
+    public final String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Return the URL of the authors profile picture.
+     *
+     * @return URL of the authors profile picture.
+     */
+    public final String getAvatarURL() {
+        return avatarURL;
+    }
+
+    /**
+     * Return the number of Questions the author has asked.
+     *
+     * @return Number of Questions asked.
+     */
+    public final long getQuestionCount() {
+        return questionCount;
+    }
+
+    /**
+     * Return the number of Answers the author has written.
+     *
+     * @return Number of Answers written.
+     */
+    public final long getAnswerCount() {
+        return answerCount;
+    }
+
+    @Override
+    public final boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AuthorSummary)) {
+            return false;
+        }
+        final AuthorSummary that = (AuthorSummary) o;
+        return questionCount == that.questionCount
+                && answerCount == that.answerCount
+                && Objects.equals(username, that.username)
+                && Objects.equals(displayName, that.displayName)
+                && Objects.equals(avatarURL, that.avatarURL);
+    }
+
+    @Override
+    public final int hashCode() {
+        return Objects.hash(username, displayName, avatarURL, questionCount,
+                answerCount);
+    }
+
+    @Override
+    public final String toString() {
+        final StringBuilder sb = new StringBuilder("AuthorSummary{");
+        sb.append("username='").append(username).append('\'');
+        sb.append(", displayName='").append(displayName).append('\'');
+        sb.append(", avatarURL='").append(avatarURL).append('\'');
+        sb.append(", questionCount=").append(questionCount);
+        sb.append(", answerCount=").append(answerCount);
+        sb.append('}');
+        return sb.toString();
+    }
+}
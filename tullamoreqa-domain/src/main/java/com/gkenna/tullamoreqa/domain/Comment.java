@@ -6,11 +6,18 @@ package com.gkenna.tullamoreqa.domain;
 
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
+import org.hibernate.proxy.HibernateProxy;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
 import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
 import java.util.Objects;
 
@@ -23,7 +30,8 @@ import java.util.Objects;
  * @since 0.0.0
  */
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = @Index(name = "comments_parent_idx",
+        columnList = "parent_type, entry_id"))
 public final class Comment extends Entry {
 
     /**
@@ -36,6 +44,21 @@ public final class Comment extends Entry {
     @OnDelete(action = OnDeleteAction.CASCADE)
     private Entry parent;
 
+    /**
+     * The ID of the parent, mapped to the same column as the parent so it
+     * can be read without loading the parent.
+     */
+    @Column(name = "entry_id", insertable = false, updatable = false)
+    private Long parentId;
+
+    /**
+     * The type of the parent, so Comments can be found by the type and ID
+     * of their parent without joining every Entry table.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "parent_type", length = ParentType.MAX_LENGTH)
+    private ParentType parentType;
+
     /**
      * Default Constructor. Shouldn't be called.
      * See Effective Java (2nd+3rd Edition).
@@ -53,6 +76,54 @@ public final class Comment extends Entry {
     public Comment(final Entry parent, final User user, final String body) {
         super(user, body);
         this.parent = parent;
+        this.parentId = idOf(parent);
+        this.parentType = ParentType.of(parent);
+    }
+
+    /**
+     * Return the ID of the parent Entry.
+     *
+     * @return ID of the Question, Answer or Comment this Comment is on.
+     * @since 0.0.11
+     */
+    public Long getParentId() {
+        return parentId;
+    }
+
+    /**
+     * Return the type of the parent Entry.
+     *
+     * @return Type of the Entry this Comment is on.
+     * @since 0.0.11
+     */
+    public ParentType getParentType() {
+        return parentType;
+    }
+
+    /**
+     * Derive the ID and type of the parent from the parent itself before
+     * this Comment is written, however it was made, so they can't be left
+     * unset or go stale.
+     */
+    @PrePersist
+    @PreUpdate
+    private void deriveParent() {
+        this.parentId = idOf(parent);
+        this.parentType = ParentType.of(parent);
+    }
+
+    /**
+     * Return the ID of an Entry without initialising it if it is a proxy.
+     *
+     * @param entry The Entry, may be null.
+     * @return Its ID, or null.
+     */
+    private static Long idOf(final Entry entry) {
+        if (entry instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) entry)
+                    .getHibernateLazyInitializer().getIdentifier();
+        }
+        return entry == null ? null : entry.getId();
     }
 
     @Override
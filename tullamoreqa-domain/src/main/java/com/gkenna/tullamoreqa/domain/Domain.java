@@ -4,13 +4,16 @@
 
 package com.gkenna.tullamoreqa.domain;
 
+import java.io.Serializable;
+
 /**
- * Domain interface for all Domain classes.
+ * Domain interface for all Domain classes. Domain classes are
+ * {@link Serializable} so cached copies can be written to disk.
  *
  * @author Gavin Kenna
  * @since 0.0.11
  */
-public interface Domain {
+public interface Domain extends Serializable {
     /**
      * Patch the {@link Domain} with the given entity. Patch differs
      * from Update in that it checks what values are set in the update.
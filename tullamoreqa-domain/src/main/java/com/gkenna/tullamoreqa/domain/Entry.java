@@ -4,6 +4,11 @@
 
 package com.gkenna.tullamoreqa.domain;
 
+import com.gkenna.tullamoreqa.domain.id.NodeIdGenerator;
+import org.hibernate.annotations.Formula;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 
@@ -12,13 +17,13 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
+import javax.persistence.PrePersist;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 import javax.validation.constraints.NotBlank;
@@ -29,6 +34,11 @@ import java.util.Set;
 /**
  * An Abstract class that allows for Users to create
  * text based objects, i.e. Answers, Questions and Comments.
+ * <p>
+ * Mapped a table per class by default. A deployment may pick a joined or
+ * single table layout instead through the orm.xml mapping files under
+ * <tt>META-INF/entry-layout</tt>, which override the inheritance strategy
+ * set here.
  *
  * @author Gavin Kenna
  * @since 0.0.0
@@ -81,8 +91,36 @@ public abstract class Entry implements Domain {
      * The ID of the Entry.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = "entry-id")
+    @GenericGenerator(name = "entry-id", strategy = NodeIdGenerator.NAME,
+            parameters = @Parameter(
+                    name = SequenceStyleGenerator.SEQUENCE_PARAM,
+                    value = "entry_ids"))
     private Long id;
+    /**
+     * The version of the Entry, bumped by every conditional update, Vote
+     * cast or withdrawn and reply added, and served as its ETag. Not a JPA
+     * version, so Entries referenced from other requests by ID alone still
+     * merge.
+     */
+    @Column(nullable = false)
+    private long version;
+
+    /**
+     * Upvotes rolled up out of {@link #votes} once their partition was
+     * compacted, read from the Entry's vote_rollups row.
+     */
+    @Formula("(SELECT COALESCE(SUM(r.upvotes), 0) FROM vote_rollups r"
+            + " WHERE r.entry_id = id)")
+    private int rolledUpUpvotes;
+
+    /**
+     * Downvotes rolled up out of {@link #votes} once their partition was
+     * compacted, read from the Entry's vote_rollups row.
+     */
+    @Formula("(SELECT COALESCE(SUM(r.downvotes), 0) FROM vote_rollups r"
+            + " WHERE r.entry_id = id)")
+    private int rolledUpDownvotes;
 
     /**
      * Create a new Entry.
@@ -106,6 +144,16 @@ public abstract class Entry implements Domain {
         this.votes = new HashSet<>();
     }
 
+    /**
+     * Start the version of a new Entry at 0 when it is first written,
+     * whatever version it was built or deserialised with, so a version is
+     * only ever reached by updating the Entry.
+     */
+    @PrePersist
+    private void startVersion() {
+        this.version = 0;
+    }
+
     /**
      * Return the ID of the Entry.
      *
@@ -115,6 +163,15 @@ public abstract class Entry implements Domain {
         return id;
     }
 
+    /**
+     * Return the version of the Entry.
+     *
+     * @return Version of the Entry.
+     */
+    public final long getVersion() {
+        return version;
+    }
+
     /**
      * Return the User who created this Entry.
      *
@@ -152,12 +209,13 @@ public abstract class Entry implements Domain {
     }
 
     /**
-     * Return the Upvotes of the Entry.
+     * Return the Upvotes of the Entry, both those still cast individually
+     * and those rolled up.
      *
      * @return Upvotes of the Entry.
      */
     public final Integer getUpvotes() {
-        int upvotes = 0;
+        int upvotes = rolledUpUpvotes;
         for (Vote v : this.getVotes()) {
             if (v.getVoteType() == VoteType.UPVOTE) {
                 upvotes++;
@@ -167,12 +225,13 @@ public abstract class Entry implements Domain {
     }
 
     /**
-     * Return the Downvotes of the Entry.
+     * Return the Downvotes of the Entry, both those still cast
+     * individually and those rolled up.
      *
      * @return Downvotes of the Entry.
      */
     public final Integer getDownvotes() {
-        int downvotes = 0;
+        int downvotes = rolledUpDownvotes;
         for (Vote v : this.votes) {
             if (v.getVoteType() == VoteType.DOWNVOTE) {
                 downvotes++;
@@ -187,7 +246,8 @@ public abstract class Entry implements Domain {
      * @return Upvotes - Downvotes.
      */
     public final Integer getScore() {
-        int score = 0;
+        int score = rolledUpUpvotes * VoteType.UPVOTE.getVoteValue()
+                + rolledUpDownvotes * VoteType.DOWNVOTE.getVoteValue();
         for (Vote v : this.votes) {
            score += v.getVoteType().getVoteValue();
         }
@@ -215,10 +275,11 @@ public abstract class Entry implements Domain {
     /**
      * Return the Date and Time that this Entry was created.
      *
-     * @return Date and Time that this Entry was created.
+     * @return Date and Time that this Entry was created, a copy that is a
+     * plain Date however it was read.
      */
     public final Date getCreatedAt() {
-        return createdAt;
+        return createdAt == null ? null : new Date(createdAt.getTime());
     }
 
     /**
@@ -233,10 +294,12 @@ public abstract class Entry implements Domain {
     /**
      * Return the Date and Time that this Entry was last modified.
      *
-     * @return Date and Time that this Entry was last modified.
+     * @return Date and Time that this Entry was last modified, a copy that
+     * is a plain Date however it was read.
      */
     public final Date getLastUpdatedAt() {
-        return lastUpdatedAt;
+        return lastUpdatedAt == null ? null
+                : new Date(lastUpdatedAt.getTime());
     }
 
     /**
@@ -311,7 +374,7 @@ public abstract class Entry implements Domain {
     }
 
     /**
-     * Return the full set of Votes cast to this Entry.
+     * Return the Votes cast to this Entry that haven't been rolled up.
      * @return Set of Votes.
      */
     public final Set<Vote> getVotes() {
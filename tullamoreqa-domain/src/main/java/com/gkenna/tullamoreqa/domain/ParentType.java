@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.domain;
+
+import org.hibernate.Hibernate;
+
+/**
+ * ParentType Enum. Specifies what type of {@link Entry} a {@link Comment}
+ * is in response to, stored next to the ID of the parent so Comments can
+ * be found by parent without resolving the parent itself.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public enum ParentType {
+
+    /**
+     * A Comment on a {@link Question}.
+     */
+    QUESTION,
+
+    /**
+     * A Comment on an {@link Answer}.
+     */
+    ANSWER,
+
+    /**
+     * A Comment on another {@link Comment}.
+     */
+    COMMENT;
+
+    /**
+     * Longest name of a parent type, the length of its column.
+     */
+    public static final int MAX_LENGTH = 8;
+
+    /**
+     * Return the parent type of an Entry. A proxy of an Entry whose type
+     * isn't known yet is initialised to find it.
+     *
+     * @param entry The parent, may be a proxy.
+     * @return Its parent type, or null for null.
+     */
+    public static ParentType of(final Entry entry) {
+        if (entry == null) {
+            return null;
+        }
+        final Class<?> type = Hibernate.getClass(entry);
+        if (Question.class.isAssignableFrom(type)) {
+            return QUESTION;
+        }
+        if (Answer.class.isAssignableFrom(type)) {
+            return ANSWER;
+        }
+        if (Comment.class.isAssignableFrom(type)) {
+            return COMMENT;
+        }
+        return null;
+    }
+}
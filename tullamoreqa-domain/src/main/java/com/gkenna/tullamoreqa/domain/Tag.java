@@ -4,10 +4,10 @@
 
 package com.gkenna.tullamoreqa.domain;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
-import javax.validation.constraints.NotBlank;
 import java.util.Objects;
 
 /**
@@ -29,11 +29,17 @@ public class Tag implements Domain {
     private String name;
 
     /**
-     * Description of the Tag.
+     * Description of the Tag, if it has one.
      */
-    @NotBlank
     private String description;
 
+    /**
+     * The version of the Tag, bumped by every conditional update and
+     * served as its ETag.
+     */
+    @Column(nullable = false)
+    private long version;
+
     /**
      * Constructor of Tag. The name parameter will act as the ID.
      *
@@ -88,6 +94,15 @@ public class Tag implements Domain {
         this.description = description;
     }
 
+    /**
+     * Returns the version of the Tag.
+     *
+     * @return Version.
+     */
+    public final long getVersion() {
+        return version;
+    }
+
     @Override
     public final boolean equals(final Object o) {
         if (this == o) {
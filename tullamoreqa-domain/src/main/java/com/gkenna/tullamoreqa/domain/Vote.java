@@ -4,12 +4,15 @@
 
 package com.gkenna.tullamoreqa.domain;
 
+import com.gkenna.tullamoreqa.domain.id.NodeIdGenerator;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 import org.springframework.data.annotation.CreatedDate;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
@@ -37,7 +40,11 @@ public class Vote implements Domain {
      * ID of the Vote.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = "vote-id")
+    @GenericGenerator(name = "vote-id", strategy = NodeIdGenerator.NAME,
+            parameters = @Parameter(
+                    name = SequenceStyleGenerator.SEQUENCE_PARAM,
+                    value = "vote_ids"))
     private Long id;
 
     /**
@@ -160,6 +167,24 @@ public class Vote implements Domain {
         this.voteType = voteType;
     }
 
+    /**
+     * Get the {@link Entry} this Vote was cast on.
+     *
+     * @return The {@link Entry} being Voted on.
+     */
+    public final Entry getEntry() {
+        return entry;
+    }
+
+    /**
+     * Set the {@link Entry} this Vote is cast on.
+     *
+     * @param entry The {@link Entry} being Voted on.
+     */
+    public final void setEntry(final Entry entry) {
+        this.entry = entry;
+    }
+
     @Override
     public final boolean equals(final Object o) {
         if (this == o) {
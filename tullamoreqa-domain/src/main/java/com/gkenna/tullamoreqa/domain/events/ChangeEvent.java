@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.domain.events;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * A change to a single Domain entity, written to the outbox table in the
+ * same transaction as the change itself, so an event exists if and only if
+ * the change was committed. Events are relayed to subscribers after the
+ * fact and deleted once delivered.
+ * <p>
+ * Events only name the entity that changed, subscribers read its current
+ * state if they need it.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+@Entity
+@Table(name = "outbox")
+public class ChangeEvent implements Serializable {
+
+    /**
+     * Number of event IDs reserved from the sequence at once.
+     */
+    private static final int ALLOCATION_SIZE = 50;
+
+    /**
+     * ID of the event. Events are relayed in ID order.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE,
+            generator = "change-event-id")
+    @SequenceGenerator(name = "change-event-id", sequenceName = "outbox_ids",
+            allocationSize = ALLOCATION_SIZE)
+    private Long id;
+
+    /**
+     * Simple name of the type of entity that changed, i.e. 'Question'.
+     */
+    @Column(nullable = false)
+    private String aggregateType;
+
+    /**
+     * ID of the entity that changed.
+     */
+    @Column(nullable = false)
+    private String aggregateId;
+
+    /**
+     * What happened to the entity.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ChangeType changeType;
+
+    /**
+     * The {@link Date} the change was made.
+     */
+    @Column(nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date occurredAt;
+
+    /**
+     * Construct a ChangeEvent about an entity, occurring now.
+     *
+     * @param aggregateType Type of the entity that changed.
+     * @param aggregateId   ID of the entity that changed.
+     * @param changeType    What happened to the entity.
+     */
+    public ChangeEvent(final Class<?> aggregateType,
+                       final Object aggregateId,
+                       final ChangeType changeType) {
+        this.aggregateType = aggregateType.getSimpleName();
+        this.aggregateId = String.valueOf(aggregateId);
+        this.changeType = changeType;
+        this.occurredAt = new Date();
+    }
+
+    /**
+     * Default constructor of ChangeEvent.
+     */
+    protected ChangeEvent() {
+
+    }
+
+    /**
+     * Return the ID of this event.
+     *
+     * @return The ID of this event.
+     */
+    public final Long getId() {
+        return id;
+    }
+
+    /**
+     * Return the simple name of the type of entity that changed.
+     *
+     * @return The entity type, i.e. 'Question'.
+     */
+    public final String getAggregateType() {
+        return aggregateType;
+    }
+
+    /**
+     * Return the ID of the entity that changed.
+     *
+     * @return The entity ID.
+     */
+    public final String getAggregateId() {
+        return aggregateId;
+    }
+
+    /**
+     * Return what happened to the entity.
+     *
+     * @return Created, Updated or Deleted.
+     */
+    public final ChangeType getChangeType() {
+        return changeType;
+    }
+
+    /**
+     * Return the {@link Date} the change was made.
+     *
+     * @return The {@link Date} of the change.
+     */
+    public final Date getOccurredAt() {
+        return occurredAt;
+    }
+
+    /**
+     * Is this event about an entity of the given type.
+     *
+     * @param type Entity type.
+     * @return True if an entity of that type changed.
+     */
+    public final boolean isAbout(final Class<?> type) {
+        return type.getSimpleName().equals(aggregateType);
+    }
+
+    @Override
+    public final boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ChangeEvent)) {
+            return false;
+        }
+        ChangeEvent that = (ChangeEvent) o;
+        return Objects.equals(getId(), that.getId())
+                && Objects.equals(getAggregateType(), that.getAggregateType())
+                && Objects.equals(getAggregateId(), that.getAggregateId())
+                && getChangeType() == that.getChangeType();
+    }
+
+    @Override
+    public final int hashCode() {
+        return Objects.hash(getId(), getAggregateType(), getAggregateId(),
+                getChangeType());
+    }
+
+    @Override
+    public final String toString() {
+        final StringBuilder sb = new StringBuilder("ChangeEvent{");
+        sb.append("id=").append(id);
+        sb.append(", aggregateType='").append(aggregateType).append('\'');
+        sb.append(", aggregateId='").append(aggregateId).append('\'');
+        sb.append(", changeType=").append(changeType);
+        sb.append(", occurredAt=").append(occurredAt);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.domain.events;
+
+/**
+ * ChangeType Enum. Specifies what happened to the entity a
+ * {@link ChangeEvent} is about.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public enum ChangeType {
+
+    /**
+     * The entity was added.
+     */
+    CREATED,
+
+    /**
+     * The entity was updated or patched.
+     */
+    UPDATED,
+
+    /**
+     * The entity was deleted.
+     */
+    DELETED,
+
+    /**
+     * The entity was moved to the archive, it can still be read.
+     */
+    ARCHIVED,
+
+    /**
+     * The entity was moved back from the archive.
+     */
+    RESTORED
+}
@@ -0,0 +1,9 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+/**
+ * Change events written to the outbox alongside every change to a Domain
+ * entity, for derived data to be updated from.
+ */
+package com.gkenna.tullamoreqa.domain.events;
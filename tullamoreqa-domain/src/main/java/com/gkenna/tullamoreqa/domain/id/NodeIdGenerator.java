@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.domain.id;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Pluggable ID generator for {@link com.gkenna.tullamoreqa.domain.Entry}
+ * and {@link com.gkenna.tullamoreqa.domain.Vote}, so instances don't go to
+ * the Database for every new row. The strategy is chosen with the
+ * Hibernate setting {@value #STRATEGY_SETTING}:
+ * <ul>
+ * <li>{@value #POOLED_LO}, the default, reserves a block of
+ * {@value #BLOCK_SIZE} IDs from a Database sequence (or table, where
+ * sequences aren't supported) and hands them out from memory. The block
+ * size is fixed, as it has to match the increment the sequences are
+ * created with by the Flyway migrations; changing it needs a migration
+ * altering them.</li>
+ * <li>{@value #TIME_ORDERED} allocates IDs entirely in memory with a
+ * {@link TimeOrderedIdAllocator}, partitioned by
+ * {@value #NODE_ID_SETTING}, which has to be set, as two instances
+ * falling back to the same node would allocate the same IDs.</li>
+ * </ul>
+ * Either way IDs increase over time, so inserts stay at the end of the
+ * primary key index.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public class NodeIdGenerator extends SequenceStyleGenerator {
+
+    /**
+     * Fully qualified name, for use in
+     * {@link org.hibernate.annotations.GenericGenerator#strategy()}.
+     */
+    public static final String NAME =
+            "com.gkenna.tullamoreqa.domain.id.NodeIdGenerator";
+
+    /**
+     * Hibernate setting choosing the strategy.
+     */
+    public static final String STRATEGY_SETTING = "tullamoreqa.id.strategy";
+
+    /**
+     * Hibernate setting holding the ID of this node.
+     */
+    public static final String NODE_ID_SETTING = "tullamoreqa.id.node-id";
+
+    /**
+     * Number of IDs reserved at once, the increment of the sequences.
+     */
+    public static final int BLOCK_SIZE = 50;
+
+    /**
+     * Reserve blocks of IDs from the Database.
+     */
+    public static final String POOLED_LO = "pooled-lo";
+
+    /**
+     * Allocate time-ordered, node partitioned IDs in memory.
+     */
+    public static final String TIME_ORDERED = "time-ordered";
+
+    /**
+     * Allocates IDs when time ordered, null when reserving blocks.
+     */
+    private TimeOrderedIdAllocator allocator;
+
+    @Override
+    public final void configure(final Type type, final Properties params,
+                                final ServiceRegistry serviceRegistry)
+            throws MappingException {
+        final Map<?, ?> settings = serviceRegistry
+                .getService(ConfigurationService.class).getSettings();
+        final String strategy = setting(settings, STRATEGY_SETTING, POOLED_LO);
+
+        params.setProperty(OPT_PARAM, POOLED_LO);
+        params.setProperty(INCREMENT_PARAM, String.valueOf(BLOCK_SIZE));
+        super.configure(type, params, serviceRegistry);
+
+        if (TIME_ORDERED.equals(strategy)) {
+            allocator = new TimeOrderedIdAllocator(nodeId(settings));
+        } else if (!POOLED_LO.equals(strategy)) {
+            throw new MappingException("Unknown " + STRATEGY_SETTING + " '"
+                    + strategy + "', expected " + POOLED_LO + " or "
+                    + TIME_ORDERED);
+        }
+    }
+
+    @Override
+    public final Serializable generate(
+            final SharedSessionContractImplementor session,
+            final Object object) throws HibernateException {
+        if (allocator != null) {
+            return allocator.next();
+        }
+        return super.generate(session, object);
+    }
+
+    /**
+     * Return the ID of this node, which has to be set for time-ordered IDs.
+     *
+     * @param settings Hibernate settings.
+     * @return ID of this node.
+     * @throws MappingException If it is unset or not a number.
+     */
+    private static long nodeId(final Map<?, ?> settings) {
+        final String value = setting(settings, NODE_ID_SETTING, null);
+        if (value == null) {
+            throw new MappingException(STRATEGY_SETTING + " " + TIME_ORDERED
+                    + " needs " + NODE_ID_SETTING + " set, unique per"
+                    + " instance.");
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new MappingException(NODE_ID_SETTING + " '" + value
+                    + "' is not a number.", e);
+        }
+    }
+
+    /**
+     * Return a Hibernate setting, or its default if unset.
+     *
+     * @param settings     Hibernate settings.
+     * @param name         Name of the setting.
+     * @param defaultValue Value used if the setting is unset.
+     * @return Value of the setting.
+     */
+    private static String setting(final Map<?, ?> settings,
+                                  final String name,
+                                  final String defaultValue) {
+        final Object value = settings.get(name);
+        if (value == null || value.toString().trim().isEmpty()) {
+            return defaultValue;
+        }
+        return value.toString().trim();
+    }
+}
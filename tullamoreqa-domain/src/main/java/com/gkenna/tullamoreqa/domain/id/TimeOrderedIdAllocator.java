@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.domain.id;
+
+/**
+ * Allocates time-ordered, node-unique 64-bit IDs without going to the
+ * Database. Each ID is made up of, from most to least significant bit:
+ * <ul>
+ * <li>41 bits of milliseconds since {@link #EPOCH},</li>
+ * <li>10 bits of node ID, unique per instance,</li>
+ * <li>12 bits of sequence within the millisecond.</li>
+ * </ul>
+ * IDs of a node always increase. If the sequence of a millisecond runs out,
+ * or the clock goes backwards, the allocator carries on from the last
+ * millisecond it used rather than waiting for the clock.
+ *
+ * @author Gavin Kenna
+ * @since 0.0.11
+ */
+public class TimeOrderedIdAllocator {
+
+    /**
+     * Start of time for the timestamp bits, 2018-01-01T00:00:00Z.
+     */
+    public static final long EPOCH = 1514764800000L;
+
+    /**
+     * Number of bits holding the node ID.
+     */
+    public static final int NODE_BITS = 10;
+
+    /**
+     * Number of bits holding the sequence within a millisecond.
+     */
+    public static final int SEQUENCE_BITS = 12;
+
+    /**
+     * Highest allowed node ID.
+     */
+    public static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+
+    /**
+     * Highest sequence within a millisecond.
+     */
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+    /**
+     * Node ID, already shifted into place.
+     */
+    private final long nodeBits;
+
+    /**
+     * Millisecond of the last allocated ID.
+     */
+    private long lastMillis = -1L;
+
+    /**
+     * Sequence of the last allocated ID within its millisecond.
+     */
+    private long sequence;
+
+    /**
+     * Create a new TimeOrderedIdAllocator.
+     *
+     * @param nodeId ID of this node, between 0 and {@link #MAX_NODE_ID}.
+     */
+    public TimeOrderedIdAllocator(final long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node ID must be between 0"
+                    + " and " + MAX_NODE_ID + ", was " + nodeId);
+        }
+        this.nodeBits = nodeId << SEQUENCE_BITS;
+    }
+
+    /**
+     * Allocate the next ID.
+     *
+     * @return A new ID, greater than any this allocator returned before.
+     */
+    public synchronized long next() {
+        final long now = now();
+        if (now > lastMillis) {
+            lastMillis = now;
+            sequence = 0;
+        } else if (sequence < MAX_SEQUENCE) {
+            sequence++;
+        } else {
+            lastMillis++;
+            sequence = 0;
+        }
+        return ((lastMillis - EPOCH) << (NODE_BITS + SEQUENCE_BITS))
+                | nodeBits | sequence;
+    }
+
+    /**
+     * Return the node ID an ID was allocated on.
+     *
+     * @param id An allocated ID.
+     * @return Node ID of the ID.
+     */
+    public static long nodeOf(final long id) {
+        return (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+
+    /**
+     * Return the epoch millis an ID was allocated at.
+     *
+     * @param id An allocated ID.
+     * @return Epoch millis of the ID.
+     */
+    public static long millisOf(final long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    /**
+     * Current time, overridable for tests.
+     *
+     * @return Current epoch millis.
+     */
+    protected long now() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,8 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+/**
+ * Generation of IDs for Domain entities.
+ */
+package com.gkenna.tullamoreqa.domain.id;
@@ -29,4 +29,14 @@ public class CommentTest {
     @Test
     public void getId() {
     }
+
+    @Test
+    public void shouldDeriveParentTypeFromParent() {
+        final Question question = new Question();
+        final Answer answer = new Answer(question, new User("user"), "body");
+
+        assert new Comment(question, new User("user"), "body").getParentType() == ParentType.QUESTION;
+        assert new Comment(answer, new User("user"), "body").getParentType() == ParentType.ANSWER;
+        assert ParentType.of(null) == null;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.domain.id;
+
+import org.junit.Test;
+
+public class TimeOrderedIdAllocatorTest {
+
+    private long now = TimeOrderedIdAllocator.EPOCH + 1000L;
+
+    private TimeOrderedIdAllocator newAllocator(final long nodeId) {
+        return new TimeOrderedIdAllocator(nodeId) {
+            @Override
+            protected long now() {
+                return now;
+            }
+        };
+    }
+
+    @Test
+    public void shouldEncodeNodeAndTime() {
+        final long id = newAllocator(7).next();
+
+        assert TimeOrderedIdAllocator.nodeOf(id) == 7;
+        assert TimeOrderedIdAllocator.millisOf(id) == now;
+    }
+
+    @Test
+    public void shouldAlwaysIncrease() {
+        final TimeOrderedIdAllocator allocator = newAllocator(1);
+        long last = allocator.next();
+        for (int i = 0; i < 10000; i++) {
+            final long id = allocator.next();
+            assert id > last;
+            last = id;
+        }
+    }
+
+    @Test
+    public void shouldKeepIncreasingWhenClockGoesBack() {
+        final TimeOrderedIdAllocator allocator = newAllocator(1);
+        final long before = allocator.next();
+        now -= 500L;
+
+        assert allocator.next() > before;
+    }
+
+    @Test
+    public void shouldNotCollideAcrossNodes() {
+        assert newAllocator(1).next() != newAllocator(2).next();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNodeIdOutOfRange() {
+        newAllocator(TimeOrderedIdAllocator.MAX_NODE_ID + 1);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.it.controllers;
+
+import com.gkenna.tullamoreqa.core.api.exceptions.TagNotFoundException;
+import com.gkenna.tullamoreqa.core.api.services.TagService;
+import com.gkenna.tullamoreqa.core.impl.Application;
+import com.gkenna.tullamoreqa.core.impl.cache.CacheRegistry;
+import com.gkenna.tullamoreqa.core.impl.replica.ReadYourWrites;
+import com.gkenna.tullamoreqa.core.impl.replica.ReplicaRoutingDataSource;
+import com.gkenna.tullamoreqa.domain.Tag;
+import org.flywaydb.core.Flyway;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.sql.DataSource;
+
+/**
+ * Writes then reads through HTTP against a primary and a replica that are
+ * never synchronised, so the requests are handled on the bulkhead threads
+ * and which Database served a read shows in what it found. Each read is
+ * made by a client of its own, so it carries only the cookies it is given,
+ * and with the Tag cache emptied, so it reaches a Database.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class, webEnvironment =
+        SpringBootTest.WebEnvironment.RANDOM_PORT)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:http_primary;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "tullamoreqa.replicas.urls=" + ReplicaRoutingControllerIT.REPLICA_URL,
+        "tullamoreqa.replicas.health-check-millis=600000"})
+public class ReplicaRoutingControllerIT {
+    static final String REPLICA_URL = "jdbc:h2:mem:http_replica;DB_CLOSE_DELAY=-1";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private CacheRegistry caches;
+
+    private String tagEndpoint;
+
+    @Before
+    public void setup() {
+        final Flyway flyway = new Flyway();
+        flyway.setDataSource(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        flyway.setLocations("classpath:db/migration/table-per-class/h2");
+        flyway.clean();
+        flyway.migrate();
+
+        final ReplicaRoutingDataSource routing = (ReplicaRoutingDataSource)
+                ((LazyConnectionDataSourceProxy) dataSource).getTargetDataSource();
+        routing.checkHealth();
+        assert routing.getHealthy().contains("replica-0");
+
+        tagEndpoint = "http://localhost:" + this.port + "/tag";
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            tagService.deleteTag("Numberwang");
+        } catch (TagNotFoundException e) {
+            // Never added.
+        }
+    }
+
+    @Test
+    public void shouldReadOwnWritesThroughController() throws Exception {
+        ResponseEntity<String> added = testRestTemplate.postForEntity(tagEndpoint,
+                new Tag("Numberwang"), String.class);
+
+        assert added.getStatusCode() == HttpStatus.CREATED;
+        final String pin = added.getHeaders().get(HttpHeaders.SET_COOKIE).stream()
+                .filter(cookie -> cookie.startsWith(ReadYourWrites.COOKIE + "="))
+                .map(cookie -> cookie.split(";")[0])
+                .findFirst().orElse(null);
+        assert pin != null;
+
+        /*
+        The writer's next request carries the pin and reads the primary.
+         */
+        final HttpHeaders pinned = new HttpHeaders();
+        pinned.set(HttpHeaders.COOKIE, pin);
+        caches.tags().evictAll();
+        ResponseEntity<Tag> writer = new TestRestTemplate().exchange(tagEndpoint + "/Numberwang",
+                HttpMethod.GET, new HttpEntity<>(pinned), Tag.class);
+        assert writer.getStatusCode() == HttpStatus.OK;
+
+        /*
+        A client that didn't write reads the replica, which never got it.
+         */
+        caches.tags().evictAll();
+        ResponseEntity<Tag> other = new TestRestTemplate().getForEntity(
+                tagEndpoint + "/Numberwang", Tag.class);
+        assert other.getStatusCode() == HttpStatus.NOT_FOUND;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.it.controllers;
+
+import com.gkenna.tullamoreqa.core.api.repositories.TagRepository;
+import com.gkenna.tullamoreqa.core.impl.Application;
+import com.gkenna.tullamoreqa.core.impl.tenant.TenantMover;
+import com.gkenna.tullamoreqa.core.impl.tenant.TenantRouter;
+import com.gkenna.tullamoreqa.core.impl.tenant.Tenants;
+import com.gkenna.tullamoreqa.domain.Tag;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.security.Principal;
+
+/**
+ * Runs requests naming a tenant through HTTP, so they are handled on the
+ * bulkhead threads rather than the servlet threads the tenant is resolved
+ * on. The user of a request is taken from the {@value #USER} header.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {Application.class, TenantControllerIT.Users.class},
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:tenants_http;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.tullamoreqa.id.strategy=time-ordered",
+        "spring.jpa.properties.tullamoreqa.id.node-id=1",
+        "tullamoreqa.tenants.enabled=true",
+        "tullamoreqa.tenants.shards=a,b",
+        "tullamoreqa.tenants.shard.a.url=" + TenantControllerIT.SHARD_A_URL,
+        "tullamoreqa.tenants.shard.a.username=sa",
+        "tullamoreqa.tenants.shard.a.password=",
+        "tullamoreqa.tenants.shard.b.url=" + TenantControllerIT.SHARD_B_URL,
+        "tullamoreqa.tenants.shard.b.username=sa",
+        "tullamoreqa.tenants.shard.b.password=",
+        "tullamoreqa.tenants.reload-millis=100"})
+public class TenantControllerIT {
+    static final String SHARD_A_URL = "jdbc:h2:mem:http_shard_a;DB_CLOSE_DELAY=-1";
+
+    static final String SHARD_B_URL = "jdbc:h2:mem:http_shard_b;DB_CLOSE_DELAY=-1";
+
+    static final String USER = "X-User";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private TenantMover mover;
+
+    @Autowired
+    private TenantRouter router;
+
+    @Test
+    public void shouldKeepTenantsApartOverHttp() throws Exception {
+        mover.add("acme", "a");
+        mover.add("globex", "b");
+        router.getDirectory().addMember("acme", "alice");
+        router.getDirectory().addMember("globex", "alice");
+        final String tagEndpoint = "http://localhost:" + this.port + "/tag";
+
+        ResponseEntity<String> added = testRestTemplate.exchange(tagEndpoint, HttpMethod.POST,
+                new HttpEntity<>(new Tag("Numberwang"), headers("acme")), String.class);
+
+        assert added.getStatusCode() == HttpStatus.CREATED;
+        assert added.getHeaders().getLocation().toString().equals(tagEndpoint + "/Numberwang");
+        assert countTags(SHARD_A_URL, "acme", "Numberwang") == 1;
+        assert !tagRepository.existsById("Numberwang");
+
+        ResponseEntity<Tag> ownTenant = testRestTemplate.exchange(tagEndpoint + "/Numberwang",
+                HttpMethod.GET, new HttpEntity<>(headers("acme")), Tag.class);
+        assert ownTenant.getStatusCode() == HttpStatus.OK;
+
+        ResponseEntity<Tag> otherTenant = testRestTemplate.exchange(tagEndpoint + "/Numberwang",
+                HttpMethod.GET, new HttpEntity<>(headers("globex")), Tag.class);
+        assert otherTenant.getStatusCode() == HttpStatus.NOT_FOUND;
+
+        ResponseEntity<Tag> defaultTenant = testRestTemplate.getForEntity(
+                tagEndpoint + "/Numberwang", Tag.class);
+        assert defaultTenant.getStatusCode() == HttpStatus.NOT_FOUND;
+    }
+
+    private HttpHeaders headers(final String tenant) {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Tenant", tenant);
+        headers.set(USER, "alice");
+        return headers;
+    }
+
+    private int countTags(final String url, final String tenant, final String name) {
+        final JdbcTemplate shard = new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+        return shard.queryForObject("SELECT COUNT(*) FROM \"" + Tenants.schemaOf(tenant)
+                + "\".tags WHERE name = ?", Integer.class, name);
+    }
+
+    @TestConfiguration
+    static class Users {
+
+        @Bean
+        public FilterRegistrationBean<OncePerRequestFilter> userFilter() {
+            final FilterRegistrationBean<OncePerRequestFilter> output =
+                    new FilterRegistrationBean<>(new OncePerRequestFilter() {
+                @Override
+                protected void doFilterInternal(final HttpServletRequest request,
+                                                final HttpServletResponse response,
+                                                final FilterChain chain)
+                        throws ServletException, IOException {
+                    final String user = request.getHeader(USER);
+                    if (user == null) {
+                        chain.doFilter(request, response);
+                        return;
+                    }
+                    final Principal principal = () -> user;
+                    chain.doFilter(new HttpServletRequestWrapper(request) {
+                        @Override
+                        public Principal getUserPrincipal() {
+                            return principal;
+                        }
+                    }, response);
+                }
+            });
+            output.setOrder(Ordered.HIGHEST_PRECEDENCE);
+            return output;
+        }
+    }
+}
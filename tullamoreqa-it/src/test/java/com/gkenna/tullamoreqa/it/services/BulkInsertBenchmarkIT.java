@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.it.services;
+
+import com.gkenna.tullamoreqa.core.api.repositories.UserRepository;
+import com.gkenna.tullamoreqa.core.api.services.QuestionService;
+import com.gkenna.tullamoreqa.core.impl.Application;
+import com.gkenna.tullamoreqa.domain.Question;
+import com.gkenna.tullamoreqa.domain.User;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares rows per second of the single insert path, one addQuestion per
+ * Question, against the batched addQuestions bulk path.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class, webEnvironment =
+        SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class BulkInsertBenchmarkIT {
+    private static final Logger LOGGER = LogManager.getLogger(BulkInsertBenchmarkIT.class);
+
+    private static final int ROWS = 2000;
+
+    @Autowired
+    QuestionService questionService;
+
+    @Autowired
+    UserRepository userRepository;
+
+    private User user;
+
+    @Before
+    public void setup() {
+        user = new User("BulkInsertBenchmarkIT_Username");
+        userRepository.saveAndFlush(user);
+    }
+
+    @Test
+    public void bulkInsertShouldReturnIdsInOrder() {
+        final List<Question> questions = newQuestions(10, "Order");
+
+        final List<Long> ids = questionService.addQuestions(questions);
+
+        assert ids.size() == questions.size();
+        for (int i = 0; i < ids.size(); i++) {
+            assert ids.get(i) != null;
+            assert ids.get(i).equals(questions.get(i).getId());
+        }
+    }
+
+    @Test
+    public void compareSingleAndBulkInsert() {
+        // Warm both paths up so the comparison isn't dominated by JIT.
+        questionService.addQuestions(newQuestions(100, "WarmUp"));
+        for (Question question : newQuestions(100, "WarmUp")) {
+            questionService.addQuestion(question);
+        }
+
+        final List<Question> single = newQuestions(ROWS, "Single");
+        long start = System.nanoTime();
+        for (Question question : single) {
+            questionService.addQuestion(question);
+        }
+        final double singleRate = rowsPerSecond(System.nanoTime() - start);
+
+        final List<Question> bulk = newQuestions(ROWS, "Bulk");
+        start = System.nanoTime();
+        questionService.addQuestions(bulk);
+        final double bulkRate = rowsPerSecond(System.nanoTime() - start);
+
+        LOGGER.info("Inserted {} Questions: single {} rows/s, bulk {} rows/s ({}x).",
+                ROWS, String.format("%.0f", singleRate), String.format("%.0f", bulkRate),
+                String.format("%.1f", bulkRate / singleRate));
+        assert bulkRate > 0 && singleRate > 0;
+    }
+
+    private List<Question> newQuestions(final int count, final String prefix) {
+        final List<Question> output = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final Question question = new Question();
+            question.setTitle(prefix + " Title " + i);
+            question.setBody(prefix + " Body " + i);
+            question.setCreatedBy(user);
+            output.add(question);
+        }
+        return output;
+    }
+
+    private static double rowsPerSecond(final long nanos) {
+        return ROWS / (nanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.it.services;
+
+import com.gkenna.tullamoreqa.core.api.repositories.EntryRepository;
+import com.gkenna.tullamoreqa.core.api.repositories.UserRepository;
+import com.gkenna.tullamoreqa.core.impl.Application;
+import com.gkenna.tullamoreqa.core.impl.layout.EntryLayoutMigrator;
+import com.gkenna.tullamoreqa.domain.Answer;
+import com.gkenna.tullamoreqa.domain.Comment;
+import com.gkenna.tullamoreqa.domain.Entry;
+import com.gkenna.tullamoreqa.domain.Question;
+import com.gkenna.tullamoreqa.domain.User;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the latency of inserting Entries, looking a single Entry up by
+ * ID and listing a page of Entries, all polymorphic through the
+ * EntryRepository, under the Entry layout each subclass runs with.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public abstract class EntryLayoutBenchmark {
+    private static final Logger LOGGER = LogManager.getLogger(EntryLayoutBenchmark.class);
+
+    private static final int QUESTIONS = 300;
+
+    private static final int LOOKUPS = 2000;
+
+    private static final int PAGES = 200;
+
+    private static final int PAGE_SIZE = 50;
+
+    @Autowired
+    EntryRepository entryRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    EntryLayoutMigrator migrator;
+
+    private User user;
+
+    @Before
+    public void setup() {
+        user = new User(getClass().getSimpleName() + "_Username");
+        userRepository.saveAndFlush(user);
+    }
+
+    @Test
+    public void comparePolymorphicAccess() {
+        // Warm every path up so the comparison isn't dominated by JIT.
+        lookUp(insert(20));
+        list(10);
+
+        long start = System.nanoTime();
+        final List<Entry> entries = insert(QUESTIONS);
+        final double insertMicros = micros(System.nanoTime() - start, entries.size());
+
+        start = System.nanoTime();
+        lookUp(entries);
+        final double lookupMicros = micros(System.nanoTime() - start, LOOKUPS);
+
+        start = System.nanoTime();
+        list(PAGES);
+        final double listMicros = micros(System.nanoTime() - start, PAGES);
+
+        LOGGER.info("Entry layout {}: insert {}us/entry, lookup {}us/entry, list {}us/page of {}.",
+                migrator.getLayout().getName(), String.format("%.0f", insertMicros),
+                String.format("%.0f", lookupMicros), String.format("%.0f", listMicros), PAGE_SIZE);
+    }
+
+    private List<Entry> insert(final int questions) {
+        final List<Entry> output = new ArrayList<>();
+        for (int i = 0; i < questions; i++) {
+            final Question question = new Question();
+            question.setTitle("Layout Title " + i);
+            question.setBody("Layout Body " + i);
+            question.setCreatedBy(user);
+            output.add(entryRepository.saveAndFlush(question));
+
+            final Answer answer = new Answer(question, user, "Layout Answer " + i);
+            output.add(entryRepository.saveAndFlush(answer));
+            output.add(entryRepository.saveAndFlush(new Comment(answer, user, "Layout Comment " + i)));
+        }
+        return output;
+    }
+
+    private void lookUp(final List<Entry> entries) {
+        final Random random = new Random(entries.size());
+        for (int i = 0; i < LOOKUPS; i++) {
+            final Entry expected = entries.get(random.nextInt(entries.size()));
+            final Entry actual = entryRepository.findById(expected.getId()).orElse(null);
+            assert actual != null;
+            assert actual.getClass() == expected.getClass();
+        }
+    }
+
+    private void list(final int pages) {
+        final int available = (int) Math.max(1, entryRepository.count() / PAGE_SIZE);
+        for (int i = 0; i < pages; i++) {
+            assert !entryRepository.findAll(PageRequest.of(i % available, PAGE_SIZE)).getContent().isEmpty();
+        }
+    }
+
+    private static double micros(final long nanos, final int count) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos) / (double) count;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.it.services;
+
+import com.gkenna.tullamoreqa.core.api.repositories.QuestionRepository;
+import com.gkenna.tullamoreqa.core.api.repositories.TagRepository;
+import com.gkenna.tullamoreqa.core.api.repositories.UserRepository;
+import com.gkenna.tullamoreqa.core.impl.importer.ImportCheckpoint;
+import com.gkenna.tullamoreqa.core.impl.importer.ImportProgress;
+import com.gkenna.tullamoreqa.core.impl.importer.NdjsonImporter;
+import com.gkenna.tullamoreqa.domain.Question;
+import com.gkenna.tullamoreqa.it.AppConfiguration;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {AppConfiguration.class})
+public class NdjsonImportIT {
+
+    @Autowired
+    private NdjsonImporter importer;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldImportDumpAndResolveReferences() throws IOException {
+        final Path dump = Files.createTempFile("tullamoreqa-import", ".ndjson");
+        final List<String> lines = Arrays.asList(
+                "{\"type\":\"user\",\"username\":\"NdjsonImportIT_User\",\"email\":\"import@example.com\","
+                        + "\"firstName\":\"Import\",\"secondName\":\"User\",\"password\":\"secret\","
+                        + "\"avatarURL\":\"http://example.com/a.png\",\"description\":\"Imported\"}",
+                "{\"type\":\"tag\",\"name\":\"NdjsonImportIT_Tag\",\"description\":\"Imported Tag\"}",
+                "not json",
+                "{\"type\":\"question\",\"id\":100,\"createdBy\":\"NdjsonImportIT_User\","
+                        + "\"title\":\"Imported Title\",\"body\":\"Imported Body\",\"tags\":[\"NdjsonImportIT_Tag\"]}",
+                "{\"type\":\"question\",\"id\":101,\"createdBy\":\"Unknown_User\","
+                        + "\"title\":\"Orphan Title\",\"body\":\"Orphan Body\"}",
+                "{\"type\":\"answer\",\"id\":200,\"question\":100,\"createdBy\":\"NdjsonImportIT_User\","
+                        + "\"body\":\"Imported Answer\",\"chosenAnswer\":true}",
+                "{\"type\":\"comment\",\"id\":300,\"parent\":200,\"createdBy\":\"NdjsonImportIT_User\","
+                        + "\"body\":\"Imported Comment\"}");
+        Files.write(dump, lines, StandardCharsets.UTF_8);
+
+        final ImportProgress progress = importer.importFile(dump);
+
+        assert progress.getState() == ImportProgress.State.COMPLETED;
+        final Map<String, Object> metrics = progress.toMap();
+        final Map<String, Long> written = (Map<String, Long>) metrics.get("written");
+        assert written.get("user") == 1;
+        assert written.get("tag") == 1;
+        assert written.get("question") == 1;
+        assert written.get("answer") == 1;
+        assert written.get("comment") == 1;
+        assert (Long) metrics.get("skipped") == 2;
+
+        assert userRepository.findByUsername("NdjsonImportIT_User") != null;
+        assert tagRepository.existsById("NdjsonImportIT_Tag");
+        final List<Question> tagged = questionRepository.findAllByTagsName(
+                "NdjsonImportIT_Tag", Pageable.unpaged()).getContent();
+        assert tagged.size() == 1;
+        assert tagged.get(0).getTitle().equals("Imported Title");
+
+        Files.delete(dump);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldSkipBatchesCommittedByEarlierAttempt() throws IOException {
+        final String user = "{\"type\":\"user\",\"username\":\"NdjsonImportIT_Resumed\",\"email\":\"resumed@example.com\","
+                + "\"firstName\":\"Resumed\",\"secondName\":\"User\",\"password\":\"secret\","
+                + "\"avatarURL\":\"http://example.com/a.png\",\"description\":\"Imported\"}";
+        final Path first = Files.createTempFile("tullamoreqa-import", ".ndjson");
+        Files.write(first, Collections.singletonList(user), StandardCharsets.UTF_8);
+        assert importer.importFile(first).getState() == ImportProgress.State.COMPLETED;
+        Files.delete(first);
+
+        final Path dump = Files.createTempFile("tullamoreqa-import", ".ndjson");
+        Files.write(dump, Arrays.asList(user,
+                "{\"type\":\"question\",\"id\":400,\"createdBy\":\"NdjsonImportIT_Resumed\","
+                        + "\"title\":\"Resumed Title\",\"body\":\"Resumed Body\"}"), StandardCharsets.UTF_8);
+        final String id = new ImportCheckpoint(dump.toAbsolutePath().toString(), Files.size(dump)).getDump();
+        jdbcTemplate.update("INSERT INTO import_batches (dump, first_line, last_line) VALUES (?, 1, 1)", id);
+        jdbcTemplate.update("INSERT INTO import_refs (dump, kind, dump_key, new_id) VALUES (?, 'user', 'NdjsonImportIT_Resumed', NULL)", id);
+
+        final ImportProgress progress = importer.importFile(dump);
+
+        assert progress.getState() == ImportProgress.State.COMPLETED;
+        final Map<String, Long> written = (Map<String, Long>) progress.toMap().get("written");
+        assert written.get("user") == 0;
+        assert written.get("question") == 1;
+        assert jdbcTemplate.queryForObject("SELECT COUNT(*) FROM import_batches WHERE dump = ?", Long.class, id) == 0;
+        assert jdbcTemplate.queryForObject("SELECT COUNT(*) FROM import_refs WHERE dump = ?", Long.class, id) == 0;
+
+        Files.delete(dump);
+    }
+}
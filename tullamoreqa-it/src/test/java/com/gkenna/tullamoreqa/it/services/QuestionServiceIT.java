@@ -5,6 +5,7 @@
 package com.gkenna.tullamoreqa.it.services;
 
 import com.gkenna.tullamoreqa.core.api.exceptions.QuestionNotFoundException;
+import com.gkenna.tullamoreqa.core.api.exceptions.VersionMismatchException;
 import com.gkenna.tullamoreqa.core.api.repositories.QuestionRepository;
 import com.gkenna.tullamoreqa.core.api.repositories.TagRepository;
 import com.gkenna.tullamoreqa.core.api.repositories.UserRepository;
@@ -308,7 +309,7 @@ public class QuestionServiceIT {
 
     @Test
     @Transactional
-    public void shouldPartiallyUpdateQuestionSuccessfully() throws QuestionNotFoundException {
+    public void shouldPartiallyUpdateQuestionSuccessfully() throws QuestionNotFoundException, VersionMismatchException {
         final Calendar calendar = Calendar.getInstance();
         calendar.set(2008, 06, 15);
         final Date createdDate = calendar.getTime();
@@ -331,7 +332,7 @@ public class QuestionServiceIT {
 
         updatedQuestion.setVotes(votes);
 
-        questionService.patchQuestion(id, updatedQuestion);
+        questionService.patchQuestion(id, updatedQuestion, null);
 
         final Question returnQuestion = questionRepository.findById(id).get();
         LOGGER.info("Returned Question is {}", returnQuestion);
@@ -341,11 +342,12 @@ public class QuestionServiceIT {
         assert returnQuestion.getTitle().equals("OriginalTitle");
         assert returnQuestion.getCreatedAt().equals(createdDate);
         assert returnQuestion.getLastUpdatedAt().equals(modifiedAt);
+        assert returnQuestion.getVersion() == 1;
     }
 
     @Test
     @Transactional
-    public void shouldNotUpdateCreatedDate() throws QuestionNotFoundException {
+    public void shouldNotUpdateCreatedDate() throws QuestionNotFoundException, VersionMismatchException {
         final Calendar calendar = Calendar.getInstance();
         calendar.set(2008, 06, 15);
         final Date createdDate = calendar.getTime();
@@ -363,13 +365,37 @@ public class QuestionServiceIT {
         final Question updatedQuestion = new Question();
         updatedQuestion.setCreatedAt(modifiedAt);
 
-        questionService.updateQuestion(id, updatedQuestion);
+        questionService.updateQuestion(id, updatedQuestion, null);
 
         final Question returnQuestion = questionRepository.findById(id).get();
         assert returnQuestion.getCreatedAt().equals(createdDate);
         assert !returnQuestion.getCreatedAt().equals(modifiedAt);
     }
 
+    @Test
+    @Transactional
+    public void shouldOnlyUpdateQuestionAtExpectedVersion() throws QuestionNotFoundException, VersionMismatchException {
+        final Question originalQuestion = new Question();
+        originalQuestion.setTitle("OriginalTitle");
+        originalQuestion.setBody("Original Body");
+
+        final Long id = questionRepository.save(originalQuestion).getId();
+
+        final Question updatedQuestion = new Question();
+        updatedQuestion.setTitle("UpdatedTitle");
+
+        final Question output = questionService.patchQuestion(id, updatedQuestion, 0L);
+        assert output.getTitle().equals("UpdatedTitle");
+        assert output.getVersion() == 1;
+
+        try {
+            questionService.patchQuestion(id, updatedQuestion, 0L);
+            assert false;
+        } catch (VersionMismatchException e) {
+            assert questionRepository.findById(id).get().getVersion() == 1;
+        }
+    }
+
     @Test
     @Transactional
     public void editInValidQuestion() {
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.it.services;
+
+import com.gkenna.tullamoreqa.core.api.exceptions.TagNotFoundException;
+import com.gkenna.tullamoreqa.core.api.services.TagService;
+import com.gkenna.tullamoreqa.core.impl.replica.ReadYourWrites;
+import com.gkenna.tullamoreqa.core.impl.replica.ReplicaRoutingDataSource;
+import com.gkenna.tullamoreqa.domain.Tag;
+import com.gkenna.tullamoreqa.it.AppConfiguration;
+import org.flywaydb.core.Flyway;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.Cookie;
+import javax.sql.DataSource;
+
+/**
+ * Runs against two local H2 Databases, a primary and a replica, that are
+ * deliberately never synchronised, so which one served a read shows in
+ * what it found.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {AppConfiguration.class})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "tullamoreqa.replicas.urls=" + ReplicaRoutingIT.REPLICA_URL,
+        "tullamoreqa.replicas.health-check-millis=600000"})
+public class ReplicaRoutingIT {
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate replica;
+
+    private ReplicaRoutingDataSource routing;
+
+    @Before
+    public void setup() {
+        final DataSource replicaDataSource = new DriverManagerDataSource(REPLICA_URL, "sa", "");
+        final Flyway flyway = new Flyway();
+        flyway.setDataSource(replicaDataSource);
+        flyway.setLocations("classpath:db/migration/table-per-class/h2");
+        flyway.clean();
+        flyway.migrate();
+        replica = new JdbcTemplate(replicaDataSource);
+
+        routing = (ReplicaRoutingDataSource) ((LazyConnectionDataSourceProxy) dataSource).getTargetDataSource();
+        routing.checkHealth();
+        assert routing.getHealthy().contains("replica-0");
+    }
+
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        try {
+            tagService.deleteTag("Numberwang");
+        } catch (TagNotFoundException e) {
+            // Never added.
+        }
+    }
+
+    @Test
+    public void shouldReadFromReplica() {
+        replica.update("INSERT INTO tags (name, description, version) VALUES (?, ?, 0)",
+                "ReplicaOnly", "Only on the replica.");
+
+        assert tagService.doesTagExist("ReplicaOnly");
+
+        final long before = routing.getRouted().get("replica-0");
+        assert !tagService.doesTagExist("Numberwang");
+        assert routing.getRouted().get("replica-0") == before + 1;
+    }
+
+    @Test
+    public void shouldReadOwnWritesFromPrimary() throws Exception {
+        final MockHttpServletResponse writer = new MockHttpServletResponse();
+        bind(new MockHttpServletRequest(), writer);
+
+        tagService.addTag(new Tag("Numberwang"));
+
+        /*
+        Same request, pinned to the primary by having written.
+         */
+        assert tagService.doesTagExist("Numberwang");
+        final Cookie pin = writer.getCookie(ReadYourWrites.COOKIE);
+        assert pin != null;
+
+        /*
+        A client that didn't write reads the replica, which never got it.
+         */
+        bind(new MockHttpServletRequest(), new MockHttpServletResponse());
+        assert !tagService.doesTagExist("Numberwang");
+
+        /*
+        The writer's next request carries the pin and reads the primary.
+         */
+        final MockHttpServletRequest next = new MockHttpServletRequest();
+        next.setCookies(pin);
+        bind(next, new MockHttpServletResponse());
+        assert tagService.doesTagExist("Numberwang");
+    }
+
+    private void bind(final MockHttpServletRequest request, final MockHttpServletResponse response) {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+    }
+}
@@ -0,0 +1,14 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.it.services;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs the {@link EntryLayoutBenchmark} with a single table Entry layout.
+ */
+@TestPropertySource(properties = "tullamoreqa.entry.layout=single-table")
+public class SingleTableLayoutBenchmarkIT extends EntryLayoutBenchmark {
+}
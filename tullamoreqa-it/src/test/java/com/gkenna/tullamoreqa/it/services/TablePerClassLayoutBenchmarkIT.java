@@ -0,0 +1,14 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.it.services;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs the {@link EntryLayoutBenchmark} with a table per class Entry layout.
+ */
+@TestPropertySource(properties = "tullamoreqa.entry.layout=table-per-class")
+public class TablePerClassLayoutBenchmarkIT extends EntryLayoutBenchmark {
+}
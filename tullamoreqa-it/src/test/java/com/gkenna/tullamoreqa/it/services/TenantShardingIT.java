@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2018. Gavin Kenna
+ */
+
+package com.gkenna.tullamoreqa.it.services;
+
+import com.gkenna.tullamoreqa.core.api.services.TagService;
+import com.gkenna.tullamoreqa.core.impl.tenant.TenantMover;
+import com.gkenna.tullamoreqa.core.impl.tenant.TenantRouter;
+import com.gkenna.tullamoreqa.core.impl.tenant.Tenants;
+import com.gkenna.tullamoreqa.domain.Tag;
+import com.gkenna.tullamoreqa.it.AppConfiguration;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Runs against three local H2 Databases, the primary and shards 'a' and
+ * 'b', with tenants added on and moved between the shards.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {AppConfiguration.class})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:tenants;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.tullamoreqa.id.strategy=time-ordered",
+        "spring.jpa.properties.tullamoreqa.id.node-id=1",
+        "tullamoreqa.tenants.enabled=true",
+        "tullamoreqa.tenants.shards=a,b",
+        "tullamoreqa.tenants.shard.a.url=" + TenantShardingIT.SHARD_A_URL,
+        "tullamoreqa.tenants.shard.a.username=sa",
+        "tullamoreqa.tenants.shard.a.password=",
+        "tullamoreqa.tenants.shard.b.url=" + TenantShardingIT.SHARD_B_URL,
+        "tullamoreqa.tenants.shard.b.username=sa",
+        "tullamoreqa.tenants.shard.b.password=",
+        "tullamoreqa.tenants.shard.b.max-connections=2",
+        "tullamoreqa.tenants.reload-millis=100",
+        "tullamoreqa.tenants.drain-millis=5000"})
+public class TenantShardingIT {
+    static final String SHARD_A_URL = "jdbc:h2:mem:shard_a;DB_CLOSE_DELAY=-1";
+
+    static final String SHARD_B_URL = "jdbc:h2:mem:shard_b;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private TenantMover mover;
+
+    @Autowired
+    private TenantRouter router;
+
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void shouldKeepTenantsApart() throws Exception {
+        mover.add("acme", "a");
+        mover.add("globex", "b");
+
+        as("acme");
+        tagService.addTag(new Tag("Numberwang"));
+        assert tagService.doesTagExist("Numberwang");
+
+        as("globex");
+        assert !tagService.doesTagExist("Numberwang");
+
+        as(Tenants.DEFAULT);
+        assert !tagService.doesTagExist("Numberwang");
+
+        assert countTags(SHARD_A_URL, "acme", "Numberwang") == 1;
+    }
+
+    @Test
+    public void shouldMoveTenantBetweenShards() throws Exception {
+        mover.add("initech", "a");
+        as("initech");
+        tagService.addTag(new Tag("Stapler"));
+        RequestContextHolder.resetRequestAttributes();
+
+        mover.move("initech", "b");
+        assert router.getDirectory().shardOf("initech").equals("b");
+        assert !router.getDirectory().isMoving("initech");
+        assert countTags(SHARD_B_URL, "initech", "Stapler") == 1;
+
+        as("initech");
+        assert tagService.doesTagExist("Stapler");
+        tagService.addTag(new Tag("Printer"));
+        assert countTags(SHARD_B_URL, "initech", "Printer") == 1;
+        assert countTags(SHARD_A_URL, "initech", "Printer") == 0;
+    }
+
+    private void as(final String tenant) {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(Tenants.ATTRIBUTE, tenant);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    private int countTags(final String url, final String tenant, final String name) {
+        final JdbcTemplate shard = new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+        return shard.queryForObject("SELECT COUNT(*) FROM \"" + Tenants.schemaOf(tenant)
+                + "\".tags WHERE name = ?", Integer.class, name);
+    }
+}